@@ -0,0 +1,129 @@
+import { render, screen, waitFor } from "@testing-library/react";
+import userEvent from "@testing-library/user-event";
+import { beforeEach, describe, expect, it, vi } from "vitest";
+import AddCommunityFragranceDialog from "./AddCommunityFragranceDialog";
+
+const mocks = vi.hoisted(() => {
+  class ApiError extends Error {
+    status: number;
+    body: unknown;
+
+    constructor(message: string, status: number, body: unknown) {
+      super(message);
+      this.status = status;
+      this.body = body;
+    }
+  }
+  return {
+    ApiError,
+    createCommunityFragrance: vi.fn(),
+    findCommunityFragranceDuplicates: vi.fn(),
+    searchNotes: vi.fn(),
+  };
+});
+
+vi.mock("@/lib/api/client", () => ({
+  authedFetch: vi.fn(),
+  ApiError: mocks.ApiError,
+}));
+
+// likelyDuplicateCandidates stays real so the 409 is read the way the app reads it.
+vi.mock("@/lib/api/fragrances", async (importOriginal) => ({
+  ...(await importOriginal<typeof import("@/lib/api/fragrances")>()),
+  createCommunityFragrance: mocks.createCommunityFragrance,
+  findCommunityFragranceDuplicates: mocks.findCommunityFragranceDuplicates,
+  searchNotes: mocks.searchNotes,
+}));
+
+vi.mock("@/lib/api/uploads", () => ({
+  uploadImageFile: vi.fn(),
+  validateImageUploadFile: vi.fn(),
+}));
+
+const candidate = {
+  source: "fragella",
+  externalId: "sauvage-edp",
+  name: "Sauvage",
+  brand: "Dior",
+  year: "2018",
+  imageUrl: null,
+  score: 0.95,
+};
+
+function renderDialog() {
+  const onSaved = vi.fn();
+  const onOpenChange = vi.fn();
+  render(<AddCommunityFragranceDialog open onOpenChange={onOpenChange} onSaved={onSaved} />);
+  return { onSaved, onOpenChange };
+}
+
+async function fillPublicDraft(user: ReturnType<typeof userEvent.setup>) {
+  await user.type(screen.getByPlaceholderText("Dior"), "Dior");
+  await user.type(screen.getByPlaceholderText("Sauvage"), "Sauvage");
+  await user.click(screen.getByRole("switch"));
+}
+
+describe("AddCommunityFragranceDialog duplicates", () => {
+  beforeEach(() => {
+    vi.clearAllMocks();
+    mocks.searchNotes.mockResolvedValue([]);
+    mocks.findCommunityFragranceDuplicates.mockResolvedValue([]);
+  });
+
+  it("lists the candidates from a 409 and submits anyway on request", async () => {
+    const user = userEvent.setup();
+    const saved = { source: "community", externalId: "c-1", name: "Sauvage", brand: "Dior" };
+    mocks.createCommunityFragrance
+      .mockRejectedValueOnce(new mocks.ApiError("Conflict", 409, { error: "LIKELY_DUPLICATE", candidates: [candidate] }))
+      .mockResolvedValueOnce(saved);
+    const { onSaved, onOpenChange } = renderDialog();
+
+    await fillPublicDraft(user);
+    await user.click(screen.getByRole("button", { name: "Create" }));
+
+    expect(await screen.findByText("This looks like a fragrance that is already listed:")).toBeInTheDocument();
+    expect(screen.getByText("Dior Sauvage (2018)")).toBeInTheDocument();
+    expect(onSaved).not.toHaveBeenCalled();
+
+    await user.click(screen.getByRole("button", { name: "Submit anyway" }));
+
+    await waitFor(() => expect(onSaved).toHaveBeenCalledWith(saved));
+    expect(onOpenChange).toHaveBeenCalledWith(false);
+    expect(mocks.createCommunityFragrance).toHaveBeenCalledTimes(2);
+    expect(mocks.createCommunityFragrance.mock.calls[0][0].ignoreDuplicates).toBeUndefined();
+    expect(mocks.createCommunityFragrance.mock.calls[1][0]).toMatchObject({
+      brand: "Dior",
+      name: "Sauvage",
+      visibility: "PUBLIC",
+      ignoreDuplicates: true,
+    });
+    // Submitting anyway skips the pre-check; only the first attempt ran it.
+    expect(mocks.findCommunityFragranceDuplicates).toHaveBeenCalledTimes(1);
+  });
+
+  it("shows pre-check matches without creating anything", async () => {
+    const user = userEvent.setup();
+    mocks.findCommunityFragranceDuplicates.mockResolvedValue([candidate]);
+    renderDialog();
+
+    await fillPublicDraft(user);
+    await user.click(screen.getByRole("button", { name: "Create" }));
+
+    expect(await screen.findByRole("button", { name: "Submit anyway" })).toBeInTheDocument();
+    expect(mocks.createCommunityFragrance).not.toHaveBeenCalled();
+  });
+
+  it("clears the prompt once the draft is edited", async () => {
+    const user = userEvent.setup();
+    mocks.findCommunityFragranceDuplicates.mockResolvedValue([candidate]);
+    renderDialog();
+
+    await fillPublicDraft(user);
+    await user.click(screen.getByRole("button", { name: "Create" }));
+    await screen.findByRole("button", { name: "Submit anyway" });
+
+    await user.type(screen.getByPlaceholderText("Sauvage"), " Elixir");
+
+    expect(screen.queryByRole("button", { name: "Submit anyway" })).not.toBeInTheDocument();
+  });
+});
@@ -7,10 +7,13 @@ import { ToggleGroup, ToggleGroupItem } from "@/components/ui/toggle-group";
 import defaultNoteImg from "@/assets/notes/default-note.png";
 import {
   createCommunityFragrance,
+  findCommunityFragranceDuplicates,
+  likelyDuplicateCandidates,
   updateCommunityFragrance,
   searchNotes,
   type NoteDictionaryItem,
   type CreateCommunityFragranceRequest,
+  type DuplicateCandidate,
   type FragranceSearchResult,
 } from "@/lib/api/fragrances";
 import { uploadImageFile, validateImageUploadFile } from "@/lib/api/uploads";
@@ -151,6 +154,8 @@ export default function AddCommunityFragranceDialog({
 
   const [saving, setSaving] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  // Existing fragrances a PUBLIC draft looks like; shown until the user edits or submits anyway.
+  const [duplicates, setDuplicates] = useState<DuplicateCandidate[] | null>(null);
   const [noteAddedHint, setNoteAddedHint] = useState<string | null>(null);
 
   useEffect(() => {
@@ -193,9 +198,14 @@ export default function AddCommunityFragranceDialog({
     setNoteSearch("");
     setNoteResults([]);
     setError(null);
+    setDuplicates(null);
     setNoteAddedHint(null);
   }, [open, initialBrand, initialName, initialFragrance]);
 
+  useEffect(() => {
+    setDuplicates(null);
+  }, [brand, name, year, concentration, visibility]);
+
   useEffect(() => {
     if (!noteAddedHint) return;
     const t = window.setTimeout(() => setNoteAddedHint(null), 1400);
@@ -288,26 +298,10 @@ export default function AddCommunityFragranceDialog({
     setAccords((prev) => prev.filter((item) => item.name !== name));
   }
 
-  async function onSave() {
+  async function onSave(ignoreDuplicates = false) {
     setError(null);
     setImageError(null);
     if (!canSave) return;
-    let uploadedImageObjectKey = imageObjectKey;
-    let uploadedImageUrl = imageUrl.trim() || null;
-
-    if (imageFile) {
-      setUploadingImage(true);
-      try {
-        const uploaded = await uploadImageFile(imageFile, "FRAGRANCE");
-        uploadedImageObjectKey = uploaded.objectKey;
-        uploadedImageUrl = uploaded.publicUrl;
-      } catch (e: any) {
-        setImageError(e?.message || "Image upload failed.");
-        setUploadingImage(false);
-        return;
-      }
-      setUploadingImage(false);
-    }
 
     const mainAccords = accords.map((x) => x.name);
     const mainAccordsPercentage = accords.length
@@ -342,8 +336,8 @@ export default function AddCommunityFragranceDialog({
       name: name.trim(),
       brand: brand.trim(),
       year: year.trim() || null,
-      imageObjectKey: uploadedImageObjectKey || null,
-      imageUrl: uploadedImageUrl,
+      imageObjectKey: imageObjectKey || null,
+      imageUrl: imageUrl.trim() || null,
       concentration: concentration.trim() || null,
       longevityScore: null,
       sillageScore: null,
@@ -358,8 +352,40 @@ export default function AddCommunityFragranceDialog({
       topNoteNames: !isEdit || top.length ? toCustomNames(top) : undefined,
       middleNoteNames: !isEdit || middle.length ? toCustomNames(middle) : undefined,
       baseNoteNames: !isEdit || base.length ? toCustomNames(base) : undefined,
+      ignoreDuplicates: ignoreDuplicates || undefined,
     };
 
+    // Check before uploading anything; the create repeats the check and answers 409 with the matches.
+    if (!isEdit && visibility === "PUBLIC" && !ignoreDuplicates) {
+      setSaving(true);
+      try {
+        const found = await findCommunityFragranceDuplicates(body);
+        if (found.length) {
+          setDuplicates(found);
+          return;
+        }
+      } catch {
+        // The create still checks.
+      } finally {
+        setSaving(false);
+      }
+    }
+    setDuplicates(null);
+
+    if (imageFile) {
+      setUploadingImage(true);
+      try {
+        const uploaded = await uploadImageFile(imageFile, "FRAGRANCE");
+        body.imageObjectKey = uploaded.objectKey;
+        body.imageUrl = uploaded.publicUrl;
+      } catch (e: any) {
+        setImageError(e?.message || "Image upload failed.");
+        setUploadingImage(false);
+        return;
+      }
+      setUploadingImage(false);
+    }
+
     setSaving(true);
     try {
       const externalId = String(initialFragrance?.externalId ?? "").trim();
@@ -369,7 +395,12 @@ export default function AddCommunityFragranceDialog({
       onSaved(saved);
       onOpenChange(false);
     } catch (e: any) {
-      setError(e?.message || `Failed to ${isEdit ? "update" : "create"} fragrance.`);
+      const candidates = likelyDuplicateCandidates(e);
+      if (candidates) {
+        setDuplicates(candidates);
+      } else {
+        setError(e?.message || `Failed to ${isEdit ? "update" : "create"} fragrance.`);
+      }
     } finally {
       setUploadingImage(false);
       setSaving(false);
@@ -391,6 +422,28 @@ export default function AddCommunityFragranceDialog({
         Set the core details first, then add accords and notes to shape the scent profile.
       </p>
 
+      {duplicates?.length ? (
+        <div className="rounded-md border border-amber-500/20 bg-amber-500/10 px-3 py-2 text-sm text-amber-100">
+          <p>This looks like a fragrance that is already listed:</p>
+          <ul className="mt-2 space-y-1">
+            {duplicates.map((d) => (
+              <li key={`${d.source}:${d.externalId}`} className="flex items-center gap-2">
+                {d.imageUrl ? <img src={d.imageUrl} alt="" className="h-8 w-8 rounded object-cover" /> : null}
+                <span>
+                  {[d.brand, d.name].filter(Boolean).join(" ")}
+                  {d.year && d.year !== "0" ? ` (${d.year})` : ""}
+                </span>
+              </li>
+            ))}
+          </ul>
+          <div className="mt-3 flex items-center gap-2">
+            <Button type="button" className="h-8 rounded-md px-3 text-xs" onClick={() => onSave(true)} disabled={saving || uploadingImage}>
+              Submit anyway
+            </Button>
+            <span className="text-xs text-amber-100/70">Only if it is a different fragrance.</span>
+          </div>
+        </div>
+      ) : null}
       {error ? <div className="rounded-md border border-red-500/20 bg-red-500/10 px-3 py-2 text-sm text-red-200">{error}</div> : null}
 
       {!isEdit ? (
@@ -616,7 +669,7 @@ export default function AddCommunityFragranceDialog({
 
         <div className="mt-1 flex items-center justify-end gap-2 border-t border-white/10 pt-4">
           <Button type="button" variant="secondary" className="h-10 rounded-md border border-white/12 bg-white/10 text-white hover:bg-white/15" onClick={() => onOpenChange(false)}>Cancel</Button>
-          <Button type="button" className="h-10 rounded-md px-5" onClick={onSave} disabled={!canSave || saving || uploadingImage}>{saving || uploadingImage ? (isEdit ? "Saving…" : "Creating…") : (isEdit ? "Save changes" : "Create")}</Button>
+          <Button type="button" className="h-10 rounded-md px-5" onClick={() => onSave()} disabled={!canSave || saving || uploadingImage}>{saving || uploadingImage ? (isEdit ? "Saving…" : "Creating…") : (isEdit ? "Save changes" : "Create")}</Button>
         </div>
       </div>
     </>
@@ -0,0 +1,48 @@
+import { beforeEach, describe, expect, it, vi } from "vitest";
+
+const mocks = vi.hoisted(() => {
+  class ApiError extends Error {
+    status: number;
+    body: unknown;
+
+    constructor(message: string, status: number, body: unknown) {
+      super(message);
+      this.status = status;
+      this.body = body;
+    }
+  }
+  return { authedFetch: vi.fn(), ApiError };
+});
+
+vi.mock("@/lib/api/client", () => ({
+  authedFetch: mocks.authedFetch,
+  ApiError: mocks.ApiError,
+}));
+
+import { findCommunityFragranceDuplicates, likelyDuplicateCandidates } from "./fragrances";
+
+describe("community fragrance duplicates", () => {
+  beforeEach(() => {
+    vi.clearAllMocks();
+    mocks.authedFetch.mockResolvedValue([]);
+  });
+
+  it("posts the draft to the duplicates endpoint", async () => {
+    await findCommunityFragranceDuplicates({ name: "Sauvage", brand: "Dior", visibility: "PUBLIC" });
+
+    expect(mocks.authedFetch).toHaveBeenCalledWith("/api/v1/community-fragrances/duplicates", {
+      method: "POST",
+      headers: { "Content-Type": "application/json" },
+      body: JSON.stringify({ name: "Sauvage", brand: "Dior", visibility: "PUBLIC" }),
+    });
+  });
+
+  it("reads the candidates out of a LIKELY_DUPLICATE conflict only", () => {
+    const candidate = { source: "fragella", externalId: "sauvage-edp", name: "Sauvage", brand: "Dior", year: "2018", imageUrl: null, score: 0.95 };
+
+    expect(likelyDuplicateCandidates(new mocks.ApiError("x", 409, { error: "LIKELY_DUPLICATE", candidates: [candidate] }))).toEqual([candidate]);
+    expect(likelyDuplicateCandidates(new mocks.ApiError("x", 409, { error: "USERNAME_TAKEN" }))).toBeNull();
+    expect(likelyDuplicateCandidates(new mocks.ApiError("x", 400, { error: "LIKELY_DUPLICATE", candidates: [] }))).toBeNull();
+    expect(likelyDuplicateCandidates(new Error("network"))).toBeNull();
+  });
+});
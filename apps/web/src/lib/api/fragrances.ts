@@ -1,5 +1,5 @@
 // apps/web/src/lib/api/fragrances.ts
-import { authedFetch } from "@/lib/api/client";
+import { ApiError, authedFetch } from "@/lib/api/client";
 
 export type NoteDto = { id?: string | null; name: string; imageUrl: string | null };
 export type NotesDto = { top: NoteDto[]; middle: NoteDto[]; base: NoteDto[] };
@@ -124,6 +124,17 @@ export type CreateCommunityFragranceRequest = {
   topNoteNames?: string[];
   middleNoteNames?: string[];
   baseNoteNames?: string[];
+  ignoreDuplicates?: boolean;
+};
+
+export type DuplicateCandidate = {
+  source: string | null;
+  externalId: string | null;
+  name: string | null;
+  brand: string | null;
+  year: string | null;
+  imageUrl: string | null;
+  score: number;
 };
 
 /**
@@ -244,6 +255,23 @@ export function createCommunityFragrance(body: CreateCommunityFragranceRequest)
   });
 }
 
+/** Existing fragrances a draft looks like; empty when nothing is close. */
+export function findCommunityFragranceDuplicates(body: CreateCommunityFragranceRequest) {
+  return authedFetch<DuplicateCandidate[]>(`/api/v1/community-fragrances/duplicates`, {
+    method: "POST",
+    headers: { "Content-Type": "application/json" },
+    body: JSON.stringify(body),
+  });
+}
+
+/** The matches behind a create rejected as a likely duplicate (409 LIKELY_DUPLICATE), otherwise null. */
+export function likelyDuplicateCandidates(e: unknown): DuplicateCandidate[] | null {
+  if (!(e instanceof ApiError) || e.status !== 409) return null;
+  const body = e.body as { error?: unknown; candidates?: unknown } | null;
+  if (!body || body.error !== "LIKELY_DUPLICATE" || !Array.isArray(body.candidates)) return null;
+  return body.candidates as DuplicateCandidate[];
+}
+
 export function updateCommunityFragrance(externalId: string, body: CreateCommunityFragranceRequest) {
   return authedFetch<FragranceSearchResult>(`/api/v1/community-fragrances/${encodeURIComponent(externalId)}`, {
     method: "PUT",
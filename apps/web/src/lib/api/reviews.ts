@@ -1,5 +1,5 @@
 import { authedFetch } from "@/lib/api/client";
-import type { ReviewCommentItem, ReviewThreadResponse } from "@/lib/api/types";
+import type { ReviewCommentItem, ReviewCommentsPage, ReviewThreadResponse } from "@/lib/api/types";
 
 export type SubmitReviewRequest = {
   source: "FRAGELLA" | "COMMUNITY";
@@ -76,8 +76,10 @@ export function unrepostReview(reviewId: string) {
   });
 }
 
-export function getReviewThread(reviewId: string) {
-  return authedFetch<ReviewThreadResponse>(`/api/v1/reviews/${encodeURIComponent(reviewId)}`);
+export function getReviewThread(reviewId: string, params?: { commentsLimit?: number }) {
+  const query = new URLSearchParams();
+  query.set("commentsLimit", String(params?.commentsLimit ?? 20));
+  return authedFetch<ReviewThreadResponse>(`/api/v1/reviews/${encodeURIComponent(reviewId)}?${query.toString()}`);
 }
 
 export type CreateReviewCommentRequest = {
@@ -85,8 +87,20 @@ export type CreateReviewCommentRequest = {
   parentCommentId?: string | null;
 };
 
-export function listReviewComments(reviewId: string) {
-  return authedFetch<ReviewCommentItem[]>(`/api/v1/reviews/${encodeURIComponent(reviewId)}/comments`);
+export function listReviewComments(reviewId: string, params?: { limit?: number; cursor?: string }) {
+  const query = new URLSearchParams();
+  query.set("limit", String(params?.limit ?? 20));
+  if (params?.cursor) query.set("cursor", params.cursor);
+  return authedFetch<ReviewCommentsPage>(`/api/v1/reviews/${encodeURIComponent(reviewId)}/comments?${query.toString()}`);
+}
+
+export function listReviewCommentReplies(reviewId: string, commentId: string, params?: { limit?: number; cursor?: string }) {
+  const query = new URLSearchParams();
+  query.set("limit", String(params?.limit ?? 20));
+  if (params?.cursor) query.set("cursor", params.cursor);
+  return authedFetch<ReviewCommentsPage>(
+    `/api/v1/reviews/${encodeURIComponent(reviewId)}/comments/${encodeURIComponent(commentId)}/replies?${query.toString()}`
+  );
 }
 
 export function createReviewComment(reviewId: string, body: CreateReviewCommentRequest) {
@@ -9,6 +9,11 @@ export type CollectionItem = {
   addedAt: string;
 };
 
+export type CollectionPage = {
+  items: CollectionItem[];
+  nextCursor: string | null;
+};
+
 export type MeResponse = {
     id: string;            // UUID
     cognitoSub: string;
@@ -73,9 +78,13 @@ export type UserProfileResponse = {
   wishlistItems: CollectionItem[];
   topFragrances: CollectionItem[];
   communityFragrances: CollectionItem[];
+  collectionNextCursor: string | null;
+  wishlistNextCursor: string | null;
+  communityFragrancesNextCursor: string | null;
   followsYou: boolean;
   isFollowing: boolean;
   followRequested: boolean;
+  partial: boolean;
 };
 
 export type CreatorRatingSummary = {
@@ -241,11 +250,18 @@ export type ReviewCommentItem = {
   authorAvatarUrl: string | null;
   body: string;
   createdAt: string;
+  replyCount: number;
   viewerCanDelete: boolean;
 };
 
+export type ReviewCommentsPage = {
+  items: ReviewCommentItem[];
+  nextCursor: string | null;
+};
+
 export type ReviewThreadResponse = {
   review: FeedItem;
   comments: ReviewCommentItem[];
+  commentsNextCursor: string | null;
 };
   
@@ -1,5 +1,5 @@
 import { authedFetch } from "@/lib/api/client";
-import type { CreatorRatingSummary, UserProfileResponse, UserSearchItem } from "@/lib/api/types";
+import type { CollectionPage, CreatorRatingSummary, UserProfileResponse, UserSearchItem } from "@/lib/api/types";
 
 export function searchUsers(params: { q: string; limit?: number }, init: RequestInit = {}) {
   const q = encodeURIComponent(params.q ?? "");
@@ -11,6 +11,25 @@ export function getUserProfile(username: string, init: RequestInit = {}) {
   return authedFetch<UserProfileResponse>(`/api/v1/users/${encodeURIComponent(username)}`, init);
 }
 
+function listUserShelf(username: string, shelf: string, params?: { limit?: number; cursor?: string }) {
+  const query = new URLSearchParams();
+  query.set("limit", String(params?.limit ?? 24));
+  if (params?.cursor) query.set("cursor", params.cursor);
+  return authedFetch<CollectionPage>(`/api/v1/users/${encodeURIComponent(username)}/${shelf}?${query.toString()}`);
+}
+
+export function listUserCollection(username: string, params?: { limit?: number; cursor?: string }) {
+  return listUserShelf(username, "collection", params);
+}
+
+export function listUserWishlist(username: string, params?: { limit?: number; cursor?: string }) {
+  return listUserShelf(username, "wishlist", params);
+}
+
+export function listUserCommunityFragrances(username: string, params?: { limit?: number; cursor?: string }) {
+  return listUserShelf(username, "community-fragrances", params);
+}
+
 export function getCreatorRatingSummary(username: string, init: RequestInit = {}) {
   return authedFetch<CreatorRatingSummary>(`/api/v1/users/${encodeURIComponent(username)}/creator-rating`, init);
 }
@@ -1,4 +1,4 @@
-import { useCallback, useEffect, useMemo, useRef, useState } from "react";
+import { useCallback, useEffect, useRef, useState } from "react";
 import { ArrowLeft, Ellipsis, Flag, Heart, MessageCircle, Repeat2, Reply, Trash2 } from "lucide-react";
 import { useLocation, useNavigate, useParams } from "react-router-dom";
 import ReviewCard from "@/components/feed/ReviewCard";
@@ -13,6 +13,8 @@ import {
   deleteReviewComment as deletePostComment,
   getReviewThread as getPostThread,
   likeReview as likePost,
+  listReviewCommentReplies as listPostCommentReplies,
+  listReviewComments as listPostComments,
   repostReview as repostPost,
   reportReview as reportPost,
   reportReviewComment as reportPostComment,
@@ -46,8 +48,16 @@ type ScentSelection = {
 type PostThreadResponse = {
   post: FeedItem;
   comments: PostCommentItem[];
+  commentsNextCursor: string | null;
 };
 
+type RepliesPage = {
+  items: PostCommentItem[];
+  nextCursor: string | null;
+};
+
+const COMMENTS_PAGE_SIZE = 20;
+
 function parseScentSelections(payload: string | null | undefined): ScentSelection[] {
   if (!payload) return [];
   try {
@@ -216,6 +226,9 @@ export default function PostDetailsPage() {
   const [repostingPostId, setRepostingPostId] = useState<string | null>(null);
   const [threadMenuOpen, setThreadMenuOpen] = useState(false);
   const [deletingPost, setDeletingPost] = useState(false);
+  const [repliesByParent, setRepliesByParent] = useState<Record<string, RepliesPage>>({});
+  const [loadingRepliesFor, setLoadingRepliesFor] = useState<string | null>(null);
+  const [loadingMoreComments, setLoadingMoreComments] = useState(false);
   const composerRef = useRef<HTMLElement | null>(null);
   const composerInputRef = useRef<HTMLTextAreaElement | null>(null);
   const threadMenuRef = useRef<HTMLDivElement | null>(null);
@@ -226,12 +239,14 @@ export default function PostDetailsPage() {
     setLoading(true);
     setError(null);
     try {
-      const data = await getPostThread(postId);
+      const data = await getPostThread(postId, { commentsLimit: COMMENTS_PAGE_SIZE });
       const normalized: PostThreadResponse = {
         post: data.review,
         comments: data.comments,
+        commentsNextCursor: data.commentsNextCursor,
       };
       setThread(normalized);
+      setRepliesByParent({});
     } catch (e: any) {
       setError(e?.message || "Failed to load comments.");
       setThread(null);
@@ -283,17 +298,46 @@ export default function PostDetailsPage() {
     };
   }, [threadMenuOpen]);
 
-  const commentsByParent = useMemo(() => {
-    const grouped = new Map<string | null, PostCommentItem[]>();
-    for (const c of thread?.comments ?? []) {
-      const key = c.parentCommentId ?? null;
-      if (!grouped.has(key)) grouped.set(key, []);
-      grouped.get(key)!.push(c);
+  const rootComments = thread?.comments ?? [];
+
+  async function onLoadMoreComments() {
+    if (!thread?.post?.id || !thread.commentsNextCursor || loadingMoreComments) return;
+    setLoadingMoreComments(true);
+    setError(null);
+    try {
+      const page = await listPostComments(thread.post.id, { limit: COMMENTS_PAGE_SIZE, cursor: thread.commentsNextCursor });
+      setThread((prev) =>
+        prev ? { ...prev, comments: [...prev.comments, ...page.items], commentsNextCursor: page.nextCursor } : prev
+      );
+    } catch (e: any) {
+      setError(e?.message || "Failed to load more comments.");
+    } finally {
+      setLoadingMoreComments(false);
     }
-    return grouped;
-  }, [thread?.comments]);
+  }
 
-  const rootComments = commentsByParent.get(null) ?? [];
+  async function loadReplies(parentId: string, cursor: string | null) {
+    if (!thread?.post?.id) return;
+    setLoadingRepliesFor(parentId);
+    setError(null);
+    try {
+      const page = await listPostCommentReplies(thread.post.id, parentId, {
+        limit: COMMENTS_PAGE_SIZE,
+        cursor: cursor ?? undefined,
+      });
+      setRepliesByParent((prev) => ({
+        ...prev,
+        [parentId]: {
+          items: cursor ? [...(prev[parentId]?.items ?? []), ...page.items] : page.items,
+          nextCursor: page.nextCursor,
+        },
+      }));
+    } catch (e: any) {
+      setError(e?.message || "Failed to load replies.");
+    } finally {
+      setLoadingRepliesFor(null);
+    }
+  }
 
   async function onSubmitComment() {
     const body = newComment.trim();
@@ -301,13 +345,27 @@ export default function PostDetailsPage() {
     setSubmitting(true);
     setError(null);
     try {
+      const parentId = replyTarget?.id ?? null;
       await createPostComment(thread.post.id, {
         body,
-        parentCommentId: replyTarget?.id ?? null,
+        parentCommentId: parentId,
       });
       setNewComment("");
       setReplyTarget(null);
-      await loadPostThread();
+      if (parentId) {
+        setThread((prev) =>
+          prev
+            ? {
+                ...prev,
+                post: { ...prev.post, commentsCount: prev.post.commentsCount + 1 },
+                comments: prev.comments.map((c) => (c.id === parentId ? { ...c, replyCount: c.replyCount + 1 } : c)),
+              }
+            : prev
+        );
+        await loadReplies(parentId, null);
+      } else {
+        await loadPostThread();
+      }
     } catch (e: any) {
       setError(e?.message || "Failed to post comment.");
     } finally {
@@ -742,7 +800,7 @@ export default function PostDetailsPage() {
               <div className="mb-3 flex items-center justify-between gap-2">
                 <div className="text-sm font-semibold text-white">
                   <MessageCircle className="mr-1.5 inline h-4 w-4 text-[#3EB489]" />
-                  {thread.comments.length} comment{thread.comments.length === 1 ? "" : "s"}
+                  {thread.post.commentsCount} comment{thread.post.commentsCount === 1 ? "" : "s"}
                 </div>
               </div>
 
@@ -753,20 +811,51 @@ export default function PostDetailsPage() {
               ) : (
                 <div className="space-y-3">
                   {rootComments.map((comment) => {
-                    const replies = commentsByParent.get(comment.id) ?? [];
+                    const replies = repliesByParent[comment.id];
+                    const loadingReplies = loadingRepliesFor === comment.id;
                     return (
                       <div key={comment.id} className="space-y-2">
                         {renderComment(comment, false)}
-                        {replies.length ? (
+                        {replies?.items.length ? (
                           <div className="ml-5 space-y-2 border-l border-cyan-200/25 pl-3">
-                            {replies.map((reply) => renderComment(reply, true))}
+                            {replies.items.map((reply) => renderComment(reply, true))}
                           </div>
                         ) : null}
+                        {(!replies && comment.replyCount > 0) || replies?.nextCursor ? (
+                          <button
+                            type="button"
+                            className="ml-5 inline-flex items-center gap-1.5 text-xs font-medium text-cyan-200 transition hover:text-cyan-100 disabled:opacity-60"
+                            onClick={() => void loadReplies(comment.id, replies?.nextCursor ?? null)}
+                            disabled={loadingReplies}
+                          >
+                            {loadingReplies ? <InlineSpinner /> : null}
+                            {replies
+                              ? "Show more replies"
+                              : `View ${comment.replyCount} repl${comment.replyCount === 1 ? "y" : "ies"}`}
+                          </button>
+                        ) : null}
                       </div>
                     );
                   })}
                 </div>
               )}
+              {thread.commentsNextCursor ? (
+                <div className="pt-3">
+                  <Button
+                    variant="secondary"
+                    className="h-9 rounded-xl border border-white/12 bg-white/8 px-3 text-sm text-white hover:bg-white/14"
+                    onClick={() => void onLoadMoreComments()}
+                    disabled={loadingMoreComments}
+                  >
+                    {loadingMoreComments ? (
+                      <span className="inline-flex items-center gap-2">
+                        <InlineSpinner />
+                        <span>Loading...</span>
+                      </span>
+                    ) : "Load more comments"}
+                  </Button>
+                </div>
+              ) : null}
             </section>
           </div>
         )}
@@ -793,7 +882,9 @@ export default function PostDetailsPage() {
         targetLabel={
           reportCommentId
             ? (() => {
-              const found = thread?.comments.find((c) => c.id === reportCommentId);
+              const found =
+                thread?.comments.find((c) => c.id === reportCommentId) ??
+                Object.values(repliesByParent).flatMap((page) => page.items).find((c) => c.id === reportCommentId);
               if (!found) return "Comment";
               const excerpt = found.body.length > 60 ? `${found.body.slice(0, 60)}...` : found.body;
               return `@${found.authorUsername}: ${excerpt}`;
@@ -11,11 +11,14 @@ import VerifiedBadge from "@/components/profile/VerifiedBadge";
 import { followUser, unfollowUser } from "@/lib/api/follows";
 import { listUserPostFeed, listUserReviewFeed } from "@/lib/api/feed";
 import { likeReview, repostReview, unlikeReview, unrepostReview } from "@/lib/api/reviews";
-import { getUserProfile } from "@/lib/api/users";
+import { getUserProfile, listUserCollection, listUserCommunityFragrances, listUserWishlist } from "@/lib/api/users";
 import type { FeedItem, UserProfileResponse } from "@/lib/api/types";
 import fragranceFallbackImg from "@/assets/illustrations/NotFound.png";
 
 const FALLBACK_FRAGRANCE_IMG = fragranceFallbackImg;
+const SHELF_PAGE_SIZE = 24;
+
+type ProfileShelf = "collection" | "wishlist" | "community";
 const DEFAULT_AVATAR_IMG = "/stacta.png";
 
 function compactCount(value: number | null | undefined) {
@@ -183,6 +186,9 @@ export default function PublicProfilePage() {
   const [likingReviewId, setLikingReviewId] = useState<string | null>(null);
   const [repostingReviewId, setRepostingReviewId] = useState<string | null>(null);
   const [avatarPreviewOpen, setAvatarPreviewOpen] = useState(false);
+  const [shelfLoadingMore, setShelfLoadingMore] = useState<ProfileShelf | null>(null);
+  const [shelfError, setShelfError] = useState<{ shelf: ProfileShelf; message: string } | null>(null);
+  const [retryingProfile, setRetryingProfile] = useState(false);
 
   const backTarget = useMemo(() => {
     const stateFrom = (location.state as any)?.from?.pathname;
@@ -203,6 +209,7 @@ export default function PublicProfilePage() {
       setProfileVisible(false);
       setLoading(true);
       setError(null);
+      setShelfError(null);
       try {
         const data = await getUserProfile(username);
         if (cancelled) return;
@@ -333,6 +340,88 @@ export default function PublicProfilePage() {
     }
   }
 
+  async function onLoadMoreShelf(shelf: ProfileShelf) {
+    if (!profile || shelfLoadingMore) return;
+    const cursor =
+      shelf === "collection"
+        ? profile.collectionNextCursor
+        : shelf === "wishlist"
+          ? profile.wishlistNextCursor
+          : profile.communityFragrancesNextCursor;
+    if (!cursor) return;
+    setShelfLoadingMore(shelf);
+    setShelfError(null);
+    try {
+      const params = { limit: SHELF_PAGE_SIZE, cursor };
+      if (shelf === "collection") {
+        const page = await listUserCollection(profile.username, params);
+        setProfile((prev) =>
+          prev ? { ...prev, collectionItems: [...prev.collectionItems, ...page.items], collectionNextCursor: page.nextCursor } : prev
+        );
+      } else if (shelf === "wishlist") {
+        const page = await listUserWishlist(profile.username, params);
+        setProfile((prev) =>
+          prev ? { ...prev, wishlistItems: [...prev.wishlistItems, ...page.items], wishlistNextCursor: page.nextCursor } : prev
+        );
+      } else {
+        const page = await listUserCommunityFragrances(profile.username, params);
+        setProfile((prev) =>
+          prev
+            ? {
+                ...prev,
+                communityFragrances: [...prev.communityFragrances, ...page.items],
+                communityFragrancesNextCursor: page.nextCursor,
+              }
+            : prev
+        );
+      }
+    } catch (e: any) {
+      setShelfError({ shelf, message: e?.message || "Failed to load more fragrances." });
+    } finally {
+      setShelfLoadingMore(null);
+    }
+  }
+
+  async function onRetryProfile() {
+    if (!profile || retryingProfile) return;
+    setRetryingProfile(true);
+    try {
+      const next = await getUserProfile(profile.username);
+      setProfile(next);
+    } catch (e: any) {
+      setError(e?.message || "Failed to load profile.");
+    } finally {
+      setRetryingProfile(false);
+    }
+  }
+
+  function renderShelfMore(shelf: ProfileShelf, cursor: string | null, label: string) {
+    const error = shelfError?.shelf === shelf ? shelfError.message : null;
+    if (!cursor && !error) return null;
+    return (
+      <div className="pt-3">
+        {error ? (
+          <div className="mb-2 rounded-xl border border-red-500/20 bg-red-500/10 px-3 py-2 text-sm text-red-200">{error}</div>
+        ) : null}
+        {cursor ? (
+          <Button
+            variant="secondary"
+            className="h-9 rounded-xl border border-white/12 bg-white/8 px-3 text-sm text-white hover:bg-white/14"
+            onClick={() => onLoadMoreShelf(shelf)}
+            disabled={shelfLoadingMore !== null}
+          >
+            {shelfLoadingMore === shelf ? (
+              <span className="inline-flex items-center gap-2">
+                <InlineSpinner />
+                <span>Loading...</span>
+              </span>
+            ) : label}
+          </Button>
+        ) : null}
+      </div>
+    );
+  }
+
   async function onLoadMorePosts() {
     if (!profile || !postCursor || postsLoadingMore) return;
     setPostsLoadingMore(true);
@@ -774,6 +863,20 @@ export default function PublicProfilePage() {
                 </div>
                 <div className="px-1 pt-1 text-[11px] text-white/45 sm:hidden">Swipe right to see more tabs.</div>
 
+                {profile.partial ? (
+                  <div className="flex items-center justify-between gap-3 rounded-xl border border-amber-300/20 bg-amber-300/10 px-3 py-2 text-sm text-amber-100/90">
+                    <span>Some sections took too long to load.</span>
+                    <Button
+                      variant="secondary"
+                      className="h-8 rounded-lg border border-white/12 bg-white/8 px-3 text-xs text-white hover:bg-white/14"
+                      onClick={onRetryProfile}
+                      disabled={retryingProfile}
+                    >
+                      {retryingProfile ? <InlineSpinner /> : "Retry"}
+                    </Button>
+                  </div>
+                ) : null}
+
                 {activeTab === "overview" ? (
                   <div className="space-y-6">
                     <div>
@@ -876,6 +979,7 @@ export default function PublicProfilePage() {
                               </button>
                             ))}
                           </div>
+                          {renderShelfMore("collection", profile.collectionNextCursor, "Load more fragrances")}
                         </div>
                       )}
                     </div>
@@ -1098,45 +1202,48 @@ export default function PublicProfilePage() {
                         No fragrances in wishlist yet.
                       </div>
                     ) : (
-                      <div className="mt-4 grid gap-3 sm:grid-cols-2">
-                        {profile.wishlistItems.map((item) => (
-                          <button
-                            key={`${item.source}:${item.externalId}`}
-                            type="button"
-                            className="group w-full rounded-2xl border border-white/10 bg-white/[0.03] p-4 text-left transition hover:bg-white/[0.08]"
-                            onClick={() => openFragranceDetail(item.source, item.externalId)}
-                          >
-                            <div className="flex w-full items-center gap-4 text-left">
-                              <img
-                                src={item.imageUrl?.trim() ? item.imageUrl : FALLBACK_FRAGRANCE_IMG}
-                                alt={item.name}
-                                className="h-20 w-20 rounded-xl border border-white/15 object-cover bg-white/5"
-                                loading="lazy"
-                                onError={(e) => {
-                                  const img = e.currentTarget;
-                                  if (img.dataset.fallbackApplied === "1") return;
-                                  img.dataset.fallbackApplied = "1";
-                                  img.src = FALLBACK_FRAGRANCE_IMG;
-                                }}
-                              />
-                              <div className="min-w-0 flex-1">
-                                <div className="truncate text-base font-semibold text-white/95">{item.name}</div>
-                                <div className="truncate text-sm text-white/70">{item.brand || "—"}</div>
-                                <div className="mt-2 flex items-center gap-2 text-amber-100/80">
-                                  {Number(item.userRating ?? 0) >= 1 ? (
-                                    <>
-                                      <HalfStars value={Number(item.userRating)} />
-                                      <span className="text-sm">{fragranceRatingLabel(item.userRating)}</span>
-                                    </>
-                                  ) : (
-                                    <span className="text-sm">Not rated</span>
-                                  )}
+                      <div className="mt-4">
+                        <div className="grid gap-3 sm:grid-cols-2">
+                          {profile.wishlistItems.map((item) => (
+                            <button
+                              key={`${item.source}:${item.externalId}`}
+                              type="button"
+                              className="group w-full rounded-2xl border border-white/10 bg-white/[0.03] p-4 text-left transition hover:bg-white/[0.08]"
+                              onClick={() => openFragranceDetail(item.source, item.externalId)}
+                            >
+                              <div className="flex w-full items-center gap-4 text-left">
+                                <img
+                                  src={item.imageUrl?.trim() ? item.imageUrl : FALLBACK_FRAGRANCE_IMG}
+                                  alt={item.name}
+                                  className="h-20 w-20 rounded-xl border border-white/15 object-cover bg-white/5"
+                                  loading="lazy"
+                                  onError={(e) => {
+                                    const img = e.currentTarget;
+                                    if (img.dataset.fallbackApplied === "1") return;
+                                    img.dataset.fallbackApplied = "1";
+                                    img.src = FALLBACK_FRAGRANCE_IMG;
+                                  }}
+                                />
+                                <div className="min-w-0 flex-1">
+                                  <div className="truncate text-base font-semibold text-white/95">{item.name}</div>
+                                  <div className="truncate text-sm text-white/70">{item.brand || "—"}</div>
+                                  <div className="mt-2 flex items-center gap-2 text-amber-100/80">
+                                    {Number(item.userRating ?? 0) >= 1 ? (
+                                      <>
+                                        <HalfStars value={Number(item.userRating)} />
+                                        <span className="text-sm">{fragranceRatingLabel(item.userRating)}</span>
+                                      </>
+                                    ) : (
+                                      <span className="text-sm">Not rated</span>
+                                    )}
+                                  </div>
+                                  <div className="mt-2 text-[11px] uppercase tracking-[0.12em] text-cyan-100/80">Wishlist</div>
                                 </div>
-                                <div className="mt-2 text-[11px] uppercase tracking-[0.12em] text-cyan-100/80">Wishlist</div>
                               </div>
-                            </div>
-                          </button>
-                        ))}
+                            </button>
+                          ))}
+                        </div>
+                        {renderShelfMore("wishlist", profile.wishlistNextCursor, "Load more wishlist")}
                       </div>
                     )}
                   </div>
@@ -1159,34 +1266,37 @@ export default function PublicProfilePage() {
                         No community fragrances contributed yet.
                       </div>
                     ) : (
-                      <div className="mt-4 grid gap-3 sm:grid-cols-2">
-                        {profile.communityFragrances.map((item) => (
-                          <button
-                            key={`${item.source}:${item.externalId}`}
-                            type="button"
-                            className="w-full rounded-2xl border border-white/10 bg-white/[0.03] p-4 text-left transition hover:bg-white/[0.08]"
-                            onClick={() => openFragranceDetail(item.source, item.externalId)}
-                          >
-                            <div className="flex w-full items-center gap-4 text-left">
-                              <img
-                                src={item.imageUrl?.trim() ? item.imageUrl : FALLBACK_FRAGRANCE_IMG}
-                                alt={item.name}
-                                className="h-[4.5rem] w-[4.5rem] rounded-xl border border-white/10 object-cover bg-white/5"
-                                loading="lazy"
-                                onError={(e) => {
-                                  const img = e.currentTarget;
-                                  if (img.dataset.fallbackApplied === "1") return;
-                                  img.dataset.fallbackApplied = "1";
-                                  img.src = FALLBACK_FRAGRANCE_IMG;
-                                }}
-                              />
-                              <div className="min-w-0">
-                                <div className="truncate text-base font-semibold text-white/90">{item.name}</div>
-                                <div className="truncate text-sm text-white/60">{item.brand || "—"}</div>
+                      <div className="mt-4">
+                        <div className="grid gap-3 sm:grid-cols-2">
+                          {profile.communityFragrances.map((item) => (
+                            <button
+                              key={`${item.source}:${item.externalId}`}
+                              type="button"
+                              className="w-full rounded-2xl border border-white/10 bg-white/[0.03] p-4 text-left transition hover:bg-white/[0.08]"
+                              onClick={() => openFragranceDetail(item.source, item.externalId)}
+                            >
+                              <div className="flex w-full items-center gap-4 text-left">
+                                <img
+                                  src={item.imageUrl?.trim() ? item.imageUrl : FALLBACK_FRAGRANCE_IMG}
+                                  alt={item.name}
+                                  className="h-[4.5rem] w-[4.5rem] rounded-xl border border-white/10 object-cover bg-white/5"
+                                  loading="lazy"
+                                  onError={(e) => {
+                                    const img = e.currentTarget;
+                                    if (img.dataset.fallbackApplied === "1") return;
+                                    img.dataset.fallbackApplied = "1";
+                                    img.src = FALLBACK_FRAGRANCE_IMG;
+                                  }}
+                                />
+                                <div className="min-w-0">
+                                  <div className="truncate text-base font-semibold text-white/90">{item.name}</div>
+                                  <div className="truncate text-sm text-white/60">{item.brand || "—"}</div>
+                                </div>
                               </div>
-                            </div>
-                          </button>
-                        ))}
+                            </button>
+                          ))}
+                        </div>
+                        {renderShelfMore("community", profile.communityFragrancesNextCursor, "Load more community fragrances")}
                       </div>
                     )}
                   </div>
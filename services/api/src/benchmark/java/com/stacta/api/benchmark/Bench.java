@@ -0,0 +1,79 @@
+package com.stacta.api.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * The timing loop shared by the benchmarks in this source set. Each operation is timed on its own
+ * after a warm-up, and the run prints p50/p99/max, so a single slow outlier is visible instead of
+ * being averaged away.
+ */
+public final class Bench {
+  private Bench() {}
+
+  public interface Op {
+    void run(int iteration) throws Exception;
+  }
+
+  /** Runs {@code op} {@code warmups} times untimed, then {@code runs} times timed, and prints the result. */
+  public static Result time(String name, int warmups, int runs, Op op) {
+    try {
+      for (int i = 0; i < warmups; i++) op.run(i);
+      long[] nanos = new long[runs];
+      for (int i = 0; i < runs; i++) {
+        long started = System.nanoTime();
+        op.run(i);
+        nanos[i] = System.nanoTime() - started;
+      }
+      Arrays.sort(nanos);
+      Result result = new Result(name, runs, at(nanos, 0.50), at(nanos, 0.99), nanos[runs - 1]);
+      System.out.println(result);
+      return result;
+    } catch (Exception e) {
+      throw new IllegalStateException("benchmark " + name + " failed", e);
+    }
+  }
+
+  /** Bytes allocated by the current thread while running {@code work}. */
+  public static long allocatedBytes(Runnable work) {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long before = threads.getCurrentThreadAllocatedBytes();
+    work.run();
+    return threads.getCurrentThreadAllocatedBytes() - before;
+  }
+
+  public static long usedHeapBytes() {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  public static void report(String name, String format, Object... args) {
+    System.out.printf("%-40s " + format + "%n", prepend(name, args));
+  }
+
+  private static Object[] prepend(String name, Object[] args) {
+    Object[] out = new Object[args.length + 1];
+    out[0] = name;
+    System.arraycopy(args, 0, out, 1, args.length);
+    return out;
+  }
+
+  private static long at(long[] sorted, double quantile) {
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+  }
+
+  public record Result(String name, int runs, long p50Nanos, long p99Nanos, long maxNanos) {
+    @Override
+    public String toString() {
+      return String.format(
+        "%-40s runs=%d p50=%.3fms p99=%.3fms max=%.3fms",
+        name,
+        runs,
+        p50Nanos / 1e6,
+        p99Nanos / 1e6,
+        maxNanos / 1e6
+      );
+    }
+  }
+}
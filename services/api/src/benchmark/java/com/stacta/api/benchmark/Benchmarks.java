@@ -0,0 +1,39 @@
+package com.stacta.api.benchmark;
+
+import com.stacta.api.fragrance.FragellaMapperBenchmark;
+import com.stacta.api.fragrance.SimilarFragranceBenchmark;
+import com.stacta.api.social.FollowGraphBenchmark;
+import com.stacta.api.text.CanonicalBenchmark;
+import com.stacta.api.upload.PresignedUrlBenchmark;
+import com.stacta.api.upload.UploadAllocationBenchmark;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Entry point of {@code ./gradlew benchmark}; runs every benchmark, or the ones named in -Pbenchmarks. */
+public final class Benchmarks {
+  private static final Map<String, Runnable> ALL = new LinkedHashMap<>();
+
+  static {
+    ALL.put("follow-graph", FollowGraphBenchmark::run);
+    ALL.put("presign", PresignedUrlBenchmark::run);
+    ALL.put("upload-allocation", UploadAllocationBenchmark::run);
+    ALL.put("fragella-mapper", FragellaMapperBenchmark::run);
+    ALL.put("canonical", CanonicalBenchmark::run);
+    ALL.put("similar-fragrances", SimilarFragranceBenchmark::run);
+  }
+
+  private Benchmarks() {}
+
+  public static void main(String[] args) {
+    List<String> names = args.length == 0 ? List.copyOf(ALL.keySet()) : List.of(args);
+    for (String name : names) {
+      Runnable benchmark = ALL.get(name.trim());
+      if (benchmark == null) {
+        throw new IllegalArgumentException("unknown benchmark " + name + "; known: " + ALL.keySet());
+      }
+      System.out.println("== " + name);
+      benchmark.run();
+    }
+  }
+}
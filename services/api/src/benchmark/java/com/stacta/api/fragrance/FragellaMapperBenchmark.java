@@ -0,0 +1,67 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.benchmark.Bench;
+import com.stacta.api.integrations.fragella.FragellaDtos;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapping one 50-item Fragella search page. "reflectiveIds" replays what the old mapper did per item
+ * before mapping (three failed getMethod lookups, each capturing a stack trace) so the two lines can be
+ * compared directly.
+ */
+public final class FragellaMapperBenchmark {
+  private static final String[] OLD_ID_ACCESSORS = {"externalId", "id", "slug"};
+
+  private FragellaMapperBenchmark() {}
+
+  public static void run() {
+    FragellaMapper mapper = new FragellaMapper();
+    List<FragellaDtos.Fragrance> page = page();
+    int[] sink = {0};
+
+    Bench.time("fragella.mapPage", 5_000, 50_000, i -> sink[0] += mapper.mapRaw(page).size());
+    Bench.time("fragella.mapPage.reflectiveIds", 500, 5_000, i -> {
+      for (FragellaDtos.Fragrance f : page) sink[0] += reflectiveId(f) == null ? 0 : 1;
+    });
+    Bench.report(
+      "fragella.mapPage.allocated",
+      "now=%dKB reflectiveIds=%dKB",
+      Bench.allocatedBytes(() -> mapper.mapRaw(page)) >> 10,
+      Bench.allocatedBytes(() -> page.forEach(FragellaMapperBenchmark::reflectiveId)) >> 10
+    );
+    if (sink[0] < 0) System.out.println(sink[0]);
+  }
+
+  private static Object reflectiveId(FragellaDtos.Fragrance f) {
+    for (String accessor : OLD_ID_ACCESSORS) {
+      try {
+        Object value = f.getClass().getMethod(accessor).invoke(f);
+        if (value != null && !value.toString().isBlank()) return value;
+      } catch (Exception ignore) {
+        // The record has none of these; this is the cost being measured.
+      }
+    }
+    return null;
+  }
+
+  private static List<FragellaDtos.Fragrance> page() {
+    List<FragellaDtos.Fragrance> page = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      var notes = new FragellaDtos.Notes(
+        List.of(new FragellaDtos.Note("Bergamot", null), new FragellaDtos.Note("Pink Pepper", null)),
+        List.of(new FragellaDtos.Note("Rose", null)),
+        List.of(new FragellaDtos.Note("Amber", null), new FragellaDtos.Note("Musk", null))
+      );
+      page.add(new FragellaDtos.Fragrance(
+        "Name  " + i, "Brand " + (i % 7), i % 5 == 0 ? "" : "20" + (10 + i % 10), "4.2", "https://img/x.jpg",
+        "unisex", "$$", "120", "EDP", "Long Lasting", "Moderate", "0.9", "High",
+        List.of("woody", "amber"), List.of("Rose"), Map.of("woody", "Dominant"),
+        List.of(new FragellaDtos.Ranking("fall", 0.8)), List.of(new FragellaDtos.Ranking("night", 0.7)),
+        notes, null, List.of()
+      ));
+    }
+    return page;
+  }
+}
@@ -0,0 +1,83 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.benchmark.Bench;
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.fragrance.dto.NotesDto;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Top-12 similar fragrances over a synthetic catalogue of 100k, with accord and note popularity
+ * skewed like the real one (a few appear almost everywhere). The target is a p99 under 10ms.
+ */
+public final class SimilarFragranceBenchmark {
+  private static final int FRAGRANCES = 100_000;
+  private static final String[] STRENGTHS = {"Dominant", "Prominent", "Moderate", "Low"};
+
+  private SimilarFragranceBenchmark() {}
+
+  public static void run() {
+    Random random = new Random(3);
+    SimilarFragranceIndex index = new SimilarFragranceIndex();
+    List<String> ids = new ArrayList<>(FRAGRANCES);
+    long heapBefore = Bench.usedHeapBytes();
+    long started = System.nanoTime();
+    for (int i = 0; i < FRAGRANCES; i++) {
+      FragranceSearchResult f = randomFragrance(random, "f" + i, 80, 1_500);
+      index.upsert(UUID.randomUUID(), "fragella", f.externalId(), f);
+      ids.add(f.externalId());
+    }
+    Bench.report(
+      "similar.build",
+      "fragrances=%d tookMs=%d heapMb=%d",
+      FRAGRANCES,
+      (System.nanoTime() - started) / 1_000_000L,
+      (Bench.usedHeapBytes() - heapBefore) >> 20
+    );
+
+    Bench.Result result = Bench.time(
+      "similar.top12",
+      200,
+      2_000,
+      i -> index.similarTo("fragella", ids.get(random.nextInt(ids.size())), 12)
+    );
+    Bench.report("similar.top12.target", "p99<10ms %s", result.p99Nanos() < 10_000_000L ? "met" : "MISSED");
+  }
+
+  private static FragranceSearchResult randomFragrance(Random random, String externalId, int accordCount, int noteCount) {
+    List<String> accords = new ArrayList<>();
+    Map<String, String> strengths = new LinkedHashMap<>();
+    int wanted = 4 + random.nextInt(7);
+    while (accords.size() < wanted) {
+      String accord = "accord" + skewed(random, accordCount);
+      if (accords.contains(accord)) continue;
+      accords.add(accord);
+      strengths.put(accord, STRENGTHS[Math.min(3, accords.size() / 3 + random.nextInt(2))]);
+    }
+    List<List<NoteDto>> levels = new ArrayList<>();
+    for (int level = 0; level < 3; level++) {
+      List<NoteDto> notes = new ArrayList<>();
+      int n = 2 + random.nextInt(5);
+      for (int i = 0; i < n; i++) notes.add(new NoteDto(null, "note" + skewed(random, noteCount), null));
+      levels.add(notes);
+    }
+    return new FragranceSearchResult(
+      "fragella", externalId, "Name " + externalId, "Brand", "2020", null, null, null,
+      null, null, null,
+      null, null, null, null, null,
+      strengths, List.of(), List.of(),
+      accords, List.of(), new NotesDto(levels.get(0), levels.get(1), levels.get(2)), null,
+      null, null, null, null, null, null, null, null
+    );
+  }
+
+  private static int skewed(Random random, int n) {
+    double u = random.nextDouble();
+    return (int) Math.floor(n * u * u);
+  }
+}
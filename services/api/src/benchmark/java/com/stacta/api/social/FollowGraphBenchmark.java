@@ -0,0 +1,63 @@
+package com.stacta.api.social;
+
+import com.stacta.api.benchmark.Bench;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * People-you-may-know over a synthetic graph of 1M accepted edges: 100k users following 10 accounts
+ * each, with targets skewed towards a few thousand popular accounts so that hub followings (the case
+ * the sampling bounds exist for) are common. Suggestions use the same bounds as
+ * {@link PeopleYouMayKnowService}.
+ */
+public final class FollowGraphBenchmark {
+  private static final int USERS = 100_000;
+  private static final int FOLLOWS_PER_USER = 10;
+  private static final int POPULAR = 2_000;
+
+  private FollowGraphBenchmark() {}
+
+  public static void run() {
+    SplittableRandom random = new SplittableRandom(42);
+    UUID[] users = new UUID[USERS];
+    for (int i = 0; i < USERS; i++) users[i] = new UUID(0L, i);
+
+    long heapBefore = Bench.usedHeapBytes();
+    long started = System.nanoTime();
+    FollowGraph graph = new FollowGraph(null);
+    for (int follower = 0; follower < USERS; follower++) {
+      for (int f = 0; f < FOLLOWS_PER_USER; f++) {
+        // Half of all follows go to the popular accounts, the rest anywhere.
+        int target = random.nextBoolean() ? random.nextInt(POPULAR) : random.nextInt(USERS);
+        if (target == follower) continue;
+        graph.onEdgeChanged(new FollowEdgeChangedEvent(users[follower], users[target], true));
+      }
+    }
+    for (int target = 1; target < POPULAR; target++) {
+      graph.onEdgeChanged(new FollowEdgeChangedEvent(users[0], users[target], true));
+    }
+    Bench.report(
+      "follow-graph.build",
+      "edges~%d tookMs=%d heapMb=%d",
+      (long) USERS * FOLLOWS_PER_USER,
+      (System.nanoTime() - started) / 1_000_000L,
+      (Bench.usedHeapBytes() - heapBefore) >> 20
+    );
+
+    Bench.time("follow-graph.friendsOfFriends", 2_000, 10_000, i -> graph.friendsOfFriends(
+      users[random.nextInt(USERS)],
+      500,
+      1_000,
+      20_000,
+      20
+    ));
+    // User 0 follows all 2k popular accounts, so only the sampled 500 of its followings are visited.
+    Bench.time("follow-graph.friendsOfFriends.heavyUser", 200, 2_000, i -> graph.friendsOfFriends(
+      users[0],
+      500,
+      1_000,
+      20_000,
+      20
+    ));
+  }
+}
@@ -0,0 +1,83 @@
+package com.stacta.api.text;
+
+import com.stacta.api.benchmark.Bench;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Request-shaped inputs through the regex pipelines the services used to run and through
+ * {@link Canonical}. Each timed run is 1,000 calls; the summary line gives the p50 per call.
+ */
+public final class CanonicalBenchmark {
+  private static final int CALLS = 1_000;
+
+  private CanonicalBenchmark() {}
+
+  public static void run() {
+    String[] ids = {"Dior|Sauvage|2015", " maison  francis kurkdjian|baccarat rouge 540|0 ", "chanel|no 5|1921"};
+    String[] users = {"@Perfume_Fan", "nose_notes", "  @@Someone With Spaces  "};
+    String[] notes = {"Pink Pepper", "Bergamot", "Crème Brûlée", "orange-blossom absolute"};
+    String[] ratings = {"4.3", "Rating: 4,35/5", "3"};
+
+    compare("externalId", ids, CanonicalBenchmark::legacyExternalId, Canonical::externalId);
+    compare("username", users, CanonicalBenchmark::legacyUsername, Canonical::username);
+    compare("noteName", notes, CanonicalBenchmark::legacyNoteName, Canonical::noteName);
+    compare("firstDecimal", ratings, CanonicalBenchmark::legacyFirstDecimal, Canonical::firstDecimal);
+  }
+
+  private static void compare(String name, String[] inputs, Function<String, ?> legacy, Function<String, ?> canonical) {
+    Bench.Result before = calls("canonical." + name + ".regex", inputs, legacy);
+    Bench.Result after = calls("canonical." + name + ".singlePass", inputs, canonical);
+    Bench.report(
+      "canonical." + name,
+      "regex=%dns singlePass=%dns perCall",
+      before.p50Nanos() / CALLS,
+      after.p50Nanos() / CALLS
+    );
+  }
+
+  private static Bench.Result calls(String name, String[] inputs, Function<String, ?> f) {
+    int[] sink = {0};
+    Bench.Result result = Bench.time(name, 300, 3_000, run -> {
+      for (int i = 0; i < CALLS; i++) sink[0] += String.valueOf(f.apply(inputs[i % inputs.length])).length();
+    });
+    if (sink[0] == 42) System.out.print("");
+    return result;
+  }
+
+  // The pipelines as they were written in the services.
+  private static String legacyExternalId(String raw) {
+    return raw == null ? "" : raw.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+  }
+
+  private static String legacyUsername(String raw) {
+    String cleaned = raw == null ? "" : raw
+      .trim()
+      .toLowerCase(Locale.ROOT)
+      .replaceAll("^@+", "")
+      .replaceAll("[^a-z0-9_]", "");
+    return cleaned.length() > 20 ? cleaned.substring(0, 20) : cleaned;
+  }
+
+  private static String legacyNoteName(String s) {
+    if (s == null) return "";
+    String t = s.trim().toLowerCase(Locale.ROOT);
+    t = Normalizer.normalize(t, Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
+    t = t.replaceAll("[^a-z0-9\\s-]", " ");
+    t = t.replaceAll("\\s+", " ").trim();
+    return t;
+  }
+
+  private static Double legacyFirstDecimal(String raw) {
+    if (raw == null) return null;
+    String s = raw.trim().replace(',', '.');
+    if (s.isBlank()) return null;
+    Matcher m = Pattern.compile("([0-9]+(?:\\.[0-9]+)?)").matcher(s);
+    if (!m.find()) return null;
+    double value = Double.parseDouble(m.group(1));
+    return Double.isFinite(value) ? value : null;
+  }
+}
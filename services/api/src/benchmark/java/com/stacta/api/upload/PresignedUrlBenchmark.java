@@ -0,0 +1,72 @@
+package com.stacta.api.upload;
+
+import com.stacta.api.benchmark.Bench;
+import com.stacta.api.config.aws.AwsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+/**
+ * Cost of resolving the image URLs of one feed page without a CDN: 20 rows with an avatar and a
+ * fragrance image each, drawn from 8 authors and 12 fragrances the way a real page repeats them.
+ * "before" signs every mention, as the resolver did without its cache; "cold" is a first page through
+ * {@link UploadImageUrlResolver#resolveAll} and "warm" a page whose keys were signed earlier.
+ */
+public final class PresignedUrlBenchmark {
+  private static final AwsProperties AWS = new AwsProperties(
+    "us-east-1",
+    new AwsProperties.S3("stacta-bench"),
+    new AwsProperties.Cdn(null)
+  );
+  private static final int ROWS = 20;
+
+  private PresignedUrlBenchmark() {}
+
+  public static void run() {
+    S3Presigner presigner = S3Presigner.builder()
+      .region(Region.US_EAST_1)
+      .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("bench", "bench")))
+      .build();
+
+    Bench.time("presign.feedPage.before", 200, 2_000, i -> {
+      for (String key : page(i)) presign(presigner, key);
+    });
+    Bench.time("presign.feedPage.cold", 200, 2_000, i -> resolver(presigner).resolveAll(page(i)));
+    UploadImageUrlResolver warm = resolver(presigner);
+    Bench.time("presign.feedPage.warm", 2_000, 20_000, i -> warm.resolveAll(page(i % 50)));
+    Bench.report(
+      "presign.feedPage.allocated",
+      "before=%dKB warm=%dKB",
+      Bench.allocatedBytes(() -> {
+        for (String key : page(0)) presign(presigner, key);
+      }) >> 10,
+      Bench.allocatedBytes(() -> warm.resolveAll(page(0))) >> 10
+    );
+  }
+
+  private static UploadImageUrlResolver resolver(S3Presigner presigner) {
+    return new UploadImageUrlResolver(AWS, presigner, new ImageVariantIndex(null, 1_000), new SimpleMeterRegistry(), 120, 50_000);
+  }
+
+  private static List<String> page(int n) {
+    List<String> keys = new ArrayList<>(ROWS * 2);
+    for (int row = 0; row < ROWS; row++) {
+      keys.add("media/avatars/" + ((n * 7 + row) % 8) + ".png");
+      keys.add("media/fragrances/" + ((n * 13 + row) % 12) + ".jpg");
+    }
+    return keys;
+  }
+
+  private static String presign(S3Presigner presigner, String key) {
+    return presigner.presignGetObject(GetObjectPresignRequest.builder()
+      .signatureDuration(UploadImageUrlResolver.READ_URL_TTL)
+      .getObjectRequest(GetObjectRequest.builder().bucket(AWS.s3().bucket()).key(key).build())
+      .build()).url().toString();
+  }
+}
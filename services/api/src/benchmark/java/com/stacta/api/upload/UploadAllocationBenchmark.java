@@ -0,0 +1,94 @@
+package com.stacta.api.upload;
+
+import com.stacta.api.benchmark.Bench;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 100 concurrent 5 MB uploads drained through {@link ImageUploadStream} the way the SDK reads a
+ * content provider. Prints the largest per-upload allocation and the heap in use once all uploads
+ * are open; both should stay flat whatever the file size.
+ */
+public final class UploadAllocationBenchmark {
+  private static final long SIZE = 5L * 1024L * 1024L;
+  private static final int UPLOADS = 100;
+
+  private UploadAllocationBenchmark() {}
+
+  public static void run() {
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long heapBefore = Bench.usedHeapBytes();
+    ExecutorService pool = Executors.newFixedThreadPool(UPLOADS);
+    long[] peakHeap = {0};
+    try {
+      List<Future<Long>> uploads = new ArrayList<>();
+      for (int i = 0; i < UPLOADS; i++) {
+        uploads.add(pool.submit(() -> {
+          long before = threads.getCurrentThreadAllocatedBytes();
+          try (InputStream in = new ImageUploadStream(new SyntheticImage(SIZE), SIZE)) {
+            byte[] buffer = new byte[8 * 1024];
+            while (in.read(buffer, 0, buffer.length) >= 0) {
+              Runtime runtime = Runtime.getRuntime();
+              long used = runtime.totalMemory() - runtime.freeMemory();
+              synchronized (peakHeap) {
+                if (used > peakHeap[0]) peakHeap[0] = used;
+              }
+            }
+          }
+          return threads.getCurrentThreadAllocatedBytes() - before;
+        }));
+      }
+      long maxAllocated = 0;
+      for (Future<Long> upload : uploads) maxAllocated = Math.max(maxAllocated, upload.get());
+      Bench.report(
+        "upload.concurrent5mb",
+        "uploads=%d maxAllocatedPerUploadKb=%d peakHeapGrowthMb=%d",
+        UPLOADS,
+        maxAllocated >> 10,
+        Math.max(0, peakHeap[0] - heapBefore) >> 20
+      );
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** A JPEG-signed stream of the given length that never materializes its content. */
+  private static final class SyntheticImage extends InputStream {
+    private static final byte[] HEADER = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private final long length;
+    private long position;
+
+    SyntheticImage(long length) {
+      this.length = length;
+    }
+
+    @Override
+    public int read() {
+      if (position >= length) return -1;
+      int b = position < HEADER.length ? HEADER[(int) position] & 0xFF : 0;
+      position++;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int len) throws IOException {
+      if (position >= length) return -1;
+      int n = (int) Math.min(len, length - position);
+      for (int i = 0; i < n; i++) {
+        long at = position + i;
+        buffer[offset + i] = at < HEADER.length ? HEADER[(int) at] : 0;
+      }
+      position += n;
+      return n;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.stacta.api.collection;
 
 import com.stacta.api.collection.dto.AddCollectionItemRequest;
 import com.stacta.api.collection.dto.AddCollectionItemResponse;
+import com.stacta.api.ratelimit.RateLimited;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -22,6 +23,7 @@ public class UserCollectionController {
     this.userCollectionService = userCollectionService;
   }
 
+  @RateLimited(value = "collection.write", capacity = 120)
   @PostMapping
   public AddCollectionItemResponse add(
     @AuthenticationPrincipal Jwt jwt,
@@ -30,6 +32,7 @@ public class UserCollectionController {
     return userCollectionService.add(jwt.getSubject(), req);
   }
 
+  @RateLimited(value = "collection.write", capacity = 120)
   @DeleteMapping
   public void remove(
     @AuthenticationPrincipal Jwt jwt,
@@ -39,6 +42,7 @@ public class UserCollectionController {
     userCollectionService.remove(jwt.getSubject(), source, externalId);
   }
 
+  @RateLimited(value = "collection.write", capacity = 120)
   @PostMapping("/top")
   public void addTop(
     @AuthenticationPrincipal Jwt jwt,
@@ -48,6 +52,7 @@ public class UserCollectionController {
     userCollectionService.addTopFragrance(jwt.getSubject(), source, externalId);
   }
 
+  @RateLimited(value = "collection.write", capacity = 120)
   @DeleteMapping("/top")
   public void removeTop(
     @AuthenticationPrincipal Jwt jwt,
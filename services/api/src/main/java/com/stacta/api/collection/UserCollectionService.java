@@ -3,20 +3,34 @@ package com.stacta.api.collection;
 import com.stacta.api.collection.dto.AddCollectionItemRequest;
 import com.stacta.api.collection.dto.AddCollectionItemResponse;
 import com.stacta.api.collection.dto.CollectionItemDto;
+import com.stacta.api.collection.dto.CollectionPageResponse;
 import com.stacta.api.config.ApiException;
 import com.stacta.api.fragrance.Fragrance;
+import com.stacta.api.fragrance.FragranceExternalIds;
+import com.stacta.api.fragrance.FragranceImageResolver;
+import com.stacta.api.fragrance.FragranceImageResolver.FragranceRef;
 import com.stacta.api.fragrance.FragranceRepository;
+import com.stacta.api.recommendation.UserTasteChangedEvent;
 import com.stacta.api.social.ActivityEvent;
 import com.stacta.api.social.ActivityEventRepository;
+import com.stacta.api.social.FragranceActivityRecordedEvent;
 import com.stacta.api.upload.UploadImageUrlResolver;
-import com.stacta.api.user.User;
-import com.stacta.api.user.UserRepository;
+import com.stacta.api.user.ProfileStatsService;
+import com.stacta.api.user.ViewerIdentity;
+import com.stacta.api.user.ViewerIdentityResolver;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -39,34 +53,43 @@ public class UserCollectionService {
   private final UserWishlistItemRepository wishlistItems;
   private final UserTopFragranceRepository topFragrances;
   private final ActivityEventRepository activities;
-  private final UserRepository users;
+  private final ViewerIdentityResolver identities;
   private final JdbcTemplate jdbc;
   private final FragranceRepository fragrances;
   private final UploadImageUrlResolver imageUrlResolver;
+  private final FragranceImageResolver fragranceImages;
+  private final ProfileStatsService profileStats;
+  private final ApplicationEventPublisher events;
 
   public UserCollectionService(
     UserCollectionItemRepository items,
     UserWishlistItemRepository wishlistItems,
     UserTopFragranceRepository topFragrances,
     ActivityEventRepository activities,
-    UserRepository users,
+    ViewerIdentityResolver identities,
     JdbcTemplate jdbc,
     FragranceRepository fragrances,
-    UploadImageUrlResolver imageUrlResolver
+    UploadImageUrlResolver imageUrlResolver,
+    FragranceImageResolver fragranceImages,
+    ProfileStatsService profileStats,
+    ApplicationEventPublisher events
   ) {
     this.items = items;
     this.wishlistItems = wishlistItems;
     this.topFragrances = topFragrances;
     this.activities = activities;
-    this.users = users;
+    this.identities = identities;
     this.jdbc = jdbc;
     this.fragrances = fragrances;
     this.imageUrlResolver = imageUrlResolver;
+    this.fragranceImages = fragranceImages;
+    this.profileStats = profileStats;
+    this.events = events;
   }
 
   @Transactional
   public AddCollectionItemResponse add(String sub, AddCollectionItemRequest req) {
-    User me = users.findByCognitoSub(sub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(sub);
 
     String source = normalizeSource(req.source());
     String externalId = normalizeExternalId(req.externalId());
@@ -77,10 +100,10 @@ public class UserCollectionService {
     validateCanUseCommunityFragrance(me, source, externalId);
 
     boolean isNew = false;
-    UserCollectionItem entity = items.findByUserIdAndFragranceSourceAndFragranceExternalId(me.getId(), source, externalId)
+    UserCollectionItem entity = items.findByUserIdAndFragranceSourceAndFragranceExternalId(me.userId(), source, externalId)
       .orElseGet(() -> {
         UserCollectionItem created = new UserCollectionItem();
-        created.setUserId(me.getId());
+        created.setUserId(me.userId());
         created.setFragranceSource(source);
         created.setFragranceExternalId(externalId);
         return created;
@@ -96,7 +119,11 @@ public class UserCollectionService {
 
     var saved = items.save(entity);
     if (isNew) {
+      profileStats.bump(me.userId(), ProfileStatsService.Counter.COLLECTION, 1);
       appendCollectionActivity(saved);
+      events.publishEvent(new UserTasteChangedEvent(me.userId()));
+    } else {
+      profileStats.touch(me.userId());
     }
     Double userRating = getUserRating(saved.getUserId(), saved.getFragranceSource(), saved.getFragranceExternalId());
     return new AddCollectionItemResponse(toDto(saved, userRating), isNew ? "ADDED" : "ALREADY_EXISTS");
@@ -116,13 +143,15 @@ public class UserCollectionService {
 
   @Transactional
   public void remove(String sub, String source, String externalId) {
-    User me = users.findByCognitoSub(sub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(sub);
     String normalizedSource = normalizeSource(source);
     String normalizedExternalId = normalizeExternalId(externalId);
     if (normalizedExternalId.isEmpty()) {
       throw new ApiException("INVALID_COLLECTION_ITEM");
     }
-    items.deleteByUserIdAndFragranceSourceAndFragranceExternalId(me.getId(), normalizedSource, normalizedExternalId);
+    long removed = items.deleteByUserIdAndFragranceSourceAndFragranceExternalId(me.userId(), normalizedSource, normalizedExternalId);
+    profileStats.bump(me.userId(), ProfileStatsService.Counter.COLLECTION, -removed);
+    if (removed > 0) events.publishEvent(new UserTasteChangedEvent(me.userId()));
   }
 
   @Transactional(readOnly = true)
@@ -132,7 +161,7 @@ public class UserCollectionService {
 
   @Transactional
   public CollectionItemDto addToWishlist(String sub, AddCollectionItemRequest req) {
-    User me = users.findByCognitoSub(sub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(sub);
 
     String source = normalizeSource(req.source());
     String externalId = normalizeExternalId(req.externalId());
@@ -143,10 +172,10 @@ public class UserCollectionService {
     validateCanUseCommunityFragrance(me, source, externalId);
 
     boolean isNew = false;
-    UserWishlistItem entity = wishlistItems.findByUserIdAndFragranceSourceAndFragranceExternalId(me.getId(), source, externalId)
+    UserWishlistItem entity = wishlistItems.findByUserIdAndFragranceSourceAndFragranceExternalId(me.userId(), source, externalId)
       .orElseGet(() -> {
         UserWishlistItem created = new UserWishlistItem();
-        created.setUserId(me.getId());
+        created.setUserId(me.userId());
         created.setFragranceSource(source);
         created.setFragranceExternalId(externalId);
         return created;
@@ -160,7 +189,11 @@ public class UserCollectionService {
     entity.setFragranceImageUrl(nullIfBlank(req.imageUrl()));
     var saved = wishlistItems.save(entity);
     if (isNew) {
+      profileStats.bump(me.userId(), ProfileStatsService.Counter.WISHLIST, 1);
       appendWishlistActivity(saved);
+      events.publishEvent(new UserTasteChangedEvent(me.userId()));
+    } else {
+      profileStats.touch(me.userId());
     }
     Double userRating = getUserRating(saved.getUserId(), saved.getFragranceSource(), saved.getFragranceExternalId());
     return toDto(saved, userRating);
@@ -168,13 +201,15 @@ public class UserCollectionService {
 
   @Transactional
   public void removeFromWishlist(String sub, String source, String externalId) {
-    User me = users.findByCognitoSub(sub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(sub);
     String normalizedSource = normalizeSource(source);
     String normalizedExternalId = normalizeExternalId(externalId);
     if (normalizedExternalId.isEmpty()) {
       throw new ApiException("INVALID_COLLECTION_ITEM");
     }
-    wishlistItems.deleteByUserIdAndFragranceSourceAndFragranceExternalId(me.getId(), normalizedSource, normalizedExternalId);
+    long removed = wishlistItems.deleteByUserIdAndFragranceSourceAndFragranceExternalId(me.userId(), normalizedSource, normalizedExternalId);
+    profileStats.bump(me.userId(), ProfileStatsService.Counter.WISHLIST, -removed);
+    if (removed > 0) events.publishEvent(new UserTasteChangedEvent(me.userId()));
   }
 
   @Transactional(readOnly = true)
@@ -196,7 +231,7 @@ public class UserCollectionService {
 
   @Transactional
   public void addTopFragrance(String sub, String source, String externalId) {
-    User me = users.findByCognitoSub(sub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(sub);
     String normalizedSource = normalizeSource(source);
     String normalizedExternalId = normalizeExternalId(externalId);
     if (normalizedExternalId.isEmpty()) {
@@ -204,26 +239,28 @@ public class UserCollectionService {
     }
 
     UserCollectionItem collectionItem = items
-      .findByUserIdAndFragranceSourceAndFragranceExternalId(me.getId(), normalizedSource, normalizedExternalId)
+      .findByUserIdAndFragranceSourceAndFragranceExternalId(me.userId(), normalizedSource, normalizedExternalId)
       .orElseThrow(() -> new ApiException("COLLECTION_ITEM_NOT_FOUND"));
 
-    if (topFragrances.existsByUserIdAndUserCollectionItemId(me.getId(), collectionItem.getId())) {
+    if (topFragrances.existsByUserIdAndUserCollectionItemId(me.userId(), collectionItem.getId())) {
       return;
     }
 
-    if (topFragrances.countByUserId(me.getId()) >= 3) {
+    if (topFragrances.countByUserId(me.userId()) >= 3) {
       throw new ApiException("TOP_FRAGRANCES_LIMIT_REACHED");
     }
 
     UserTopFragrance row = new UserTopFragrance();
-    row.setUserId(me.getId());
+    row.setUserId(me.userId());
     row.setUserCollectionItemId(collectionItem.getId());
     topFragrances.save(row);
+    profileStats.touch(me.userId());
+    events.publishEvent(new UserTasteChangedEvent(me.userId()));
   }
 
   @Transactional
   public void removeTopFragrance(String sub, String source, String externalId) {
-    User me = users.findByCognitoSub(sub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(sub);
     String normalizedSource = normalizeSource(source);
     String normalizedExternalId = normalizeExternalId(externalId);
     if (normalizedExternalId.isEmpty()) {
@@ -231,18 +268,29 @@ public class UserCollectionService {
     }
 
     UserCollectionItem collectionItem = items
-      .findByUserIdAndFragranceSourceAndFragranceExternalId(me.getId(), normalizedSource, normalizedExternalId)
+      .findByUserIdAndFragranceSourceAndFragranceExternalId(me.userId(), normalizedSource, normalizedExternalId)
       .orElse(null);
     if (collectionItem == null) return;
 
-    topFragrances.findByUserIdAndUserCollectionItemId(me.getId(), collectionItem.getId())
-      .ifPresent(topFragrances::delete);
+    topFragrances.findByUserIdAndUserCollectionItemId(me.userId(), collectionItem.getId())
+      .ifPresent(row -> {
+        topFragrances.delete(row);
+        profileStats.touch(me.userId());
+        events.publishEvent(new UserTasteChangedEvent(me.userId()));
+      });
   }
 
   @Transactional(readOnly = true)
   public List<CollectionItemDto> listTopForUser(UUID userId) {
-    List<UserCollectionItem> rows = topFragrances.findByUserIdOrderByCreatedAtAsc(userId).stream()
-      .map(row -> items.findByIdAndUserId(row.getUserCollectionItemId(), userId).orElse(null))
+    List<UUID> topItemIds = topFragrances.findByUserIdOrderByCreatedAtAsc(userId).stream()
+      .map(UserTopFragrance::getUserCollectionItemId)
+      .toList();
+    Map<UUID, UserCollectionItem> itemsById = new HashMap<>();
+    for (UserCollectionItem item : items.findAllById(topItemIds)) {
+      if (userId.equals(item.getUserId())) itemsById.put(item.getId(), item);
+    }
+    List<UserCollectionItem> rows = topItemIds.stream()
+      .map(itemsById::get)
       .filter(java.util.Objects::nonNull)
       .toList();
     Map<String, Double> ratingByKey = getRatingsByFragrance(userId, rows.stream()
@@ -254,16 +302,171 @@ public class UserCollectionService {
     return withBestFragranceImages(dtos);
   }
 
+  /** One keyset page of a user's collection, newest first; images and ratings come from the same query. */
+  @Transactional(readOnly = true)
+  public CollectionPageResponse listCollectionPage(UUID userId, int limit, String cursor) {
+    return listItemPage("user_collection_item", "c.collection_tag", userId, limit, cursor);
+  }
+
+  @Transactional(readOnly = true)
+  public CollectionPageResponse listWishlistPage(UUID userId, int limit, String cursor) {
+    return listItemPage("user_wishlist_item", "NULL", userId, limit, cursor);
+  }
+
+  /** One keyset page of the community fragrances a user created, newest first. */
+  @Transactional(readOnly = true)
+  public CollectionPageResponse listCommunityFragrancePage(UUID creatorUserId, boolean includePrivate, int limit, String cursor) {
+    int safeLimit = Math.max(1, Math.min(limit, 50));
+    PageCursor token = parseCursor(cursor);
+    List<Object> args = new ArrayList<>();
+    args.add(creatorUserId);
+    String cursorClause = "";
+    if (token != null) {
+      cursorClause = "AND (f.created_at, f.id) < (?, ?)";
+      args.add(Timestamp.from(token.at()));
+      args.add(token.id());
+    }
+    args.add(safeLimit + 1);
+
+    List<PageRow> rows = jdbc.query(
+      """
+      SELECT f.id, f.external_id, f.name, f.brand, f.image_object_key, f.image_url, f.created_at
+      FROM fragrance f
+      WHERE f.external_source = 'COMMUNITY'
+        AND f.created_by_user_id = ?
+        %s
+        %s
+      ORDER BY f.created_at DESC, f.id DESC
+      LIMIT ?
+      """.formatted(includePrivate ? "" : "AND f.visibility = 'PUBLIC'", cursorClause),
+      (rs, rowNum) -> {
+        Instant createdAt = rs.getTimestamp("created_at").toInstant();
+        return new PageRow(rs.getObject("id", UUID.class), createdAt, new CollectionItemDto(
+          "COMMUNITY",
+          rs.getString("external_id"),
+          rs.getString("name"),
+          rs.getString("brand"),
+          imageUrlResolver.resolveWithFallback(rs.getString("image_object_key"), rs.getString("image_url")),
+          null,
+          null,
+          createdAt
+        ));
+      },
+      args.toArray()
+    );
+    return toPage(rows, safeLimit);
+  }
+
+  private CollectionPageResponse listItemPage(String table, String tagColumn, UUID userId, int limit, String cursor) {
+    int safeLimit = Math.max(1, Math.min(limit, 50));
+    PageCursor token = parseCursor(cursor);
+    List<Object> args = new ArrayList<>();
+    args.add(userId);
+    String cursorClause = "";
+    if (token != null) {
+      cursorClause = "AND (c.added_at, c.id) < (?, ?)";
+      args.add(Timestamp.from(token.at()));
+      args.add(token.id());
+    }
+    args.add(safeLimit + 1);
+
+    List<PageRow> rows = jdbc.query(
+      """
+      SELECT
+        c.id,
+        c.fragrance_source,
+        c.fragrance_external_id,
+        c.fragrance_name,
+        c.fragrance_brand,
+        c.fragrance_image_url,
+        %s AS collection_tag,
+        c.added_at,
+        f.id AS catalog_id,
+        f.image_object_key AS catalog_image_object_key,
+        f.image_url AS catalog_image_url,
+        r.rating
+      FROM %s c
+      LEFT JOIN fragrance f
+        ON f.external_source = c.fragrance_source
+       AND f.external_id = c.fragrance_external_id
+      LEFT JOIN fragrance_rating r
+        ON r.user_id = c.user_id
+       AND r.external_source = c.fragrance_source
+       AND r.external_id = c.fragrance_external_id
+      WHERE c.user_id = ?
+        %s
+      ORDER BY c.added_at DESC, c.id DESC
+      LIMIT ?
+      """.formatted(tagColumn, table, cursorClause),
+      (rs, rowNum) -> mapItemPageRow(rs),
+      args.toArray()
+    );
+    return toPage(rows, safeLimit);
+  }
+
+  private PageRow mapItemPageRow(ResultSet rs) throws SQLException {
+    Instant addedAt = rs.getTimestamp("added_at").toInstant();
+    // Same precedence as resolveBestImage: catalog image when the fragrance row exists, else the stored URL.
+    String imageUrl = rs.getObject("catalog_id") != null
+      ? imageUrlResolver.resolveWithFallback(rs.getString("catalog_image_object_key"), rs.getString("catalog_image_url"))
+      : rs.getString("fragrance_image_url");
+    double rating = rs.getDouble("rating");
+    Double userRating = rs.wasNull() ? null : rating;
+    return new PageRow(rs.getObject("id", UUID.class), addedAt, new CollectionItemDto(
+      rs.getString("fragrance_source"),
+      rs.getString("fragrance_external_id"),
+      rs.getString("fragrance_name"),
+      rs.getString("fragrance_brand"),
+      imageUrl,
+      rs.getString("collection_tag"),
+      userRating,
+      addedAt
+    ));
+  }
+
+  private CollectionPageResponse toPage(List<PageRow> rows, int safeLimit) {
+    boolean hasMore = rows.size() > safeLimit;
+    List<PageRow> pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
+    String nextCursor = null;
+    if (hasMore && !pageRows.isEmpty()) {
+      PageRow last = pageRows.get(pageRows.size() - 1);
+      nextCursor = encodeCursor(last.at(), last.id());
+    }
+    return new CollectionPageResponse(pageRows.stream().map(PageRow::item).toList(), nextCursor);
+  }
+
+  private record PageRow(UUID id, Instant at, CollectionItemDto item) {}
+
+  private record PageCursor(Instant at, UUID id) {}
+
+  private PageCursor parseCursor(String cursor) {
+    if (cursor == null || cursor.isBlank()) return null;
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = decoded.split("\\|", 2);
+      if (parts.length != 2) throw new IllegalArgumentException("invalid cursor");
+      return new PageCursor(Instant.parse(parts[0]), UUID.fromString(parts[1]));
+    } catch (Exception e) {
+      throw new ApiException("INVALID_CURSOR");
+    }
+  }
+
+  private String encodeCursor(Instant at, UUID id) {
+    String raw = at + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
   private List<CollectionItemDto> withBestFragranceImages(List<CollectionItemDto> items) {
     if (items == null || items.isEmpty()) return List.of();
 
-    Map<String, String> resolvedImageByFragrance = new HashMap<>();
+    Map<FragranceRef, String> resolvedImageByFragrance = fragranceImages.resolve(items.stream()
+      .map(item -> new FragranceRef(item.source(), item.externalId()))
+      .toList());
     return items.stream().map(item -> {
-      String cacheKey = fragranceKey(item.source(), item.externalId());
-      String bestImage = resolvedImageByFragrance.containsKey(cacheKey)
-        ? resolvedImageByFragrance.get(cacheKey)
-        : resolveBestImage(item.source(), item.externalId(), item.imageUrl());
-      resolvedImageByFragrance.put(cacheKey, bestImage);
+      FragranceRef ref = new FragranceRef(item.source(), item.externalId());
+      String bestImage = resolvedImageByFragrance.containsKey(ref)
+        ? resolvedImageByFragrance.get(ref)
+        : item.imageUrl();
 
       return new CollectionItemDto(
         item.source(),
@@ -278,12 +481,6 @@ public class UserCollectionService {
     }).toList();
   }
 
-  private String resolveBestImage(String source, String externalId, String fallbackImageUrl) {
-    return fragrances.findByExternalSourceAndExternalId(source, externalId)
-      .map(fragrance -> imageUrlResolver.resolveWithFallback(fragrance.getImageObjectKey(), fragrance.getImageUrl()))
-      .orElse(fallbackImageUrl);
-  }
-
   private CollectionItemDto toDto(UserCollectionItem row, Double userRating) {
     return new CollectionItemDto(
       row.getFragranceSource(),
@@ -361,7 +558,7 @@ public class UserCollectionService {
 
   private record FragranceKey(String source, String externalId) {}
 
-  private void validateCanUseCommunityFragrance(User viewer, String source, String externalId) {
+  private void validateCanUseCommunityFragrance(ViewerIdentity viewer, String source, String externalId) {
     if (!"COMMUNITY".equalsIgnoreCase(source)) return;
     Fragrance fragrance = fragrances.findByExternalSourceAndExternalId("COMMUNITY", externalId)
       .orElseThrow(() -> new ApiException("INVALID_COLLECTION_ITEM"));
@@ -380,7 +577,7 @@ public class UserCollectionService {
   }
 
   private String normalizeExternalId(String raw) {
-    return safeTrim(raw).toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    return FragranceExternalIds.normalize(raw);
   }
 
   private String normalizeCollectionTag(String raw) {
@@ -416,7 +613,7 @@ public class UserCollectionService {
     event.setFragranceExternalId(item.getFragranceExternalId());
     event.setFragranceImageUrl(item.getFragranceImageUrl());
     event.setCollectionTag(item.getCollectionTag());
-    activities.save(event);
+    events.publishEvent(FragranceActivityRecordedEvent.of(activities.save(event)));
   }
 
   private void appendWishlistActivity(UserWishlistItem item) {
@@ -427,6 +624,6 @@ public class UserCollectionService {
     event.setFragranceSource(item.getFragranceSource());
     event.setFragranceExternalId(item.getFragranceExternalId());
     event.setFragranceImageUrl(item.getFragranceImageUrl());
-    activities.save(event);
+    events.publishEvent(FragranceActivityRecordedEvent.of(activities.save(event)));
   }
 }
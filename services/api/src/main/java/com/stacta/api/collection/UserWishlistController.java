@@ -2,6 +2,7 @@ package com.stacta.api.collection;
 
 import com.stacta.api.collection.dto.AddCollectionItemRequest;
 import com.stacta.api.collection.dto.CollectionItemDto;
+import com.stacta.api.ratelimit.RateLimited;
 import jakarta.validation.Valid;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -22,6 +23,7 @@ public class UserWishlistController {
     this.userCollectionService = userCollectionService;
   }
 
+  @RateLimited(value = "collection.write", capacity = 120)
   @PostMapping
   public CollectionItemDto add(
     @AuthenticationPrincipal Jwt jwt,
@@ -30,6 +32,7 @@ public class UserWishlistController {
     return userCollectionService.addToWishlist(jwt.getSubject(), req);
   }
 
+  @RateLimited(value = "collection.write", capacity = 120)
   @DeleteMapping
   public void remove(
     @AuthenticationPrincipal Jwt jwt,
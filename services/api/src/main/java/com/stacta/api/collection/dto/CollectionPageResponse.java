@@ -0,0 +1,8 @@
+package com.stacta.api.collection.dto;
+
+import java.util.List;
+
+public record CollectionPageResponse(
+  List<CollectionItemDto> items,
+  String nextCursor
+) {}
@@ -1,5 +1,6 @@
 package com.stacta.api.config;
 
+import com.stacta.api.fragrance.LikelyDuplicateException;
 import java.util.Map;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -36,9 +37,20 @@ public class ApiExceptionHandler {
       case "NOT_ONBOARDED" -> HttpStatus.NOT_FOUND;
       case "USER_NOT_FOUND" -> HttpStatus.NOT_FOUND;
       case "FOLLOW_REQUEST_NOT_FOUND" -> HttpStatus.NOT_FOUND;
+      case "RATE_LIMITED" -> HttpStatus.TOO_MANY_REQUESTS;
       default -> HttpStatus.BAD_REQUEST;
     };
 
     return ResponseEntity.status(status).body(Map.of("error", ex.getCode()));
   }
+
+  /** 409 with the fragrances the submit matched, so the client can offer to submit anyway. */
+  @ExceptionHandler(LikelyDuplicateException.class)
+  public ResponseEntity<?> handleLikelyDuplicate(LikelyDuplicateException ex) {
+    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+      "error", ex.getCode(),
+      "message", "This looks like an existing fragrance. Resubmit with ignoreDuplicates=true if it is a different one.",
+      "candidates", ex.getCandidates()
+    ));
+  }
 }
@@ -1,11 +1,13 @@
 package com.stacta.api.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -21,4 +23,56 @@ public class AsyncConfig {
     ex.initialize();
     return ex;
   }
+
+  // Fans out the best-effort profile parts. Kept well under the Hikari pool (10 by default) so a burst
+  // of profile views cannot take every connection; when saturated the request thread runs the part.
+  @Bean(name = "profileExecutor")
+  public ThreadPoolTaskExecutor profileExecutor(
+    @Value("${app.profile.executor.threads:4}") int threads,
+    @Value("${app.profile.executor.queue-capacity:50}") int queueCapacity
+  ) {
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(Math.max(1, threads));
+    ex.setMaxPoolSize(Math.max(1, threads));
+    ex.setQueueCapacity(Math.max(0, queueCapacity));
+    ex.setThreadNamePrefix("profile-");
+    ex.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    ex.initialize();
+    return ex;
+  }
+
+  @Bean(name = "socialExecutor")
+  public Executor socialExecutor() {
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(1);
+    ex.setMaxPoolSize(2);
+    ex.setQueueCapacity(500);
+    ex.setThreadNamePrefix("social-");
+    ex.initialize();
+    return ex;
+  }
+
+  // Per-user recommendation refreshes after collection changes; kept off the social pool.
+  @Bean(name = "recommendationExecutor")
+  public Executor recommendationExecutor() {
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(1);
+    ex.setMaxPoolSize(2);
+    ex.setQueueCapacity(500);
+    ex.setThreadNamePrefix("recommend-");
+    ex.initialize();
+    return ex;
+  }
+
+  // Image decode/resize is CPU and memory heavy; ImageDerivativeService never claims more than it can run.
+  @Bean(name = "imageExecutor")
+  public Executor imageExecutor() {
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(2);
+    ex.setMaxPoolSize(2);
+    ex.setQueueCapacity(8);
+    ex.setThreadNamePrefix("image-");
+    ex.initialize();
+    return ex;
+  }
 }
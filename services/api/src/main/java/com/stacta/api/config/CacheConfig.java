@@ -31,7 +31,7 @@ public class CacheConfig {
 
     return RedisCacheManager.builder(connectionFactory)
       .cacheDefaults(defaults)
-      .withCacheConfiguration("fragellaSearchV2", fragellaSearch)
+      .withCacheConfiguration("fragellaSearchV3", fragellaSearch)
       .build();
   }
 }
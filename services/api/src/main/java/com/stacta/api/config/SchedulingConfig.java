@@ -0,0 +1,33 @@
+package com.stacta.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+  // Default for @Scheduled: short, frequent polls (job queues, counter flushes, snapshot upgrades).
+  @Bean(name = "taskScheduler")
+  public ThreadPoolTaskScheduler taskScheduler(@Value("${spring.task.scheduling.pool.size:4}") int poolSize) {
+    return scheduler(poolSize, "scheduling-");
+  }
+
+  // In-memory index refreshes and rebuilds, model training and nightly reconciles. They can run for
+  // minutes, so they use @Scheduled(scheduler = "rebuildScheduler") and never hold up the short polls.
+  @Bean(name = "rebuildScheduler")
+  public ThreadPoolTaskScheduler rebuildScheduler(@Value("${app.scheduling.rebuild-pool-size:3}") int poolSize) {
+    return scheduler(poolSize, "rebuild-");
+  }
+
+  private static ThreadPoolTaskScheduler scheduler(int poolSize, String threadNamePrefix) {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(Math.max(1, poolSize));
+    scheduler.setThreadNamePrefix(threadNamePrefix);
+    scheduler.initialize();
+    return scheduler;
+  }
+}
@@ -10,8 +10,10 @@ import org.springframework.web.bind.annotation.*;
 import com.stacta.api.fragrance.dto.CreateCommunityFragranceRequest;
 import com.stacta.api.fragrance.dto.CommunityFragranceVoteRequest;
 import com.stacta.api.fragrance.dto.CommunityFragranceVoteSummaryResponse;
+import com.stacta.api.fragrance.dto.DuplicateCandidateDto;
 import com.stacta.api.fragrance.dto.ReportFragranceRequest;
 import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.ratelimit.RateLimited;
 
 @RestController
 @RequestMapping("/api/v1/community-fragrances")
@@ -31,6 +33,7 @@ public class CommunityFragranceController {
     this.moderation = moderation;
   }
 
+  @RateLimited(value = "community-fragrances.write", capacity = 20, windowSeconds = 3600)
   @PostMapping
   public FragranceSearchResult create(
     @AuthenticationPrincipal Jwt jwt,
@@ -40,6 +43,16 @@ public class CommunityFragranceController {
     return community.create(req, sub);
   }
 
+  /** Existing fragrances the draft looks like; the form calls this before submitting. */
+  @PostMapping("/duplicates")
+  public List<DuplicateCandidateDto> duplicates(
+    @AuthenticationPrincipal Jwt jwt,
+    @Valid @RequestBody CreateCommunityFragranceRequest req
+  ) {
+    return community.findDuplicates(req, jwt.getSubject());
+  }
+
+  @RateLimited(value = "community-fragrances.write", capacity = 20, windowSeconds = 3600)
   @PutMapping("/{externalId}")
   public FragranceSearchResult update(
     @AuthenticationPrincipal Jwt jwt,
@@ -50,6 +63,7 @@ public class CommunityFragranceController {
     return community.update(externalId, req, sub);
   }
 
+  @RateLimited(value = "community-fragrances.write", capacity = 20, windowSeconds = 3600)
   @DeleteMapping("/{externalId}")
   public void delete(
     @AuthenticationPrincipal Jwt jwt,
@@ -81,6 +95,7 @@ public List<FragranceSearchResult> search(
     return votes.summary(externalId, jwt.getSubject());
   }
 
+  @RateLimited(value = "votes", capacity = 60)
   @PutMapping("/{externalId}/votes")
   public CommunityFragranceVoteSummaryResponse vote(
     @AuthenticationPrincipal Jwt jwt,
@@ -90,6 +105,7 @@ public List<FragranceSearchResult> search(
     return votes.upsert(externalId, jwt.getSubject(), req);
   }
 
+  @RateLimited(value = "reports", capacity = 10, windowSeconds = 3600)
   @PostMapping("/{externalId}/report")
   public void report(
     @AuthenticationPrincipal Jwt jwt,
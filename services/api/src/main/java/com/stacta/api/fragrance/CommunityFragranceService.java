@@ -1,15 +1,22 @@
 package com.stacta.api.fragrance;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stacta.api.fragrance.dto.CreateCommunityFragranceRequest;
+import com.stacta.api.fragrance.dto.DuplicateCandidateDto;
 import com.stacta.api.fragrance.dto.FragranceSearchResult;
 import com.stacta.api.fragrance.dto.NoteDto;   // IMPORTANT: fragrance.dto.NoteDto
 import com.stacta.api.fragrance.dto.NotesDto;  // IMPORTANT: fragrance.dto.NotesDto
+import com.stacta.api.note.FragranceNotesChangedEvent;
+import com.stacta.api.note.NoteDictionaryChangedEvent;
 import com.stacta.api.note.NoteEntity;
 import com.stacta.api.note.NoteRepository;
 import com.stacta.api.note.NoteService;
+import com.stacta.api.note.NoteUsageCounter;
+import com.stacta.api.upload.ImageDerivativeService;
+import com.stacta.api.upload.MediaObjectService;
 import com.stacta.api.upload.UploadImageUrlResolver;
+import com.stacta.api.user.ProfileStatsService;
 import com.stacta.api.user.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
@@ -30,8 +37,16 @@ public class CommunityFragranceService {
   private final NoteRepository notes;
   private final NoteService noteService;
   private final JdbcTemplate jdbc;
-  private final ObjectMapper om;
   private final UploadImageUrlResolver imageUrlResolver;
+  private final ProfileStatsService profileStats;
+  private final FragranceImageResolver fragranceImages;
+  private final ImageDerivativeService imageDerivatives;
+  private final MediaObjectService media;
+  private final FragranceSnapshots snapshots;
+  private final FragranceSnapshotCache snapshotCache;
+  private final ApplicationEventPublisher events;
+  private final NoteUsageCounter noteUsage;
+  private final DuplicateFragranceDetector duplicates;
 
   private static String scoreLabel(Integer s) {
     return s == null ? null : (s + "/5");
@@ -43,16 +58,32 @@ public class CommunityFragranceService {
     NoteRepository notes,
     NoteService noteService,
     JdbcTemplate jdbc,
-    ObjectMapper om,
-    UploadImageUrlResolver imageUrlResolver
+    UploadImageUrlResolver imageUrlResolver,
+    ProfileStatsService profileStats,
+    FragranceImageResolver fragranceImages,
+    ImageDerivativeService imageDerivatives,
+    MediaObjectService media,
+    FragranceSnapshots snapshots,
+    FragranceSnapshotCache snapshotCache,
+    ApplicationEventPublisher events,
+    NoteUsageCounter noteUsage,
+    DuplicateFragranceDetector duplicates
   ) {
     this.fragrances = fragrances;
     this.users = users;
     this.notes = notes;
     this.noteService = noteService;
     this.jdbc = jdbc;
-    this.om = om;
     this.imageUrlResolver = imageUrlResolver;
+    this.profileStats = profileStats;
+    this.fragranceImages = fragranceImages;
+    this.imageDerivatives = imageDerivatives;
+    this.media = media;
+    this.snapshots = snapshots;
+    this.snapshotCache = snapshotCache;
+    this.events = events;
+    this.noteUsage = noteUsage;
+    this.duplicates = duplicates;
   }
 
   @Transactional
@@ -89,6 +120,21 @@ public class CommunityFragranceService {
     List<NoteEntity> middle = resolveNotes(req.middleNoteIds(), req.middleNoteNames(), user.getId());
     List<NoteEntity> base   = resolveNotes(req.baseNoteIds(), req.baseNoteNames(), user.getId());
 
+    // Near-duplicates of public entries fragment ratings and votes; private ones only affect their owner.
+    if ("PUBLIC".equals(visibility) && !Boolean.TRUE.equals(req.ignoreDuplicates())) {
+      List<String> noteNames = new ArrayList<>();
+      for (List<NoteEntity> level : List.of(top, middle, base)) {
+        level.forEach(n -> noteNames.add(n.getName()));
+      }
+      var existing = duplicates.likelyDuplicates(
+        new DuplicateFragranceDetector.Submission(brand, name, year, concentration, noteNames),
+        5
+      );
+      if (!existing.isEmpty()) {
+        throw new LikelyDuplicateException(toDuplicateDtos(existing));
+      }
+    }
+
     // Build response snapshot
     FragranceSearchResult snapshot = buildSnapshot(
       externalId,
@@ -122,6 +168,8 @@ public class CommunityFragranceService {
     f.setYear(year.equals("0") ? null : year);
     f.setImageObjectKey(imageObjectKey);
     f.setImageUrl(resolvedImageUrl);
+    imageDerivatives.enqueue(imageObjectKey);
+    media.retain(imageObjectKey);
 
     f.setCreatedByUserId(user.getId());
     f.setVisibility(visibility);
@@ -133,12 +181,7 @@ public class CommunityFragranceService {
 
     f.setCreatedAt(OffsetDateTime.now());
     f.setUpdatedAt(OffsetDateTime.now());
-
-    try {
-      f.setSnapshot(om.writeValueAsString(snapshot));
-    } catch (Exception e) {
-      f.setSnapshot("{}");
-    }
+    f.setSnapshot(snapshots.write(snapshot));
 
     Fragrance saved;
     try {
@@ -149,11 +192,18 @@ public class CommunityFragranceService {
         "A community fragrance with the same brand/name/year/concentration already exists."
       );
     }
+    snapshotCache.put(saved.getExternalSource(), saved.getExternalId(), saved.getUpdatedAt(), snapshot);
+
+    profileStats.bump(user.getId(), ProfileStatsService.Counter.COMMUNITY_FRAGRANCES, 1);
+    if ("PUBLIC".equals(visibility)) {
+      profileStats.bump(user.getId(), ProfileStatsService.Counter.PUBLIC_COMMUNITY_FRAGRANCES, 1);
+    }
 
     // Insert junction rows + bump usage_count
-    insertFragranceNotes(saved.getId(), top, "TOP");
-    insertFragranceNotes(saved.getId(), middle, "MIDDLE");
-    insertFragranceNotes(saved.getId(), base, "BASE");
+    Map<UUID, Integer> usage = new HashMap<>();
+    insertFragranceNotes(saved.getId(), Map.of("TOP", top, "MIDDLE", middle, "BASE", base), usage);
+    noteUsage.add(usage);
+    events.publishEvent(new FragranceNotesChangedEvent(saved.getId()));
 
     return snapshot;
   }
@@ -198,7 +248,7 @@ public class CommunityFragranceService {
     List<NoteEntity> top = topProvided ? resolveNotes(req.topNoteIds(), req.topNoteNames(), user.getId()) : List.of();
     List<NoteEntity> middle = middleProvided ? resolveNotes(req.middleNoteIds(), req.middleNoteNames(), user.getId()) : List.of();
     List<NoteEntity> base = baseProvided ? resolveNotes(req.baseNoteIds(), req.baseNoteNames(), user.getId()) : List.of();
-    NotesDto existingNotes = readNotesFromSnapshot(fragrance.getSnapshot());
+    NotesDto existingNotes = readNotesFromSnapshot(fragrance);
 
     List<NoteDto> topDtos = topProvided ? toNoteDtos(top) : (existingNotes == null || existingNotes.top() == null ? List.of() : existingNotes.top());
     List<NoteDto> middleDtos = middleProvided ? toNoteDtos(middle) : (existingNotes == null || existingNotes.middle() == null ? List.of() : existingNotes.middle());
@@ -230,35 +280,50 @@ public class CommunityFragranceService {
     fragrance.setName(name);
     fragrance.setBrand(brand);
     fragrance.setYear(year.equals("0") ? null : year);
+    media.replace(fragrance.getImageObjectKey(), imageObjectKey);
     fragrance.setImageObjectKey(imageObjectKey);
     fragrance.setImageUrl(resolvedImageUrl);
+    imageDerivatives.enqueue(imageObjectKey);
+    boolean wasPublic = "PUBLIC".equals(fragrance.getVisibility());
+    boolean isPublic = "PUBLIC".equals(visibility);
+    if (wasPublic != isPublic) {
+      profileStats.bump(user.getId(), ProfileStatsService.Counter.PUBLIC_COMMUNITY_FRAGRANCES, isPublic ? 1 : -1);
+    } else {
+      profileStats.touch(user.getId());
+    }
     fragrance.setVisibility(visibility);
     fragrance.setConcentration(concentration);
     fragrance.setLongevityScore(req.longevityScore());
     fragrance.setSillageScore(req.sillageScore());
     fragrance.setUpdatedAt(OffsetDateTime.now());
-
-    try {
-      fragrance.setSnapshot(om.writeValueAsString(snapshot));
-    } catch (Exception e) {
-      fragrance.setSnapshot("{}");
-    }
+    fragrance.setSnapshot(snapshots.write(snapshot));
 
     Fragrance saved = fragrances.saveAndFlush(fragrance);
+    fragranceImages.evict(saved.getExternalSource(), saved.getExternalId());
+    snapshotCache.put(saved.getExternalSource(), saved.getExternalId(), saved.getUpdatedAt(), snapshot);
     if (anyNotesProvided) {
-      if (topProvided) {
-        jdbc.update("DELETE FROM fragrance_note WHERE fragrance_id = ? AND note_category = 'TOP'", saved.getId());
-        insertFragranceNotes(saved.getId(), top, "TOP");
-      }
-      if (middleProvided) {
-        jdbc.update("DELETE FROM fragrance_note WHERE fragrance_id = ? AND note_category = 'MIDDLE'", saved.getId());
-        insertFragranceNotes(saved.getId(), middle, "MIDDLE");
-      }
-      if (baseProvided) {
-        jdbc.update("DELETE FROM fragrance_note WHERE fragrance_id = ? AND note_category = 'BASE'", saved.getId());
-        insertFragranceNotes(saved.getId(), base, "BASE");
-      }
+      Map<String, List<NoteEntity>> replaced = new LinkedHashMap<>();
+      if (topProvided) replaced.put("TOP", top);
+      if (middleProvided) replaced.put("MIDDLE", middle);
+      if (baseProvided) replaced.put("BASE", base);
+
+      // Notes kept across the edit net out to zero and are not touched.
+      Map<UUID, Integer> usage = new HashMap<>();
+      jdbc.query(
+        "DELETE FROM fragrance_note WHERE fragrance_id = ? AND note_category = ANY(?) RETURNING note_id",
+        ps -> {
+          ps.setObject(1, saved.getId());
+          ps.setArray(2, ps.getConnection().createArrayOf("varchar", replaced.keySet().toArray()));
+        },
+        rs -> {
+          usage.merge(rs.getObject(1, UUID.class), -1, Integer::sum);
+        }
+      );
+      insertFragranceNotes(saved.getId(), replaced, usage);
+      noteUsage.add(usage);
     }
+    // Also covers visibility changes, which decide whether the notes count at all.
+    events.publishEvent(new FragranceNotesChangedEvent(saved.getId()));
 
     return snapshot;
   }
@@ -296,7 +361,8 @@ public class CommunityFragranceService {
     deleteCommunityFragranceAndDependencies(fragrance);
   }
 
-  private void deleteCommunityFragranceAndDependencies(Fragrance fragrance) {
+  /** Also used by {@link MergeJobSteps} once a merged-away fragrance's references have moved. */
+  void deleteCommunityFragranceAndDependencies(Fragrance fragrance) {
     List<UUID> noteIds = jdbc.query(
       "SELECT note_id FROM fragrance_note WHERE fragrance_id = ?",
       (rs, rowNum) -> rs.getObject(1, UUID.class),
@@ -309,31 +375,106 @@ public class CommunityFragranceService {
       fragrance.getExternalSource(),
       fragrance.getExternalId()
     );
-    jdbc.update(
-      "DELETE FROM user_collection_item WHERE LOWER(fragrance_source) = LOWER(?) AND fragrance_external_id = ?",
+    List<UUID> collectors = jdbc.query(
+      "DELETE FROM user_collection_item WHERE LOWER(fragrance_source) = LOWER(?) AND fragrance_external_id = ? RETURNING user_id",
+      (rs, rowNum) -> rs.getObject(1, UUID.class),
       fragrance.getExternalSource(),
       fragrance.getExternalId()
     );
+    for (UUID collectorUserId : collectors) {
+      profileStats.bump(collectorUserId, ProfileStatsService.Counter.COLLECTION, -1);
+    }
 
     fragrances.delete(fragrance);
+    // Lets the fragrance indexes on other instances drop it on their next tail (FragranceChangeFeed).
+    jdbc.update("INSERT INTO fragrance_tombstone (fragrance_id) VALUES (?) ON CONFLICT DO NOTHING", fragrance.getId());
+    events.publishEvent(new FragranceNotesChangedEvent(fragrance.getId()));
+    fragranceImages.evict(fragrance.getExternalSource(), fragrance.getExternalId());
+    snapshotCache.evict(fragrance.getExternalSource(), fragrance.getExternalId());
+    media.release(fragrance.getImageObjectKey());
+    if (fragrance.getCreatedByUserId() != null) {
+      profileStats.bump(fragrance.getCreatedByUserId(), ProfileStatsService.Counter.COMMUNITY_FRAGRANCES, -1);
+      if ("PUBLIC".equals(fragrance.getVisibility())) {
+        profileStats.bump(fragrance.getCreatedByUserId(), ProfileStatsService.Counter.PUBLIC_COMMUNITY_FRAGRANCES, -1);
+      }
+    }
 
     if (noteIds != null && !noteIds.isEmpty()) {
+      // Junction rows went with the fragrance (ON DELETE CASCADE).
+      Map<UUID, Integer> usage = new HashMap<>();
       for (UUID noteId : noteIds) {
-        if (noteId == null) continue;
-        jdbc.update(
-          """
-          DELETE FROM note_dictionary n
-          WHERE n.id = ?
-            AND NOT EXISTS (
-              SELECT 1 FROM fragrance_note fn WHERE fn.note_id = n.id
-            )
-          """,
-          noteId
-        );
+        if (noteId != null) usage.merge(noteId, -1, Integer::sum);
+      }
+      noteUsage.add(usage);
+
+      List<UUID> removed = jdbc.query(
+        """
+        DELETE FROM note_dictionary n
+        WHERE n.id = ANY(?)
+          AND NOT EXISTS (
+            SELECT 1 FROM fragrance_note fn WHERE fn.note_id = n.id
+          )
+        RETURNING n.id
+        """,
+        ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", usage.keySet().toArray())),
+        (rs, rowNum) -> rs.getObject(1, UUID.class)
+      );
+      for (UUID noteId : removed) {
+        events.publishEvent(NoteDictionaryChangedEvent.removed(noteId));
       }
     }
   }
 
+  /**
+   * Existing fragrances (Fragella mirror or public community) the request looks like, best first, so
+   * the submit form can point at them before anything is created. Never creates notes.
+   */
+  @Transactional(readOnly = true)
+  public List<DuplicateCandidateDto> findDuplicates(CreateCommunityFragranceRequest req, String cognitoSub) {
+    users.findByCognitoSub(cognitoSub)
+      .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not onboarded"));
+
+    String brand = safe(req.brand());
+    String name  = safe(req.name());
+    if (brand.isBlank() || name.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "brand and name are required");
+    }
+
+    List<String> noteNames = new ArrayList<>();
+    for (List<UUID> ids : Arrays.asList(req.topNoteIds(), req.middleNoteIds(), req.baseNoteIds())) {
+      fetchNotesInOrder(ids).forEach(n -> noteNames.add(n.getName()));
+    }
+    for (List<String> names : Arrays.asList(req.topNoteNames(), req.middleNoteNames(), req.baseNoteNames())) {
+      if (names != null) names.forEach(noteNames::add);
+    }
+
+    return toDuplicateDtos(duplicates.suggest(
+      new DuplicateFragranceDetector.Submission(brand, name, req.year(), req.concentration(), noteNames),
+      5
+    ));
+  }
+
+  private List<DuplicateCandidateDto> toDuplicateDtos(List<DuplicateFragranceDetector.Candidate> candidates) {
+    if (candidates.isEmpty()) return List.of();
+    Map<FragranceImageResolver.FragranceRef, String> images = fragranceImages.resolve(
+      candidates.stream().map(c -> new FragranceImageResolver.FragranceRef(c.source(), c.externalId())).toList()
+    );
+    return candidates.stream()
+      .map(c -> {
+        String imageUrl = images.get(new FragranceImageResolver.FragranceRef(c.source(), c.externalId()));
+        return new DuplicateCandidateDto(
+          c.source() == null ? null : c.source().toLowerCase(Locale.ROOT),
+          c.externalId(),
+          c.name(),
+          c.brand(),
+          c.year(),
+          imageUrl != null ? imageUrl : c.imageUrl(),
+          Math.round(c.score() * 1000) / 1000.0
+        );
+      })
+      .toList();
+  }
+
   // ✅ NEW: community search from DB (respects visibility via repository query)
   @Transactional(readOnly = true)
   public List<FragranceSearchResult> search(String q, String cognitoSub, int limit) {
@@ -349,11 +490,8 @@ public class CommunityFragranceService {
     var rows = fragrances.searchCommunity(query, user.getId(), pageable);
 
     return rows.stream().map(f -> {
-      String snapshot = f.getSnapshot();
-      if (snapshot == null || snapshot.isBlank()) snapshot = "{}";
-
       try {
-        FragranceSearchResult parsed = om.readValue(snapshot, FragranceSearchResult.class);
+        FragranceSearchResult parsed = parsedSnapshot(f);
 
         // Force consistent ids/source even if snapshot is stale
         return new FragranceSearchResult(
@@ -449,19 +587,27 @@ public class CommunityFragranceService {
       .orElse(null);
   }
 
-  private void insertFragranceNotes(UUID fragranceId, List<NoteEntity> list, String category) {
-    if (list == null || list.isEmpty()) return;
-
-    for (int i = 0; i < list.size(); i++) {
-      var n = list.get(i);
-
-      jdbc.update(
-        "INSERT INTO fragrance_note (fragrance_id, note_id, note_category, display_order) " +
-          "VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING",
-        fragranceId, n.getId(), category, i
-      );
+  /** Inserts junction rows for each category in one batch; every row inserted adds 1 to its note's usage. */
+  private void insertFragranceNotes(UUID fragranceId, Map<String, List<NoteEntity>> byCategory, Map<UUID, Integer> usage) {
+    List<Object[]> rows = new ArrayList<>();
+    byCategory.forEach((category, list) -> {
+      if (list == null) return;
+      for (int i = 0; i < list.size(); i++) {
+        rows.add(new Object[] { fragranceId, list.get(i).getId(), category, i });
+      }
+    });
+    if (rows.isEmpty()) return;
 
-      jdbc.update("UPDATE note_dictionary SET usage_count = usage_count + 1 WHERE id = ?", n.getId());
+    int[] inserted = jdbc.batchUpdate(
+      "INSERT INTO fragrance_note (fragrance_id, note_id, note_category, display_order) " +
+        "VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING",
+      rows
+    );
+    for (int i = 0; i < rows.size(); i++) {
+      // SUCCESS_NO_INFO (-2) when the driver rewrites the batch; count those as inserted.
+      if (i >= inserted.length || inserted[i] != 0) {
+        usage.merge((UUID) rows.get(i)[1], 1, Integer::sum);
+      }
     }
   }
 
@@ -532,16 +678,25 @@ public class CommunityFragranceService {
     return safe(s).toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
   }
 
-  private NotesDto readNotesFromSnapshot(String snapshotJson) {
+  private NotesDto readNotesFromSnapshot(Fragrance fragrance) {
+    String snapshotJson = fragrance.getSnapshot();
     if (snapshotJson == null || snapshotJson.isBlank()) return null;
     try {
-      FragranceSearchResult parsed = om.readValue(snapshotJson, FragranceSearchResult.class);
-      return parsed.notes();
+      return parsedSnapshot(fragrance).notes();
     } catch (Exception ignore) {
       return null;
     }
   }
 
+  private FragranceSearchResult parsedSnapshot(Fragrance f) throws Exception {
+    FragranceSearchResult parsed = snapshotCache.get(f.getExternalSource(), f.getExternalId(), f.getUpdatedAt());
+    if (parsed == null) {
+      parsed = snapshots.read(f.getSnapshot());
+      snapshotCache.put(f.getExternalSource(), f.getExternalId(), f.getUpdatedAt(), parsed);
+    }
+    return parsed;
+  }
+
   private static String normalizeOptional(String s) {
     String cleaned = safe(s);
     return cleaned.isBlank() ? null : cleaned;
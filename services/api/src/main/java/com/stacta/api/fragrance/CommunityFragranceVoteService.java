@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -86,17 +87,20 @@ public class CommunityFragranceVoteService {
   private final UserRepository users;
   private final JdbcTemplate jdbc;
   private final ObjectMapper objectMapper;
+  private final ApplicationEventPublisher events;
 
   public CommunityFragranceVoteService(
     FragranceRepository fragrances,
     UserRepository users,
     JdbcTemplate jdbc,
-    ObjectMapper objectMapper
+    ObjectMapper objectMapper,
+    ApplicationEventPublisher events
   ) {
     this.fragrances = fragrances;
     this.users = users;
     this.jdbc = jdbc;
     this.objectMapper = objectMapper;
+    this.events = events;
   }
 
   @Transactional
@@ -129,6 +133,7 @@ public class CommunityFragranceVoteService {
       seasonJson,
       occasionJson
     );
+    events.publishEvent(new FragranceVotesChangedEvent("COMMUNITY", fragrance.getExternalId(), fragrance.getId()));
 
     return summaryFor(fragrance.getId(), me.getId());
   }
@@ -366,7 +371,7 @@ public class CommunityFragranceVoteService {
   }
 
   private String normalizeExternalId(String externalId) {
-    return externalId == null ? "" : externalId.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    return FragranceExternalIds.normalize(externalId);
   }
 
   private record VoteInput(
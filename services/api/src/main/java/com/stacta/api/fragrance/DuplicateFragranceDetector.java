@@ -0,0 +1,295 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.FragranceMinHash.Fingerprint;
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.fragrance.dto.NotesDto;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds existing fragrances a submission probably duplicates, over the local Fragella mirror and
+ * public community fragrances.
+ *
+ * Every fragrance's {@link FragranceMinHash} name signature is filed in one LSH bucket per band; a
+ * lookup scores only the fragrances sharing a bucket with the submission, with exact name/brand/note
+ * Jaccard rather than the signature estimate. Lookups stop scoring once
+ * {@code app.fragrances.duplicates.budget-ms} has passed and return what they have, so a crowded
+ * bucket cannot stall a submit.
+ *
+ * Rows arrive through {@link FragranceChangeFeed}. Replaced and removed fragrances leave dead bucket
+ * entries behind until the next rebuild. Until the first load finishes {@link #isReady()} is false
+ * and lookups find nothing.
+ */
+@Component
+public class DuplicateFragranceDetector extends FragranceFeedIndex<DuplicateFragranceDetector.Store> {
+  private static final Logger log = LoggerFactory.getLogger(DuplicateFragranceDetector.class);
+
+  private final long budgetNanos;
+  private final double minScore;
+  private final double blockScore;
+
+  public DuplicateFragranceDetector(
+    @Value("${app.fragrances.duplicates.budget-ms:25}") long budgetMs,
+    @Value("${app.fragrances.duplicates.min-score:0.6}") double minScore,
+    @Value("${app.fragrances.duplicates.block-score:0.9}") double blockScore
+  ) {
+    super(new Store());
+    this.budgetNanos = Duration.ofMillis(Math.max(1, budgetMs)).toNanos();
+    this.minScore = minScore;
+    this.blockScore = blockScore;
+  }
+
+  /** What someone is about to create. {@code concentration} and {@code year} may be null. */
+  public record Submission(String brand, String name, String year, String concentration, Collection<String> notes) {}
+
+  /** An existing fragrance; {@code source} is the row's external_source as stored. Score is in [0, 1]. */
+  public record Candidate(
+    UUID fragranceId,
+    String source,
+    String externalId,
+    String name,
+    String brand,
+    String year,
+    String imageUrl,
+    double score
+  ) {}
+
+  /** A community fragrance that looks like a copy of an older or mirrored one. */
+  public record DuplicatePair(UUID fragranceId, UUID duplicateOfFragranceId, double score) {}
+
+  /** Likely duplicates scoring at least {@code app.fragrances.duplicates.min-score}, best first. */
+  public List<Candidate> suggest(Submission submission, int limit) {
+    return find(submission, limit, minScore);
+  }
+
+  /** Existing matches scoring at least {@code app.fragrances.duplicates.block-score}, best first. */
+  public List<Candidate> likelyDuplicates(Submission submission, int limit) {
+    return find(submission, limit, blockScore);
+  }
+
+  List<Candidate> find(Submission submission, int limit, double threshold) {
+    if (submission == null || limit <= 0) return List.of();
+    Fingerprint probe = Fingerprint.of(
+      submission.brand(),
+      submission.name(),
+      submission.year(),
+      submission.concentration(),
+      submission.notes()
+    );
+    if (probe.name().length == 0) return List.of();
+    long deadline = System.nanoTime() + budgetNanos;
+    lock.readLock().lock();
+    try {
+      Store s = store;
+      List<Candidate> out = new ArrayList<>();
+      for (Scored scored : candidates(s, probe, -1, limit, threshold, deadline)) {
+        Doc d = s.docs.get(scored.doc());
+        out.add(new Candidate(d.rowId(), d.source(), d.externalId(), d.name(), d.brand(), d.year(), d.imageUrl(), scored.score()));
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Every public community fragrance checked against the rest of the catalog. A pair is reported once,
+   * pointing at the Fragella mirror row or, between two community fragrances, at the older one.
+   */
+  public List<DuplicatePair> scan(double threshold, int perFragrance) {
+    List<Integer> community = new ArrayList<>();
+    Store s;
+    lock.readLock().lock();
+    try {
+      s = store;
+      for (int doc = 0; doc < s.docs.size(); doc++) {
+        Doc d = s.docs.get(doc);
+        if (d != null && d.community()) community.add(doc);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    List<DuplicatePair> out = new ArrayList<>();
+    for (int doc : community) {
+      // Short read-lock holds so incremental updates interleave with a long scan. A rebuild swapping
+      // the store mid-scan leaves this scan on the previous one, which is fine for a batch report.
+      lock.readLock().lock();
+      try {
+        Doc d = s.docs.get(doc);
+        if (d == null) continue;
+        for (Scored scored : candidates(s, d.fingerprint(), doc, perFragrance, threshold, Long.MAX_VALUE)) {
+          Doc other = s.docs.get(scored.doc());
+          if (other.community() && !isNewer(d, other)) continue;
+          out.add(new DuplicatePair(d.rowId(), other.rowId(), scored.score()));
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    return out;
+  }
+
+  /** Indexes (or re-indexes) one fragrance row. */
+  void upsert(UUID rowId, String source, String externalId, Instant createdAt, FragranceSearchResult snapshot) {
+    upsert(new FragranceChangeFeed.Change(rowId, source, externalId, createdAt, snapshot, List.of()));
+  }
+
+  @Override
+  protected Store newStore() {
+    return new Store();
+  }
+
+  @Override
+  protected Consumer<Store> filing(FragranceChangeFeed.Change change) {
+    Doc doc = doc(change.id(), change.source(), change.externalId(), change.createdAt(), change.snapshot());
+    return s -> {
+      if (doc.fingerprint().name().length == 0) {
+        s.remove(change.id());
+      } else {
+        s.upsert(doc);
+      }
+    };
+  }
+
+  @Override
+  protected void unfile(Store s, UUID rowId) {
+    s.remove(rowId);
+  }
+
+  @Override
+  protected void loaded(Store fresh, long tookMs) {
+    log.info("fragrances.duplicates.rebuild fragrances={} buckets={} tookMs={}", fresh.byRowId.size(), fresh.buckets.size(), tookMs);
+  }
+
+  private static List<Scored> candidates(Store s, Fingerprint probe, int self, int limit, double threshold, long deadline) {
+    // Ascending, so the weakest kept candidate sits at the head; Fragella rows win ties.
+    PriorityQueue<Scored> best = new PriorityQueue<>(Comparator
+      .comparingDouble(Scored::score)
+      .thenComparing(x -> s.docs.get(x.doc()).community()));
+    BitSet seen = new BitSet();
+    int examined = 0;
+    outer:
+    for (int band = 0; band < FragranceMinHash.BANDS; band++) {
+      Bucket bucket = s.buckets.get(FragranceMinHash.band(probe.signature(), band));
+      if (bucket == null) continue;
+      for (int i = 0; i < bucket.size; i++) {
+        int doc = bucket.docs[i];
+        if (doc == self || seen.get(doc)) continue;
+        seen.set(doc);
+        Doc d = s.docs.get(doc);
+        if (d == null) continue;
+        double score = FragranceMinHash.score(probe, d.fingerprint());
+        if (score >= threshold) {
+          best.offer(new Scored(doc, score));
+          if (best.size() > limit) best.poll();
+        }
+        if ((++examined & 63) == 0 && System.nanoTime() > deadline) break outer;
+      }
+    }
+    Scored[] out = new Scored[best.size()];
+    for (int i = out.length - 1; i >= 0; i--) out[i] = best.poll();
+    return Arrays.asList(out);
+  }
+
+  private static boolean isNewer(Doc a, Doc b) {
+    int byAge = a.createdAt().compareTo(b.createdAt());
+    return byAge != 0 ? byAge > 0 : a.rowId().compareTo(b.rowId()) > 0;
+  }
+
+  private static Doc doc(UUID rowId, String source, String externalId, Instant createdAt, FragranceSearchResult snapshot) {
+    List<String> notes = new ArrayList<>();
+    NotesDto pyramid = snapshot.notes();
+    if (pyramid != null) {
+      for (List<NoteDto> level : Arrays.asList(pyramid.top(), pyramid.middle(), pyramid.base())) {
+        if (level == null) continue;
+        for (NoteDto note : level) {
+          if (note != null && note.name() != null) notes.add(note.name());
+        }
+      }
+    }
+    if (snapshot.generalNotes() != null) notes.addAll(snapshot.generalNotes());
+    Fingerprint fingerprint = Fingerprint.of(
+      snapshot.brand(),
+      snapshot.name(),
+      snapshot.year(),
+      snapshot.concentration() != null ? snapshot.concentration() : snapshot.oilType(),
+      notes
+    );
+    return new Doc(
+      rowId,
+      source,
+      externalId,
+      snapshot.name(),
+      snapshot.brand(),
+      snapshot.year(),
+      snapshot.imageUrl(),
+      createdAt == null ? Instant.EPOCH : createdAt,
+      "COMMUNITY".equalsIgnoreCase(source),
+      fingerprint
+    );
+  }
+
+  private record Scored(int doc, double score) {}
+
+  private record Doc(
+    UUID rowId,
+    String source,
+    String externalId,
+    String name,
+    String brand,
+    String year,
+    String imageUrl,
+    Instant createdAt,
+    boolean community,
+    Fingerprint fingerprint
+  ) {}
+
+  private static final class Bucket {
+    private int[] docs = new int[2];
+    private int size;
+
+    void add(int doc) {
+      if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+      docs[size++] = doc;
+    }
+  }
+
+  static final class Store {
+    // By ordinal; null once the fragrance was replaced or removed.
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<UUID, Integer> byRowId = new HashMap<>();
+    private final Map<Long, Bucket> buckets = new HashMap<>();
+
+    void upsert(Doc doc) {
+      remove(doc.rowId());
+      int ordinal = docs.size();
+      docs.add(doc);
+      byRowId.put(doc.rowId(), ordinal);
+      for (int band = 0; band < FragranceMinHash.BANDS; band++) {
+        buckets.computeIfAbsent(FragranceMinHash.band(doc.fingerprint().signature(), band), k -> new Bucket()).add(ordinal);
+      }
+    }
+
+    void remove(UUID rowId) {
+      Integer ordinal = byRowId.remove(rowId);
+      if (ordinal != null) docs.set(ordinal, null);
+    }
+  }
+}
@@ -20,11 +20,12 @@ public class FragellaMapper {
     List<FragranceSearchResult> out = new ArrayList<>(raw.size());
 
     for (var f : raw) {
+      if (f == null) continue;
       NotesDto notesDto = mapNotes(f.notes());
 
       out.add(new FragranceSearchResult(
         "fragella",
-        safeExternalId(f),
+        externalId(f),
         f.name(),
         f.brand(),
         f.year(),
@@ -56,6 +57,12 @@ public class FragellaMapper {
     return out;
   }
 
+  // Same brand|name|year id the ingest path stores, so search hits can be rated and collected directly.
+  private static String externalId(FragellaDtos.Fragrance f) {
+    String id = FragranceExternalIds.fragella(f);
+    return id.isEmpty() ? null : id;
+  }
+
   private NotesDto mapNotes(FragellaDtos.Notes notes) {
     if (notes == null) return null;
 
@@ -87,33 +94,4 @@ public class FragellaMapper {
     }
     return out;
   }
-
-  private String safeExternalId(FragellaDtos.Fragrance f) {
-    if (f == null) return null;
-
-    // try common names without breaking compile for your record
-    try {
-      // if your record has externalId()
-      var m = f.getClass().getMethod("externalId");
-      Object v = m.invoke(f);
-      if (v != null && !v.toString().isBlank()) return v.toString();
-    } catch (Exception ignore) {}
-
-    try {
-      // if your record has id()
-      var m = f.getClass().getMethod("id");
-      Object v = m.invoke(f);
-      if (v != null && !v.toString().isBlank()) return v.toString();
-    } catch (Exception ignore) {}
-
-    try {
-      // if your record has slug()
-      var m = f.getClass().getMethod("slug");
-      Object v = m.invoke(f);
-      if (v != null && !v.toString().isBlank()) return v.toString();
-    } catch (Exception ignore) {}
-
-    return null;
-  }
-
 }
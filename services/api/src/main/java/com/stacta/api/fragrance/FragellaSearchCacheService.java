@@ -24,8 +24,8 @@ public class FragellaSearchCacheService {
   }
 
   @Cacheable(
-    cacheNames = "fragellaSearchV2",
-    key = "'v2:' + (#q == null ? '' : #q.trim().toLowerCase()) + '|' + #limit"
+    cacheNames = "fragellaSearchV3",
+    key = "'v3:' + (#q == null ? '' : #q.trim().toLowerCase()) + '|' + #limit"
   )
   public String searchJson(String q, int limit) {
     try {
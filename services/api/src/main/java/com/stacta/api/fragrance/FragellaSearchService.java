@@ -1,10 +1,12 @@
 package com.stacta.api.fragrance;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -14,6 +16,7 @@ import com.stacta.api.fragrance.dto.FragranceRatingSummary;
 import com.stacta.api.fragrance.dto.FragranceSearchResult;
 import com.stacta.api.integrations.fragella.FragellaClient;
 import com.stacta.api.integrations.fragella.FragellaDtos;
+import com.stacta.api.text.Canonical;
 import com.stacta.api.upload.UploadImageUrlResolver;
 import com.stacta.api.user.UserRepository;
 import org.slf4j.Logger;
@@ -29,7 +32,9 @@ public class FragellaSearchService {
   private final ObjectMapper objectMapper;
 
   // for persisted detail
-  private final FragranceRepository fragranceRepository;
+  private final JdbcTemplate jdbc;
+  private final FragranceSnapshots snapshots;
+  private final FragranceSnapshotCache snapshotCache;
   private final UserRepository userRepository;
   private final FragranceRatingService ratingService;
   private final UploadImageUrlResolver imageUrlResolver;
@@ -40,7 +45,9 @@ public class FragellaSearchService {
     FragellaMapper mapper,
     FragellaSearchCacheService cacheService,
     ObjectMapper objectMapper,
-    FragranceRepository fragranceRepository,
+    JdbcTemplate jdbc,
+    FragranceSnapshots snapshots,
+    FragranceSnapshotCache snapshotCache,
     UserRepository userRepository,
     FragranceRatingService ratingService,
     UploadImageUrlResolver imageUrlResolver
@@ -49,7 +56,9 @@ public class FragellaSearchService {
     this.mapper = mapper;
     this.cacheService = cacheService;
     this.objectMapper = objectMapper;
-    this.fragranceRepository = fragranceRepository;
+    this.jdbc = jdbc;
+    this.snapshots = snapshots;
+    this.snapshotCache = snapshotCache;
     this.userRepository = userRepository;
     this.ratingService = ratingService;
     this.imageUrlResolver = imageUrlResolver;
@@ -77,6 +86,7 @@ public class FragellaSearchService {
    * GET /api/v1/fragrances/{externalId}?source=FRAGELLA|COMMUNITY
    *
    * Reads from DB by (external_source, external_id), parses snapshot, returns FragranceSearchResult.
+   * Parsed snapshots are reused while the row's updated_at is unchanged (FragranceSnapshotCache).
    *
    * NOTE:
    * Search no longer persists FRAGELLA fragrances. So for FRAGELLA, if not found in DB,
@@ -85,7 +95,7 @@ public class FragellaSearchService {
    */
   public FragranceSearchResult getPersistedDetail(String source, String externalId) {
     String src = (source == null ? "FRAGELLA" : source.trim()).toUpperCase(Locale.ROOT);
-    String ext = normalizeExternalId(externalId);
+    String ext = FragranceExternalIds.normalize(externalId);
 
     // tolerate both styles in DB ("FRAGELLA"/"fragella", "COMMUNITY"/"community")
     List<String> candidates = switch (src) {
@@ -94,14 +104,10 @@ public class FragellaSearchService {
       default -> List.of(src, src.toLowerCase(Locale.ROOT));
     };
 
-    Optional<Fragrance> found = Optional.empty();
-    for (String c : candidates) {
-      found = fragranceRepository.findByExternalSourceAndExternalId(c, ext);
-      if (found.isPresent()) break;
-    }
+    DetailRow row = findDetailRow(candidates, ext);
 
     // If not found in DB and this is FRAGELLA, fall back to live lookup
-    if (found.isEmpty()) {
+    if (row == null) {
       if ("FRAGELLA".equalsIgnoreCase(src)) {
         FragellaDtos.Fragrance live = fetchLiveFragellaByExternalId(ext);
         if (live == null) {
@@ -120,42 +126,57 @@ public class FragellaSearchService {
       throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Fragrance not found");
     }
 
-    Fragrance entity = found.get();
-    String snapshot = entity.getSnapshot();
-    if (snapshot == null || snapshot.isBlank()) snapshot = "{}";
-
     // what the FE expects as source string
     String responseSource =
-      "COMMUNITY".equalsIgnoreCase(entity.getExternalSource()) ? "community" : "fragella";
+      "COMMUNITY".equalsIgnoreCase(row.source()) ? "community" : "fragella";
 
-    // COMMUNITY snapshots are persisted as FragranceSearchResult; parsing them as Fragella DTO can yield null-heavy results.
-    if ("community".equalsIgnoreCase(responseSource)) {
+    FragranceSearchResult parsed = snapshotCache.get(row.source(), row.externalId(), row.updatedAt());
+    if (parsed == null) {
       try {
-        FragranceSearchResult parsed = objectMapper.readValue(snapshot, FragranceSearchResult.class);
-        return withIds(parsed, responseSource, entity.getExternalId(), entity.getCreatedByUserId(), parsed.createdByUsername(), null);
+        parsed = snapshots.read(loadSnapshot(row.id()));
       } catch (Exception e) {
         throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Snapshot parse failed");
       }
+      snapshotCache.put(row.source(), row.externalId(), row.updatedAt(), parsed);
     }
+    return withIds(parsed, responseSource, row.externalId(), row.createdByUserId(), null, null);
+  }
 
-    // 1) Try parse snapshot as Fragella DTO (typical for ingested FRAGELLA rows)
-    try {
-      FragellaDtos.Fragrance dto = objectMapper.readValue(snapshot, FragellaDtos.Fragrance.class);
-      List<FragranceSearchResult> mapped = mapper.mapRaw(List.of(dto));
-      if (mapped != null && !mapped.isEmpty()) {
-        return withIds(mapped.get(0), responseSource, entity.getExternalId(), entity.getCreatedByUserId(), null, null);
-      }
-    } catch (Exception ignore) {
-      // fallthrough
-    }
+  private record DetailRow(UUID id, String source, String externalId, UUID createdByUserId, OffsetDateTime updatedAt) {}
+
+  // Version lookup only; the snapshot text is fetched when the cached parse is missing or stale.
+  private DetailRow findDetailRow(List<String> sources, String externalId) {
+    return jdbc.query(
+      """
+      SELECT id, external_source, external_id, created_by_user_id, updated_at
+      FROM fragrance
+      WHERE external_source IN (?, ?)
+        AND external_id = ?
+      ORDER BY external_source = ? DESC
+      LIMIT 1
+      """,
+      rs -> rs.next()
+        ? new DetailRow(
+          rs.getObject("id", UUID.class),
+          rs.getString("external_source"),
+          rs.getString("external_id"),
+          rs.getObject("created_by_user_id", UUID.class),
+          rs.getObject("updated_at", OffsetDateTime.class)
+        )
+        : null,
+      sources.get(0),
+      sources.get(1),
+      externalId,
+      sources.get(0)
+    );
+  }
 
-    // 2) Try parse snapshot already as FragranceSearchResult (good for COMMUNITY)
-    try {
-      FragranceSearchResult parsed = objectMapper.readValue(snapshot, FragranceSearchResult.class);
-      return withIds(parsed, responseSource, entity.getExternalId(), entity.getCreatedByUserId(), parsed.createdByUsername(), null);
-    } catch (Exception e) {
-      throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Snapshot parse failed");
-    }
+  private String loadSnapshot(UUID fragranceId) {
+    return jdbc.query(
+      "SELECT snapshot::text FROM fragrance WHERE id = ?",
+      rs -> rs.next() ? rs.getString(1) : null,
+      fragranceId
+    );
   }
 
   /**
@@ -206,7 +227,7 @@ public class FragellaSearchService {
 
     for (var f : results) {
       if (f == null) continue;
-      String computed = computeExternalId(f);
+      String computed = FragranceExternalIds.fragella(f);
       if (!computed.isBlank() && computed.equals(targetExternalId)) {
         return f;
       }
@@ -214,45 +235,13 @@ public class FragellaSearchService {
     return null;
   }
 
-  private static String normalizeExternalId(String externalId) {
-    if (externalId == null) return "";
-    return externalId
-      .trim()
-      .toLowerCase(Locale.ROOT)
-      .replaceAll("\\s+", " ")
-      .trim();
-  }
-
-  // Must match your FragranceIngestService externalId() logic
-  private static String computeExternalId(FragellaDtos.Fragrance f) {
-    if (f == null) return "";
-
-    String brand = nullSafe(f.brand());
-    String name  = nullSafe(f.name());
-    String year  = nullSafe(f.year());
-
-    if (year.isBlank()) year = "0";
-
-    String combined = (brand + "|" + name + "|" + year)
-      .toLowerCase(Locale.ROOT)
-      .replaceAll("\\s+", " ")
-      .trim();
-
-    if (combined.equals("||0") || combined.equals("||")) return "";
-    return combined;
-  }
-
-  private static String nullSafe(String s) {
-    return s == null ? "" : s.trim();
-  }
-
   public FragranceSearchResult attachRatings(FragranceSearchResult in, String viewerSub) {
     if (in == null) return null;
     FragranceRatingSummary summary;
     if ("fragella".equalsIgnoreCase(in.source())) {
-      String canonical = computeFragellaExternalIdFromResult(in);
-      String zeroAliasExternal = toZeroYearAlias(in.externalId());
-      String zeroAliasCanonical = toZeroYearAlias(canonical);
+      String canonical = FragranceExternalIds.fragella(in);
+      String zeroAliasExternal = FragranceExternalIds.zeroYearAlias(in.externalId());
+      String zeroAliasCanonical = FragranceExternalIds.zeroYearAlias(canonical);
       FragranceRatingSummary raw = ratingService.getSummaryAcrossExternalIds(
         viewerSub,
         in.source(),
@@ -291,41 +280,8 @@ public class FragellaSearchService {
   }
 
   private Double parseRatingValue(String raw) {
-    if (raw == null) return null;
-    String s = raw.trim().replace(',', '.');
-    if (s.isBlank()) return null;
-    java.util.regex.Matcher m = java.util.regex.Pattern.compile("([0-9]+(?:\\.[0-9]+)?)").matcher(s);
-    if (!m.find()) return null;
-    try {
-      double value = Double.parseDouble(m.group(1));
-      if (!Double.isFinite(value)) return null;
-      return Math.max(0.0, Math.min(5.0, value));
-    } catch (Exception e) {
-      return null;
-    }
-  }
-
-  private String computeFragellaExternalIdFromResult(FragranceSearchResult in) {
-    if (in == null) return "";
-    String brand = nullSafe(in.brand());
-    String name = nullSafe(in.name());
-    String year = nullSafe(in.year());
-    if (year.isBlank()) year = "0";
-    String combined = (brand + "|" + name + "|" + year)
-      .toLowerCase(Locale.ROOT)
-      .replaceAll("\\s+", " ")
-      .trim();
-    if (combined.equals("||0") || combined.equals("||")) return "";
-    return combined;
-  }
-
-  private String toZeroYearAlias(String externalId) {
-    if (externalId == null) return "";
-    String ext = externalId.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
-    if (ext.isBlank()) return "";
-    String[] parts = ext.split("\\|", -1);
-    if (parts.length < 2) return "";
-    return (parts[0] + "|" + parts[1] + "|0").trim();
+    Double value = Canonical.firstDecimal(raw);
+    return value == null ? null : Math.max(0.0, Math.min(5.0, value));
   }
 
   private FragranceSearchResult withIds(
@@ -0,0 +1,56 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.FragranceFacetIndex.Facet;
+import com.stacta.api.fragrance.FragranceImageResolver.FragranceRef;
+import com.stacta.api.fragrance.dto.FacetCountDto;
+import com.stacta.api.fragrance.dto.FragranceBrowseItem;
+import com.stacta.api.fragrance.dto.FragranceBrowseResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+
+@Service
+public class FragranceBrowseService {
+  private final FragranceFacetIndex index;
+  private final FragranceImageResolver fragranceImages;
+
+  public FragranceBrowseService(FragranceFacetIndex index, FragranceImageResolver fragranceImages) {
+    this.index = index;
+    this.fragranceImages = fragranceImages;
+  }
+
+  /**
+   * Fragrances matching every selected accord, season, occasion and note, with per-facet counts
+   * within the result. Empty until the facet index has loaded.
+   */
+  public FragranceBrowseResponse browse(Map<Facet, List<String>> selected, int offset, int limit, int facetLimit) {
+    if (!index.isReady()) return new FragranceBrowseResponse(0, offset, limit, List.of(), Map.of());
+
+    FragranceFacetIndex.Page page = index.browse(selected, offset, limit, facetLimit);
+    Map<FragranceRef, String> images = page.hits().isEmpty()
+      ? Map.of()
+      : fragranceImages.resolve(page.hits().stream().map(h -> new FragranceRef(h.source(), h.externalId())).toList());
+    List<FragranceBrowseItem> items = page.hits().stream()
+      .map(h -> {
+        String imageUrl = images.get(new FragranceRef(h.source(), h.externalId()));
+        return new FragranceBrowseItem(
+          h.source() == null ? null : h.source().toLowerCase(Locale.ROOT),
+          h.externalId(),
+          h.name(),
+          h.brand(),
+          h.year(),
+          imageUrl != null ? imageUrl : h.imageUrl()
+        );
+      })
+      .toList();
+
+    Map<String, List<FacetCountDto>> facets = new LinkedHashMap<>();
+    page.facets().forEach((facet, counts) -> facets.put(
+      facet.param(),
+      counts.stream().map(c -> new FacetCountDto(c.value(), c.label(), c.count())).toList()
+    ));
+    return new FragranceBrowseResponse(page.total(), offset, limit, items, facets);
+  }
+}
@@ -0,0 +1,269 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.note.FragranceNotesChangedEvent;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the in-memory fragrance indexes ({@link SimilarFragranceIndex}, {@link FragranceFacetIndex},
+ * {@link DuplicateFragranceDetector}) in step with {@code fragrance}, reading and parsing each row
+ * once for all of them.
+ *
+ * Every {@code app.fragrances.feed.rebuild-ms} the whole table is streamed into fresh indexes, in name
+ * order. In between, every {@code app.fragrances.feed.refresh-ms} rows whose updated_at moved are
+ * re-read, and ids in {@code fragrance_tombstone} are removed, so writes and deletes made on other
+ * instances show up within a minute; a {@link FragranceNotesChangedEvent} re-reads that one row after
+ * commit. Tombstones older than {@link #TOMBSTONE_RETENTION} are pruned on rebuild.
+ */
+@Component
+public class FragranceChangeFeed {
+  private static final Logger log = LoggerFactory.getLogger(FragranceChangeFeed.class);
+  // Re-read a little behind the watermarks so rows committed out of timestamp order are not missed.
+  private static final long OVERLAP_SECONDS = 60;
+  static final Duration TOMBSTONE_RETENTION = Duration.ofDays(7);
+
+  private static final String FRAGRANCE_ROWS = """
+    SELECT f.id, f.external_source, f.external_id, f.visibility, f.snapshot::text, f.updated_at, f.created_at,
+      ARRAY(
+        SELECT nd.name
+        FROM fragrance_note fn
+        JOIN note_dictionary nd ON nd.id = fn.note_id
+        WHERE fn.fragrance_id = f.id
+      )
+    FROM fragrance f
+    %s
+    """;
+
+  private final JdbcTemplate jdbc;
+  private final FragranceSnapshots snapshots;
+  private final List<Listener> listeners;
+  private final long rebuildNanos;
+
+  private volatile boolean ready = false;
+  private volatile Instant watermark = null;
+  private volatile Instant tombstoneWatermark = null;
+  private long lastRebuildNanos;
+
+  public FragranceChangeFeed(
+    JdbcTemplate jdbc,
+    FragranceSnapshots snapshots,
+    List<Listener> listeners,
+    @Value("${app.fragrances.feed.rebuild-ms:21600000}") long rebuildMs
+  ) {
+    this.jdbc = jdbc;
+    this.snapshots = snapshots;
+    this.listeners = List.copyOf(listeners);
+    this.rebuildNanos = Duration.ofMillis(Math.max(60_000, rebuildMs)).toNanos();
+  }
+
+  /**
+   * A searchable fragrance row. Private community rows and rows without a readable snapshot never
+   * reach a listener as a change; they are removed instead.
+   */
+  public record Change(
+    UUID id,
+    String source,
+    String externalId,
+    Instant createdAt,
+    FragranceSearchResult snapshot,
+    List<String> notes
+  ) {}
+
+  /**
+   * An index fed by this class. {@code startLoad}, {@code load} and {@code finishLoad} come from one
+   * rebuild at a time; {@code upsert} and {@code remove} can arrive from any thread, including while a
+   * load is running, and must then reach the freshly loaded index too.
+   */
+  interface Listener {
+    void startLoad();
+
+    void load(Change change);
+
+    /** Ends a load; when {@code ok} is false the listener keeps serving what it had. */
+    void finishLoad(boolean ok);
+
+    void upsert(Change change);
+
+    void remove(UUID rowId);
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onFragranceChanged(FragranceNotesChangedEvent event) {
+    if (event == null || event.fragranceId() == null) return;
+    List<Row> rows = new ArrayList<>();
+    jdbc.query(
+      FRAGRANCE_ROWS.formatted("WHERE f.id = ?"),
+      rs -> {
+        rows.add(row(rs));
+      },
+      event.fragranceId()
+    );
+    if (rows.isEmpty()) {
+      remove(event.fragranceId());
+    } else {
+      apply(rows.get(0));
+    }
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.fragrances.feed.initial-delay-ms:0}",
+    fixedDelayString = "${app.fragrances.feed.refresh-ms:60000}"
+  )
+  public void refresh() {
+    if (!ready || System.nanoTime() - lastRebuildNanos > rebuildNanos) {
+      rebuild();
+      return;
+    }
+    Instant since = watermark;
+    Instant tombstonesSince = tombstoneWatermark;
+    Instant[] newest = {since};
+    Instant[] newestTombstone = {tombstonesSince};
+    int[] changed = {0, 0};
+    try {
+      jdbc.query(
+        FRAGRANCE_ROWS.formatted("WHERE f.updated_at >= ?"),
+        rs -> {
+          Row row = row(rs);
+          apply(row);
+          if (newest[0] == null || row.updatedAt().isAfter(newest[0])) newest[0] = row.updatedAt();
+          changed[0]++;
+        },
+        Timestamp.from(since.minusSeconds(OVERLAP_SECONDS))
+      );
+      jdbc.query(
+        "SELECT fragrance_id, deleted_at FROM fragrance_tombstone WHERE deleted_at >= ?",
+        rs -> {
+          remove(rs.getObject(1, UUID.class));
+          Instant at = rs.getTimestamp(2).toInstant();
+          if (newestTombstone[0] == null || at.isAfter(newestTombstone[0])) newestTombstone[0] = at;
+          changed[1]++;
+        },
+        Timestamp.from(tombstonesSince.minusSeconds(OVERLAP_SECONDS))
+      );
+    } catch (Exception e) {
+      log.warn("fragrances.feed.refresh failed; keeping current indexes", e);
+      return;
+    }
+    watermark = newest[0];
+    tombstoneWatermark = newestTombstone[0];
+    log.debug("fragrances.feed.refresh rows={} deleted={}", changed[0], changed[1]);
+  }
+
+  private void rebuild() {
+    Instant[] newest = {Instant.EPOCH};
+    Instant newestTombstone;
+    int[] rows = {0};
+    long started = System.nanoTime();
+    try {
+      for (Listener listener : listeners) listener.startLoad();
+      // Read the tombstone watermark first so deletes landing during the load are picked up by the tail.
+      Timestamp latestTombstone = jdbc.queryForObject("SELECT MAX(deleted_at) FROM fragrance_tombstone", Timestamp.class);
+      newestTombstone = latestTombstone == null ? Instant.EPOCH : latestTombstone.toInstant();
+      jdbc.query(
+        FRAGRANCE_ROWS.formatted("ORDER BY lower(f.name), f.id"),
+        rs -> {
+          Row row = row(rs);
+          Change change = indexable(row);
+          if (change != null) {
+            for (Listener listener : listeners) listener.load(change);
+          }
+          if (row.updatedAt().isAfter(newest[0])) newest[0] = row.updatedAt();
+          rows[0]++;
+        }
+      );
+    } catch (Exception e) {
+      log.warn("fragrances.feed.rebuild failed; keeping previous indexes (ready={})", ready, e);
+      for (Listener listener : listeners) listener.finishLoad(false);
+      return;
+    }
+
+    for (Listener listener : listeners) listener.finishLoad(true);
+    watermark = newest[0];
+    tombstoneWatermark = newestTombstone;
+    lastRebuildNanos = System.nanoTime();
+    ready = true;
+    log.info("fragrances.feed.rebuild rows={} tookMs={}", rows[0], (System.nanoTime() - started) / 1_000_000L);
+
+    try {
+      jdbc.update(
+        "DELETE FROM fragrance_tombstone WHERE deleted_at < ?",
+        Timestamp.from(Instant.now().minus(TOMBSTONE_RETENTION))
+      );
+    } catch (Exception e) {
+      log.warn("fragrances.feed.prune failed", e);
+    }
+  }
+
+  private void apply(Row row) {
+    Change change = indexable(row);
+    if (change == null) {
+      remove(row.id());
+    } else {
+      for (Listener listener : listeners) listener.upsert(change);
+    }
+  }
+
+  private void remove(UUID rowId) {
+    for (Listener listener : listeners) listener.remove(rowId);
+  }
+
+  /** The parsed row when it should be searchable, otherwise null. */
+  private Change indexable(Row row) {
+    if ("COMMUNITY".equalsIgnoreCase(row.source()) && !"PUBLIC".equals(row.visibility())) return null;
+    if (row.snapshot() == null || row.snapshot().isBlank()) return null;
+    try {
+      return new Change(row.id(), row.source(), row.externalId(), row.createdAt(), snapshots.read(row.snapshot()), row.notes());
+    } catch (Exception e) {
+      log.debug("fragrances.feed skipping unreadable snapshot id={}", row.id(), e);
+      return null;
+    }
+  }
+
+  private static Row row(ResultSet rs) throws SQLException {
+    Timestamp createdAt = rs.getTimestamp(7);
+    Array notes = rs.getArray(8);
+    return new Row(
+      rs.getObject(1, UUID.class),
+      rs.getString(2),
+      rs.getString(3),
+      rs.getString(4),
+      rs.getString(5),
+      rs.getTimestamp(6).toInstant(),
+      createdAt == null ? null : createdAt.toInstant(),
+      notes == null ? List.of() : Arrays.asList((String[]) notes.getArray())
+    );
+  }
+
+  private record Row(
+    UUID id,
+    String source,
+    String externalId,
+    String visibility,
+    String snapshot,
+    Instant updatedAt,
+    Instant createdAt,
+    List<String> notes
+  ) {}
+}
@@ -1,12 +1,16 @@
 package com.stacta.api.fragrance;
 
+import com.stacta.api.fragrance.FragranceFacetIndex.Facet;
+import com.stacta.api.fragrance.dto.FragranceBrowseResponse;
 import com.stacta.api.fragrance.dto.FragranceSearchResult;
 import com.stacta.api.fragrance.dto.FragranceRatingSummary;
 import com.stacta.api.fragrance.dto.RateFragranceRequest;
 import com.stacta.api.fragrance.dto.CommunityFragranceVoteRequest;
 import com.stacta.api.fragrance.dto.CommunityFragranceVoteSummaryResponse;
+import com.stacta.api.fragrance.dto.SimilarFragranceDto;
 import com.stacta.api.integrations.fragella.FragellaDtos;
 import com.stacta.api.note.NoteIngestAsyncService;
+import com.stacta.api.ratelimit.RateLimited;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -15,8 +19,10 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/fragrances")
@@ -26,17 +32,23 @@ public class FragranceController {
   private final NoteIngestAsyncService noteIngestAsyncService;
   private final FragranceRatingService ratingService;
   private final FragranceVoteService voteService;
+  private final SimilarFragranceService similarService;
+  private final FragranceBrowseService browseService;
 
   public FragranceController(
     FragellaSearchService searchService,
     NoteIngestAsyncService noteIngestAsyncService,
     FragranceRatingService ratingService,
-    FragranceVoteService voteService
+    FragranceVoteService voteService,
+    SimilarFragranceService similarService,
+    FragranceBrowseService browseService
   ) {
     this.searchService = searchService;
     this.noteIngestAsyncService = noteIngestAsyncService;
     this.ratingService = ratingService;
     this.voteService = voteService;
+    this.similarService = similarService;
+    this.browseService = browseService;
   }
 
   @Operation(summary = "Search fragrances via Fragella. Cached when persist=false. When persist=true, does NOT cache and persists NOTES only (async).")
@@ -69,6 +81,34 @@ public class FragranceController {
     return searchService.mapRaw(raw);
   }
 
+  @Operation(summary = "Browse fragrances by accord, season, occasion and note. Every selected value must match; facets count values within the result.")
+  @GetMapping("/browse")
+  public FragranceBrowseResponse browse(
+    @RequestParam(value = "accord", required = false) List<String> accords,
+    @RequestParam(value = "season", required = false) List<String> seasons,
+    @RequestParam(value = "occasion", required = false) List<String> occasions,
+    @RequestParam(value = "note", required = false) List<String> notes,
+    @RequestParam(value = "offset", defaultValue = "0") int offset,
+    @RequestParam(value = "limit", defaultValue = "24") int limit,
+    @RequestParam(value = "facetLimit", defaultValue = "20") int facetLimit
+  ) {
+    if (offset < 0) offset = 0;
+    if (limit < 1) limit = 1;
+    if (limit > 100) limit = 100;
+    if (facetLimit < 0) facetLimit = 0;
+    if (facetLimit > 100) facetLimit = 100;
+
+    Map<Facet, List<String>> selected = new EnumMap<>(Facet.class);
+    if (accords != null) selected.put(Facet.ACCORD, accords);
+    if (seasons != null) selected.put(Facet.SEASON, seasons);
+    if (occasions != null) selected.put(Facet.OCCASION, occasions);
+    if (notes != null) selected.put(Facet.NOTE, notes);
+    if (selected.values().stream().mapToInt(List::size).sum() > 20) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most 20 facet values can be selected");
+    }
+    return browseService.browse(selected, offset, limit, facetLimit);
+  }
+
   @GetMapping("/{externalId}")
   public FragranceSearchResult getByExternalId(
     @PathVariable("externalId") String externalId,
@@ -82,6 +122,22 @@ public class FragranceController {
     return searchService.attachRatings(searchService.getPersistedDetail(source, externalId.trim()), viewerSub);
   }
 
+  @Operation(summary = "Fragrances with the closest accords and notes, best first.")
+  @GetMapping("/{externalId}/similar")
+  public List<SimilarFragranceDto> similar(
+    @PathVariable("externalId") String externalId,
+    @RequestParam(value = "source", defaultValue = "FRAGELLA") String source,
+    @RequestParam(value = "limit", defaultValue = "12") int limit
+  ) {
+    if (externalId == null || externalId.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "externalId is required");
+    }
+    if (limit < 1) limit = 1;
+    if (limit > 50) limit = 50;
+    return similarService.similar(source, externalId.trim(), limit);
+  }
+
+  @RateLimited(value = "ratings", capacity = 60)
   @PostMapping("/{externalId}/rating")
   public FragranceRatingSummary rateFragrance(
     @PathVariable("externalId") String externalId,
@@ -123,6 +179,7 @@ public class FragranceController {
     return voteService.summary(source, externalId, jwt.getSubject());
   }
 
+  @RateLimited(value = "votes", capacity = 60)
   @PutMapping("/{externalId}/votes")
   public CommunityFragranceVoteSummaryResponse vote(
     @PathVariable("externalId") String externalId,
@@ -0,0 +1,51 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.DuplicateScanResponse;
+import com.stacta.api.fragrance.dto.FragranceDuplicateListResponse;
+import com.stacta.api.fragrance.dto.MergeJobDto;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/admin/fragrance-duplicates")
+public class FragranceDuplicateAdminController {
+
+  private final FragranceDuplicateService duplicates;
+
+  public FragranceDuplicateAdminController(FragranceDuplicateService duplicates) {
+    this.duplicates = duplicates;
+  }
+
+  @GetMapping
+  public FragranceDuplicateListResponse list(
+    @AuthenticationPrincipal Jwt jwt,
+    @RequestParam(value = "status", defaultValue = "OPEN") String status,
+    @RequestParam(value = "limit", defaultValue = "100") int limit
+  ) {
+    return new FragranceDuplicateListResponse(duplicates.list(status, limit, jwt.getSubject()));
+  }
+
+  @PostMapping("/scan")
+  public DuplicateScanResponse scan(@AuthenticationPrincipal Jwt jwt) {
+    return duplicates.scan(jwt.getSubject());
+  }
+
+  @PostMapping("/{candidateId}/dismiss")
+  public void dismiss(
+    @AuthenticationPrincipal Jwt jwt,
+    @PathVariable("candidateId") UUID candidateId
+  ) {
+    duplicates.dismiss(candidateId, jwt.getSubject());
+  }
+
+  @PostMapping("/{candidateId}/merge")
+  public MergeJobDto merge(
+    @AuthenticationPrincipal Jwt jwt,
+    @PathVariable("candidateId") UUID candidateId
+  ) {
+    return duplicates.merge(candidateId, jwt.getSubject());
+  }
+}
@@ -0,0 +1,249 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.DuplicateScanResponse;
+import com.stacta.api.fragrance.dto.FragranceDuplicateItemDto;
+import com.stacta.api.fragrance.dto.MergeJobDto;
+import com.stacta.api.user.User;
+import com.stacta.api.user.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moderator side of duplicate detection: a batch scan of every public community fragrance against
+ * the catalog, persisted as fragrance_duplicate_candidate rows to review, dismiss or merge.
+ */
+@Service
+public class FragranceDuplicateService {
+  private static final Logger log = LoggerFactory.getLogger(FragranceDuplicateService.class);
+  private static final int CANDIDATES_PER_FRAGRANCE = 5;
+
+  private final JdbcTemplate jdbc;
+  private final UserRepository users;
+  private final DuplicateFragranceDetector detector;
+  private final MergeJobService mergeJobs;
+  private final double scanMinScore;
+  private final AtomicBoolean scanning = new AtomicBoolean(false);
+
+  public FragranceDuplicateService(
+    JdbcTemplate jdbc,
+    UserRepository users,
+    DuplicateFragranceDetector detector,
+    MergeJobService mergeJobs,
+    @Value("${app.fragrances.duplicates.scan-min-score:0.75}") double scanMinScore
+  ) {
+    this.jdbc = jdbc;
+    this.users = users;
+    this.detector = detector;
+    this.mergeJobs = mergeJobs;
+    this.scanMinScore = scanMinScore;
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.fragrances.duplicates.scan-initial-delay-ms:600000}",
+    fixedDelayString = "${app.fragrances.duplicates.scan-ms:86400000}"
+  )
+  public void scheduledScan() {
+    if (!detector.isReady() || scanning.get()) return;
+    try {
+      runScan();
+    } catch (Exception e) {
+      log.warn("fragrances.duplicates.scan failed", e);
+    }
+  }
+
+  public DuplicateScanResponse scan(String viewerSub) {
+    requireAdmin(viewerSub);
+    if (!detector.isReady()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Duplicate index is still loading.");
+    }
+    return runScan();
+  }
+
+  public List<FragranceDuplicateItemDto> list(String status, int limit, String viewerSub) {
+    requireAdmin(viewerSub);
+    int safeLimit = Math.max(1, Math.min(limit, 200));
+    String normalizedStatus = normalizeStatusFilter(status);
+
+    return jdbc.query(
+      """
+      SELECT
+        c.id,
+        c.fragrance_id,
+        f.external_id AS fragrance_external_id,
+        f.name AS fragrance_name,
+        f.brand AS fragrance_brand,
+        cu.username AS creator_username,
+        c.duplicate_of_fragrance_id,
+        d.external_source AS duplicate_of_source,
+        d.external_id AS duplicate_of_external_id,
+        d.name AS duplicate_of_name,
+        d.brand AS duplicate_of_brand,
+        c.score,
+        c.status,
+        rs.username AS resolved_by_username,
+        c.detected_at,
+        c.resolved_at
+      FROM fragrance_duplicate_candidate c
+      JOIN fragrance f ON f.id = c.fragrance_id
+      JOIN fragrance d ON d.id = c.duplicate_of_fragrance_id
+      LEFT JOIN users cu ON cu.id = f.created_by_user_id
+      LEFT JOIN users rs ON rs.id = c.resolved_by_user_id
+      WHERE (? = 'ALL' OR c.status = ?)
+      ORDER BY
+        CASE WHEN c.status = 'OPEN' THEN 0 ELSE 1 END,
+        c.score DESC,
+        c.detected_at DESC
+      LIMIT ?
+      """,
+      (rs, rowNum) -> new FragranceDuplicateItemDto(
+        rs.getObject("id", UUID.class),
+        rs.getObject("fragrance_id", UUID.class),
+        rs.getString("fragrance_external_id"),
+        rs.getString("fragrance_name"),
+        rs.getString("fragrance_brand"),
+        rs.getString("creator_username"),
+        rs.getObject("duplicate_of_fragrance_id", UUID.class),
+        rs.getString("duplicate_of_source"),
+        rs.getString("duplicate_of_external_id"),
+        rs.getString("duplicate_of_name"),
+        rs.getString("duplicate_of_brand"),
+        rs.getDouble("score"),
+        rs.getString("status"),
+        rs.getString("resolved_by_username"),
+        toInstant(rs.getTimestamp("detected_at")),
+        toInstant(rs.getTimestamp("resolved_at"))
+      ),
+      normalizedStatus,
+      normalizedStatus,
+      safeLimit
+    );
+  }
+
+  public void dismiss(UUID candidateId, String viewerSub) {
+    User admin = requireAdmin(viewerSub);
+    int updated = jdbc.update(
+      """
+      UPDATE fragrance_duplicate_candidate
+      SET status = 'DISMISSED',
+          resolved_by_user_id = ?,
+          resolved_at = now()
+      WHERE id = ? AND status = 'OPEN'
+      """,
+      admin.getId(),
+      candidateId
+    );
+    if (updated == 0) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Open duplicate candidate not found.");
+    }
+  }
+
+  /** Folds the community copy into the fragrance it duplicates; the merge job moves ratings, votes and shelves. */
+  @Transactional
+  public MergeJobDto merge(UUID candidateId, String viewerSub) {
+    User admin = requireAdmin(viewerSub);
+    record Pair(UUID fragranceId, UUID duplicateOfId) {}
+    Pair pair = jdbc.query(
+      """
+      SELECT fragrance_id, duplicate_of_fragrance_id
+      FROM fragrance_duplicate_candidate
+      WHERE id = ? AND status = 'OPEN'
+      FOR UPDATE
+      """,
+      rs -> rs.next()
+        ? new Pair(rs.getObject("fragrance_id", UUID.class), rs.getObject("duplicate_of_fragrance_id", UUID.class))
+        : null,
+      candidateId
+    );
+    if (pair == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Open duplicate candidate not found.");
+    }
+
+    UUID jobId = mergeJobs.enqueue(
+      MergeJobService.Kind.FRAGRANCE,
+      List.of(new MergeJobService.Mapping(pair.fragranceId(), pair.duplicateOfId())),
+      admin.getId()
+    );
+    jdbc.update(
+      """
+      UPDATE fragrance_duplicate_candidate
+      SET status = 'MERGED',
+          resolved_by_user_id = ?,
+          resolved_at = now()
+      WHERE id = ?
+      """,
+      admin.getId(),
+      candidateId
+    );
+    return mergeJobs.get(jobId);
+  }
+
+  private DuplicateScanResponse runScan() {
+    if (!scanning.compareAndSet(false, true)) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "A duplicate scan is already running.");
+    }
+    try {
+      long started = System.nanoTime();
+      Timestamp scanStartedAt = jdbc.queryForObject("SELECT now()", Timestamp.class);
+      List<DuplicateFragranceDetector.DuplicatePair> pairs = detector.scan(scanMinScore, CANDIDATES_PER_FRAGRANCE);
+      jdbc.batchUpdate(
+        """
+        INSERT INTO fragrance_duplicate_candidate (fragrance_id, duplicate_of_fragrance_id, score, detected_at)
+        VALUES (?, ?, ?, now())
+        ON CONFLICT (fragrance_id, duplicate_of_fragrance_id) DO UPDATE SET
+          score = EXCLUDED.score,
+          detected_at = EXCLUDED.detected_at
+        WHERE fragrance_duplicate_candidate.status = 'OPEN'
+        """,
+        pairs.stream()
+          .map(p -> new Object[] { p.fragranceId(), p.duplicateOfFragranceId(), Math.round(p.score() * 1000) / 1000.0 })
+          .toList()
+      );
+      // Open pairs this scan did not find again no longer look alike (renamed, re-noted, made private).
+      int cleared = jdbc.update(
+        "DELETE FROM fragrance_duplicate_candidate WHERE status = 'OPEN' AND detected_at < ?",
+        scanStartedAt
+      );
+      long tookMs = (System.nanoTime() - started) / 1_000_000L;
+      log.info("fragrances.duplicates.scan candidates={} cleared={} tookMs={}", pairs.size(), cleared, tookMs);
+      return new DuplicateScanResponse(pairs.size(), tookMs);
+    } finally {
+      scanning.set(false);
+    }
+  }
+
+  private User requireAdmin(String sub) {
+    User user = users.findByCognitoSub(sub)
+      .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not onboarded."));
+    if (!user.isAdmin()) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access required.");
+    }
+    return user;
+  }
+
+  private static String normalizeStatusFilter(String status) {
+    String value = String.valueOf(status == null ? "OPEN" : status).trim().toUpperCase(Locale.ROOT);
+    return switch (value) {
+      case "OPEN", "DISMISSED", "MERGED", "ALL" -> value;
+      default -> "OPEN";
+    };
+  }
+
+  private static Instant toInstant(Timestamp ts) {
+    return ts == null ? null : ts.toInstant();
+  }
+}
@@ -0,0 +1,53 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.integrations.fragella.FragellaDtos;
+import com.stacta.api.text.Canonical;
+
+/**
+ * The one place that knows how fragrance external ids are normalized.
+ *
+ * FRAGELLA ids are derived from the catalog entry as {@code brand|name|year} (lowercased, whitespace
+ * runs collapsed, a missing year written as {@code 0}); ingest, search, detail lookups, ratings and
+ * collections must all agree on it or the same fragrance ends up under two keys.
+ */
+public final class FragranceExternalIds {
+  private FragranceExternalIds() {}
+
+  /** Request-side normalization of an id someone already has; "" for null. */
+  public static String normalize(String externalId) {
+    return Canonical.externalId(externalId);
+  }
+
+  /** Canonical FRAGELLA id for a catalog entry, or "" when it has neither brand nor name. */
+  public static String fragella(String brand, String name, String year) {
+    String y = trim(year);
+    if (y.isEmpty()) y = "0";
+    String combined = normalize(trim(brand) + "|" + trim(name) + "|" + y);
+    if (combined.equals("||0") || combined.equals("||")) return "";
+    return combined;
+  }
+
+  public static String fragella(FragellaDtos.Fragrance f) {
+    return f == null ? "" : fragella(f.brand(), f.name(), f.year());
+  }
+
+  public static String fragella(FragranceSearchResult r) {
+    return r == null ? "" : fragella(r.brand(), r.name(), r.year());
+  }
+
+  /** {@code brand|name|0} for an id of any year; older rows were keyed without the year. */
+  public static String zeroYearAlias(String externalId) {
+    String ext = normalize(externalId);
+    if (ext.isEmpty()) return "";
+    int first = ext.indexOf('|');
+    if (first < 0) return "";
+    int second = ext.indexOf('|', first + 1);
+    String brandAndName = second < 0 ? ext : ext.substring(0, second);
+    return brandAndName + "|0";
+  }
+
+  private static String trim(String s) {
+    return s == null ? "" : s.trim();
+  }
+}
@@ -0,0 +1,574 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.fragrance.dto.NotesDto;
+import com.stacta.api.fragrance.dto.RankingDto;
+import com.stacta.api.note.NoteService;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Faceted browse by accord, season, occasion and note over every fragrance row (mirrored Fragella
+ * rows and public community ones).
+ *
+ * Each facet value keeps a compressed bitmap of the ordinals of the fragrances filed under it. A
+ * browse intersects the bitmaps of the selected values, smallest first, and every facet count is the
+ * intersection cardinality of that result with one value's bitmap, so a single sweep over the value
+ * dictionary answers "how many of these are also woody / also for winter" without visiting a row.
+ *
+ * Accords come from the snapshot, notes from the snapshot pyramid plus fragrance_note. Seasons and
+ * occasions come from the same distribution the vote summary shows: user votes, plus the Fragella
+ * ranking as a prior for Fragella fragrances. A fragrance is filed under every season and occasion
+ * scoring at least {@link #SUITABLE_SHARE} of its best one, so an all-year scent is in all four seasons.
+ *
+ * Fragrance rows arrive through {@link FragranceChangeFeed}, whose rebuild streams them in name order
+ * so ordinals, and with them result pages, come back alphabetically. A re-filed fragrance keeps its
+ * ordinal, so offsets stay stable while a client pages; fragrances first indexed since the last rebuild
+ * sort after the rest, and a renamed one keeps its old place until then. Vote rows whose updated_at moved are re-read here on a fixed delay, and
+ * a {@link FragranceVotesChangedEvent} re-reads that one fragrance's votes after commit. Until the
+ * first load finishes {@link #isReady()} is false.
+ */
+@Component
+public class FragranceFacetIndex extends FragranceFeedIndex<FragranceFacetIndex.Store> {
+  private static final Logger log = LoggerFactory.getLogger(FragranceFacetIndex.class);
+  // Re-read a little behind the watermark so votes committed out of updated_at order are not missed.
+  private static final long OVERLAP_SECONDS = 60;
+  static final double SUITABLE_SHARE = 0.6;
+
+  private static final List<String> SEASON_KEYS = FragranceVoteService.SEASON_KEYS;
+  private static final List<String> OCCASION_KEYS = FragranceVoteService.OCCASION_KEYS;
+  private static final int VOTE_SLOTS = SEASON_KEYS.size() + OCCASION_KEYS.size();
+
+  private static final Comparator<FacetCount> BY_COUNT = Comparator
+    .comparingInt(FacetCount::count).reversed()
+    .thenComparing(FacetCount::value);
+
+  // Vote counts per fragrance and key; 'S' rows are seasons, 'O' rows occasions.
+  private static final String FRAGELLA_VOTE_COUNTS = """
+    SELECT v.external_id, 'S', s.key, COUNT(*)
+    FROM fragella_fragrance_vote v
+    CROSS JOIN LATERAL jsonb_array_elements_text(v.season_votes_json) AS s(key)
+    %1$s
+    GROUP BY v.external_id, s.key
+    UNION ALL
+    SELECT v.external_id, 'O', o.key, COUNT(*)
+    FROM fragella_fragrance_vote v
+    CROSS JOIN LATERAL jsonb_array_elements_text(v.occasion_votes_json) AS o(key)
+    %1$s
+    GROUP BY v.external_id, o.key
+    """;
+
+  private static final String COMMUNITY_VOTE_COUNTS = """
+    SELECT v.fragrance_id::text, 'S', s.key, COUNT(*)
+    FROM community_fragrance_vote v
+    CROSS JOIN LATERAL jsonb_array_elements_text(v.season_votes_json) AS s(key)
+    %1$s
+    GROUP BY v.fragrance_id, s.key
+    UNION ALL
+    SELECT v.fragrance_id::text, 'O', o.key, COUNT(*)
+    FROM community_fragrance_vote v
+    CROSS JOIN LATERAL jsonb_array_elements_text(v.occasion_votes_json) AS o(key)
+    %1$s
+    GROUP BY v.fragrance_id, o.key
+    """;
+
+  private final JdbcTemplate jdbc;
+
+  private volatile Instant voteWatermark = null;
+  private Instant loadingVoteWatermark;
+
+  public FragranceFacetIndex(JdbcTemplate jdbc) {
+    super(new Store());
+    this.jdbc = jdbc;
+  }
+
+  public enum Facet {
+    ACCORD("accord"),
+    SEASON("season"),
+    OCCASION("occasion"),
+    NOTE("note");
+
+    private final String param;
+
+    Facet(String param) {
+      this.param = param;
+    }
+
+    public String param() {
+      return param;
+    }
+  }
+
+  /** A fragrance in a browse result; {@code source} is the row's external_source as stored. */
+  public record Hit(String source, String externalId, String name, String brand, String year, String imageUrl) {}
+
+  /** How many fragrances in the current result also carry {@code value}. */
+  public record FacetCount(String value, String label, int count) {}
+
+  public record Page(int total, List<Hit> hits, Map<Facet, List<FacetCount>> facets) {}
+
+  /**
+   * Fragrances carrying every selected value (values within a facet are ANDed too), the page at
+   * {@code offset}, and the top {@code facetLimit} values of each facet counted within the result.
+   * An unknown value matches nothing.
+   */
+  public Page browse(Map<Facet, List<String>> selected, int offset, int limit, int facetLimit) {
+    lock.readLock().lock();
+    try {
+      Store s = store;
+      List<RoaringBitmap> filters = new ArrayList<>();
+      selected.forEach((facet, raws) -> {
+        for (String raw : raws) {
+          String key = valueKey(facet, raw);
+          if (key.isEmpty()) continue;
+          FacetValue value = s.values.get(facet).get(key);
+          filters.add(value == null ? new RoaringBitmap() : value.docs);
+        }
+      });
+
+      RoaringBitmap matched;
+      if (filters.isEmpty()) {
+        matched = s.live;
+      } else {
+        filters.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        matched = filters.get(0).clone();
+        for (int i = 1; i < filters.size() && !matched.isEmpty(); i++) {
+          matched.and(filters.get(i));
+        }
+      }
+
+      int total = matched.getCardinality();
+      List<Hit> hits = new ArrayList<>();
+      if (offset >= 0 && offset < total && limit > 0) {
+        PeekableIntIterator it = matched.getIntIterator();
+        it.advanceIfNeeded(matched.select(offset));
+        while (it.hasNext() && hits.size() < limit) {
+          Doc d = s.docs.get(it.next());
+          hits.add(new Hit(d.source, d.externalId, d.name, d.brand, d.year, d.imageUrl));
+        }
+      }
+
+      Map<Facet, List<FacetCount>> facets = new EnumMap<>(Facet.class);
+      for (Facet facet : Facet.values()) {
+        List<FacetCount> counts = new ArrayList<>();
+        if (total > 0) {
+          for (FacetValue value : s.values.get(facet).values()) {
+            int count = filters.isEmpty()
+              ? value.docs.getCardinality()
+              : RoaringBitmap.andCardinality(matched, value.docs);
+            if (count > 0) counts.add(new FacetCount(value.key, value.label, count));
+          }
+          counts.sort(BY_COUNT);
+        }
+        facets.put(facet, List.copyOf(counts.subList(0, Math.min(counts.size(), Math.max(0, facetLimit)))));
+      }
+      return new Page(total, hits, facets);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onVotesChanged(FragranceVotesChangedEvent event) {
+    if (event == null) return;
+    if (event.fragranceId() != null) {
+      String id = event.fragranceId().toString();
+      Map<String, int[]> counts = voteCounts(COMMUNITY_VOTE_COUNTS, "WHERE v.fragrance_id = ?", event.fragranceId());
+      communityVotes(event.fragranceId(), counts.get(id));
+    } else if (event.externalId() != null) {
+      String ext = FragranceExternalIds.normalize(event.externalId());
+      Map<String, int[]> counts = voteCounts(FRAGELLA_VOTE_COUNTS, "WHERE v.external_id = ?", ext);
+      fragellaVotes(ext, counts.get(ext));
+    }
+  }
+
+  /** Files (or re-files) one fragrance. */
+  void upsert(Entry entry) {
+    change(s -> s.upsert(entry));
+  }
+
+  /** Replaces a Fragella fragrance's vote counts ({@link #SEASON_KEYS} then {@link #OCCASION_KEYS}); null clears them. */
+  void fragellaVotes(String externalId, int[] counts) {
+    change(s -> s.votes(s.fragellaVotes, externalId, counts));
+  }
+
+  void communityVotes(UUID rowId, int[] counts) {
+    change(s -> s.votes(s.communityVotes, rowId.toString(), counts));
+  }
+
+  @Override
+  protected Store newStore() {
+    return new Store();
+  }
+
+  @Override
+  protected Consumer<Store> filing(FragranceChangeFeed.Change change) {
+    Entry entry = entry(change.id(), change.source(), change.externalId(), change.snapshot(), change.notes());
+    return s -> s.upsert(entry);
+  }
+
+  @Override
+  protected void unfile(Store s, UUID rowId) {
+    s.remove(rowId);
+  }
+
+  @Override
+  protected void prepareLoad(Store fresh) {
+    // Read the vote watermark first so votes landing during the load are picked up by the tail.
+    Timestamp latestVote = jdbc.queryForObject(
+      """
+      SELECT GREATEST(
+        (SELECT MAX(updated_at) FROM fragella_fragrance_vote),
+        (SELECT MAX(updated_at) FROM community_fragrance_vote)
+      )
+      """,
+      Timestamp.class
+    );
+    loadingVoteWatermark = latestVote == null ? Instant.EPOCH : latestVote.toInstant();
+    fresh.fragellaVotes.putAll(voteCounts(FRAGELLA_VOTE_COUNTS, ""));
+    fresh.communityVotes.putAll(voteCounts(COMMUNITY_VOTE_COUNTS, ""));
+  }
+
+  @Override
+  protected void loaded(Store fresh, long tookMs) {
+    voteWatermark = loadingVoteWatermark;
+    log.info(
+      "fragrances.facets.rebuild fragrances={} accords={} notes={} tookMs={}",
+      fresh.live.getCardinality(),
+      fresh.values.get(Facet.ACCORD).size(),
+      fresh.values.get(Facet.NOTE).size(),
+      tookMs
+    );
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.fragrances.facets.vote-refresh-ms:60000}",
+    fixedDelayString = "${app.fragrances.facets.vote-refresh-ms:60000}"
+  )
+  public void refreshVotes() {
+    Instant votesSince = voteWatermark;
+    if (!isReady() || votesSince == null) return;
+    Instant[] newestVote = {votesSince};
+    int changed;
+    try {
+      // Fragrances with any vote touched since the watermark; a vote with no seasons or occasions
+      // left produces no count rows, so those start from zero.
+      Map<String, int[]> fragella = new HashMap<>();
+      Map<String, int[]> community = new HashMap<>();
+      Timestamp voteFrom = Timestamp.from(votesSince.minusSeconds(OVERLAP_SECONDS));
+      jdbc.query(
+        """
+        SELECT 'F', external_id, MAX(updated_at) FROM fragella_fragrance_vote WHERE updated_at >= ? GROUP BY external_id
+        UNION ALL
+        SELECT 'C', fragrance_id::text, MAX(updated_at) FROM community_fragrance_vote WHERE updated_at >= ? GROUP BY fragrance_id
+        """,
+        rs -> {
+          ("F".equals(rs.getString(1)) ? fragella : community).put(rs.getString(2), null);
+          Instant at = rs.getTimestamp(3).toInstant();
+          if (at.isAfter(newestVote[0])) newestVote[0] = at;
+        },
+        voteFrom,
+        voteFrom
+      );
+      if (!fragella.isEmpty()) {
+        fragella.putAll(voteCounts(
+          FRAGELLA_VOTE_COUNTS,
+          "WHERE v.external_id IN (SELECT external_id FROM fragella_fragrance_vote WHERE updated_at >= ?)",
+          voteFrom
+        ));
+        fragella.forEach(this::fragellaVotes);
+      }
+      if (!community.isEmpty()) {
+        community.putAll(voteCounts(
+          COMMUNITY_VOTE_COUNTS,
+          "WHERE v.fragrance_id IN (SELECT fragrance_id FROM community_fragrance_vote WHERE updated_at >= ?)",
+          voteFrom
+        ));
+        community.forEach((id, counts) -> communityVotes(UUID.fromString(id), counts));
+      }
+      changed = fragella.size() + community.size();
+    } catch (Exception e) {
+      log.warn("fragrances.facets.refresh failed; keeping current votes", e);
+      return;
+    }
+    voteWatermark = newestVote[0];
+    log.debug("fragrances.facets.refresh voted={}", changed);
+  }
+
+  private Map<String, int[]> voteCounts(String sql, String where, Object... args) {
+    Map<String, int[]> out = new HashMap<>();
+    jdbc.query(
+      sql.formatted(where),
+      rs -> {
+        String key = FragranceVoteService.normalizeVoteKey(rs.getString(3));
+        int slot = "S".equals(rs.getString(2))
+          ? SEASON_KEYS.indexOf(key)
+          : OCCASION_KEYS.indexOf(key) < 0 ? -1 : SEASON_KEYS.size() + OCCASION_KEYS.indexOf(key);
+        if (slot < 0) return;
+        out.computeIfAbsent(rs.getString(1), k -> new int[VOTE_SLOTS])[slot] += rs.getInt(4);
+      },
+      args
+    );
+    return out;
+  }
+
+  /** What one fragrance is filed under, minus the vote-driven part. */
+  static Entry entry(UUID rowId, String source, String externalId, FragranceSearchResult snapshot, Collection<String> extraNotes) {
+    Map<String, String> accords = new LinkedHashMap<>();
+    if (snapshot.mainAccords() != null) {
+      for (String accord : snapshot.mainAccords()) tag(accords, Facet.ACCORD, accord);
+    }
+    if (snapshot.mainAccordsPercentage() != null) {
+      for (String accord : snapshot.mainAccordsPercentage().keySet()) tag(accords, Facet.ACCORD, accord);
+    }
+
+    Map<String, String> notes = new LinkedHashMap<>();
+    NotesDto pyramid = snapshot.notes();
+    if (pyramid != null) {
+      for (List<NoteDto> level : Arrays.asList(pyramid.top(), pyramid.middle(), pyramid.base())) {
+        if (level == null) continue;
+        for (NoteDto note : level) {
+          if (note != null) tag(notes, Facet.NOTE, note.name());
+        }
+      }
+    }
+    if (snapshot.generalNotes() != null) {
+      for (String note : snapshot.generalNotes()) tag(notes, Facet.NOTE, note);
+    }
+    if (extraNotes != null) {
+      for (String note : extraNotes) tag(notes, Facet.NOTE, note);
+    }
+
+    // Same rule as the vote summary: only Fragella rankings act as a prior.
+    boolean community = "COMMUNITY".equalsIgnoreCase(source);
+    return new Entry(
+      rowId,
+      key(source, externalId),
+      source,
+      externalId,
+      snapshot.name(),
+      snapshot.brand(),
+      snapshot.year(),
+      snapshot.imageUrl(),
+      accords,
+      notes,
+      prior(community ? null : snapshot.seasonRanking(), SEASON_KEYS),
+      prior(community ? null : snapshot.occasionRanking(), OCCASION_KEYS)
+    );
+  }
+
+  /**
+   * Which of {@code keys} a fragrance suits: each key scores its votes plus the prior share weighted
+   * like the vote summary, and every key within {@link #SUITABLE_SHARE} of the best one qualifies.
+   */
+  static boolean[] suitable(double[] prior, int[] votes, int firstSlot) {
+    double[] scores = new double[prior.length];
+    double best = 0;
+    for (int i = 0; i < prior.length; i++) {
+      scores[i] = (votes == null ? 0 : votes[firstSlot + i]) + FragranceVoteService.PRIOR_SEASON_OCCASION_WEIGHT * prior[i];
+      best = Math.max(best, scores[i]);
+    }
+    boolean[] out = new boolean[prior.length];
+    for (int i = 0; i < prior.length; i++) {
+      out[i] = best > 0 && scores[i] >= SUITABLE_SHARE * best;
+    }
+    return out;
+  }
+
+  static String valueKey(Facet facet, String raw) {
+    if (raw == null) return "";
+    return switch (facet) {
+      case ACCORD -> raw.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+      case NOTE -> NoteService.normalize(raw);
+      case SEASON, OCCASION -> FragranceVoteService.normalizeVoteKey(raw);
+    };
+  }
+
+  private static void tag(Map<String, String> into, Facet facet, String raw) {
+    String key = valueKey(facet, raw);
+    if (!key.isEmpty()) into.putIfAbsent(key, raw.trim());
+  }
+
+  private static double[] prior(List<RankingDto> ranking, List<String> keys) {
+    Map<String, Double> shares = FragranceVoteService.toPriorDistribution(ranking, keys);
+    double[] out = new double[keys.size()];
+    for (int i = 0; i < out.length; i++) out[i] = shares.get(keys.get(i));
+    return out;
+  }
+
+  private static Key key(String source, String externalId) {
+    return new Key(source.trim().toUpperCase(Locale.ROOT), FragranceExternalIds.normalize(externalId));
+  }
+
+  private record Key(String source, String externalId) {}
+
+  record Entry(
+    UUID rowId,
+    Key key,
+    String source,
+    String externalId,
+    String name,
+    String brand,
+    String year,
+    String imageUrl,
+    Map<String, String> accords,
+    Map<String, String> notes,
+    double[] seasonPrior,
+    double[] occasionPrior
+  ) {}
+
+  private record Doc(
+    UUID rowId,
+    Key key,
+    String source,
+    String externalId,
+    String name,
+    String brand,
+    String year,
+    String imageUrl,
+    List<FacetValue> tags,
+    double[] seasonPrior,
+    double[] occasionPrior
+  ) {
+    /** Vote counts are stored by Fragella external id or by community row id. */
+    String voteId() {
+      return "COMMUNITY".equals(key.source()) ? rowId.toString() : key.externalId();
+    }
+  }
+
+  private static final class FacetValue {
+    private final String key;
+    private final String label;
+    private final RoaringBitmap docs = new RoaringBitmap();
+
+    FacetValue(String key, String label) {
+      this.key = key;
+      this.label = label;
+    }
+  }
+
+  static final class Store {
+    // By ordinal; null once the fragrance was replaced or removed.
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<UUID, Integer> byRowId = new HashMap<>();
+    private final Map<Key, Integer> byKey = new HashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final Map<Facet, Map<String, FacetValue>> values = new EnumMap<>(Facet.class);
+    private final List<FacetValue> seasons = new ArrayList<>();
+    private final List<FacetValue> occasions = new ArrayList<>();
+    // Kept for fragrances that are not indexed too, so one indexed later starts with its votes.
+    private final Map<String, int[]> fragellaVotes = new HashMap<>();
+    private final Map<String, int[]> communityVotes = new HashMap<>();
+
+    Store() {
+      for (Facet facet : Facet.values()) values.put(facet, new HashMap<>());
+      for (String key : SEASON_KEYS) seasons.add(value(Facet.SEASON, key, FragranceVoteService.SEASON_LABELS.get(key)));
+      for (String key : OCCASION_KEYS) occasions.add(value(Facet.OCCASION, key, FragranceVoteService.OCCASION_LABELS.get(key)));
+    }
+
+    void upsert(Entry entry) {
+      Integer existing = byRowId.get(entry.rowId());
+      Integer sameKey = byKey.get(entry.key());
+      if (sameKey != null) remove(docs.get(sameKey).rowId());
+      remove(entry.rowId());
+
+      int doc = existing != null ? existing : sameKey != null ? sameKey : docs.size();
+      List<FacetValue> tags = new ArrayList<>(entry.accords().size() + entry.notes().size());
+      entry.accords().forEach((key, label) -> tags.add(value(Facet.ACCORD, key, label)));
+      entry.notes().forEach((key, label) -> tags.add(value(Facet.NOTE, key, label)));
+      for (FacetValue tag : tags) tag.docs.add(doc);
+
+      Doc d = new Doc(
+        entry.rowId(),
+        entry.key(),
+        entry.source(),
+        entry.externalId(),
+        entry.name(),
+        entry.brand(),
+        entry.year(),
+        entry.imageUrl(),
+        tags,
+        entry.seasonPrior(),
+        entry.occasionPrior()
+      );
+      if (doc == docs.size()) {
+        docs.add(d);
+      } else {
+        docs.set(doc, d);
+      }
+      byRowId.put(entry.rowId(), doc);
+      byKey.put(entry.key(), doc);
+      live.add(doc);
+      file(doc, d);
+    }
+
+    void remove(UUID rowId) {
+      Integer doc = byRowId.remove(rowId);
+      if (doc == null) return;
+      Doc d = docs.set(doc, null);
+      byKey.remove(d.key(), doc);
+      live.remove(doc);
+      for (FacetValue tag : d.tags()) tag.docs.remove(doc);
+      unfile(doc);
+    }
+
+    void votes(Map<String, int[]> table, String id, int[] counts) {
+      if (counts == null || Arrays.stream(counts).allMatch(c -> c == 0)) {
+        table.remove(id);
+      } else {
+        table.put(id, counts.clone());
+      }
+      Integer doc = table == fragellaVotes
+        ? byKey.get(new Key("FRAGELLA", id))
+        : byRowId.get(UUID.fromString(id));
+      if (doc == null) return;
+      unfile(doc);
+      file(doc, docs.get(doc));
+    }
+
+    /** Adds a fragrance to the seasons and occasions its prior and votes make it suitable for. */
+    private void file(int doc, Doc d) {
+      int[] votes = ("COMMUNITY".equals(d.key().source()) ? communityVotes : fragellaVotes).get(d.voteId());
+      boolean[] inSeason = suitable(d.seasonPrior(), votes, 0);
+      for (int i = 0; i < inSeason.length; i++) {
+        if (inSeason[i]) seasons.get(i).docs.add(doc);
+      }
+      boolean[] forOccasion = suitable(d.occasionPrior(), votes, SEASON_KEYS.size());
+      for (int i = 0; i < forOccasion.length; i++) {
+        if (forOccasion[i]) occasions.get(i).docs.add(doc);
+      }
+    }
+
+    private void unfile(int doc) {
+      for (FacetValue season : seasons) season.docs.remove(doc);
+      for (FacetValue occasion : occasions) occasion.docs.remove(doc);
+    }
+
+    private FacetValue value(Facet facet, String key, String label) {
+      return values.get(facet).computeIfAbsent(key, k -> new FacetValue(k, label));
+    }
+  }
+}
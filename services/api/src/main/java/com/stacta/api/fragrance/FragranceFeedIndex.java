@@ -0,0 +1,110 @@
+package com.stacta.api.fragrance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory index over fragrance rows, fed by {@link FragranceChangeFeed}. Subclasses own the
+ * store type; this class loads a fresh store on each rebuild, replays whatever changed while it was
+ * loading and swaps it in. Readers take {@link #lock}'s read lock around {@link #store}.
+ */
+abstract class FragranceFeedIndex<S> implements FragranceChangeFeed.Listener {
+  protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  protected S store;
+
+  private volatile boolean ready = false;
+  private S loading;
+  private long loadStartedNanos;
+
+  // Changes made while a load is streaming; replayed onto the fresh store.
+  private List<Consumer<S>> pendingDuringLoad = null;
+
+  protected FragranceFeedIndex(S empty) {
+    this.store = empty;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  protected abstract S newStore();
+
+  /**
+   * The change that files one fragrance. Anything expensive (embedding, fingerprinting) happens here,
+   * outside the lock; the returned consumer may run twice when a load is in progress.
+   */
+  protected abstract Consumer<S> filing(FragranceChangeFeed.Change change);
+
+  protected abstract void unfile(S store, UUID rowId);
+
+  /** Called with the lock released once {@code fresh} has started receiving changes; may throw to fail the load. */
+  protected void prepareLoad(S fresh) {}
+
+  /** Called after {@code fresh} was swapped in, for logging and per-index bookkeeping. */
+  protected abstract void loaded(S fresh, long tookMs);
+
+  @Override
+  public void startLoad() {
+    S fresh = newStore();
+    lock.writeLock().lock();
+    try {
+      loading = fresh;
+      pendingDuringLoad = new ArrayList<>();
+      loadStartedNanos = System.nanoTime();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    prepareLoad(fresh);
+  }
+
+  @Override
+  public void load(FragranceChangeFeed.Change change) {
+    filing(change).accept(loading);
+  }
+
+  @Override
+  public void finishLoad(boolean ok) {
+    S fresh;
+    lock.writeLock().lock();
+    try {
+      fresh = loading;
+      if (ok && fresh != null) {
+        for (Consumer<S> change : pendingDuringLoad) {
+          change.accept(fresh);
+        }
+        store = fresh;
+        ready = true;
+      }
+      loading = null;
+      pendingDuringLoad = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    if (ok && fresh != null) loaded(fresh, (System.nanoTime() - loadStartedNanos) / 1_000_000L);
+  }
+
+  @Override
+  public void upsert(FragranceChangeFeed.Change change) {
+    change(filing(change));
+  }
+
+  @Override
+  public void remove(UUID rowId) {
+    change(s -> unfile(s, rowId));
+  }
+
+  protected void change(Consumer<S> change) {
+    lock.writeLock().lock();
+    try {
+      if (pendingDuringLoad != null) {
+        pendingDuringLoad.add(change);
+      }
+      change.accept(store);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+}
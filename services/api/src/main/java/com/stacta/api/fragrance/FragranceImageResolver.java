@@ -0,0 +1,131 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.upload.ImageVariant;
+import com.stacta.api.upload.UploadImageUrlResolver;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the best display image for many fragrances at once.
+ *
+ * Cache misses for a whole list are loaded with a single query (the pairs are passed as two arrays and
+ * unnested), so the query count does not grow with the list. Image references, including "no fragrance
+ * row", are cached per (source, externalId) for a short TTL; turning a reference into a URL goes through
+ * {@link UploadImageUrlResolver} (card-sized variant when available), which keeps its own cache of
+ * signed URLs.
+ */
+@Component
+public class FragranceImageResolver {
+  private final JdbcTemplate jdbc;
+  private final UploadImageUrlResolver imageUrlResolver;
+  private final long ttlNanos;
+  private final Map<FragranceRef, CachedImage> cache;
+
+  public FragranceImageResolver(
+    JdbcTemplate jdbc,
+    UploadImageUrlResolver imageUrlResolver,
+    @Value("${app.fragrance-images.ttl-seconds:600}") long ttlSeconds,
+    @Value("${app.fragrance-images.max-entries:50000}") int maxEntries
+  ) {
+    this.jdbc = jdbc;
+    this.imageUrlResolver = imageUrlResolver;
+    this.ttlNanos = Duration.ofSeconds(Math.max(1, ttlSeconds)).toNanos();
+    int capacity = Math.max(1, maxEntries);
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<FragranceRef, CachedImage> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+  public record FragranceRef(String source, String externalId) {}
+
+  /**
+   * Image URL per fragrance that has a row in {@code fragrance}; refs without one are absent from the
+   * result so callers can fall back to their own snapshot. A present key may map to null (the row has
+   * an object key that cannot be served).
+   */
+  public Map<FragranceRef, String> resolve(Collection<FragranceRef> refs) {
+    if (refs == null || refs.isEmpty()) return Map.of();
+
+    Set<FragranceRef> distinct = new LinkedHashSet<>(refs);
+    distinct.remove(null);
+    Map<FragranceRef, CachedImage> images = new HashMap<>();
+    List<FragranceRef> misses = new ArrayList<>();
+    long now = System.nanoTime();
+    for (FragranceRef ref : distinct) {
+      CachedImage cached = cache.get(ref);
+      if (cached != null && now - cached.loadedAtNanos() < ttlNanos) {
+        images.put(ref, cached);
+      } else {
+        misses.add(ref);
+      }
+    }
+    if (!misses.isEmpty()) {
+      Map<FragranceRef, CachedImage> loaded = load(misses);
+      for (FragranceRef ref : misses) {
+        CachedImage image = loaded.getOrDefault(ref, new CachedImage(false, null, null, now));
+        cache.put(ref, image);
+        images.put(ref, image);
+      }
+    }
+
+    Map<FragranceRef, String> out = new HashMap<>();
+    for (Map.Entry<FragranceRef, CachedImage> entry : images.entrySet()) {
+      CachedImage image = entry.getValue();
+      if (!image.found()) continue;
+      out.put(entry.getKey(), imageUrlResolver.resolveVariantWithFallback(image.objectKey(), image.imageUrl(), ImageVariant.CARD));
+    }
+    return out;
+  }
+
+  /** Call after a fragrance's image changes or the row is deleted. */
+  public void evict(String source, String externalId) {
+    cache.remove(new FragranceRef(source, externalId));
+  }
+
+  private Map<FragranceRef, CachedImage> load(List<FragranceRef> refs) {
+    String[] sources = new String[refs.size()];
+    String[] externalIds = new String[refs.size()];
+    for (int i = 0; i < refs.size(); i++) {
+      sources[i] = refs.get(i).source();
+      externalIds[i] = refs.get(i).externalId();
+    }
+    long loadedAt = System.nanoTime();
+    Map<FragranceRef, CachedImage> loaded = new HashMap<>();
+    jdbc.query(
+      """
+      SELECT f.external_source, f.external_id, f.image_object_key, f.image_url
+      FROM fragrance f
+      JOIN unnest(?::text[], ?::text[]) AS k(external_source, external_id)
+        ON f.external_source = k.external_source
+       AND f.external_id = k.external_id
+      """,
+      ps -> {
+        ps.setArray(1, ps.getConnection().createArrayOf("text", sources));
+        ps.setArray(2, ps.getConnection().createArrayOf("text", externalIds));
+      },
+      rs -> {
+        loaded.put(
+          new FragranceRef(rs.getString(1), rs.getString(2)),
+          new CachedImage(true, rs.getString(3), rs.getString(4), loadedAt)
+        );
+      }
+    );
+    return loaded;
+  }
+
+  private record CachedImage(boolean found, String objectKey, String imageUrl, long loadedAtNanos) {}
+}
@@ -1,13 +1,11 @@
 package com.stacta.api.fragrance;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stacta.api.integrations.fragella.FragellaDtos;
 import com.stacta.api.note.NoteService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Locale;
 
 @Service
 public class FragranceIngestService {
@@ -15,12 +13,12 @@ public class FragranceIngestService {
   public static final String SOURCE = "FRAGELLA";
 
   private final FragranceRepository repo;
-  private final ObjectMapper om;
+  private final FragranceSnapshots snapshots;
   private final NoteService noteService;
 
-  public FragranceIngestService(FragranceRepository repo, ObjectMapper om, NoteService noteService) {
+  public FragranceIngestService(FragranceRepository repo, FragranceSnapshots snapshots, NoteService noteService) {
     this.repo = repo;
-    this.om = om;
+    this.snapshots = snapshots;
     this.noteService = noteService;
   }
 
@@ -35,7 +33,7 @@ public class FragranceIngestService {
     for (var item : items) {
       if (item == null) continue;
 
-      var extId = externalId(item);
+      var extId = FragranceExternalIds.fragella(item);
       if (extId.isBlank()) continue;
 
       var entity = repo.findByExternalSourceAndExternalId(SOURCE, extId)
@@ -54,11 +52,7 @@ public class FragranceIngestService {
       entity.setRating(nullSafe(item.rating()));
       entity.setPrice(nullSafe(item.price()));
 
-      try {
-        entity.setSnapshot(om.writeValueAsString(item));
-      } catch (Exception e) {
-        entity.setSnapshot("{}");
-      }
+      entity.setSnapshot(snapshots.write(item));
 
       repo.save(entity);
     }
@@ -67,24 +61,4 @@ public class FragranceIngestService {
   private static String nullSafe(String s) {
     return s == null ? "" : s.trim();
   }
-
-  private static String externalId(FragellaDtos.Fragrance f) {
-    if (f == null) return "";
-
-    var brand = nullSafe(f.brand());
-    var name  = nullSafe(f.name());
-    var year  = nullSafe(f.year());
-
-    if (year.isBlank()) year = "0";
-
-    var combined = (brand + "|" + name + "|" + year)
-      .toLowerCase(Locale.ROOT)
-      .replaceAll("\\s+", " ")
-      .trim();
-
-    // if brand/name missing, don't generate useless ids like "||0"
-    if (combined.equals("||0") || combined.equals("||")) return "";
-
-    return combined;
-  }
 }
@@ -0,0 +1,192 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.note.NoteService;
+import com.stacta.api.text.Canonical;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Near-duplicate fingerprints of a fragrance, and the MinHash/LSH helpers behind
+ * {@link DuplicateFragranceDetector}.
+ *
+ * Names are compared without the brand (users type "Dior Sauvage EDP" as often as "Sauvage") and
+ * without concentration words, which are parsed into a canonical {@link #concentration} instead. The
+ * remaining words count as features on their own and as character trigrams of the joined name, so a
+ * typo like "Sauvge" still overlaps "Sauvage". MinHash signatures are {@link #HASHES} values split
+ * into {@link #BANDS} bands of two; two names share a band with probability {@code 1 - (1 - J^2)^16},
+ * about 0.9 at Jaccard 0.37 (one typo in a one-word name) and 0.15 at 0.1. The loose banding lets
+ * more unrelated names into a bucket, which costs only exact scoring time.
+ */
+final class FragranceMinHash {
+  static final int HASHES = 32;
+  static final int BANDS = 16;
+  private static final int ROWS = HASHES / BANDS;
+
+  private static final Set<String> CONCENTRATION_WORDS = Set.of(
+    "eau", "de", "du", "d", "parfum", "toilette", "cologne", "fraiche", "extrait",
+    "edp", "edt", "edc", "perfume", "spray"
+  );
+
+  private static final int[] SEEDS = new SplittableRandom(0x5EEDL).ints(HASHES).toArray();
+
+  private FragranceMinHash() {}
+
+  /** What a fragrance is compared on. Feature arrays are sorted and distinct. */
+  record Fingerprint(int[] name, int[] brand, int[] notes, String concentration, String year, int[] signature) {
+
+    static Fingerprint of(String brand, String name, String year, String concentration, Collection<String> notes) {
+      int[] nameFeatures = nameFeatures(brand, name);
+      String y = year == null || year.isBlank() || "0".equals(year.trim()) ? null : year.trim();
+      return new Fingerprint(
+        nameFeatures,
+        hashed(words(brand), "b:"),
+        noteFeatures(notes),
+        FragranceMinHash.concentration(concentration, name),
+        y,
+        FragranceMinHash.signature(nameFeatures)
+      );
+    }
+  }
+
+  /**
+   * How likely two fingerprints describe the same fragrance, in [0, 1]: name Jaccard weighted with
+   * brand and note overlap (notes only when both sides list some), discounted when both sides name a
+   * different concentration or release year.
+   */
+  static double score(Fingerprint a, Fingerprint b) {
+    double name = jaccard(a.name(), b.name());
+    double brand = jaccard(a.brand(), b.brand());
+    double score = a.notes().length > 0 && b.notes().length > 0
+      ? 0.65 * name + 0.2 * brand + 0.15 * jaccard(a.notes(), b.notes())
+      : 0.75 * name + 0.25 * brand;
+    if (a.concentration() != null && b.concentration() != null && !a.concentration().equals(b.concentration())) {
+      score *= 0.75;
+    }
+    if (a.year() != null && b.year() != null && !a.year().equals(b.year())) {
+      score *= 0.85;
+    }
+    return score;
+  }
+
+  /** EDP, EDT, EDC or PARFUM from the explicit concentration, else from the name; null when neither says. */
+  static String concentration(String explicit, String name) {
+    String fromExplicit = detectConcentration(explicit);
+    return fromExplicit != null ? fromExplicit : detectConcentration(name);
+  }
+
+  static int[] nameFeatures(String brand, String name) {
+    Set<String> brandWords = new HashSet<>(words(brand));
+    List<String> all = words(name);
+    List<String> kept = new ArrayList<>();
+    for (String word : all) {
+      if (!brandWords.contains(word) && !CONCENTRATION_WORDS.contains(word)) kept.add(word);
+    }
+    // A name that is only the brand ("Dior" by Dior) is compared as written.
+    if (kept.isEmpty()) kept = all;
+    if (kept.isEmpty()) return new int[0];
+
+    Set<Integer> out = new HashSet<>();
+    for (String word : kept) out.add(("w:" + word).hashCode());
+    String joined = "^" + String.join(" ", kept) + "$";
+    for (int i = 0; i + 3 <= joined.length(); i++) out.add(("t:" + joined.substring(i, i + 3)).hashCode());
+    return sorted(out);
+  }
+
+  static int[] noteFeatures(Collection<String> notes) {
+    if (notes == null || notes.isEmpty()) return new int[0];
+    Set<Integer> out = new HashSet<>();
+    for (String note : notes) {
+      String key = NoteService.normalize(note);
+      if (!key.isEmpty()) out.add(("n:" + key).hashCode());
+    }
+    return sorted(out);
+  }
+
+  static int[] signature(int[] features) {
+    int[] signature = new int[HASHES];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    for (int feature : features) {
+      for (int i = 0; i < HASHES; i++) {
+        int h = mix(feature ^ SEEDS[i]);
+        if (h < signature[i]) signature[i] = h;
+      }
+    }
+    return signature;
+  }
+
+  /** LSH bucket of one band; the band number is part of the key so bands never share buckets. */
+  static long band(int[] signature, int band) {
+    long h = band;
+    for (int r = 0; r < ROWS; r++) {
+      h = h * 0x9E3779B97F4A7C15L + signature[band * ROWS + r];
+    }
+    return h ^ (h >>> 29);
+  }
+
+  /** Jaccard similarity of two sorted, distinct arrays; 0 when either is empty. */
+  static double jaccard(int[] a, int[] b) {
+    if (a.length == 0 || b.length == 0) return 0;
+    int i = 0;
+    int j = 0;
+    int common = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] == b[j]) {
+        common++;
+        i++;
+        j++;
+      } else if (a[i] < b[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return common / (double) (a.length + b.length - common);
+  }
+
+  private static String detectConcentration(String raw) {
+    if (raw == null || raw.isBlank()) return null;
+    String s = " " + String.join(" ", words(raw)) + " ";
+    if (s.contains(" edp ") || s.contains(" eau de parfum ")) return "EDP";
+    if (s.contains(" edt ") || s.contains(" eau de toilette ")) return "EDT";
+    if (s.contains(" edc ") || s.contains(" cologne ")) return "EDC";
+    if (s.contains(" extrait ") || s.contains(" parfum ")) return "PARFUM";
+    return null;
+  }
+
+  private static List<String> words(String raw) {
+    String s = Canonical.noteName(raw);
+    if (s.isEmpty()) return List.of();
+    List<String> out = new ArrayList<>();
+    for (String word : s.split("[ -]+")) {
+      if (!word.isEmpty()) out.add(word);
+    }
+    return out;
+  }
+
+  private static int[] hashed(List<String> words, String prefix) {
+    Set<Integer> out = new HashSet<>();
+    for (String word : words) out.add((prefix + word).hashCode());
+    return sorted(out);
+  }
+
+  private static int[] sorted(Set<Integer> values) {
+    int[] out = values.stream().mapToInt(Integer::intValue).toArray();
+    Arrays.sort(out);
+    return out;
+  }
+
+  // murmur3 finalizer
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -1,9 +1,12 @@
 package com.stacta.api.fragrance;
 
 import com.stacta.api.fragrance.dto.FragranceRatingSummary;
-import com.stacta.api.user.UserRepository;
+import com.stacta.api.recommendation.UserTasteChangedEvent;
+import com.stacta.api.user.ProfileStatsService;
+import com.stacta.api.user.ViewerIdentityResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -14,28 +17,38 @@ import java.util.Locale;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class FragranceRatingService {
   private static final Logger log = LoggerFactory.getLogger(FragranceRatingService.class);
 
   private final JdbcTemplate jdbc;
-  private final UserRepository users;
-
-  public FragranceRatingService(JdbcTemplate jdbc, UserRepository users) {
+  private final ViewerIdentityResolver identities;
+  private final ProfileStatsService profileStats;
+  private final ApplicationEventPublisher events;
+
+  public FragranceRatingService(
+    JdbcTemplate jdbc,
+    ViewerIdentityResolver identities,
+    ProfileStatsService profileStats,
+    ApplicationEventPublisher events
+  ) {
     this.jdbc = jdbc;
-    this.users = users;
+    this.identities = identities;
+    this.profileStats = profileStats;
+    this.events = events;
   }
 
   @Transactional
   public FragranceRatingSummary upsertRating(String cognitoSub, String source, String externalId, double rating) {
-    var user = users.findByCognitoSub(cognitoSub)
+    var user = identities.find(cognitoSub)
       .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not onboarded"));
 
     String src = normalizeSource(source);
     String ext = normalizeExternalId(externalId);
     double normalizedRating = normalizeRating(rating);
-    log.info("rating.upsert.begin userId={} source={} externalId={} rating={}", user.getId(), src, ext, normalizedRating);
+    log.info("rating.upsert.begin userId={} source={} externalId={} rating={}", user.userId(), src, ext, normalizedRating);
 
     jdbc.update(
       """
@@ -44,13 +57,16 @@ public class FragranceRatingService {
       ON CONFLICT (user_id, external_source, external_id)
       DO UPDATE SET rating = EXCLUDED.rating, updated_at = now()
       """,
-      user.getId(), src, ext, normalizedRating
+      user.userId(), src, ext, normalizedRating
     );
+    // Collection and wishlist items on /me carry the owner's rating.
+    profileStats.touch(user.userId());
+    events.publishEvent(new UserTasteChangedEvent(user.userId()));
 
-    FragranceRatingSummary summary = getSummary(cognitoSub, src, ext);
+    FragranceRatingSummary summary = summaryFor(user.userId(), src, ext);
     log.info(
       "rating.upsert.done userId={} source={} externalId={} avg={} count={} userRating={}",
-      user.getId(),
+      user.userId(),
       src,
       ext,
       summary.average(),
@@ -62,9 +78,10 @@ public class FragranceRatingService {
 
   @Transactional(readOnly = true)
   public FragranceRatingSummary getSummary(String cognitoSub, String source, String externalId) {
-    String src = normalizeSource(source);
-    String ext = normalizeExternalId(externalId);
+    return summaryFor(viewerUserId(cognitoSub), normalizeSource(source), normalizeExternalId(externalId));
+  }
 
+  private FragranceRatingSummary summaryFor(UUID viewerUserId, String src, String ext) {
     Double avg = jdbc.queryForObject(
       "SELECT AVG(rating)::float8 FROM fragrance_rating WHERE external_source = ? AND external_id = ?",
       Double.class,
@@ -80,17 +97,14 @@ public class FragranceRatingService {
     );
 
     Double userRating = null;
-    if (cognitoSub != null && !cognitoSub.isBlank()) {
-      var userOpt = users.findByCognitoSub(cognitoSub);
-      if (userOpt.isPresent()) {
-        userRating = jdbc.query(
-          "SELECT rating FROM fragrance_rating WHERE user_id = ? AND external_source = ? AND external_id = ?",
-          rs -> rs.next() ? rs.getDouble(1) : null,
-          userOpt.get().getId(),
-          src,
-          ext
-        );
-      }
+    if (viewerUserId != null) {
+      userRating = jdbc.query(
+        "SELECT rating FROM fragrance_rating WHERE user_id = ? AND external_source = ? AND external_id = ?",
+        rs -> rs.next() ? rs.getDouble(1) : null,
+        viewerUserId,
+        src,
+        ext
+      );
     }
 
     FragranceRatingSummary summary = new FragranceRatingSummary(avg == null ? 0.0 : avg, count == null ? 0L : count, userRating);
@@ -112,14 +126,16 @@ public class FragranceRatingService {
     String externalId,
     String alternateExternalId
   ) {
-    FragranceRatingSummary primary = getSummary(cognitoSub, source, externalId);
+    UUID viewerUserId = viewerUserId(cognitoSub);
+    String src = normalizeSource(source);
     String alt = normalizeExternalId(alternateExternalId);
     String ext = normalizeExternalId(externalId);
+    FragranceRatingSummary primary = summaryFor(viewerUserId, src, ext);
     if (alt.isBlank() || alt.equals(ext)) {
       log.info("rating.summary.alt.skip reason=same_or_blank source={} externalId={} alt={}", source, ext, alt);
       return primary;
     }
-    FragranceRatingSummary alternate = getSummary(cognitoSub, source, alt);
+    FragranceRatingSummary alternate = summaryFor(viewerUserId, src, alt);
     long pCount = Math.max(0L, primary.count());
     long aCount = Math.max(0L, alternate.count());
     long total = pCount + aCount;
@@ -158,11 +174,12 @@ public class FragranceRatingService {
       return new FragranceRatingSummary(0.0, 0L, null);
     }
 
+    UUID viewerUserId = viewerUserId(cognitoSub);
     long totalCount = 0L;
     double weighted = 0.0;
     Double userRating = null;
     for (String id : normalized) {
-      FragranceRatingSummary s = getSummary(cognitoSub, src, id);
+      FragranceRatingSummary s = summaryFor(viewerUserId, src, id);
       long c = Math.max(0L, s.count());
       totalCount += c;
       weighted += s.average() * c;
@@ -182,6 +199,10 @@ public class FragranceRatingService {
     return new FragranceRatingSummary(avg, totalCount, userRating);
   }
 
+  private UUID viewerUserId(String cognitoSub) {
+    return identities.find(cognitoSub).map(v -> v.userId()).orElse(null);
+  }
+
   private static String normalizeSource(String source) {
     String src = source == null ? "FRAGELLA" : source.trim().toUpperCase(Locale.ROOT);
     if (!"COMMUNITY".equals(src) && !"FRAGELLA".equals(src)) return "FRAGELLA";
@@ -189,7 +210,7 @@ public class FragranceRatingService {
   }
 
   private static String normalizeExternalId(String externalId) {
-    return externalId == null ? "" : externalId.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    return FragranceExternalIds.normalize(externalId);
   }
 
   private static double normalizeRating(double rating) {
@@ -0,0 +1,78 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.FragranceImageResolver.FragranceRef;
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Parsed {@code fragrance.snapshot} values, keyed by (source, externalId) and valid only for the row's
+ * {@code updated_at}.
+ *
+ * Readers look the row's version up (cheap, no snapshot text) and reuse the parsed result while it
+ * matches, so a snapshot is parsed at most once per write on each instance; writers on another
+ * instance are picked up through the version alone. Writers on this instance also {@link #evict}, or
+ * {@link #put} what they just stored so the next read parses nothing. Entries hold the snapshot as
+ * stored: per-read decoration (signed image URLs, rating summaries) is applied by the caller.
+ * Lookups are counted as {@code fragrance.snapshot.cache{result=hit|miss}}.
+ */
+@Component
+public class FragranceSnapshotCache {
+  private final Map<FragranceRef, Entry> entries;
+  private final Counter hits;
+  private final Counter misses;
+
+  public FragranceSnapshotCache(
+    MeterRegistry meters,
+    @Value("${app.fragrance-snapshots.cache-max-entries:20000}") int maxEntries
+  ) {
+    int capacity = Math.max(1, maxEntries);
+    this.entries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<FragranceRef, Entry> eldest) {
+        return size() > capacity;
+      }
+    });
+    this.hits = Counter.builder("fragrance.snapshot.cache").tag("result", "hit").register(meters);
+    this.misses = Counter.builder("fragrance.snapshot.cache").tag("result", "miss").register(meters);
+    Gauge.builder("fragrance.snapshot.cache.size", entries, Map::size).register(meters);
+  }
+
+  /** The parsed snapshot stored for this version of the row, or null. */
+  public FragranceSearchResult get(String source, String externalId, OffsetDateTime updatedAt) {
+    Entry entry = entries.get(new FragranceRef(source, externalId));
+    if (entry != null && entry.version().equals(version(updatedAt))) {
+      hits.increment();
+      return entry.snapshot();
+    }
+    misses.increment();
+    return null;
+  }
+
+  public void put(String source, String externalId, OffsetDateTime updatedAt, FragranceSearchResult snapshot) {
+    if (snapshot == null) return;
+    entries.put(new FragranceRef(source, externalId), new Entry(version(updatedAt), snapshot));
+  }
+
+  /** Call after a row's snapshot changes or the row is deleted. */
+  public void evict(String source, String externalId) {
+    entries.remove(new FragranceRef(source, externalId));
+  }
+
+  // Postgres keeps microseconds (the driver rounds); the entity may still hold the nanoseconds it was
+  // written with.
+  private static Instant version(OffsetDateTime updatedAt) {
+    return updatedAt == null ? Instant.EPOCH : updatedAt.toInstant().plusNanos(500).truncatedTo(ChronoUnit.MICROS);
+  }
+
+  private record Entry(Instant version, FragranceSearchResult snapshot) {}
+}
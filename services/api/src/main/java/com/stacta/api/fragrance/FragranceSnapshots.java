@@ -0,0 +1,118 @@
+package com.stacta.api.fragrance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.integrations.fragella.FragellaDtos;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads and writes {@code fragrance.snapshot}.
+ *
+ * The canonical format is a serialized {@link FragranceSearchResult} for every source. Rows ingested
+ * before that stored the raw Fragella payload ({@code "Name"}, {@code "Brand"}, ...); {@link #read}
+ * still accepts those (one parse either way) and a background pass rewrites them in place until none
+ * are left.
+ */
+@Component
+public class FragranceSnapshots {
+  private static final Logger log = LoggerFactory.getLogger(FragranceSnapshots.class);
+
+  private final ObjectMapper om;
+  private final FragellaMapper mapper;
+  private final JdbcTemplate jdbc;
+  private final int upgradeBatchSize;
+  private volatile boolean legacyDrained;
+  private UUID upgradeCursor = new UUID(0L, 0L);
+
+  public FragranceSnapshots(
+    ObjectMapper om,
+    FragellaMapper mapper,
+    JdbcTemplate jdbc,
+    @Value("${app.fragrance-snapshots.upgrade-batch-size:200}") int upgradeBatchSize
+  ) {
+    this.om = om;
+    this.mapper = mapper;
+    this.jdbc = jdbc;
+    this.upgradeBatchSize = Math.max(1, upgradeBatchSize);
+  }
+
+  public String write(FragranceSearchResult snapshot) {
+    try {
+      return om.writeValueAsString(snapshot);
+    } catch (Exception e) {
+      return "{}";
+    }
+  }
+
+  /** Canonical snapshot for a Fragella catalog entry. */
+  public String write(FragellaDtos.Fragrance item) {
+    List<FragranceSearchResult> mapped = mapper.mapRaw(item == null ? List.of() : List.of(item));
+    return mapped.isEmpty() ? "{}" : write(mapped.get(0));
+  }
+
+  /** Parses either format; throws when the text is not JSON at all. */
+  public FragranceSearchResult read(String json) throws Exception {
+    JsonNode node = om.readTree(json == null || json.isBlank() ? "{}" : json);
+    if (isLegacy(node)) {
+      List<FragranceSearchResult> mapped = mapper.mapRaw(List.of(om.treeToValue(node, FragellaDtos.Fragrance.class)));
+      if (!mapped.isEmpty()) return mapped.get(0);
+    }
+    return om.treeToValue(node, FragranceSearchResult.class);
+  }
+
+  private static boolean isLegacy(JsonNode node) {
+    return !node.has("source") && (node.has("Name") || node.has("Brand"));
+  }
+
+  /**
+   * Rewrites a batch of legacy Fragella snapshots. {@code updated_at} is left alone: the content is
+   * equivalent, so parsed copies cached under the current version stay valid.
+   */
+  @Scheduled(fixedDelayString = "${app.fragrance-snapshots.upgrade-interval-ms:60000}", initialDelay = 30_000)
+  public synchronized void upgradeLegacy() {
+    if (legacyDrained) return;
+    List<LegacyRow> rows = jdbc.query(
+      """
+      SELECT id, snapshot::text
+      FROM fragrance
+      WHERE snapshot->'source' IS NULL
+        AND (snapshot->'Name' IS NOT NULL OR snapshot->'Brand' IS NOT NULL)
+        AND id > ?
+      ORDER BY id
+      LIMIT ?
+      """,
+      (rs, rowNum) -> new LegacyRow(rs.getObject(1, UUID.class), rs.getString(2)),
+      upgradeCursor,
+      upgradeBatchSize
+    );
+    int upgraded = 0;
+    for (LegacyRow row : rows) {
+      upgradeCursor = row.id();
+      String canonical;
+      try {
+        canonical = write(read(row.snapshot()));
+      } catch (Exception e) {
+        // Left as is; read() fails the same way, which callers already handle.
+        log.warn("fragrance.snapshot.upgrade unreadable id={}", row.id());
+        continue;
+      }
+      upgraded += jdbc.update(
+        "UPDATE fragrance SET snapshot = ?::jsonb WHERE id = ? AND snapshot->'source' IS NULL",
+        canonical,
+        row.id()
+      );
+    }
+    if (rows.size() < upgradeBatchSize) legacyDrained = true;
+    if (upgraded > 0) log.info("fragrance.snapshot.upgrade rows={} drained={}", upgraded, legacyDrained);
+  }
+
+  private record LegacyRow(UUID id, String snapshot) {}
+}
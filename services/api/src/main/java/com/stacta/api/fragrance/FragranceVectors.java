@@ -0,0 +1,111 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.note.NoteService;
+import com.stacta.api.text.Canonical;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sparse accord/note embedding of a fragrance snapshot, for cosine similarity.
+ *
+ * Accords ({@code a:woody}) are weighted by their strength label or percentage, falling back to their
+ * position in mainAccords; notes ({@code n:bergamot}) by pyramid level, base notes counting most. Each
+ * block is scaled to unit length and the two are mixed 60/40 in favour of accords, so the result has
+ * unit length and a dot product between two embeddings is their cosine.
+ */
+final class FragranceVectors {
+  private static final double ACCORD_SHARE = 0.6;
+  private static final double TOP_WEIGHT = 0.5;
+  private static final double MIDDLE_WEIGHT = 0.7;
+  private static final double BASE_WEIGHT = 0.9;
+  private static final double GENERAL_NOTE_WEIGHT = 0.6;
+
+  private FragranceVectors() {}
+
+  static Map<String, Float> embed(FragranceSearchResult f) {
+    if (f == null) return Map.of();
+    Map<String, Double> accords = accords(f);
+    Map<String, Double> notes = notes(f);
+
+    double accordShare = accords.isEmpty() ? 0 : notes.isEmpty() ? 1 : ACCORD_SHARE;
+    Map<String, Float> out = new HashMap<>();
+    addScaled(out, accords, Math.sqrt(accordShare));
+    addScaled(out, notes, Math.sqrt(1 - accordShare));
+    return out;
+  }
+
+  private static Map<String, Double> accords(FragranceSearchResult f) {
+    Map<String, Double> out = new HashMap<>();
+    List<String> names = f.mainAccords();
+    if (names == null) return out;
+    Map<String, String> strengths = new HashMap<>();
+    if (f.mainAccordsPercentage() != null) {
+      f.mainAccordsPercentage().forEach((k, v) -> {
+        if (k != null) strengths.put(k.trim().toLowerCase(Locale.ROOT), v);
+      });
+    }
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.get(i);
+      if (name == null || name.isBlank()) continue;
+      String key = name.trim().toLowerCase(Locale.ROOT);
+      double weight = strength(strengths.get(key), i);
+      out.merge("a:" + key, weight, Math::max);
+    }
+    return out;
+  }
+
+  private static double strength(String label, int position) {
+    if (label != null) {
+      switch (label.trim().toLowerCase(Locale.ROOT)) {
+        case "dominant": return 1.0;
+        case "prominent": return 0.75;
+        case "moderate": return 0.5;
+        case "low", "subtle": return 0.3;
+        default: {
+          Double pct = Canonical.firstDecimal(label);
+          if (pct != null && pct > 0) return Math.min(1.0, pct / 100.0);
+        }
+      }
+    }
+    return Math.max(0.3, 1.0 - 0.07 * position);
+  }
+
+  private static Map<String, Double> notes(FragranceSearchResult f) {
+    Map<String, Double> out = new HashMap<>();
+    if (f.notes() != null) {
+      addNotes(out, f.notes().top(), TOP_WEIGHT);
+      addNotes(out, f.notes().middle(), MIDDLE_WEIGHT);
+      addNotes(out, f.notes().base(), BASE_WEIGHT);
+    }
+    if (out.isEmpty() && f.generalNotes() != null) {
+      for (String name : f.generalNotes()) addNote(out, name, GENERAL_NOTE_WEIGHT);
+    }
+    return out;
+  }
+
+  private static void addNotes(Map<String, Double> out, List<NoteDto> notes, double weight) {
+    if (notes == null) return;
+    for (NoteDto note : notes) {
+      if (note != null) addNote(out, note.name(), weight);
+    }
+  }
+
+  private static void addNote(Map<String, Double> out, String name, double weight) {
+    String normalized = NoteService.normalize(name);
+    if (!normalized.isEmpty()) out.merge("n:" + normalized, weight, Math::max);
+  }
+
+  private static void addScaled(Map<String, Float> out, Map<String, Double> block, double scale) {
+    if (block.isEmpty() || scale <= 0) return;
+    double norm = 0;
+    for (double w : block.values()) norm += w * w;
+    norm = Math.sqrt(norm);
+    for (Map.Entry<String, Double> e : block.entrySet()) {
+      out.put(e.getKey(), (float) (e.getValue() / norm * scale));
+    }
+  }
+}
@@ -15,6 +15,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -37,14 +38,14 @@ public class FragranceVoteService {
     "GREAT_VALUE",
     "OVERPRICED"
   );
-  private static final Map<String, String> SEASON_LABELS = Map.of(
+  static final Map<String, String> SEASON_LABELS = Map.of(
     "SPRING", "Spring",
     "SUMMER", "Summer",
     "FALL", "Fall",
     "WINTER", "Winter"
   );
-  private static final List<String> SEASON_KEYS = List.of("SPRING", "SUMMER", "FALL", "WINTER");
-  private static final Map<String, String> OCCASION_LABELS = Map.of(
+  static final List<String> SEASON_KEYS = List.of("SPRING", "SUMMER", "FALL", "WINTER");
+  static final Map<String, String> OCCASION_LABELS = Map.of(
     "DAILY", "Daily",
     "OFFICE", "Office",
     "DATE_NIGHT", "Date night",
@@ -53,7 +54,7 @@ public class FragranceVoteService {
     "PARTY", "Party",
     "GYM", "Gym"
   );
-  private static final List<String> OCCASION_KEYS = List.of("DAILY", "OFFICE", "DATE_NIGHT", "EVENING", "FORMAL", "PARTY", "GYM");
+  static final List<String> OCCASION_KEYS = List.of("DAILY", "OFFICE", "DATE_NIGHT", "EVENING", "FORMAL", "PARTY", "GYM");
   private static final Map<Integer, String> LONGEVITY_LABELS = Map.of(
     1, "Fleeting",
     2, "Weak",
@@ -83,26 +84,29 @@ public class FragranceVoteService {
     EXCELLENT_VALUE
   );
   private static final double PRIOR_LON_SIL_WEIGHT = 320.0;
-  private static final double PRIOR_SEASON_OCCASION_WEIGHT = 180.0;
+  static final double PRIOR_SEASON_OCCASION_WEIGHT = 180.0;
 
   private final UserRepository users;
   private final JdbcTemplate jdbc;
   private final ObjectMapper objectMapper;
   private final CommunityFragranceVoteService communityVotes;
   private final FragellaSearchService fragranceSearch;
+  private final ApplicationEventPublisher events;
 
   public FragranceVoteService(
     UserRepository users,
     JdbcTemplate jdbc,
     ObjectMapper objectMapper,
     CommunityFragranceVoteService communityVotes,
-    FragellaSearchService fragranceSearch
+    FragellaSearchService fragranceSearch,
+    ApplicationEventPublisher events
   ) {
     this.users = users;
     this.jdbc = jdbc;
     this.objectMapper = objectMapper;
     this.communityVotes = communityVotes;
     this.fragranceSearch = fragranceSearch;
+    this.events = events;
   }
 
   @Transactional(readOnly = true)
@@ -147,6 +151,7 @@ public class FragranceVoteService {
       toJson(input.seasonVotes()),
       toJson(input.occasionVotes())
     );
+    events.publishEvent(new FragranceVotesChangedEvent("FRAGELLA", ext, null));
 
     return fragellaSummary(ext, me.getId());
   }
@@ -370,7 +375,7 @@ public class FragranceVoteService {
     };
   }
 
-  private Map<String, Double> toPriorDistribution(List<RankingDto> ranking, List<String> allowedKeys) {
+  static Map<String, Double> toPriorDistribution(List<RankingDto> ranking, List<String> allowedKeys) {
     Map<String, Double> out = new LinkedHashMap<>();
     for (String key : allowedKeys) out.put(key, 0.0);
     if (ranking == null || ranking.isEmpty()) return out;
@@ -446,14 +451,14 @@ public class FragranceVoteService {
   }
 
   private String normalizeExternalId(String externalId) {
-    String ext = externalId == null ? "" : externalId.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    String ext = FragranceExternalIds.normalize(externalId);
     if (ext.isBlank()) {
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "externalId is required");
     }
     return ext;
   }
 
-  private String normalizeVoteKey(String raw) {
+  static String normalizeVoteKey(String raw) {
     return String.valueOf(raw == null ? "" : raw)
       .trim()
       .toUpperCase(Locale.ROOT)
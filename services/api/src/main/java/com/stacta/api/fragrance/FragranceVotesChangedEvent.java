@@ -0,0 +1,11 @@
+package com.stacta.api.fragrance;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction when a user's season/occasion/performance vote on a
+ * fragrance is saved. Fragella votes are keyed by external id only, so {@code fragranceId} is null
+ * for them; community votes carry the fragrance row id. {@link FragranceFacetIndex} re-reads that
+ * fragrance's vote distribution after commit.
+ */
+public record FragranceVotesChangedEvent(String source, String externalId, UUID fragranceId) {}
@@ -0,0 +1,19 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.config.ApiException;
+import com.stacta.api.fragrance.dto.DuplicateCandidateDto;
+import java.util.List;
+
+/** A PUBLIC community submit that scores at or above the block score against existing fragrances. */
+public class LikelyDuplicateException extends ApiException {
+  private final List<DuplicateCandidateDto> candidates;
+
+  public LikelyDuplicateException(List<DuplicateCandidateDto> candidates) {
+    super("LIKELY_DUPLICATE");
+    this.candidates = List.copyOf(candidates);
+  }
+
+  public List<DuplicateCandidateDto> getCandidates() {
+    return candidates;
+  }
+}
@@ -0,0 +1,55 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.CreateMergeJobRequest;
+import com.stacta.api.fragrance.dto.MergeJobDto;
+import com.stacta.api.fragrance.dto.MergeJobListResponse;
+import jakarta.validation.Valid;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/admin/merge-jobs")
+public class MergeJobAdminController {
+
+  private final MergeJobService merges;
+
+  public MergeJobAdminController(MergeJobService merges) {
+    this.merges = merges;
+  }
+
+  @GetMapping
+  public MergeJobListResponse list(
+    @AuthenticationPrincipal Jwt jwt,
+    @RequestParam(value = "status", defaultValue = "ALL") String status,
+    @RequestParam(value = "limit", defaultValue = "50") int limit
+  ) {
+    return new MergeJobListResponse(merges.list(status, limit, jwt.getSubject()));
+  }
+
+  @PostMapping
+  public MergeJobDto create(
+    @AuthenticationPrincipal Jwt jwt,
+    @Valid @RequestBody CreateMergeJobRequest req
+  ) {
+    return merges.create(req, jwt.getSubject());
+  }
+
+  @GetMapping("/{jobId}")
+  public MergeJobDto get(
+    @AuthenticationPrincipal Jwt jwt,
+    @PathVariable("jobId") UUID jobId
+  ) {
+    return merges.get(jobId, jwt.getSubject());
+  }
+
+  @PostMapping("/{jobId}/retry")
+  public MergeJobDto retry(
+    @AuthenticationPrincipal Jwt jwt,
+    @PathVariable("jobId") UUID jobId
+  ) {
+    return merges.retry(jobId, jwt.getSubject());
+  }
+}
@@ -0,0 +1,435 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.MergeJobSteps.Stage;
+import com.stacta.api.fragrance.dto.CreateMergeJobRequest;
+import com.stacta.api.fragrance.dto.MergeJobDto;
+import com.stacta.api.user.User;
+import com.stacta.api.user.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bulk merges of duplicate notes or duplicate community fragrances into their targets.
+ *
+ * A job is a set of source -> target mappings queued in merge_job / merge_job_mapping and rewritten
+ * in the background by {@link MergeJobSteps}: junction rows, usage counts and embedded snapshots for
+ * notes; ratings, votes, collection and wishlist items and feed events for fragrances; then the
+ * sources are deleted. A poller claims one due job with FOR UPDATE SKIP LOCKED and runs chunks for at
+ * most {@code app.merges.slice-ms} before handing it back to the queue, so a large merge never holds
+ * a scheduler thread or a lock for long. A claim is a lease renewed by every chunk: if the instance
+ * dies the job becomes due again after {@code lease-seconds} and continues from its current stage.
+ */
+@Service
+public class MergeJobService {
+  private static final Logger log = LoggerFactory.getLogger(MergeJobService.class);
+  static final int MAX_MAPPINGS = 500;
+  // Serializes enqueue across instances so the overlap check and the insert see the same jobs.
+  private static final long ENQUEUE_LOCK_KEY = 0x3e76e0b1L;
+  private static final String BUSY_MESSAGE = "Part of this merge is already in another unfinished merge.";
+
+  private static final String JOB_ROWS = """
+    SELECT
+      j.id,
+      j.kind,
+      j.status,
+      j.stage,
+      j.rows_done,
+      j.rows_estimated,
+      (SELECT COUNT(*) FROM merge_job_mapping m WHERE m.job_id = j.id) AS mapping_count,
+      j.attempts,
+      j.last_error,
+      u.username AS requested_by_username,
+      j.created_at,
+      j.updated_at,
+      j.finished_at
+    FROM merge_job j
+    LEFT JOIN users u ON u.id = j.requested_by_user_id
+    %s
+    """;
+
+  private static final String NOTE_ESTIMATE = """
+    SELECT
+      (SELECT COUNT(*) FROM fragrance_note x JOIN merge_job_mapping m ON m.source_id = x.note_id WHERE m.job_id = j.id)
+      + (SELECT COUNT(*) FROM user_custom_note_creation_event x JOIN merge_job_mapping m ON m.source_id = x.note_id WHERE m.job_id = j.id)
+    FROM merge_job j
+    WHERE j.id = ?
+    """;
+
+  private static final String FRAGRANCE_ESTIMATE = """
+    SELECT
+      (SELECT COUNT(*) FROM fragrance_rating x WHERE x.external_source = 'COMMUNITY' AND x.external_id = ANY(s.ids))
+      + (SELECT COUNT(*) FROM community_fragrance_vote x WHERE x.fragrance_id = ANY(s.fragrance_ids))
+      + (SELECT COUNT(*) FROM user_collection_item x WHERE x.fragrance_external_id = ANY(s.ids) AND UPPER(x.fragrance_source) = 'COMMUNITY')
+      + (SELECT COUNT(*) FROM user_wishlist_item x WHERE x.fragrance_external_id = ANY(s.ids) AND UPPER(x.fragrance_source) = 'COMMUNITY')
+      + (SELECT COUNT(*) FROM activity_event x WHERE x.fragrance_external_id = ANY(s.ids) AND UPPER(x.fragrance_source) = 'COMMUNITY')
+      + (SELECT COUNT(*) FROM merge_job_mapping x WHERE x.job_id = s.job_id)
+    FROM (
+      SELECT m.job_id, array_agg(f.external_id) AS ids, array_agg(f.id) AS fragrance_ids
+      FROM merge_job_mapping m
+      JOIN fragrance f ON f.id = m.source_id
+      WHERE m.job_id = ?
+      GROUP BY m.job_id
+    ) s
+    """;
+
+  public enum Kind { NOTE, FRAGRANCE }
+
+  public record Mapping(UUID sourceId, UUID targetId) {}
+
+  private final JdbcTemplate jdbc;
+  private final UserRepository users;
+  private final MergeJobSteps steps;
+  private final int chunkSize;
+  private final long sliceNanos;
+  private final long leaseSeconds;
+  private final int maxAttempts;
+
+  public MergeJobService(
+    JdbcTemplate jdbc,
+    UserRepository users,
+    MergeJobSteps steps,
+    @Value("${app.merges.chunk-size:500}") int chunkSize,
+    @Value("${app.merges.slice-ms:2000}") long sliceMs,
+    @Value("${app.merges.lease-seconds:120}") long leaseSeconds,
+    @Value("${app.merges.max-attempts:5}") int maxAttempts
+  ) {
+    this.jdbc = jdbc;
+    this.users = users;
+    this.steps = steps;
+    this.chunkSize = Math.max(1, chunkSize);
+    this.sliceNanos = Duration.ofMillis(Math.max(100, sliceMs)).toNanos();
+    this.leaseSeconds = Math.max(30, leaseSeconds);
+    this.maxAttempts = Math.max(1, maxAttempts);
+  }
+
+  @Transactional
+  public MergeJobDto create(CreateMergeJobRequest req, String viewerSub) {
+    User admin = requireAdmin(viewerSub);
+    Kind kind = parseKind(req.kind());
+    List<Mapping> mappings = new ArrayList<>();
+    for (CreateMergeJobRequest.MergeMapping mapping : req.mappings() == null ? List.<CreateMergeJobRequest.MergeMapping>of() : req.mappings()) {
+      if (mapping != null) mappings.add(new Mapping(mapping.sourceId(), mapping.targetId()));
+    }
+    return get(enqueue(kind, mappings, admin.getId()));
+  }
+
+  /**
+   * Validates and queues a merge; part of the caller's transaction. Sources must be distinct and may
+   * not also be targets, and nothing in the job may be part of another job that is not DONE (a FAILED
+   * one holds its rows until it is retried to completion), so chained merges run one after the other.
+   * The check runs under an advisory lock, and a unique index on active sources backs it up.
+   */
+  @Transactional
+  public UUID enqueue(Kind kind, List<Mapping> mappings, UUID requestedByUserId) {
+    if (mappings == null || mappings.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "mappings are required.");
+    }
+    if (mappings.size() > MAX_MAPPINGS) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_MAPPINGS + " mappings per merge.");
+    }
+    Map<UUID, UUID> targetBySource = new LinkedHashMap<>();
+    for (Mapping mapping : mappings) {
+      if (mapping.sourceId() == null || mapping.targetId() == null) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sourceId and targetId are required.");
+      }
+      if (mapping.sourceId().equals(mapping.targetId())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot merge into itself.");
+      }
+      if (targetBySource.put(mapping.sourceId(), mapping.targetId()) != null) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Each source can be merged only once.");
+      }
+    }
+    for (UUID targetId : targetBySource.values()) {
+      if (targetBySource.containsKey(targetId)) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A merge target cannot also be merged away.");
+      }
+    }
+
+    Set<UUID> ids = new HashSet<>(targetBySource.keySet());
+    ids.addAll(targetBySource.values());
+    Map<UUID, String> labels = kind == Kind.NOTE ? noteLabels(ids) : fragranceLabels(targetBySource.keySet(), ids);
+    if (!labels.keySet().containsAll(ids)) {
+      throw new ResponseStatusException(
+        HttpStatus.BAD_REQUEST,
+        kind == Kind.NOTE ? "Some notes were not found." : "Some fragrances were not found."
+      );
+    }
+
+    jdbc.query("SELECT pg_advisory_xact_lock(?)", rs -> {}, ENQUEUE_LOCK_KEY);
+    Integer busy = jdbc.query(
+      """
+      SELECT COUNT(*)
+      FROM merge_job_mapping m
+      WHERE m.active
+        AND (m.source_id = ANY(?) OR m.target_id = ANY(?))
+      """,
+      ps -> {
+        ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+        ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+      },
+      rs -> rs.next() ? rs.getInt(1) : 0
+    );
+    if (busy != null && busy > 0) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, BUSY_MESSAGE);
+    }
+
+    UUID jobId = jdbc.query(
+      "INSERT INTO merge_job (kind, stage, requested_by_user_id) VALUES (?, ?, ?) RETURNING id",
+      rs -> rs.next() ? rs.getObject(1, UUID.class) : null,
+      kind.name(),
+      Stage.of(kind).get(0).name(),
+      requestedByUserId
+    );
+    try {
+      jdbc.batchUpdate(
+        "INSERT INTO merge_job_mapping (job_id, source_id, target_id, source_label) VALUES (?, ?, ?, ?)",
+        targetBySource.entrySet().stream()
+          .map(e -> new Object[] { jobId, e.getKey(), e.getValue(), labels.get(e.getKey()) })
+          .toList()
+      );
+    } catch (DuplicateKeyException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, BUSY_MESSAGE);
+    }
+    jdbc.update(
+      "UPDATE merge_job SET rows_estimated = COALESCE((%s), 0) WHERE id = ?".formatted(kind == Kind.NOTE ? NOTE_ESTIMATE : FRAGRANCE_ESTIMATE),
+      jobId,
+      jobId
+    );
+    log.info("merges.job.queued id={} kind={} mappings={}", jobId, kind, targetBySource.size());
+    return jobId;
+  }
+
+  @Transactional(readOnly = true)
+  public List<MergeJobDto> list(String status, int limit, String viewerSub) {
+    requireAdmin(viewerSub);
+    int safeLimit = Math.max(1, Math.min(limit, 200));
+    String normalizedStatus = normalizeStatusFilter(status);
+    return jdbc.query(
+      JOB_ROWS.formatted("WHERE (? = 'ALL' OR j.status = ?) ORDER BY j.created_at DESC LIMIT ?"),
+      (rs, rowNum) -> job(rs),
+      normalizedStatus,
+      normalizedStatus,
+      safeLimit
+    );
+  }
+
+  @Transactional(readOnly = true)
+  public MergeJobDto get(UUID jobId, String viewerSub) {
+    requireAdmin(viewerSub);
+    return get(jobId);
+  }
+
+  /** Queues a FAILED job again from the stage it failed in. */
+  @Transactional
+  public MergeJobDto retry(UUID jobId, String viewerSub) {
+    requireAdmin(viewerSub);
+    int updated = jdbc.update(
+      """
+      UPDATE merge_job
+      SET status = 'PENDING', attempts = 0, last_error = NULL, next_attempt_at = now(), updated_at = now()
+      WHERE id = ? AND status = 'FAILED'
+      """,
+      jobId
+    );
+    if (updated == 0) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Failed merge job not found.");
+    }
+    return get(jobId);
+  }
+
+  MergeJobDto get(UUID jobId) {
+    List<MergeJobDto> found = jdbc.query(JOB_ROWS.formatted("WHERE j.id = ?"), (rs, rowNum) -> job(rs), jobId);
+    if (found.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Merge job not found.");
+    }
+    return found.get(0);
+  }
+
+  @Scheduled(
+    initialDelayString = "${app.merges.poll-ms:5000}",
+    fixedDelayString = "${app.merges.poll-ms:5000}"
+  )
+  public void poll() {
+    Claimed job = claim();
+    if (job == null) return;
+    long started = System.nanoTime();
+    int chunks = 0;
+    try {
+      boolean more = true;
+      while (more && System.nanoTime() - started < sliceNanos) {
+        more = steps.runChunk(job.id(), chunkSize, leaseSeconds);
+        chunks++;
+      }
+      if (more) {
+        // Back in the queue right away; the next poll on any instance continues it.
+        jdbc.update("UPDATE merge_job SET next_attempt_at = now() WHERE id = ? AND status = 'RUNNING'", job.id());
+      } else {
+        log.info("merges.job.finished id={} chunks={} tookMs={}", job.id(), chunks, (System.nanoTime() - started) / 1_000_000L);
+      }
+    } catch (Exception e) {
+      fail(job, e);
+    }
+  }
+
+  private Claimed claim() {
+    List<Claimed> claimed = jdbc.query(
+      """
+      UPDATE merge_job j
+      SET
+        status = 'RUNNING',
+        next_attempt_at = now() + make_interval(secs => ?),
+        updated_at = now()
+      WHERE j.id = (
+        SELECT id
+        FROM merge_job
+        WHERE status IN ('PENDING', 'RUNNING')
+          AND next_attempt_at <= now()
+        ORDER BY created_at
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+      )
+      RETURNING j.id, j.attempts
+      """,
+      (rs, rowNum) -> new Claimed(rs.getObject(1, UUID.class), rs.getInt(2)),
+      leaseSeconds
+    );
+    return claimed.isEmpty() ? null : claimed.get(0);
+  }
+
+  // The failed chunk rolled back; retrying resumes at the same stage.
+  private void fail(Claimed job, Exception e) {
+    int attempts = job.attempts() + 1;
+    if (attempts >= maxAttempts) {
+      jdbc.update(
+        "UPDATE merge_job SET status = 'FAILED', attempts = ?, last_error = ?, updated_at = now() WHERE id = ?",
+        attempts,
+        String.valueOf(e.getMessage()),
+        job.id()
+      );
+      log.warn("merges.job.failed id={} attempts={}", job.id(), attempts, e);
+      return;
+    }
+    jdbc.update(
+      """
+      UPDATE merge_job
+      SET status = 'PENDING', attempts = ?, last_error = ?, next_attempt_at = now() + make_interval(mins => ?), updated_at = now()
+      WHERE id = ?
+      """,
+      attempts,
+      String.valueOf(e.getMessage()),
+      attempts * attempts,
+      job.id()
+    );
+    log.warn("merges.job.retry id={} attempts={}: {}", job.id(), attempts, e.getMessage());
+  }
+
+  private Map<UUID, String> noteLabels(Set<UUID> ids) {
+    Map<UUID, String> out = new HashMap<>();
+    jdbc.query(
+      "SELECT id, name FROM note_dictionary WHERE id = ANY(?)",
+      ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray())),
+      rs -> {
+        out.put(rs.getObject(1, UUID.class), rs.getString(2));
+      }
+    );
+    return out;
+  }
+
+  private Map<UUID, String> fragranceLabels(Set<UUID> sources, Set<UUID> ids) {
+    Map<UUID, String> out = new HashMap<>();
+    List<UUID> notCommunity = new ArrayList<>();
+    jdbc.query(
+      "SELECT id, external_source, brand, name FROM fragrance WHERE id = ANY(?)",
+      ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray())),
+      rs -> {
+        UUID id = rs.getObject(1, UUID.class);
+        if (sources.contains(id) && !"COMMUNITY".equalsIgnoreCase(rs.getString(2))) notCommunity.add(id);
+        String brand = rs.getString(3);
+        out.put(id, (brand == null || brand.isBlank() ? "" : brand + " ") + rs.getString(4));
+      }
+    );
+    if (!notCommunity.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only community fragrances can be merged away.");
+    }
+    return out;
+  }
+
+  private static MergeJobDto job(ResultSet rs) throws SQLException {
+    Kind kind = Kind.valueOf(rs.getString("kind"));
+    String stage = rs.getString("stage");
+    List<Stage> stages = Stage.of(kind);
+    int stageNumber = "DONE".equals(stage) ? stages.size() : stages.indexOf(Stage.valueOf(stage)) + 1;
+    return new MergeJobDto(
+      rs.getObject("id", UUID.class),
+      kind.name(),
+      rs.getString("status"),
+      stage,
+      stageNumber,
+      stages.size(),
+      rs.getLong("rows_done"),
+      rs.getLong("rows_estimated"),
+      rs.getInt("mapping_count"),
+      rs.getInt("attempts"),
+      rs.getString("last_error"),
+      rs.getString("requested_by_username"),
+      toInstant(rs.getTimestamp("created_at")),
+      toInstant(rs.getTimestamp("updated_at")),
+      toInstant(rs.getTimestamp("finished_at"))
+    );
+  }
+
+  private User requireAdmin(String sub) {
+    User user = users.findByCognitoSub(sub)
+      .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not onboarded."));
+    if (!user.isAdmin()) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access required.");
+    }
+    return user;
+  }
+
+  private static Kind parseKind(String kind) {
+    String value = String.valueOf(kind == null ? "" : kind).trim().toUpperCase(Locale.ROOT);
+    return switch (value) {
+      case "NOTE" -> Kind.NOTE;
+      case "FRAGRANCE" -> Kind.FRAGRANCE;
+      default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported kind.");
+    };
+  }
+
+  private static String normalizeStatusFilter(String status) {
+    String value = String.valueOf(status == null ? "ALL" : status).trim().toUpperCase(Locale.ROOT);
+    return switch (value) {
+      case "PENDING", "RUNNING", "DONE", "FAILED", "ALL" -> value;
+      default -> "ALL";
+    };
+  }
+
+  private static Instant toInstant(Timestamp ts) {
+    return ts == null ? null : ts.toInstant();
+  }
+
+  private record Claimed(UUID id, int attempts) {}
+}
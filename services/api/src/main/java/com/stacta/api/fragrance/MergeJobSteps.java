@@ -0,0 +1,703 @@
+package com.stacta.api.fragrance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.stacta.api.fragrance.MergeJobService.Kind;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.note.FragranceNotesChangedEvent;
+import com.stacta.api.note.NoteDictionaryChangedEvent;
+import com.stacta.api.note.NoteUsageCounter;
+import com.stacta.api.recommendation.UserTasteChangedEvent;
+import com.stacta.api.user.ProfileStatsService;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Runs one chunk of a {@link MergeJobService} job per call, in its own transaction together with the
+ * job's progress, so no lock is held longer than one chunk.
+ *
+ * Stages find their remaining work from what is still unmerged (rows that still point at a source),
+ * never from a cursor: a chunk that committed is not redone and one that rolled back is simply found
+ * again. Every statement works on a whole chunk at once; per-row work is limited to re-serializing
+ * community snapshots that embed a merged note.
+ */
+@Component
+public class MergeJobSteps {
+  private static final Logger log = LoggerFactory.getLogger(MergeJobSteps.class);
+  // Each fragrance delete also releases media and walks its notes, so these go a few at a time.
+  private static final int CLEANUP_CHUNK = 20;
+
+  enum Stage {
+    NOTE_FRAGRANCES,
+    NOTE_CREATION_EVENTS,
+    NOTE_REPORTS,
+    NOTE_CLEANUP,
+    FRAGRANCE_RATINGS,
+    FRAGRANCE_VOTES,
+    FRAGRANCE_COLLECTIONS,
+    FRAGRANCE_WISHLISTS,
+    FRAGRANCE_ACTIVITY,
+    FRAGRANCE_CLEANUP;
+
+    static List<Stage> of(Kind kind) {
+      return Arrays.stream(values()).filter(s -> s.kind() == kind).toList();
+    }
+
+    Kind kind() {
+      return name().startsWith("NOTE_") ? Kind.NOTE : Kind.FRAGRANCE;
+    }
+
+    /** The following stage of the same kind, or null after the last one. */
+    Stage next() {
+      List<Stage> stages = of(kind());
+      int i = stages.indexOf(this);
+      return i + 1 < stages.size() ? stages.get(i + 1) : null;
+    }
+  }
+
+  private final JdbcTemplate jdbc;
+  private final ObjectMapper om;
+  private final FragranceRepository fragrances;
+  private final CommunityFragranceService communityFragrances;
+  private final FragranceSnapshotCache snapshotCache;
+  private final NoteUsageCounter noteUsage;
+  private final ProfileStatsService profileStats;
+  private final ApplicationEventPublisher events;
+
+  public MergeJobSteps(
+    JdbcTemplate jdbc,
+    ObjectMapper om,
+    FragranceRepository fragrances,
+    CommunityFragranceService communityFragrances,
+    FragranceSnapshotCache snapshotCache,
+    NoteUsageCounter noteUsage,
+    ProfileStatsService profileStats,
+    ApplicationEventPublisher events
+  ) {
+    this.jdbc = jdbc;
+    this.om = om;
+    this.fragrances = fragrances;
+    this.communityFragrances = communityFragrances;
+    this.snapshotCache = snapshotCache;
+    this.noteUsage = noteUsage;
+    this.profileStats = profileStats;
+    this.events = events;
+  }
+
+  /**
+   * Runs the next chunk of a RUNNING job and records it, renewing the lease. Returns false once the job
+   * is DONE, or when it is no longer RUNNING.
+   */
+  @Transactional
+  public boolean runChunk(UUID jobId, int chunkSize, long leaseSeconds) {
+    JobState job = jdbc.query(
+      "SELECT stage, requested_by_user_id FROM merge_job WHERE id = ? AND status = 'RUNNING' FOR UPDATE",
+      rs -> rs.next() ? new JobState(Stage.valueOf(rs.getString(1)), rs.getObject(2, UUID.class)) : null,
+      jobId
+    );
+    if (job == null) return false;
+
+    Progress progress = switch (job.stage()) {
+      case NOTE_FRAGRANCES -> noteFragrances(jobId, chunkSize);
+      case NOTE_CREATION_EVENTS -> noteCreationEvents(jobId, chunkSize);
+      case NOTE_REPORTS -> noteReports(jobId, job.requestedByUserId());
+      case NOTE_CLEANUP -> noteCleanup(jobId);
+      case FRAGRANCE_RATINGS -> fragranceRatings(jobId, chunkSize);
+      case FRAGRANCE_VOTES -> fragranceVotes(jobId, chunkSize);
+      case FRAGRANCE_COLLECTIONS -> fragranceCollectionItems(jobId, "user_collection_item", ProfileStatsService.Counter.COLLECTION, chunkSize);
+      case FRAGRANCE_WISHLISTS -> fragranceCollectionItems(jobId, "user_wishlist_item", ProfileStatsService.Counter.WISHLIST, chunkSize);
+      case FRAGRANCE_ACTIVITY -> fragranceActivity(jobId, chunkSize);
+      case FRAGRANCE_CLEANUP -> fragranceCleanup(jobId);
+    };
+
+    Stage next = progress.stageDone() ? job.stage().next() : job.stage();
+    if (next == null) {
+      jdbc.update(
+        """
+        UPDATE merge_job
+        SET status = 'DONE', stage = 'DONE', rows_done = rows_done + ?, last_error = NULL,
+            finished_at = now(), updated_at = now()
+        WHERE id = ?
+        """,
+        progress.rows(),
+        jobId
+      );
+      jdbc.update("UPDATE merge_job_mapping SET active = false WHERE job_id = ?", jobId);
+      return false;
+    }
+    jdbc.update(
+      """
+      UPDATE merge_job
+      SET stage = ?, rows_done = rows_done + ?, next_attempt_at = now() + make_interval(secs => ?), updated_at = now()
+      WHERE id = ?
+      """,
+      next.name(),
+      progress.rows(),
+      leaseSeconds,
+      jobId
+    );
+    if (next != job.stage()) log.debug("merges.job.stage id={} stage={}", jobId, next);
+    return true;
+  }
+
+  // --- notes ---
+
+  /** Moves fragrance_note rows to the targets a chunk of fragrances at a time, snapshots included. */
+  private Progress noteFragrances(UUID jobId, int chunkSize) {
+    // Locking the fragrance rows orders this chunk against concurrent edits of the same fragrances.
+    List<UUID> fragranceIds = jdbc.query(
+      """
+      SELECT f.id
+      FROM fragrance f
+      WHERE f.id IN (
+        SELECT fn.fragrance_id
+        FROM fragrance_note fn
+        JOIN merge_job_mapping m ON m.source_id = fn.note_id
+        WHERE m.job_id = ?
+      )
+      ORDER BY f.id
+      LIMIT ?
+      FOR UPDATE OF f
+      """,
+      (rs, rowNum) -> rs.getObject(1, UUID.class),
+      jobId,
+      chunkSize
+    );
+    if (fragranceIds.isEmpty()) return new Progress(0, true);
+
+    List<UUID> added = jdbc.query(
+      """
+      INSERT INTO fragrance_note (fragrance_id, note_id, note_category, display_order)
+      SELECT fn.fragrance_id, m.target_id, fn.note_category, fn.display_order
+      FROM fragrance_note fn
+      JOIN merge_job_mapping m ON m.job_id = ? AND m.source_id = fn.note_id
+      WHERE fn.fragrance_id = ANY(?)
+      ON CONFLICT DO NOTHING
+      RETURNING note_id
+      """,
+      ps -> {
+        ps.setObject(1, jobId);
+        ps.setArray(2, uuids(ps, fragranceIds));
+      },
+      (rs, rowNum) -> rs.getObject(1, UUID.class)
+    );
+    List<UUID> removed = jdbc.query(
+      """
+      DELETE FROM fragrance_note fn
+      USING merge_job_mapping m
+      WHERE m.job_id = ?
+        AND fn.note_id = m.source_id
+        AND fn.fragrance_id = ANY(?)
+      RETURNING fn.note_id
+      """,
+      ps -> {
+        ps.setObject(1, jobId);
+        ps.setArray(2, uuids(ps, fragranceIds));
+      },
+      (rs, rowNum) -> rs.getObject(1, UUID.class)
+    );
+    Map<UUID, Integer> usage = new HashMap<>();
+    for (UUID noteId : added) usage.merge(noteId, 1, Integer::sum);
+    for (UUID noteId : removed) usage.merge(noteId, -1, Integer::sum);
+    noteUsage.add(usage);
+
+    rewriteSnapshots(jobId, fragranceIds);
+    for (UUID fragranceId : fragranceIds) {
+      events.publishEvent(new FragranceNotesChangedEvent(fragranceId));
+    }
+    return new Progress(removed.size(), fragranceIds.size() < chunkSize);
+  }
+
+  private void rewriteSnapshots(UUID jobId, List<UUID> fragranceIds) {
+    Map<UUID, NoteDto> replacements = new HashMap<>();
+    jdbc.query(
+      """
+      SELECT m.source_id, n.id, n.name, n.image_url
+      FROM merge_job_mapping m
+      JOIN note_dictionary n ON n.id = m.target_id
+      WHERE m.job_id = ?
+      """,
+      rs -> {
+        replacements.put(
+          rs.getObject(1, UUID.class),
+          new NoteDto(rs.getObject(2, UUID.class), rs.getString(3), rs.getString(4))
+        );
+      },
+      jobId
+    );
+
+    List<Object[]> updates = new ArrayList<>();
+    List<String[]> refs = new ArrayList<>();
+    jdbc.query(
+      "SELECT id, external_source, external_id, snapshot::text FROM fragrance WHERE id = ANY(?)",
+      ps -> ps.setArray(1, uuids(ps, fragranceIds)),
+      rs -> {
+        UUID id = rs.getObject(1, UUID.class);
+        String snapshot = rs.getString(4);
+        if (snapshot == null || snapshot.isBlank()) return;
+        try {
+          JsonNode node = om.readTree(snapshot);
+          if (mergeNotes(node, replacements)) {
+            updates.add(new Object[] { om.writeValueAsString(node), id });
+            refs.add(new String[] { rs.getString(2), rs.getString(3) });
+          }
+        } catch (Exception e) {
+          // Junction rows still moved; the stale pyramid is replaced on the fragrance's next edit.
+          log.warn("merges.snapshot unreadable id={}", id);
+        }
+      }
+    );
+    if (updates.isEmpty()) return;
+    jdbc.batchUpdate("UPDATE fragrance SET snapshot = ?::jsonb, updated_at = now() WHERE id = ?", updates);
+    for (String[] ref : refs) snapshotCache.evict(ref[0], ref[1]);
+  }
+
+  /**
+   * Points a snapshot's note pyramid at the merge targets (keyed by source note id), dropping an entry
+   * when its level already lists the target. Returns whether anything changed.
+   */
+  static boolean mergeNotes(JsonNode snapshot, Map<UUID, NoteDto> replacements) {
+    JsonNode notes = snapshot == null ? null : snapshot.get("notes");
+    if (notes == null || !notes.isObject()) return false;
+    boolean changed = false;
+    for (String level : List.of("top", "middle", "base")) {
+      JsonNode entries = notes.get(level);
+      if (entries == null || !entries.isArray()) continue;
+      ArrayNode rewritten = JsonNodeFactory.instance.arrayNode();
+      Set<UUID> seen = new HashSet<>();
+      boolean levelChanged = false;
+      for (JsonNode entry : entries) {
+        UUID id = uuid(entry.path("id").asText(null));
+        NoteDto target = id == null ? null : replacements.get(id);
+        JsonNode out = entry;
+        if (target != null && entry.isObject()) {
+          ObjectNode copy = ((ObjectNode) entry).deepCopy();
+          copy.put("id", target.id().toString());
+          copy.put("name", target.name());
+          copy.put("imageUrl", target.imageUrl());
+          out = copy;
+          id = target.id();
+          levelChanged = true;
+        }
+        if (id != null && !seen.add(id)) {
+          levelChanged = true;
+          continue;
+        }
+        rewritten.add(out);
+      }
+      if (levelChanged) {
+        ((ObjectNode) notes).set(level, rewritten);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private Progress noteCreationEvents(UUID jobId, int chunkSize) {
+    int updated = jdbc.update(
+      """
+      UPDATE user_custom_note_creation_event e
+      SET note_id = m.target_id
+      FROM merge_job_mapping m
+      WHERE m.job_id = ?
+        AND e.note_id = m.source_id
+        AND e.id IN (
+          SELECT x.id
+          FROM user_custom_note_creation_event x
+          JOIN merge_job_mapping mx ON mx.source_id = x.note_id
+          WHERE mx.job_id = ?
+          LIMIT ?
+        )
+      """,
+      jobId,
+      jobId,
+      chunkSize
+    );
+    return new Progress(updated, updated < chunkSize);
+  }
+
+  // Report queues are small; one pass each.
+  private Progress noteReports(UUID jobId, UUID requestedByUserId) {
+    int resolved = jdbc.update(
+      """
+      UPDATE note_report r
+      SET status = 'RESOLVED_MERGED',
+          merged_into_note_id = m.target_id,
+          resolved_by_user_id = ?,
+          resolved_at = now()
+      FROM merge_job_mapping m
+      WHERE m.job_id = ?
+        AND r.note_id = m.source_id
+        AND r.status = 'OPEN'
+      """,
+      requestedByUserId,
+      jobId
+    );
+    // Earlier merges into a note merged away now point at where it went.
+    int repointed = jdbc.update(
+      """
+      UPDATE note_report r
+      SET merged_into_note_id = m.target_id
+      FROM merge_job_mapping m
+      WHERE m.job_id = ?
+        AND r.merged_into_note_id = m.source_id
+      """,
+      jobId
+    );
+    return new Progress(resolved + repointed, true);
+  }
+
+  private Progress noteCleanup(UUID jobId) {
+    // A note someone attached again while the job ran stays; it can be merged again.
+    List<UUID> removed = jdbc.query(
+      """
+      DELETE FROM note_dictionary n
+      USING merge_job_mapping m
+      WHERE m.job_id = ?
+        AND n.id = m.source_id
+        AND NOT EXISTS (
+          SELECT 1 FROM fragrance_note fn WHERE fn.note_id = n.id
+        )
+      RETURNING n.id
+      """,
+      (rs, rowNum) -> rs.getObject(1, UUID.class),
+      jobId
+    );
+    for (UUID noteId : removed) {
+      events.publishEvent(NoteDictionaryChangedEvent.removed(noteId));
+    }
+    return new Progress(removed.size(), true);
+  }
+
+  // --- fragrances ---
+
+  /** Moves ratings to the target; when a user rated both, the more recently updated rating wins. */
+  private Progress fragranceRatings(UUID jobId, int chunkSize) {
+    List<UUID> users = jdbc.query(
+      """
+      WITH batch AS (
+        SELECT
+          r.user_id, r.external_source, r.external_id, r.rating, r.created_at, r.updated_at,
+          UPPER(t.external_source) AS target_source,
+          t.external_id AS target_external_id
+        FROM merge_job_mapping m
+        JOIN fragrance s ON s.id = m.source_id
+        JOIN fragrance t ON t.id = m.target_id
+        JOIN fragrance_rating r ON r.external_source = 'COMMUNITY' AND r.external_id = s.external_id
+        WHERE m.job_id = ?
+        LIMIT ?
+      ), removed AS (
+        DELETE FROM fragrance_rating r
+        USING batch b
+        WHERE r.user_id = b.user_id
+          AND r.external_source = b.external_source
+          AND r.external_id = b.external_id
+      ), moved AS (
+        INSERT INTO fragrance_rating (user_id, external_source, external_id, rating, created_at, updated_at)
+        SELECT DISTINCT ON (user_id, target_source, target_external_id)
+          user_id, target_source, target_external_id, rating, created_at, updated_at
+        FROM batch
+        ORDER BY user_id, target_source, target_external_id, updated_at DESC
+        ON CONFLICT (user_id, external_source, external_id) DO UPDATE SET
+          rating = EXCLUDED.rating,
+          updated_at = EXCLUDED.updated_at
+        WHERE fragrance_rating.updated_at < EXCLUDED.updated_at
+      )
+      SELECT user_id FROM batch
+      """,
+      (rs, rowNum) -> rs.getObject(1, UUID.class),
+      jobId,
+      chunkSize
+    );
+    for (UUID userId : new LinkedHashSet<>(users)) {
+      // Collection and wishlist items on /me carry the owner's rating.
+      profileStats.touch(userId);
+      events.publishEvent(new UserTasteChangedEvent(userId));
+    }
+    return new Progress(users.size(), users.size() < chunkSize);
+  }
+
+  /**
+   * Moves community votes to the target: into community_fragrance_vote for a community target, into
+   * fragella_fragrance_vote for a mirrored one. The more recently updated vote wins a collision.
+   */
+  private Progress fragranceVotes(UUID jobId, int chunkSize) {
+    List<VoteTarget> targets = jdbc.query(
+      """
+      WITH batch AS (
+        SELECT
+          v.fragrance_id, v.user_id, v.longevity_score, v.sillage_score, v.price_perception,
+          v.season_votes_json, v.occasion_votes_json, v.created_at, v.updated_at,
+          m.target_id,
+          UPPER(t.external_source) = 'COMMUNITY' AS target_community,
+          t.external_id AS target_external_id
+        FROM merge_job_mapping m
+        JOIN fragrance t ON t.id = m.target_id
+        JOIN community_fragrance_vote v ON v.fragrance_id = m.source_id
+        WHERE m.job_id = ?
+        LIMIT ?
+      ), newest AS (
+        SELECT DISTINCT ON (target_id, user_id) *
+        FROM batch
+        ORDER BY target_id, user_id, updated_at DESC
+      ), removed AS (
+        DELETE FROM community_fragrance_vote v
+        USING batch b
+        WHERE v.fragrance_id = b.fragrance_id
+          AND v.user_id = b.user_id
+      ), to_community AS (
+        INSERT INTO community_fragrance_vote (
+          fragrance_id, user_id, longevity_score, sillage_score, price_perception,
+          season_votes_json, occasion_votes_json, created_at, updated_at
+        )
+        SELECT
+          target_id, user_id, longevity_score, sillage_score, price_perception,
+          season_votes_json, occasion_votes_json, created_at, updated_at
+        FROM newest
+        WHERE target_community
+        ON CONFLICT (fragrance_id, user_id) DO UPDATE SET
+          longevity_score = EXCLUDED.longevity_score,
+          sillage_score = EXCLUDED.sillage_score,
+          price_perception = EXCLUDED.price_perception,
+          season_votes_json = EXCLUDED.season_votes_json,
+          occasion_votes_json = EXCLUDED.occasion_votes_json,
+          updated_at = EXCLUDED.updated_at
+        WHERE community_fragrance_vote.updated_at < EXCLUDED.updated_at
+      ), to_fragella AS (
+        INSERT INTO fragella_fragrance_vote (
+          external_id, user_id, longevity_score, sillage_score, price_perception,
+          season_votes_json, occasion_votes_json, created_at, updated_at
+        )
+        SELECT
+          target_external_id, user_id, longevity_score, sillage_score, price_perception,
+          season_votes_json, occasion_votes_json, created_at, updated_at
+        FROM newest
+        WHERE NOT target_community
+        ON CONFLICT (external_id, user_id) DO UPDATE SET
+          longevity_score = EXCLUDED.longevity_score,
+          sillage_score = EXCLUDED.sillage_score,
+          price_perception = EXCLUDED.price_perception,
+          season_votes_json = EXCLUDED.season_votes_json,
+          occasion_votes_json = EXCLUDED.occasion_votes_json,
+          updated_at = EXCLUDED.updated_at
+        WHERE fragella_fragrance_vote.updated_at < EXCLUDED.updated_at
+      )
+      SELECT target_id, target_community, target_external_id FROM batch
+      """,
+      (rs, rowNum) -> new VoteTarget(rs.getObject(1, UUID.class), rs.getBoolean(2), rs.getString(3)),
+      jobId,
+      chunkSize
+    );
+    for (VoteTarget target : new LinkedHashSet<>(targets)) {
+      events.publishEvent(target.community()
+        ? new FragranceVotesChangedEvent("COMMUNITY", target.externalId(), target.fragranceId())
+        : new FragranceVotesChangedEvent("FRAGELLA", target.externalId(), null));
+    }
+    return new Progress(targets.size(), targets.size() < chunkSize);
+  }
+
+  /**
+   * Repoints collection or wishlist items at the target. A user who already holds the target (or a
+   * second merged copy of it) loses the extra item; a top pick on the removed collection item moves to
+   * the kept one.
+   */
+  private Progress fragranceCollectionItems(UUID jobId, String table, ProfileStatsService.Counter counter, int chunkSize) {
+    List<ItemRow> rows = jdbc.query(
+      """
+      SELECT
+        c.id, c.user_id, t.id AS target_id, UPPER(t.external_source) AS external_source, t.external_id,
+        t.name, t.brand, t.image_url,
+        (
+          SELECT x.id
+          FROM %1$s x
+          WHERE x.user_id = c.user_id
+            AND x.fragrance_source = UPPER(t.external_source)
+            AND x.fragrance_external_id = t.external_id
+        ) AS existing_id
+      FROM merge_job_mapping m
+      JOIN fragrance s ON s.id = m.source_id
+      JOIN fragrance t ON t.id = m.target_id
+      JOIN %1$s c
+        ON c.fragrance_external_id = s.external_id
+       AND LOWER(c.fragrance_source) = LOWER(s.external_source)
+      WHERE m.job_id = ?
+      ORDER BY c.added_at, c.id
+      LIMIT ?
+      FOR UPDATE OF c
+      """.formatted(table),
+      (rs, rowNum) -> new ItemRow(
+        rs.getObject("id", UUID.class),
+        rs.getObject("user_id", UUID.class),
+        rs.getObject("target_id", UUID.class),
+        rs.getString("external_source"),
+        rs.getString("external_id"),
+        rs.getString("name"),
+        rs.getString("brand"),
+        rs.getString("image_url"),
+        rs.getObject("existing_id", UUID.class)
+      ),
+      jobId,
+      chunkSize
+    );
+    if (rows.isEmpty()) return new Progress(0, true);
+
+    Map<String, UUID> kept = new HashMap<>();
+    List<Object[]> moves = new ArrayList<>();
+    List<Object[]> topRepoints = new ArrayList<>();
+    List<UUID> dropped = new ArrayList<>();
+    Set<UUID> users = new LinkedHashSet<>();
+    for (ItemRow row : rows) {
+      users.add(row.userId());
+      String key = row.userId() + "|" + row.targetId();
+      UUID keeper = row.existingId() != null ? row.existingId() : kept.get(key);
+      if (keeper == null) {
+        kept.put(key, row.id());
+        moves.add(new Object[] { row.targetSource(), row.targetExternalId(), row.name(), row.brand(), row.imageUrl(), row.id() });
+      } else {
+        topRepoints.add(new Object[] { keeper, row.id(), keeper });
+        dropped.add(row.id());
+      }
+    }
+
+    if (!moves.isEmpty()) {
+      jdbc.batchUpdate(
+        """
+        UPDATE %s
+        SET fragrance_source = ?,
+            fragrance_external_id = ?,
+            fragrance_name = COALESCE(?, fragrance_name),
+            fragrance_brand = ?,
+            fragrance_image_url = ?
+        WHERE id = ?
+        """.formatted(table),
+        moves
+      );
+    }
+    if (!dropped.isEmpty()) {
+      if ("user_collection_item".equals(table)) {
+        jdbc.batchUpdate(
+          """
+          UPDATE user_top_fragrance
+          SET user_collection_item_id = ?
+          WHERE user_collection_item_id = ?
+            AND NOT EXISTS (
+              SELECT 1 FROM user_top_fragrance y WHERE y.user_collection_item_id = ?
+            )
+          """,
+          topRepoints
+        );
+      }
+      List<UUID> owners = jdbc.query(
+        "DELETE FROM %s WHERE id = ANY(?) RETURNING user_id".formatted(table),
+        ps -> ps.setArray(1, uuids(ps, dropped)),
+        (rs, rowNum) -> rs.getObject(1, UUID.class)
+      );
+      for (UUID owner : owners) profileStats.bump(owner, counter, -1);
+    }
+    for (UUID userId : users) {
+      profileStats.touch(userId);
+      events.publishEvent(new UserTasteChangedEvent(userId));
+    }
+    return new Progress(rows.size(), rows.size() < chunkSize);
+  }
+
+  /** Repoints feed events (reviews, collection adds) so they keep linking to a fragrance that exists. */
+  private Progress fragranceActivity(UUID jobId, int chunkSize) {
+    int updated = jdbc.update(
+      """
+      WITH batch AS (
+        SELECT a.id, UPPER(t.external_source) AS external_source, t.external_id, t.name, t.image_url
+        FROM merge_job_mapping m
+        JOIN fragrance s ON s.id = m.source_id
+        JOIN fragrance t ON t.id = m.target_id
+        JOIN activity_event a
+          ON a.fragrance_external_id = s.external_id
+         AND LOWER(a.fragrance_source) = LOWER(s.external_source)
+        WHERE m.job_id = ?
+        LIMIT ?
+      )
+      UPDATE activity_event ae
+      SET fragrance_source = b.external_source,
+          fragrance_external_id = b.external_id,
+          fragrance_name = b.name,
+          fragrance_image_url = b.image_url
+      FROM batch b
+      WHERE ae.id = b.id
+      """,
+      jobId,
+      chunkSize
+    );
+    return new Progress(updated, updated < chunkSize);
+  }
+
+  /** Deletes merged-away community fragrances the same way an admin delete does. */
+  private Progress fragranceCleanup(UUID jobId) {
+    List<UUID> sources = jdbc.query(
+      """
+      SELECT m.source_id
+      FROM merge_job_mapping m
+      JOIN fragrance f ON f.id = m.source_id
+      WHERE m.job_id = ?
+      ORDER BY m.source_id
+      LIMIT ?
+      """,
+      (rs, rowNum) -> rs.getObject(1, UUID.class),
+      jobId,
+      CLEANUP_CHUNK
+    );
+    for (UUID sourceId : sources) {
+      fragrances.findById(sourceId).ifPresent(communityFragrances::deleteCommunityFragranceAndDependencies);
+    }
+    return new Progress(sources.size(), sources.size() < CLEANUP_CHUNK);
+  }
+
+  private static Array uuids(PreparedStatement ps, List<UUID> ids) throws SQLException {
+    return ps.getConnection().createArrayOf("uuid", ids.toArray());
+  }
+
+  private static UUID uuid(String raw) {
+    if (raw == null || raw.isBlank()) return null;
+    try {
+      return UUID.fromString(raw.trim());
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private record JobState(Stage stage, UUID requestedByUserId) {}
+
+  private record Progress(int rows, boolean stageDone) {}
+
+  private record VoteTarget(UUID fragranceId, boolean community, String externalId) {}
+
+  private record ItemRow(
+    UUID id,
+    UUID userId,
+    UUID targetId,
+    String targetSource,
+    String targetExternalId,
+    String name,
+    String brand,
+    String imageUrl,
+    UUID existingId
+  ) {}
+}
@@ -0,0 +1,278 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exact top-K cosine neighbours over the {@link FragranceVectors} embedding of every fragrance row
+ * (mirrored Fragella rows and public community ones).
+ *
+ * Embeddings are sparse (a dozen accords and a few dozen notes out of thousands of features), so
+ * instead of scanning every vector the index keeps an inverted list per feature with byte-quantized
+ * weights and scores a query by walking only the lists of its own features into an int accumulator.
+ * That touches the fragrances sharing at least one accord or note with the query and nothing else,
+ * and the result is the same ranking a brute-force scan over the quantized vectors would give.
+ *
+ * Rows arrive through {@link FragranceChangeFeed}. Replaced and removed fragrances leave dead postings
+ * behind until the next rebuild. Until the first load finishes {@link #isReady()} is false.
+ */
+@Component
+public class SimilarFragranceIndex extends FragranceFeedIndex<SimilarFragranceIndex.Store> {
+  private static final Logger log = LoggerFactory.getLogger(SimilarFragranceIndex.class);
+  private static final int QUANT = 127;
+
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+  public SimilarFragranceIndex() {
+    super(new Store());
+  }
+
+  /** A neighbour; {@code source} is the row's external_source as stored. Score is cosine in [0, 1]. */
+  public record Match(String source, String externalId, String name, String brand, String year, String imageUrl, double score) {}
+
+  /**
+   * Nearest neighbours of an indexed fragrance, best first, never including itself; null when
+   * (source, externalId) is not in the index so the caller can embed the detail itself.
+   */
+  public List<Match> similarTo(String source, String externalId, int limit) {
+    if (source == null || externalId == null) return null;
+    lock.readLock().lock();
+    try {
+      Store s = store;
+      Integer doc = s.byKey.get(key(source, externalId));
+      if (doc == null) return null;
+      Doc d = s.docs.get(doc);
+      return search(s, d.features(), d.weights(), doc, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Nearest neighbours of an arbitrary snapshot, excluding the fragrance it describes. */
+  public List<Match> similarTo(FragranceSearchResult snapshot, int limit) {
+    Map<String, Float> vector = FragranceVectors.embed(snapshot);
+    if (vector.isEmpty()) return List.of();
+    lock.readLock().lock();
+    try {
+      Store s = store;
+      int[] features = new int[vector.size()];
+      byte[] weights = new byte[vector.size()];
+      int n = 0;
+      for (Map.Entry<String, Float> e : vector.entrySet()) {
+        Integer feature = s.features.get(e.getKey());
+        if (feature == null) continue;
+        features[n] = feature;
+        weights[n++] = quantize(e.getValue());
+      }
+      Integer self = snapshot.source() == null || snapshot.externalId() == null
+        ? null
+        : s.byKey.get(key(snapshot.source(), snapshot.externalId()));
+      return search(s, Arrays.copyOf(features, n), Arrays.copyOf(weights, n), self == null ? -1 : self, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Indexes (or re-indexes) one fragrance row; an empty embedding removes it. */
+  void upsert(UUID rowId, String source, String externalId, FragranceSearchResult snapshot) {
+    upsert(new FragranceChangeFeed.Change(rowId, source, externalId, null, snapshot, List.of()));
+  }
+
+  @Override
+  protected Store newStore() {
+    return new Store();
+  }
+
+  @Override
+  protected Consumer<Store> filing(FragranceChangeFeed.Change change) {
+    Map<String, Float> vector = FragranceVectors.embed(change.snapshot());
+    return s -> {
+      if (vector.isEmpty()) {
+        s.remove(change.id());
+      } else {
+        s.upsert(change.id(), change.source(), change.externalId(), change.snapshot(), vector);
+      }
+    };
+  }
+
+  @Override
+  protected void unfile(Store s, UUID rowId) {
+    s.remove(rowId);
+  }
+
+  @Override
+  protected void loaded(Store fresh, long tookMs) {
+    log.info("fragrances.similar.rebuild fragrances={} features={} tookMs={}", fresh.byRowId.size(), fresh.features.size(), tookMs);
+  }
+
+  private List<Match> search(Store s, int[] features, byte[] weights, int self, int limit) {
+    if (limit <= 0 || features.length == 0) return List.of();
+    Scratch acc = scratch.get();
+    acc.ensure(s.docs.size());
+    int[] scores = acc.scores;
+    try {
+      for (int i = 0; i < features.length; i++) {
+        Postings p = s.postings.get(features[i]);
+        int q = weights[i];
+        int[] docs = p.docs;
+        byte[] w = p.weights;
+        for (int j = 0; j < p.size; j++) {
+          int doc = docs[j];
+          if (scores[doc] == 0) acc.touch(doc);
+          scores[doc] += q * w[j];
+        }
+      }
+
+      // Score in the high half, ordinal in the low half: one primitive compare orders both.
+      PriorityQueue<Long> best = new PriorityQueue<>();
+      for (int t = 0; t < acc.touched; t++) {
+        int doc = acc.touchedDocs[t];
+        int score = scores[doc];
+        if (doc == self || score <= 0 || s.docs.get(doc) == null) continue;
+        long packed = ((long) score << 32) | (Integer.MAX_VALUE - doc);
+        if (best.size() < limit) {
+          best.offer(packed);
+        } else if (packed > best.peek()) {
+          best.poll();
+          best.offer(packed);
+        }
+      }
+
+      Match[] out = new Match[best.size()];
+      for (int i = out.length - 1; i >= 0; i--) {
+        long packed = best.poll();
+        Doc d = s.docs.get(Integer.MAX_VALUE - (int) packed);
+        double cosine = Math.min(1.0, (packed >>> 32) / (double) (QUANT * QUANT));
+        out[i] = new Match(d.source(), d.externalId(), d.name(), d.brand(), d.year(), d.imageUrl(), cosine);
+      }
+      return List.of(out);
+    } finally {
+      acc.reset();
+    }
+  }
+
+  private static byte quantize(float weight) {
+    return (byte) Math.max(1, Math.min(QUANT, Math.round(weight * QUANT)));
+  }
+
+  private static Key key(String source, String externalId) {
+    return new Key(source.trim().toUpperCase(Locale.ROOT), FragranceExternalIds.normalize(externalId));
+  }
+
+  private record Key(String source, String externalId) {}
+
+  private record Doc(
+    UUID rowId,
+    Key key,
+    String source,
+    String externalId,
+    String name,
+    String brand,
+    String year,
+    String imageUrl,
+    int[] features,
+    byte[] weights
+  ) {}
+
+  private static final class Postings {
+    private int[] docs = new int[4];
+    private byte[] weights = new byte[4];
+    private int size;
+
+    void add(int doc, byte weight) {
+      if (size == docs.length) {
+        docs = Arrays.copyOf(docs, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      docs[size] = doc;
+      weights[size++] = weight;
+    }
+  }
+
+  static final class Store {
+    private final Map<String, Integer> features = new HashMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+    // By ordinal; null once the fragrance was replaced or removed.
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<UUID, Integer> byRowId = new HashMap<>();
+    private final Map<Key, Integer> byKey = new HashMap<>();
+
+    void upsert(UUID rowId, String source, String externalId, FragranceSearchResult snapshot, Map<String, Float> vector) {
+      remove(rowId);
+      Key key = key(source, externalId);
+      Integer sameKey = byKey.get(key);
+      if (sameKey != null) remove(docs.get(sameKey).rowId());
+
+      int doc = docs.size();
+      int[] ids = new int[vector.size()];
+      byte[] weights = new byte[vector.size()];
+      int n = 0;
+      for (Map.Entry<String, Float> e : vector.entrySet()) {
+        int feature = features.computeIfAbsent(e.getKey(), k -> {
+          postings.add(new Postings());
+          return postings.size() - 1;
+        });
+        ids[n] = feature;
+        weights[n] = quantize(e.getValue());
+        postings.get(feature).add(doc, weights[n]);
+        n++;
+      }
+      docs.add(new Doc(
+        rowId,
+        key,
+        source,
+        externalId,
+        snapshot.name(),
+        snapshot.brand(),
+        snapshot.year(),
+        snapshot.imageUrl(),
+        ids,
+        weights
+      ));
+      byRowId.put(rowId, doc);
+      byKey.put(key, doc);
+    }
+
+    void remove(UUID rowId) {
+      Integer doc = byRowId.remove(rowId);
+      if (doc == null) return;
+      Doc d = docs.set(doc, null);
+      byKey.remove(d.key(), doc);
+    }
+  }
+
+  /** Per-thread accumulator, sized to the store and cleared through the touched list after each query. */
+  private static final class Scratch {
+    private int[] scores = new int[0];
+    private int[] touchedDocs = new int[0];
+    private int touched;
+
+    void ensure(int docs) {
+      if (scores.length < docs) {
+        int size = Math.max(docs, scores.length * 3 / 2);
+        scores = new int[size];
+        touchedDocs = new int[size];
+      }
+    }
+
+    void touch(int doc) {
+      touchedDocs[touched++] = doc;
+    }
+
+    void reset() {
+      for (int t = 0; t < touched; t++) scores[touchedDocs[t]] = 0;
+      touched = 0;
+    }
+  }
+}
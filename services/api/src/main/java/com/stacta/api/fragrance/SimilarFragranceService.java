@@ -0,0 +1,60 @@
+package com.stacta.api.fragrance;
+
+import com.stacta.api.fragrance.FragranceImageResolver.FragranceRef;
+import com.stacta.api.fragrance.dto.SimilarFragranceDto;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SimilarFragranceService {
+  private final SimilarFragranceIndex index;
+  private final FragellaSearchService searchService;
+  private final FragranceImageResolver fragranceImages;
+
+  public SimilarFragranceService(
+    SimilarFragranceIndex index,
+    FragellaSearchService searchService,
+    FragranceImageResolver fragranceImages
+  ) {
+    this.index = index;
+    this.searchService = searchService;
+    this.fragranceImages = fragranceImages;
+  }
+
+  /**
+   * Fragrances whose accords and notes are closest to this one. Fragrances that are not indexed yet
+   * (a Fragella item nobody has saved, a community fragrance written moments ago) are embedded from
+   * their detail, which 404s like the detail endpoint when the fragrance does not exist.
+   */
+  public List<SimilarFragranceDto> similar(String source, String externalId, int limit) {
+    String src = source == null || source.isBlank() ? "FRAGELLA" : source.trim().toUpperCase(Locale.ROOT);
+    String ext = FragranceExternalIds.normalize(externalId);
+    if (!index.isReady()) return List.of();
+
+    List<SimilarFragranceIndex.Match> matches = index.similarTo(src, ext, limit);
+    if (matches == null) {
+      matches = index.similarTo(searchService.getPersistedDetail(src, ext), limit);
+    }
+    if (matches.isEmpty()) return List.of();
+
+    Map<FragranceRef, String> images = fragranceImages.resolve(
+      matches.stream().map(m -> new FragranceRef(m.source(), m.externalId())).toList()
+    );
+    return matches.stream()
+      .map(m -> {
+        String imageUrl = images.get(new FragranceRef(m.source(), m.externalId()));
+        return new SimilarFragranceDto(
+          m.source() == null ? null : m.source().toLowerCase(Locale.ROOT),
+          m.externalId(),
+          m.name(),
+          m.brand(),
+          m.year(),
+          imageUrl != null ? imageUrl : m.imageUrl(),
+          Math.round(m.score() * 1000) / 1000.0
+        );
+      })
+      .toList();
+  }
+}
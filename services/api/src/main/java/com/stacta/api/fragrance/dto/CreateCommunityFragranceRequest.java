@@ -31,5 +31,6 @@ public record CreateCommunityFragranceRequest(
   @Size(max = 20) List<UUID> baseNoteIds,
   @Size(max = 20) List<@Size(max = 80) String> topNoteNames,
   @Size(max = 20) List<@Size(max = 80) String> middleNoteNames,
-  @Size(max = 20) List<@Size(max = 80) String> baseNoteNames
+  @Size(max = 20) List<@Size(max = 80) String> baseNoteNames,
+  Boolean ignoreDuplicates // create a PUBLIC fragrance even when it looks like an existing one
 ) {}
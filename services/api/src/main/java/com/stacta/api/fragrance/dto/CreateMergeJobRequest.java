@@ -0,0 +1,19 @@
+package com.stacta.api.fragrance.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+public record CreateMergeJobRequest(
+  @NotBlank @Size(max = 20) String kind, // NOTE | FRAGRANCE
+  @NotEmpty @Size(max = 500) List<@Valid MergeMapping> mappings
+) {
+  public record MergeMapping(
+    @NotNull UUID sourceId,
+    @NotNull UUID targetId
+  ) {}
+}
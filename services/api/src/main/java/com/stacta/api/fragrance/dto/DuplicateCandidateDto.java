@@ -0,0 +1,11 @@
+package com.stacta.api.fragrance.dto;
+
+public record DuplicateCandidateDto(
+  String source,
+  String externalId,
+  String name,
+  String brand,
+  String year,
+  String imageUrl,
+  double score
+) {}
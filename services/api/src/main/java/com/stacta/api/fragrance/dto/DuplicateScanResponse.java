@@ -0,0 +1,6 @@
+package com.stacta.api.fragrance.dto;
+
+public record DuplicateScanResponse(
+  int candidates,
+  long tookMs
+) {}
@@ -0,0 +1,7 @@
+package com.stacta.api.fragrance.dto;
+
+public record FacetCountDto(
+  String value,
+  String label,
+  int count
+) {}
@@ -0,0 +1,10 @@
+package com.stacta.api.fragrance.dto;
+
+public record FragranceBrowseItem(
+  String source,
+  String externalId,
+  String name,
+  String brand,
+  String year,
+  String imageUrl
+) {}
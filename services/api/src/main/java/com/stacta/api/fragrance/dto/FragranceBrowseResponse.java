@@ -0,0 +1,12 @@
+package com.stacta.api.fragrance.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record FragranceBrowseResponse(
+  int total,
+  int offset,
+  int limit,
+  List<FragranceBrowseItem> items,
+  Map<String, List<FacetCountDto>> facets
+) {}
@@ -0,0 +1,23 @@
+package com.stacta.api.fragrance.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record FragranceDuplicateItemDto(
+  UUID id,
+  UUID fragranceId,
+  String fragranceExternalId,
+  String fragranceName,
+  String fragranceBrand,
+  String creatorUsername,
+  UUID duplicateOfFragranceId,
+  String duplicateOfSource,
+  String duplicateOfExternalId,
+  String duplicateOfName,
+  String duplicateOfBrand,
+  double score,
+  String status,
+  String resolvedByUsername,
+  Instant detectedAt,
+  Instant resolvedAt
+) {}
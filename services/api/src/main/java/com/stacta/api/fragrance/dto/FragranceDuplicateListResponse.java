@@ -0,0 +1,7 @@
+package com.stacta.api.fragrance.dto;
+
+import java.util.List;
+
+public record FragranceDuplicateListResponse(
+  List<FragranceDuplicateItemDto> items
+) {}
@@ -0,0 +1,22 @@
+package com.stacta.api.fragrance.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record MergeJobDto(
+  UUID id,
+  String kind,
+  String status,
+  String stage,
+  int stageNumber,
+  int stageCount,
+  long rowsDone,
+  long rowsEstimated,
+  int mappings,
+  int attempts,
+  String lastError,
+  String requestedByUsername,
+  Instant createdAt,
+  Instant updatedAt,
+  Instant finishedAt
+) {}
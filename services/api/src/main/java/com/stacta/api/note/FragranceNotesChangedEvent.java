@@ -0,0 +1,10 @@
+package com.stacta.api.note;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction whenever a fragrance's fragrance_note rows (or its
+ * visibility) may have changed, including deletion. {@link NoteCooccurrenceGraph} re-reads that one
+ * fragrance after commit.
+ */
+public record FragranceNotesChangedEvent(UUID fragranceId) {}
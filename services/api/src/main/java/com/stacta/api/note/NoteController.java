@@ -1,7 +1,10 @@
 package com.stacta.api.note;
 
 import com.stacta.api.note.dto.NoteDto;
+import com.stacta.api.note.dto.NotePairingDto;
+import com.stacta.api.note.dto.PyramidSuggestionsResponse;
 import com.stacta.api.note.dto.ReportNoteRequest;
+import com.stacta.api.ratelimit.RateLimited;
 import jakarta.validation.Valid;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -35,6 +38,26 @@ public class NoteController {
     return noteService.popular(limit);
   }
 
+  @GetMapping("/{noteId}/pairings")
+  public List<NotePairingDto> pairings(
+    @PathVariable("noteId") UUID noteId,
+    @RequestParam(value = "level", required = false) String level,
+    @RequestParam(value = "limit", defaultValue = "10") int limit
+  ) {
+    return noteService.pairsWith(noteId, level, limit);
+  }
+
+  @GetMapping("/pyramid-suggestions")
+  public PyramidSuggestionsResponse pyramidSuggestions(
+    @RequestParam(value = "top", required = false) List<UUID> top,
+    @RequestParam(value = "middle", required = false) List<UUID> middle,
+    @RequestParam(value = "base", required = false) List<UUID> base,
+    @RequestParam(value = "limit", defaultValue = "8") int limit
+  ) {
+    return noteService.completePyramid(top, middle, base, limit);
+  }
+
+  @RateLimited(value = "reports", capacity = 10, windowSeconds = 3600)
   @PostMapping("/{noteId}/report")
   public void reportNote(
     @AuthenticationPrincipal Jwt jwt,
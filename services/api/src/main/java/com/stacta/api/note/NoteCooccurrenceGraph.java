@@ -0,0 +1,356 @@
+package com.stacta.api.note;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * How often notes appear together in public community fragrances, by pyramid level.
+ *
+ * Each note has a sparse row of partners; a cell counts the fragrances containing both notes, overall
+ * and for each (level of this note, level of the partner) combination. Pairs are scored by PMI,
+ * {@code ln(N * together / (count(a) * count(b)))}, and only pairs seen in at least
+ * {@code app.notes.pairings.min-support} fragrances are suggested, which keeps rare notes from
+ * dominating. The graph is rebuilt from fragrance_note on startup and on a fixed delay; in between a
+ * {@link FragranceNotesChangedEvent} swaps that fragrance's old contribution for its current one, so
+ * nothing else is recounted. Until the first rebuild finishes {@link #isReady()} is false and callers
+ * get no suggestions.
+ */
+@Component
+public class NoteCooccurrenceGraph {
+  private static final Logger log = LoggerFactory.getLogger(NoteCooccurrenceGraph.class);
+
+  public static final List<String> LEVELS = List.of("TOP", "MIDDLE", "BASE");
+
+  // Ascending, so the worst candidate sits at the head of a bounded heap; ties go to the lower id.
+  private static final Comparator<Pairing> BY_SCORE = Comparator
+    .comparingDouble(Pairing::score)
+    .thenComparingInt(Pairing::together)
+    .thenComparing(Pairing::noteId, Comparator.reverseOrder());
+
+  private final JdbcTemplate jdbc;
+  private final int minSupport;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Matrix matrix = new Matrix();
+  private volatile boolean ready = false;
+
+  // Fragrances re-read while a rebuild is streaming fragrance_note; replayed onto the fresh matrix.
+  private List<Consumer<Matrix>> pendingDuringRebuild = null;
+
+  public NoteCooccurrenceGraph(
+    JdbcTemplate jdbc,
+    @Value("${app.notes.pairings.min-support:2}") int minSupport
+  ) {
+    this.jdbc = jdbc;
+    this.minSupport = Math.max(1, minSupport);
+  }
+
+  /** A partner note, the number of fragrances pairing them, and the PMI of the pair. */
+  public record Pairing(UUID noteId, int together, double score) {}
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Notes that appear with {@code noteId} more often than chance. With a level (index into
+   * {@link #LEVELS}) only the partner's appearances at that level count.
+   */
+  public List<Pairing> pairsWith(UUID noteId, Integer level, int limit) {
+    if (noteId == null || limit <= 0) return List.of();
+    lock.readLock().lock();
+    try {
+      Matrix m = matrix;
+      Integer note = m.ordinals.get(noteId);
+      if (note == null) return List.of();
+      int noteTotal = m.totals(note)[0];
+      PriorityQueue<Pairing> best = new PriorityQueue<>(BY_SCORE);
+      for (Map.Entry<Integer, int[]> cell : m.row(note).entrySet()) {
+        int partner = cell.getKey();
+        int together = 0;
+        if (level == null) {
+          together = cell.getValue()[0];
+        } else {
+          for (int from = 0; from < LEVELS.size(); from++) together += cell.getValue()[slot(from, level)];
+        }
+        if (together < minSupport) continue;
+        int partnerTotal = m.totals(partner)[level == null ? 0 : 1 + level];
+        double pmi = pmi(m.fragranceCount, together, noteTotal, partnerTotal);
+        if (pmi <= 0) continue;
+        offer(best, new Pairing(m.ids.get(partner), together, pmi), limit);
+      }
+      return drain(best);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * For each level, the notes that best fit a partly built pyramid: a candidate's score is the sum of
+   * its positive PMI with every selected note, taking the selected note's level and the candidate's
+   * level into account. Selected notes are never suggested.
+   */
+  public List<List<Pairing>> completePyramid(List<? extends Set<UUID>> selectedByLevel, int limit) {
+    List<List<Pairing>> out = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      Matrix m = matrix;
+      Set<Integer> selected = new HashSet<>();
+      List<int[]> seeds = new ArrayList<>();
+      for (int level = 0; level < LEVELS.size(); level++) {
+        Set<UUID> ids = level < selectedByLevel.size() ? selectedByLevel.get(level) : null;
+        if (ids == null) continue;
+        for (UUID id : ids) {
+          Integer note = id == null ? null : m.ordinals.get(id);
+          if (note == null) continue;
+          selected.add(note);
+          seeds.add(new int[] { note, level });
+        }
+      }
+
+      for (int level = 0; level < LEVELS.size(); level++) {
+        Map<Integer, double[]> scores = new HashMap<>();
+        for (int[] seed : seeds) {
+          int seedTotal = m.totals(seed[0])[1 + seed[1]];
+          for (Map.Entry<Integer, int[]> cell : m.row(seed[0]).entrySet()) {
+            int partner = cell.getKey();
+            if (selected.contains(partner)) continue;
+            int together = cell.getValue()[slot(seed[1], level)];
+            if (together < minSupport) continue;
+            double pmi = pmi(m.fragranceCount, together, seedTotal, m.totals(partner)[1 + level]);
+            if (pmi <= 0) continue;
+            double[] acc = scores.computeIfAbsent(partner, k -> new double[2]);
+            acc[0] += pmi;
+            acc[1] += together;
+          }
+        }
+        PriorityQueue<Pairing> best = new PriorityQueue<>(BY_SCORE);
+        scores.forEach((partner, acc) -> offer(best, new Pairing(m.ids.get(partner), (int) acc[1], acc[0]), limit));
+        out.add(drain(best));
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onFragranceNotesChanged(FragranceNotesChangedEvent event) {
+    if (event == null || event.fragranceId() == null) return;
+    List<NoteAtLevel> current = new ArrayList<>();
+    jdbc.query(
+      """
+      SELECT fn.note_id, fn.note_category
+      FROM fragrance_note fn
+      JOIN fragrance f ON f.id = fn.fragrance_id
+      WHERE fn.fragrance_id = ?
+        AND f.visibility = 'PUBLIC'
+      """,
+      rs -> {
+        int level = LEVELS.indexOf(rs.getString(2));
+        if (level >= 0) current.add(new NoteAtLevel(rs.getObject(1, UUID.class), level));
+      },
+      event.fragranceId()
+    );
+    replace(event.fragranceId(), current);
+  }
+
+  /** Sets the notes one fragrance contributes, replacing whatever it contributed before. */
+  void replace(UUID fragranceId, List<NoteAtLevel> notes) {
+    lock.writeLock().lock();
+    try {
+      Consumer<Matrix> change = m -> m.replace(fragranceId, notes);
+      if (pendingDuringRebuild != null) {
+        pendingDuringRebuild.add(change);
+      }
+      change.accept(matrix);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.notes.pairings.initial-delay-ms:0}",
+    fixedDelayString = "${app.notes.pairings.refresh-ms:3600000}"
+  )
+  public void rebuild() {
+    lock.writeLock().lock();
+    try {
+      pendingDuringRebuild = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    Matrix fresh = new Matrix();
+    long started = System.nanoTime();
+    try {
+      UUID[] currentFragrance = new UUID[1];
+      List<NoteAtLevel> currentNotes = new ArrayList<>();
+      jdbc.query(
+        """
+        SELECT fn.fragrance_id, fn.note_id, fn.note_category
+        FROM fragrance_note fn
+        JOIN fragrance f ON f.id = fn.fragrance_id
+        WHERE f.visibility = 'PUBLIC'
+        ORDER BY fn.fragrance_id
+        """,
+        rs -> {
+          UUID fragranceId = rs.getObject(1, UUID.class);
+          if (!fragranceId.equals(currentFragrance[0])) {
+            if (currentFragrance[0] != null) fresh.replace(currentFragrance[0], currentNotes);
+            currentFragrance[0] = fragranceId;
+            currentNotes.clear();
+          }
+          int level = LEVELS.indexOf(rs.getString(3));
+          if (level >= 0) currentNotes.add(new NoteAtLevel(rs.getObject(2, UUID.class), level));
+        }
+      );
+      if (currentFragrance[0] != null) fresh.replace(currentFragrance[0], currentNotes);
+    } catch (Exception e) {
+      log.warn("notes.pairings.rebuild failed; keeping previous graph (ready={})", ready, e);
+      lock.writeLock().lock();
+      try {
+        pendingDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      return;
+    }
+
+    lock.writeLock().lock();
+    try {
+      for (Consumer<Matrix> change : pendingDuringRebuild) {
+        change.accept(fresh);
+      }
+      pendingDuringRebuild = null;
+      matrix = fresh;
+      ready = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info(
+      "notes.pairings.rebuild fragrances={} notes={} tookMs={}",
+      fresh.fragranceCount,
+      fresh.ids.size(),
+      (System.nanoTime() - started) / 1_000_000L
+    );
+  }
+
+  record NoteAtLevel(UUID noteId, int level) {}
+
+  private static int slot(int fromLevel, int toLevel) {
+    return 1 + fromLevel * 3 + toLevel;
+  }
+
+  private static double pmi(int fragrances, int together, int countA, int countB) {
+    if (together <= 0 || countA <= 0 || countB <= 0) return Double.NEGATIVE_INFINITY;
+    return Math.log((double) fragrances * together / ((double) countA * countB));
+  }
+
+  private static void offer(PriorityQueue<Pairing> worstFirst, Pairing pairing, int limit) {
+    worstFirst.offer(pairing);
+    if (worstFirst.size() > limit) worstFirst.poll();
+  }
+
+  private static List<Pairing> drain(PriorityQueue<Pairing> worstFirst) {
+    List<Pairing> out = new ArrayList<>(worstFirst);
+    out.sort(BY_SCORE.reversed());
+    return out;
+  }
+
+  private static final class Matrix {
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<UUID> ids = new ArrayList<>();
+    // Per note: fragrances containing it anywhere, then at TOP, MIDDLE, BASE.
+    private final List<int[]> totals = new ArrayList<>();
+    // Per note: partner -> {together anywhere, together by (this level, partner level) x 9}.
+    private final List<Map<Integer, int[]>> rows = new ArrayList<>();
+    // What each fragrance currently contributes, as ordinal * 4 + level, so it can be subtracted.
+    private final Map<UUID, int[]> contributions = new HashMap<>();
+    private int fragranceCount;
+
+    int[] totals(int note) {
+      return totals.get(note);
+    }
+
+    Map<Integer, int[]> row(int note) {
+      return rows.get(note);
+    }
+
+    void replace(UUID fragranceId, List<NoteAtLevel> notes) {
+      int[] previous = contributions.remove(fragranceId);
+      if (previous != null) apply(previous, -1);
+      if (notes == null || notes.isEmpty()) return;
+
+      int[] entries = notes.stream()
+        .filter(n -> n.noteId() != null)
+        .mapToInt(n -> ordinal(n.noteId()) * 4 + n.level())
+        .distinct()
+        .sorted()
+        .toArray();
+      if (entries.length == 0) return;
+      contributions.put(fragranceId, entries);
+      apply(entries, 1);
+    }
+
+    private void apply(int[] entries, int sign) {
+      fragranceCount += sign;
+      // Entries are sorted, so a note listed at two levels is adjacent.
+      int[] distinct = Arrays.stream(entries).map(e -> e >>> 2).distinct().toArray();
+      for (int note : distinct) totals.get(note)[0] += sign;
+      for (int e : entries) totals.get(e >>> 2)[1 + (e & 3)] += sign;
+
+      for (int a : distinct) {
+        for (int b : distinct) {
+          if (a != b) cell(a, b)[0] += sign;
+        }
+      }
+      for (int x : entries) {
+        for (int y : entries) {
+          if ((x >>> 2) != (y >>> 2)) cell(x >>> 2, y >>> 2)[slot(x & 3, y & 3)] += sign;
+        }
+      }
+      if (sign < 0) {
+        for (int a : distinct) {
+          for (int b : distinct) {
+            if (a != b && rows.get(a).get(b)[0] <= 0) rows.get(a).remove(b);
+          }
+        }
+      }
+    }
+
+    private int[] cell(int a, int b) {
+      return rows.get(a).computeIfAbsent(b, k -> new int[10]);
+    }
+
+    private int ordinal(UUID noteId) {
+      Integer existing = ordinals.get(noteId);
+      if (existing != null) return existing;
+      int next = ids.size();
+      ordinals.put(noteId, next);
+      ids.add(noteId);
+      totals.add(new int[4]);
+      rows.add(new HashMap<>());
+      return next;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.stacta.api.note;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction whenever a note_dictionary row is created or renamed
+ * ({@code SAVED}), its usage_count moves ({@code USAGE}, by {@code usageDelta}), or it is deleted
+ * ({@code REMOVED}). {@link NoteDictionaryIndex} applies them after commit.
+ */
+public record NoteDictionaryChangedEvent(UUID noteId, Change change, int usageDelta) {
+  public enum Change { SAVED, USAGE, REMOVED }
+
+  public static NoteDictionaryChangedEvent saved(UUID noteId) {
+    return new NoteDictionaryChangedEvent(noteId, Change.SAVED, 0);
+  }
+
+  public static NoteDictionaryChangedEvent usage(UUID noteId, int delta) {
+    return new NoteDictionaryChangedEvent(noteId, Change.USAGE, delta);
+  }
+
+  public static NoteDictionaryChangedEvent removed(UUID noteId) {
+    return new NoteDictionaryChangedEvent(noteId, Change.REMOVED, 0);
+  }
+}
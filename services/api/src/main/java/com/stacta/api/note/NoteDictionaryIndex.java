@@ -0,0 +1,405 @@
+package com.stacta.api.note;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Process-local copy of note_dictionary for autocomplete and near-duplicate lookups.
+ *
+ * Every word-start suffix of a note's normalized name ("pink pepper", "pepper") is kept in a sorted
+ * map, so a prefix query is a range scan ranked by usage_count; substring matches come from
+ * per-trigram posting lists, and a BK-tree over the normalized names answers bounded edit-distance
+ * queries without comparing against the whole dictionary.
+ *
+ * The index is rebuilt on startup and every {@code app.notes.index.rebuild-ms}. Local writes are
+ * patched in from {@link NoteDictionaryChangedEvent}s after commit, and rows whose updated_at moved
+ * are re-read on a short fixed delay so notes created on other instances show up within seconds.
+ * Removals made elsewhere wait for the next rebuild, as do usage counts (they do not touch
+ * updated_at); usage deltas replayed across a rebuild can be counted twice until the next one, which
+ * only affects ranking. Until the first rebuild finishes {@link #isReady()} is false and callers fall
+ * back to the database.
+ */
+@Component
+public class NoteDictionaryIndex {
+  private static final Logger log = LoggerFactory.getLogger(NoteDictionaryIndex.class);
+  // Re-read a little behind the watermark so rows committed out of updated_at order are not missed.
+  private static final long OVERLAP_SECONDS = 60;
+  private static final int GRAM = 3;
+
+  private static final Comparator<IndexedNote> BY_USAGE_THEN_NAME = Comparator
+    .comparingInt(IndexedNote::usageCount).reversed()
+    .thenComparing(IndexedNote::name, Comparator.nullsLast(Comparator.naturalOrder()));
+
+  private final JdbcTemplate jdbc;
+  private final long rebuildNanos;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Dictionary dictionary = new Dictionary();
+  private volatile boolean ready = false;
+  private volatile Instant watermark = null;
+  private long lastRebuildNanos;
+
+  // Changes observed while a rebuild is streaming note_dictionary; replayed onto the fresh index.
+  private List<Consumer<Dictionary>> pendingDuringRebuild = null;
+
+  public NoteDictionaryIndex(JdbcTemplate jdbc, @Value("${app.notes.index.rebuild-ms:600000}") long rebuildMs) {
+    this.jdbc = jdbc;
+    this.rebuildNanos = Duration.ofMillis(Math.max(60_000, rebuildMs)).toNanos();
+  }
+
+  public record IndexedNote(UUID id, String name, String normalizedName, String imageUrl, int usageCount) {}
+
+  public record FuzzyMatch(IndexedNote note, int distance) {}
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Notes with a word starting with the (normalized) query, most used first; when those do not fill
+   * the page and the query is at least three characters, notes containing it elsewhere follow, also
+   * by usage. Only the notes sharing the query's rarest trigram are checked for the substring.
+   */
+  public List<IndexedNote> autocomplete(String normalizedQuery, int limit) {
+    if (normalizedQuery == null || normalizedQuery.isBlank() || limit <= 0) return List.of();
+    lock.readLock().lock();
+    try {
+      Set<IndexedNote> prefixed = new LinkedHashSet<>();
+      for (List<Slot> slots : dictionary.wordStarts.subMap(normalizedQuery, true, normalizedQuery + Character.MAX_VALUE, false).values()) {
+        for (Slot slot : slots) {
+          if (!slot.removed) prefixed.add(slot.note);
+        }
+      }
+      List<IndexedNote> out = top(prefixed, limit);
+      if (out.size() < limit && normalizedQuery.length() >= GRAM) {
+        List<IndexedNote> infix = new ArrayList<>();
+        for (Slot slot : dictionary.rarestGramPostings(normalizedQuery)) {
+          if (!slot.removed && slot.note.normalizedName().contains(normalizedQuery) && !prefixed.contains(slot.note)) {
+            infix.add(slot.note);
+          }
+        }
+        out.addAll(top(infix, limit - out.size()));
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Notes whose normalized name is within {@code maxDistance} edits of the given one. */
+  public List<FuzzyMatch> within(String normalized, int maxDistance) {
+    if (normalized == null || normalized.isBlank()) return List.of();
+    lock.readLock().lock();
+    try {
+      List<FuzzyMatch> out = new ArrayList<>();
+      dictionary.fuzzy.search(normalized, maxDistance, out);
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onNoteChanged(NoteDictionaryChangedEvent event) {
+    if (event == null || event.noteId() == null) return;
+    Consumer<Dictionary> change = switch (event.change()) {
+      case SAVED -> {
+        IndexedNote loaded = load(event.noteId());
+        yield loaded == null ? d -> d.remove(event.noteId()) : d -> d.upsert(loaded);
+      }
+      case USAGE -> d -> d.adjustUsage(event.noteId(), event.usageDelta());
+      case REMOVED -> d -> d.remove(event.noteId());
+    };
+    apply(change);
+  }
+
+  /** Adds or replaces one row as loaded from note_dictionary. */
+  void upsert(IndexedNote note) {
+    apply(d -> d.upsert(note));
+  }
+
+  private void apply(Consumer<Dictionary> change) {
+    lock.writeLock().lock();
+    try {
+      if (pendingDuringRebuild != null) {
+        pendingDuringRebuild.add(change);
+      }
+      change.accept(dictionary);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.notes.index.initial-delay-ms:0}",
+    fixedDelayString = "${app.notes.index.refresh-ms:15000}"
+  )
+  public void refresh() {
+    if (!ready || System.nanoTime() - lastRebuildNanos > rebuildNanos) {
+      rebuild();
+      return;
+    }
+    Instant since = watermark;
+    Instant[] newest = {since};
+    int[] changed = {0};
+    try {
+      jdbc.query(
+        "SELECT id, name, image_url, usage_count, updated_at FROM note_dictionary WHERE updated_at >= ?",
+        rs -> {
+          IndexedNote note = indexed(rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3), rs.getInt(4));
+          apply(d -> d.upsert(note));
+          Instant updatedAt = rs.getTimestamp(5).toInstant();
+          if (updatedAt.isAfter(newest[0])) newest[0] = updatedAt;
+          changed[0]++;
+        },
+        Timestamp.from(since.minusSeconds(OVERLAP_SECONDS))
+      );
+    } catch (Exception e) {
+      log.warn("notes.index.refresh failed; keeping current index", e);
+      return;
+    }
+    watermark = newest[0];
+    log.debug("notes.index.refresh rows={}", changed[0]);
+  }
+
+  private void rebuild() {
+    lock.writeLock().lock();
+    try {
+      pendingDuringRebuild = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    Dictionary fresh = new Dictionary();
+    Instant[] newest = {Instant.EPOCH};
+    long started = System.nanoTime();
+    try {
+      jdbc.query(
+        "SELECT id, name, image_url, usage_count, updated_at FROM note_dictionary",
+        rs -> {
+          fresh.upsert(indexed(rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3), rs.getInt(4)));
+          Instant updatedAt = rs.getTimestamp(5).toInstant();
+          if (updatedAt.isAfter(newest[0])) newest[0] = updatedAt;
+        }
+      );
+    } catch (Exception e) {
+      log.warn("notes.index.rebuild failed; keeping previous index (ready={})", ready, e);
+      lock.writeLock().lock();
+      try {
+        pendingDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      return;
+    }
+
+    lock.writeLock().lock();
+    try {
+      for (Consumer<Dictionary> change : pendingDuringRebuild) {
+        change.accept(fresh);
+      }
+      pendingDuringRebuild = null;
+      dictionary = fresh;
+      watermark = newest[0];
+      lastRebuildNanos = System.nanoTime();
+      ready = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info("notes.index.rebuild notes={} tookMs={}", fresh.byId.size(), (System.nanoTime() - started) / 1_000_000L);
+  }
+
+  private IndexedNote load(UUID noteId) {
+    return jdbc.query(
+      "SELECT id, name, image_url, usage_count FROM note_dictionary WHERE id = ?",
+      rs -> rs.next() ? indexed(rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3), rs.getInt(4)) : null,
+      noteId
+    );
+  }
+
+  // Matching uses the normalized display name, as the database-backed lookups always have.
+  private static IndexedNote indexed(UUID id, String name, String imageUrl, int usageCount) {
+    return new IndexedNote(id, name, NoteService.normalize(name), imageUrl, usageCount);
+  }
+
+  private static List<IndexedNote> top(Iterable<IndexedNote> notes, int limit) {
+    PriorityQueue<IndexedNote> worstFirst = new PriorityQueue<>(BY_USAGE_THEN_NAME.reversed());
+    for (IndexedNote note : notes) {
+      worstFirst.offer(note);
+      if (worstFirst.size() > limit) worstFirst.poll();
+    }
+    List<IndexedNote> out = new ArrayList<>(worstFirst);
+    out.sort(BY_USAGE_THEN_NAME);
+    return out;
+  }
+
+  static int levenshtein(String a, String b) {
+    int[] prev = new int[b.length() + 1];
+    int[] curr = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) prev[j] = j;
+
+    for (int i = 1; i <= a.length(); i++) {
+      curr[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        curr[j] = Math.min(
+          Math.min(curr[j - 1] + 1, prev[j] + 1),
+          prev[j - 1] + cost
+        );
+      }
+      int[] tmp = prev;
+      prev = curr;
+      curr = tmp;
+    }
+    return prev[b.length()];
+  }
+
+  // Shared by the prefix map, the trigram lists and the BK-tree; removal and renames leave a tombstone
+  // until the next rebuild.
+  private static final class Slot {
+    private IndexedNote note;
+    private boolean removed;
+
+    Slot(IndexedNote note) {
+      this.note = note;
+    }
+  }
+
+  private static final class Dictionary {
+    private final Map<UUID, Slot> byId = new HashMap<>();
+    private final TreeMap<String, List<Slot>> wordStarts = new TreeMap<>();
+    private final Map<String, List<Slot>> grams = new HashMap<>();
+    private final BkTree fuzzy = new BkTree();
+
+    // Every note containing the query contains each of its trigrams, so the shortest list is a superset.
+    List<Slot> rarestGramPostings(String query) {
+      List<Slot> best = null;
+      for (int i = 0; i + GRAM <= query.length(); i++) {
+        List<Slot> postings = grams.get(query.substring(i, i + GRAM));
+        if (postings == null) return List.of();
+        if (best == null || postings.size() < best.size()) best = postings;
+      }
+      return best == null ? List.of() : best;
+    }
+
+    void upsert(IndexedNote note) {
+      Slot existing = byId.get(note.id());
+      if (existing != null && existing.note.normalizedName().equals(note.normalizedName())) {
+        existing.note = note;
+        return;
+      }
+      if (existing != null) existing.removed = true;
+      if (note.normalizedName().isEmpty()) {
+        byId.remove(note.id());
+        return;
+      }
+      Slot slot = new Slot(note);
+      byId.put(note.id(), slot);
+      String normalized = note.normalizedName();
+      for (int i = 0; i < normalized.length(); i++) {
+        if (i == 0 || normalized.charAt(i - 1) == ' ') {
+          wordStarts.computeIfAbsent(normalized.substring(i), k -> new ArrayList<>(1)).add(slot);
+        }
+      }
+      Set<String> seen = new HashSet<>();
+      for (int i = 0; i + GRAM <= normalized.length(); i++) {
+        String gram = normalized.substring(i, i + GRAM);
+        if (seen.add(gram)) grams.computeIfAbsent(gram, k -> new ArrayList<>(1)).add(slot);
+      }
+      fuzzy.add(slot);
+    }
+
+    void adjustUsage(UUID id, int delta) {
+      Slot slot = byId.get(id);
+      if (slot == null || delta == 0) return;
+      IndexedNote n = slot.note;
+      slot.note = new IndexedNote(n.id(), n.name(), n.normalizedName(), n.imageUrl(), Math.max(0, n.usageCount() + delta));
+    }
+
+    void remove(UUID id) {
+      Slot slot = byId.remove(id);
+      if (slot != null) slot.removed = true;
+    }
+  }
+
+  private static final class BkTree {
+    private BkNode root;
+
+    void add(Slot slot) {
+      String term = slot.note.normalizedName();
+      if (root == null) {
+        root = new BkNode(term, slot);
+        return;
+      }
+      BkNode node = root;
+      while (true) {
+        int distance = levenshtein(term, node.term);
+        if (distance == 0) {
+          node.slots.add(slot);
+          return;
+        }
+        BkNode child = node.children.get(distance);
+        if (child == null) {
+          node.children.put(distance, new BkNode(term, slot));
+          return;
+        }
+        node = child;
+      }
+    }
+
+    void search(String term, int maxDistance, List<FuzzyMatch> out) {
+      if (root == null) return;
+      Deque<BkNode> stack = new ArrayDeque<>();
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        BkNode node = stack.pop();
+        int distance = levenshtein(term, node.term);
+        if (distance <= maxDistance) {
+          for (Slot slot : node.slots) {
+            if (!slot.removed) out.add(new FuzzyMatch(slot.note, distance));
+          }
+        }
+        for (int d = Math.max(1, distance - maxDistance); d <= distance + maxDistance; d++) {
+          BkNode child = node.children.get(d);
+          if (child != null) stack.push(child);
+        }
+      }
+    }
+  }
+
+  private static final class BkNode {
+    private final String term;
+    private final List<Slot> slots = new ArrayList<>(1);
+    private final Map<Integer, BkNode> children = new HashMap<>(4);
+
+    BkNode(String term, Slot slot) {
+      this.term = term;
+      this.slots.add(slot);
+    }
+  }
+}
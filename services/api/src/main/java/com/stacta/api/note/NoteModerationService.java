@@ -1,5 +1,6 @@
 package com.stacta.api.note;
 
+import com.stacta.api.fragrance.MergeJobService;
 import com.stacta.api.note.dto.NoteReportItemDto;
 import com.stacta.api.note.dto.NoteReportOffenderItemDto;
 import com.stacta.api.note.dto.ResolveNoteReportRequest;
@@ -23,11 +24,13 @@ public class NoteModerationService {
   private final JdbcTemplate jdbc;
   private final UserRepository users;
   private final NoteRepository notes;
+  private final MergeJobService mergeJobs;
 
-  public NoteModerationService(JdbcTemplate jdbc, UserRepository users, NoteRepository notes) {
+  public NoteModerationService(JdbcTemplate jdbc, UserRepository users, NoteRepository notes, MergeJobService mergeJobs) {
     this.jdbc = jdbc;
     this.users = users;
     this.notes = notes;
+    this.mergeJobs = mergeJobs;
   }
 
   @Transactional
@@ -271,32 +274,12 @@ public class NoteModerationService {
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Target note was not found.");
     }
 
-    jdbc.update(
-      """
-      INSERT INTO fragrance_note (fragrance_id, note_id, note_category, display_order)
-      SELECT fragrance_id, ?, note_category, display_order
-      FROM fragrance_note
-      WHERE note_id = ?
-      ON CONFLICT DO NOTHING
-      """,
-      targetNoteId,
-      sourceNoteId
-    );
-    jdbc.update("DELETE FROM fragrance_note WHERE note_id = ?", sourceNoteId);
-    jdbc.update("UPDATE user_custom_note_creation_event SET note_id = ? WHERE note_id = ?", targetNoteId, sourceNoteId);
-
-    recountUsage(targetNoteId);
-    recountUsage(sourceNoteId);
-
-    jdbc.update(
-      """
-      DELETE FROM note_dictionary n
-      WHERE n.id = ?
-        AND NOT EXISTS (
-          SELECT 1 FROM fragrance_note fn WHERE fn.note_id = n.id
-        )
-      """,
-      sourceNoteId
+    // Rewriting every fragrance that carries a popular note can take a while; the merge job does it in
+    // chunks and deletes the source note once nothing points at it any more.
+    mergeJobs.enqueue(
+      MergeJobService.Kind.NOTE,
+      List.of(new MergeJobService.Mapping(sourceNoteId, targetNoteId)),
+      admin.getId()
     );
 
     jdbc.update(
@@ -317,22 +300,6 @@ public class NoteModerationService {
     );
   }
 
-  private void recountUsage(UUID noteId) {
-    if (noteId == null) return;
-    jdbc.update(
-      """
-      UPDATE note_dictionary n
-      SET usage_count = COALESCE((
-        SELECT COUNT(*)
-        FROM fragrance_note fn
-        WHERE fn.note_id = n.id
-      ), 0)
-      WHERE n.id = ?
-      """,
-      noteId
-    );
-  }
-
   private User requireUser(String sub) {
     return users.findByCognitoSub(sub)
       .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not onboarded."));
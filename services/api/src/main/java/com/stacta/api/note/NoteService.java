@@ -2,16 +2,24 @@ package com.stacta.api.note;
 
 import com.stacta.api.integrations.fragella.FragellaDtos;
 import com.stacta.api.note.dto.NoteDto;
+import com.stacta.api.note.dto.NotePairingDto;
+import com.stacta.api.note.dto.PyramidSuggestionsResponse;
+import com.stacta.api.ratelimit.RateLimiter;
+import com.stacta.api.text.Canonical;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.text.Normalizer;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -20,18 +28,40 @@ public class NoteService {
 
   private final NoteRepository notes;
   private final JdbcTemplate jdbc;
+  private final NoteDictionaryIndex index;
+  private final ApplicationEventPublisher events;
+  private final RateLimiter rateLimiter;
+  private final NoteCooccurrenceGraph pairings;
   private static final Pattern ALLOWED_NOTE_PATTERN =
     Pattern.compile("^[A-Za-z0-9][A-Za-z0-9 '&/().,\\-]{1,79}$");
-  private static final int MAX_NEW_CUSTOM_NOTES_PER_MINUTE = 3;
-  private static final int MAX_NEW_CUSTOM_NOTES_PER_DAY = 25;
+  // Fixed windows, not token buckets: a bucket would let a user create about 5 a minute and 49 in the
+  // first day (its burst plus the refill); these stay at 3 and 25 per window.
+  private static final RateLimiter.Limit NEW_CUSTOM_NOTES_PER_MINUTE = RateLimiter.Limit.fixedWindow(3, Duration.ofMinutes(1));
+  private static final RateLimiter.Limit NEW_CUSTOM_NOTES_PER_DAY = RateLimiter.Limit.fixedWindow(25, Duration.ofDays(1));
+  private static final String CREATE_DAY_BUCKET = "notes.create.day";
+  private static final List<RateLimiter.Request> CREATE_LIMITS = List.of(
+    new RateLimiter.Request("notes.create.minute", NEW_CUSTOM_NOTES_PER_MINUTE),
+    new RateLimiter.Request(CREATE_DAY_BUCKET, NEW_CUSTOM_NOTES_PER_DAY)
+  );
   private static final Set<String> BLOCKED_TERMS = Set.of(
     "penis", "dick", "cock", "tit", "tits", "boob", "boobs",
     "pussy", "cum", "semen", "fuck", "fucking", "shit", "bitch", "asshole"
   );
 
-  public NoteService(NoteRepository notes, JdbcTemplate jdbc) {
+  public NoteService(
+    NoteRepository notes,
+    JdbcTemplate jdbc,
+    NoteDictionaryIndex index,
+    ApplicationEventPublisher events,
+    RateLimiter rateLimiter,
+    NoteCooccurrenceGraph pairings
+  ) {
     this.notes = notes;
     this.jdbc = jdbc;
+    this.index = index;
+    this.events = events;
+    this.rateLimiter = rateLimiter;
+    this.pairings = pairings;
   }
 
   public List<NoteDto> search(String q, int limit) {
@@ -39,6 +69,13 @@ public class NoteService {
     String needle = q == null ? "" : q.trim();
     if (needle.isBlank()) return List.of();
 
+    if (index.isReady()) {
+      String normalized = normalize(needle);
+      if (normalized.isBlank()) return List.of();
+      return index.autocomplete(normalized, safe).stream()
+        .map(n -> new NoteDto(n.id(), n.name(), n.imageUrl(), n.usageCount()))
+        .toList();
+    }
     return notes.searchByNameContains(
         needle, PageRequest.of(0, safe)
       )
@@ -54,12 +91,35 @@ public class NoteService {
       .toList();
   }
 
+  /** Notes that pair well with the given one, optionally only where the partner sits at {@code level}. */
+  public List<NotePairingDto> pairsWith(UUID noteId, String level, int limit) {
+    int safe = Math.min(Math.max(limit, 1), 50);
+    Integer levelIndex = level == null || level.isBlank() ? null : parseLevel(level);
+    return toPairingDtos(pairings.pairsWith(noteId, levelIndex, safe));
+  }
+
+  /** Per-level suggestions for the notes already picked in a pyramid. */
+  public PyramidSuggestionsResponse completePyramid(List<UUID> top, List<UUID> middle, List<UUID> base, int limit) {
+    int safe = Math.min(Math.max(limit, 1), 30);
+    List<Set<UUID>> selected = List.of(idSet(top), idSet(middle), idSet(base));
+    if (selected.stream().allMatch(Set::isEmpty)) {
+      return new PyramidSuggestionsResponse(List.of(), List.of(), List.of());
+    }
+    var byLevel = pairings.completePyramid(selected, safe);
+    return new PyramidSuggestionsResponse(
+      toPairingDtos(byLevel.get(0)),
+      toPairingDtos(byLevel.get(1)),
+      toPairingDtos(byLevel.get(2))
+    );
+  }
+
   @Transactional
   public void incrementUsage(UUID noteId) {
     notes.findById(noteId).ifPresent(n -> {
       int next = (n.getUsageCount() == null ? 0 : n.getUsageCount()) + 1;
       n.setUsageCount(next);
       notes.save(n);
+      events.publishEvent(NoteDictionaryChangedEvent.usage(n.getId(), 1));
     });
   }
 
@@ -70,14 +130,19 @@ public class NoteService {
 
     var existing = notes.findByNormalizedName(normalized).orElse(null);
     if (existing != null) {
+      boolean changed = false;
       // Keep freshest imageUrl if we get one
       if ((existing.getImageUrl() == null || existing.getImageUrl().isBlank()) && imageUrl != null) {
         existing.setImageUrl(imageUrl);
+        changed = true;
       }
       if (existing.getName() == null || existing.getName().isBlank()) {
         existing.setName(name);
+        changed = true;
       }
-      return notes.save(existing);
+      NoteEntity saved = notes.save(existing);
+      if (changed) events.publishEvent(NoteDictionaryChangedEvent.saved(saved.getId()));
+      return saved;
     }
 
     var n = new NoteEntity();
@@ -85,7 +150,9 @@ public class NoteService {
     n.setNormalizedName(normalized);
     n.setImageUrl(imageUrl);
     n.setUsageCount(0);
-    return notes.save(n);
+    NoteEntity saved = notes.save(n);
+    events.publishEvent(NoteDictionaryChangedEvent.saved(saved.getId()));
+    return saved;
   }
 
   @Transactional
@@ -102,7 +169,7 @@ public class NoteService {
     var near = findNearDuplicate(normalized, cleaned);
     if (near != null) return near;
 
-    enforceCreateRateLimit(userId);
+    Runnable refundQuota = acquireCreateQuota(userId);
 
     var n = new NoteEntity();
     n.setName(cleaned);
@@ -116,7 +183,10 @@ public class NoteService {
     } catch (DataIntegrityViolationException e) {
       // Concurrent create can hit unique(normalized_name). Re-read and reuse.
       var existing = notes.findByNormalizedName(normalized).orElse(null);
-      if (existing != null) return existing;
+      if (existing != null) {
+        refundQuota.run();
+        return existing;
+      }
       throw e;
     }
     jdbc.update(
@@ -125,6 +195,7 @@ public class NoteService {
       saved.getId(),
       normalized
     );
+    events.publishEvent(NoteDictionaryChangedEvent.saved(saved.getId()));
     return saved;
   }
 
@@ -151,17 +222,41 @@ public class NoteService {
     }
   }
 
+  private List<NotePairingDto> toPairingDtos(List<NoteCooccurrenceGraph.Pairing> list) {
+    if (list == null || list.isEmpty()) return List.of();
+    Map<UUID, NoteEntity> byId = getByIds(list.stream().map(NoteCooccurrenceGraph.Pairing::noteId).toList());
+    List<NotePairingDto> out = new ArrayList<>(list.size());
+    for (var p : list) {
+      NoteEntity note = byId.get(p.noteId());
+      if (note != null) out.add(new NotePairingDto(toDto(note), p.together(), p.score()));
+    }
+    return out;
+  }
+
+  private static Integer parseLevel(String level) {
+    int index = NoteCooccurrenceGraph.LEVELS.indexOf(level.trim().toUpperCase(Locale.ROOT));
+    if (index < 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "level must be TOP, MIDDLE or BASE.");
+    }
+    return index;
+  }
+
+  private static Set<UUID> idSet(List<UUID> ids) {
+    if (ids == null || ids.isEmpty()) return Set.of();
+    Set<UUID> out = new LinkedHashSet<>();
+    for (UUID id : ids) {
+      if (id != null) out.add(id);
+      if (out.size() >= 30) break;
+    }
+    return out;
+  }
+
   private NoteDto toDto(NoteEntity e) {
     return new NoteDto(e.getId(), e.getName(), e.getImageUrl(), e.getUsageCount());
   }
 
   public static String normalize(String s) {
-    if (s == null) return "";
-    String t = s.trim().toLowerCase(Locale.ROOT);
-    t = Normalizer.normalize(t, Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
-    t = t.replaceAll("[^a-z0-9\\s-]", " ");
-    t = t.replaceAll("\\s+", " ").trim();
-    return t;
+    return Canonical.noteName(s);
   }
 
   private String sanitizeUserNoteName(String raw) {
@@ -193,6 +288,28 @@ public class NoteService {
   }
 
   private NoteEntity findNearDuplicate(String normalized, String cleaned) {
+    if (index.isReady()) {
+      // Every near match is within this many edits (similarity >= 0.88 allows up to 12% of the longer name).
+      int radius = Math.max(2, (int) Math.floor(normalized.length() * 0.12d / 0.88d + 1e-9));
+      UUID best = null;
+      int bestDistance = Integer.MAX_VALUE;
+      int bestUsage = -1;
+      for (var match : index.within(normalized, radius)) {
+        int distance = match.distance();
+        if (!isNear(normalized, match.note().normalizedName(), distance)) continue;
+        int usage = match.note().usageCount();
+        if (distance < bestDistance || (distance == bestDistance && usage > bestUsage)) {
+          best = match.note().id();
+          bestDistance = distance;
+          bestUsage = usage;
+        }
+      }
+      return best == null ? null : notes.findById(best).orElse(null);
+    }
+    return findNearDuplicateInDatabase(normalized, cleaned);
+  }
+
+  private NoteEntity findNearDuplicateInDatabase(String normalized, String cleaned) {
     Set<UUID> seen = new HashSet<>();
     List<NoteEntity> candidates = new ArrayList<>();
 
@@ -217,14 +334,8 @@ public class NoteService {
       String candidateNormalized = normalize(candidate.getName());
       if (candidateNormalized.isBlank()) continue;
 
-      int maxLen = Math.max(normalized.length(), candidateNormalized.length());
-      int distance = levenshtein(normalized, candidateNormalized);
-      double similarity = maxLen == 0 ? 1d : 1d - (distance / (double) maxLen);
-
-      boolean near = (maxLen <= 8 && distance <= 1)
-        || (maxLen > 8 && distance <= 2)
-        || similarity >= 0.88d;
-      if (!near) continue;
+      int distance = NoteDictionaryIndex.levenshtein(normalized, candidateNormalized);
+      if (!isNear(normalized, candidateNormalized, distance)) continue;
 
       int usage = candidate.getUsageCount() == null ? 0 : candidate.getUsageCount();
       if (distance < bestDistance || (distance == bestDistance && usage > bestUsage)) {
@@ -236,55 +347,43 @@ public class NoteService {
     return best;
   }
 
-  private void enforceCreateRateLimit(UUID userId) {
-    Integer minuteCount = jdbc.queryForObject(
-      """
-      SELECT COUNT(*)
-      FROM user_custom_note_creation_event
-      WHERE user_id = ?
-        AND created_at >= now() - interval '1 minute'
-      """,
-      Integer.class,
-      userId
-    );
-    if ((minuteCount == null ? 0 : minuteCount) >= MAX_NEW_CUSTOM_NOTES_PER_MINUTE) {
-      throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many custom notes. Try again in a minute.");
+  /**
+   * Takes the minute and day quota together (neither is spent when the other is exhausted) and
+   * returns the refund: it runs by itself if the transaction rolls back, and callers run it when the
+   * create resolves to an existing note. Running it twice gives back only once.
+   */
+  Runnable acquireCreateQuota(UUID userId) {
+    String caller = "user:" + userId;
+    var decision = rateLimiter.tryAcquireAll(caller, CREATE_LIMITS);
+    if (!decision.allowed()) {
+      throw new ResponseStatusException(
+        HttpStatus.TOO_MANY_REQUESTS,
+        CREATE_DAY_BUCKET.equals(decision.bucket())
+          ? "Custom note limit reached for today."
+          : "Too many custom notes. Try again in a minute."
+      );
     }
-
-    Integer dayCount = jdbc.queryForObject(
-      """
-      SELECT COUNT(*)
-      FROM user_custom_note_creation_event
-      WHERE user_id = ?
-        AND created_at >= now() - interval '1 day'
-      """,
-      Integer.class,
-      userId
-    );
-    if ((dayCount == null ? 0 : dayCount) >= MAX_NEW_CUSTOM_NOTES_PER_DAY) {
-      throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Custom note limit reached for today.");
+    AtomicBoolean refunded = new AtomicBoolean();
+    Runnable refund = () -> {
+      if (refunded.compareAndSet(false, true)) rateLimiter.release(caller, CREATE_LIMITS);
+    };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status != STATUS_COMMITTED) refund.run();
+        }
+      });
     }
+    return refund;
   }
 
-  private static int levenshtein(String a, String b) {
-    int[] prev = new int[b.length() + 1];
-    int[] curr = new int[b.length() + 1];
-    for (int j = 0; j <= b.length(); j++) prev[j] = j;
-
-    for (int i = 1; i <= a.length(); i++) {
-      curr[0] = i;
-      for (int j = 1; j <= b.length(); j++) {
-        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
-        curr[j] = Math.min(
-          Math.min(curr[j - 1] + 1, prev[j] + 1),
-          prev[j - 1] + cost
-        );
-      }
-      int[] tmp = prev;
-      prev = curr;
-      curr = tmp;
-    }
-    return prev[b.length()];
+  private static boolean isNear(String normalized, String candidateNormalized, int distance) {
+    int maxLen = Math.max(normalized.length(), candidateNormalized.length());
+    double similarity = maxLen == 0 ? 1d : 1d - (distance / (double) maxLen);
+    return (maxLen <= 8 && distance <= 1)
+      || (maxLen > 8 && distance <= 2)
+      || similarity >= 0.88d;
   }
 
   public Map<UUID, NoteEntity> getByIds(List<UUID> ids) {
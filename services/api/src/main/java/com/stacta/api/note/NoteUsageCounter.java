@@ -0,0 +1,136 @@
+package com.stacta.api.note;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies note_dictionary.usage_count changes as one aggregated statement per call instead of one
+ * UPDATE per junction row.
+ *
+ * With {@code app.notes.usage.write-behind} enabled, committed deltas are summed in memory and flushed
+ * on a fixed delay (and on shutdown), so concurrent writes touching popular notes stop contending for
+ * the same rows; counts can then lag by up to one flush interval, or lose that interval on a crash
+ * until moderation recounts the note. Either way the in-memory dictionary index sees the change at
+ * commit.
+ */
+@Service
+public class NoteUsageCounter {
+  private static final Logger log = LoggerFactory.getLogger(NoteUsageCounter.class);
+
+  private final JdbcTemplate jdbc;
+  private final ApplicationEventPublisher events;
+  private final boolean writeBehind;
+  private final ConcurrentHashMap<UUID, Integer> pending = new ConcurrentHashMap<>();
+
+  public NoteUsageCounter(
+    JdbcTemplate jdbc,
+    ApplicationEventPublisher events,
+    @Value("${app.notes.usage.write-behind:false}") boolean writeBehind
+  ) {
+    this.jdbc = jdbc;
+    this.events = events;
+    this.writeBehind = writeBehind;
+  }
+
+  /** Adds the summed deltas (note id to change) as part of the current transaction. */
+  public void add(Map<UUID, Integer> deltas) {
+    if (deltas == null || deltas.isEmpty()) return;
+    Map<UUID, Integer> nonZero = new HashMap<>();
+    deltas.forEach((noteId, delta) -> {
+      if (noteId != null && delta != null && delta != 0) nonZero.put(noteId, delta);
+    });
+    if (nonZero.isEmpty()) return;
+
+    nonZero.forEach((noteId, delta) -> events.publishEvent(NoteDictionaryChangedEvent.usage(noteId, delta)));
+    if (!writeBehind) {
+      apply(nonZero);
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          buffer(nonZero);
+        }
+      });
+    } else {
+      buffer(nonZero);
+    }
+  }
+
+  @Scheduled(
+    initialDelayString = "${app.notes.usage.flush-ms:5000}",
+    fixedDelayString = "${app.notes.usage.flush-ms:5000}"
+  )
+  @PreDestroy
+  public void flush() {
+    if (pending.isEmpty()) return;
+    Map<UUID, Integer> drained = new HashMap<>();
+    for (UUID noteId : new ArrayList<>(pending.keySet())) {
+      Integer delta = pending.remove(noteId);
+      if (delta != null && delta != 0) drained.put(noteId, delta);
+    }
+    if (drained.isEmpty()) return;
+    try {
+      int updated = apply(drained);
+      log.debug("notes.usage.flush notes={} updated={}", drained.size(), updated);
+    } catch (Exception e) {
+      log.warn("notes.usage.flush failed notes={}; retrying next flush", drained.size(), e);
+      buffer(drained);
+    }
+  }
+
+  private void buffer(Map<UUID, Integer> deltas) {
+    deltas.forEach((noteId, delta) -> pending.merge(noteId, delta, Integer::sum));
+  }
+
+  /**
+   * Locks the rows in id order before updating them. Two transactions touching overlapping notes then
+   * wait for each other instead of deadlocking, which an UPDATE over unnest() could do since it takes
+   * row locks in whatever order its join visits them.
+   */
+  private int apply(Map<UUID, Integer> deltas) {
+    // Postgres compares uuids bytewise, which matches their canonical text form, not UUID.compareTo.
+    List<UUID> ids = new ArrayList<>(deltas.keySet());
+    ids.sort(Comparator.comparing(UUID::toString));
+    Integer[] amounts = new Integer[ids.size()];
+    for (int i = 0; i < ids.size(); i++) amounts[i] = deltas.get(ids.get(i));
+    return jdbc.update(
+      """
+      WITH d AS (
+        SELECT * FROM unnest(?::uuid[], ?::int[]) AS d(id, delta)
+      ), locked AS MATERIALIZED (
+        SELECT n.id
+        FROM note_dictionary n
+        WHERE n.id IN (SELECT id FROM d)
+        ORDER BY n.id
+        FOR UPDATE
+      )
+      UPDATE note_dictionary n
+      SET usage_count = GREATEST(0, n.usage_count + d.delta)
+      FROM d
+      JOIN locked l ON l.id = d.id
+      WHERE n.id = d.id
+      """,
+      ps -> {
+        ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+        ps.setArray(2, ps.getConnection().createArrayOf("integer", amounts));
+      }
+    );
+  }
+}
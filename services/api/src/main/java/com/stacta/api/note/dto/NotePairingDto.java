@@ -0,0 +1,7 @@
+package com.stacta.api.note.dto;
+
+public record NotePairingDto(
+  NoteDto note,
+  int together,
+  double score
+) {}
@@ -0,0 +1,9 @@
+package com.stacta.api.note.dto;
+
+import java.util.List;
+
+public record PyramidSuggestionsResponse(
+  List<NotePairingDto> top,
+  List<NotePairingDto> middle,
+  List<NotePairingDto> base
+) {}
@@ -0,0 +1,120 @@
+package com.stacta.api.ratelimit;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-local GCRA buckets and fixed-window counters, used when Redis is unavailable (or configured
+ * off). A token bucket keeps only its theoretical arrival time, a window its count and end; the least
+ * recently used keys of each are dropped past {@code maxKeys}, which at worst hands an idle caller a
+ * fresh bucket.
+ */
+final class LocalTokenBuckets {
+  private final Map<String, Long> arrivals;
+  // Guarded by arrivals, like every other access.
+  private final Map<String, Window> windows;
+
+  private record Window(int count, long endsAtMillis) {}
+
+  LocalTokenBuckets(int maxKeys) {
+    int capacity = Math.max(1, maxKeys);
+    this.arrivals = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        return size() > capacity;
+      }
+    });
+    this.windows = new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /** {@code blockedIndex} is the position of the empty bucket, -1 when every token was taken. */
+  record Result(long waitMillis, int blockedIndex) {
+    static final Result ALLOWED = new Result(0, -1);
+
+    boolean allowed() {
+      return blockedIndex < 0;
+    }
+  }
+
+  /** Takes one token: returns 0 when allowed, otherwise the milliseconds until one is available. */
+  long tryAcquire(String key, RateLimiter.Limit limit, long nowMillis) {
+    return tryAcquireAll(List.of(key), List.of(limit), nowMillis).waitMillis();
+  }
+
+  /** Takes one token from each key, or none when any of them is empty (reporting the longest wait). */
+  Result tryAcquireAll(List<String> keys, List<RateLimiter.Limit> limits, long nowMillis) {
+    long[] next = new long[keys.size()];
+    long worst = 0;
+    int blocked = -1;
+    synchronized (arrivals) {
+      for (int i = 0; i < keys.size(); i++) {
+        RateLimiter.Limit limit = limits.get(i);
+        long wait;
+        if (limit.kind() == RateLimiter.Kind.FIXED_WINDOW) {
+          Window window = openWindow(keys.get(i), nowMillis);
+          wait = window != null && window.count() >= limit.capacity() ? window.endsAtMillis() - nowMillis : 0;
+        } else {
+          long interval = limit.intervalMillis();
+          Long stored = arrivals.get(keys.get(i));
+          long tat = stored == null ? nowMillis : Math.max(stored, nowMillis);
+          next[i] = tat + interval;
+          wait = next[i] - interval * limit.capacity() - nowMillis;
+        }
+        if (wait > worst) {
+          worst = wait;
+          blocked = i;
+        }
+      }
+      if (blocked >= 0) return new Result(worst, blocked);
+      for (int i = 0; i < keys.size(); i++) {
+        if (limits.get(i).kind() == RateLimiter.Kind.FIXED_WINDOW) {
+          Window window = openWindow(keys.get(i), nowMillis);
+          windows.put(keys.get(i), window == null
+            ? new Window(1, nowMillis + limits.get(i).window().toMillis())
+            : new Window(window.count() + 1, window.endsAtMillis()));
+        } else {
+          arrivals.put(keys.get(i), next[i]);
+        }
+      }
+      return Result.ALLOWED;
+    }
+  }
+
+  /** Gives one token back to each key; a bucket never refills past its capacity. */
+  void release(List<String> keys, List<RateLimiter.Limit> limits, long nowMillis) {
+    synchronized (arrivals) {
+      for (int i = 0; i < keys.size(); i++) {
+        if (limits.get(i).kind() == RateLimiter.Kind.FIXED_WINDOW) {
+          Window window = openWindow(keys.get(i), nowMillis);
+          if (window == null || window.count() <= 1) windows.remove(keys.get(i));
+          else windows.put(keys.get(i), new Window(window.count() - 1, window.endsAtMillis()));
+          continue;
+        }
+        Long stored = arrivals.get(keys.get(i));
+        if (stored == null) continue;
+        long back = stored - limits.get(i).intervalMillis();
+        if (back <= nowMillis) arrivals.remove(keys.get(i));
+        else arrivals.put(keys.get(i), back);
+      }
+    }
+  }
+
+  int size() {
+    synchronized (arrivals) {
+      return arrivals.size() + windows.size();
+    }
+  }
+
+  /** The key's current window, null once it has ended. */
+  private Window openWindow(String key, long nowMillis) {
+    Window window = windows.get(key);
+    return window == null || window.endsAtMillis() <= nowMillis ? null : window;
+  }
+}
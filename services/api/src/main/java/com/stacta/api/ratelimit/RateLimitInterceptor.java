@@ -0,0 +1,49 @@
+package com.stacta.api.ratelimit;
+
+import com.stacta.api.config.ApiException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/** Enforces {@link RateLimited} on handler methods; over-limit calls get 429 with Retry-After. */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+  private final RateLimiter limiter;
+
+  public RateLimitInterceptor(RateLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (!(handler instanceof HandlerMethod method)) return true;
+    RateLimited limited = method.getMethodAnnotation(RateLimited.class);
+    if (limited == null) return true;
+
+    RateLimiter.Decision decision = limiter.tryAcquire(
+      limited.value(),
+      caller(request),
+      new RateLimiter.Limit(limited.capacity(), Duration.ofSeconds(limited.windowSeconds()))
+    );
+    if (decision.allowed()) return true;
+
+    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (decision.retryAfterMillis() + 999) / 1000)));
+    throw new ApiException("RATE_LIMITED");
+  }
+
+  private static String caller(HttpServletRequest request) {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+      return "user:" + auth.getName();
+    }
+    return "ip:" + request.getRemoteAddr();
+  }
+}
@@ -0,0 +1,17 @@
+package com.stacta.api.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "app.rate-limits")
+public record RateLimitProperties(
+  @DefaultValue("true") boolean enabled,
+  @DefaultValue("redis") String backend,
+  @DefaultValue("30s") Duration redisRetry,
+  @DefaultValue("100000") int localMaxKeys,
+  Map<String, Bucket> buckets
+) {
+  public record Bucket(Integer capacity, Duration window) {}
+}
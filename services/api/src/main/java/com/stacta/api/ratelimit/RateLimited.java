@@ -0,0 +1,23 @@
+package com.stacta.api.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Throttles a handler per caller (the authenticated user, else the client address). Routes sharing a
+ * bucket name share one budget. The defaults here can be overridden under
+ * {@code app.rate-limits.buckets.<name>}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+  /** Bucket name. */
+  String value();
+
+  /** Requests allowed back to back, and per {@link #windowSeconds()} on average. */
+  int capacity() default 30;
+
+  int windowSeconds() default 60;
+}
@@ -0,0 +1,254 @@
+package com.stacta.api.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets (GCRA: one timestamp per bucket and caller) for throttling writes without touching
+ * Postgres. A {@link Limit#fixedWindow} bucket is a counter instead (INCR, expiring one window after
+ * the first hit), for quotas that must never admit more than {@code capacity} per window; a token
+ * bucket admits up to twice its capacity in the first window (the burst plus the refill).
+ *
+ * Buckets live in Redis so every instance shares them; the check is a single script call using Redis
+ * time. Several buckets can be taken together, all or nothing, and a token can be given back when the
+ * write it guarded did not happen. If Redis fails, this instance limits from {@link LocalTokenBuckets} and retries Redis after
+ * {@code app.rate-limits.redis-retry}. Decisions are counted as
+ * {@code ratelimit.requests{bucket, result=allowed|limited}} and fallbacks as
+ * {@code ratelimit.redis.fallback}.
+ */
+@Component
+public class RateLimiter {
+  private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+  private static final String KEY_PREFIX = "stacta:rl:";
+  private static final Decision ALLOWED = new Decision(true, 0, null);
+
+  // KEYS[i] = bucket key; ARGV[3i-2] = 'gcra' or 'window'; ARGV[3i-1] = emission interval (gcra) or
+  // window length (window), in ms; ARGV[3i] = capacity.
+  // Returns {wait ms, 1-based index of the bucket that is empty}; {0, 0} when every token was taken.
+  @SuppressWarnings("rawtypes")
+  static final RedisScript<List> ACQUIRE = RedisScript.of(
+    """
+    local t = redis.call('TIME')
+    local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+    local nextTats = {}
+    local worst, blocked = 0, 0
+    for i, key in ipairs(KEYS) do
+      local span = tonumber(ARGV[3 * i - 1])
+      local capacity = tonumber(ARGV[3 * i])
+      local wait = 0
+      if ARGV[3 * i - 2] == 'window' then
+        if tonumber(redis.call('GET', key) or 0) >= capacity then
+          wait = redis.call('PTTL', key)
+          if wait < 0 then
+            redis.call('PEXPIRE', key, span)
+            wait = span
+          end
+        end
+      else
+        local tat = tonumber(redis.call('GET', key) or now)
+        if tat < now then tat = now end
+        nextTats[i] = tat + span
+        wait = nextTats[i] - span * capacity - now
+      end
+      if wait > worst then worst, blocked = wait, i end
+    end
+    if blocked > 0 then return {worst, blocked} end
+    for i, key in ipairs(KEYS) do
+      if ARGV[3 * i - 2] == 'window' then
+        if redis.call('INCR', key) == 1 then redis.call('PEXPIRE', key, ARGV[3 * i - 1]) end
+      else
+        redis.call('SET', key, nextTats[i], 'PX', math.max(1, nextTats[i] - now))
+      end
+    end
+    return {0, 0}
+    """,
+    List.class
+  );
+
+  // KEYS[i] = bucket key; ARGV[2i-1] = 'gcra' or 'window'; ARGV[2i] = emission interval (ms).
+  // Moves each arrival time back one interval, or takes one off each window count.
+  static final RedisScript<Long> RELEASE = RedisScript.of(
+    """
+    local t = redis.call('TIME')
+    local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+    for i, key in ipairs(KEYS) do
+      if ARGV[2 * i - 1] == 'window' then
+        if tonumber(redis.call('GET', key) or 0) > 0 then redis.call('DECR', key) end
+      else
+        local tat = tonumber(redis.call('GET', key) or 0)
+        local back = tat - tonumber(ARGV[2 * i])
+        if back <= now then redis.call('DEL', key) else redis.call('SET', key, back, 'PX', back - now) end
+      end
+    end
+    return 0
+    """,
+    Long.class
+  );
+
+  private final StringRedisTemplate redis;
+  private final RateLimitProperties props;
+  private final LocalTokenBuckets local;
+  private final MeterRegistry meters;
+  private final Counter fallbacks;
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private final boolean useRedis;
+  private volatile long redisRetryAtNanos;
+
+  public enum Kind { TOKEN_BUCKET, FIXED_WINDOW }
+
+  public record Limit(int capacity, Duration window, Kind kind) {
+    public Limit {
+      capacity = Math.max(1, capacity);
+      window = window == null || window.isNegative() || window.isZero() ? Duration.ofMinutes(1) : window;
+      kind = kind == null ? Kind.TOKEN_BUCKET : kind;
+    }
+
+    public Limit(int capacity, Duration window) {
+      this(capacity, window, Kind.TOKEN_BUCKET);
+    }
+
+    /** At most {@code capacity} per window, the window starting at the first hit after the last one ended. */
+    public static Limit fixedWindow(int capacity, Duration window) {
+      return new Limit(capacity, window, Kind.FIXED_WINDOW);
+    }
+
+    long intervalMillis() {
+      return Math.max(1L, window.toMillis() / capacity);
+    }
+  }
+
+  /** One bucket to take from; the configured limit for {@code bucket} wins over {@code defaults}. */
+  public record Request(String bucket, Limit defaults) {}
+
+  /** {@code bucket} names the bucket that was empty when the call was limited, null when allowed. */
+  public record Decision(boolean allowed, long retryAfterMillis, String bucket) {}
+
+  public RateLimiter(StringRedisTemplate redis, RateLimitProperties props, MeterRegistry meters) {
+    this.redis = redis;
+    this.props = props;
+    this.local = new LocalTokenBuckets(props.localMaxKeys());
+    this.meters = meters;
+    this.useRedis = !"memory".equalsIgnoreCase(props.backend());
+    this.redisRetryAtNanos = System.nanoTime();
+    this.fallbacks = Counter.builder("ratelimit.redis.fallback").register(meters);
+    Gauge.builder("ratelimit.local.keys", local, LocalTokenBuckets::size).register(meters);
+  }
+
+  /**
+   * Takes a token from {@code bucket} for {@code caller}. The configured limit for the bucket wins
+   * over {@code defaults}.
+   */
+  public Decision tryAcquire(String bucket, String caller, Limit defaults) {
+    return tryAcquireAll(caller, List.of(new Request(bucket, defaults)));
+  }
+
+  /**
+   * Takes a token from every bucket for {@code caller}, or from none: when one is empty nothing is
+   * consumed, so a short window cannot be drained by calls that a longer window then rejects.
+   */
+  public Decision tryAcquireAll(String caller, List<Request> requests) {
+    if (!props.enabled() || requests.isEmpty()) return ALLOWED;
+    List<String> keys = keys(caller, requests);
+    List<Limit> limits = limits(requests);
+    LocalTokenBuckets.Result result = shouldTryRedis()
+      ? acquireRemote(keys, limits)
+      : local.tryAcquireAll(keys, limits, System.currentTimeMillis());
+    if (result.allowed()) {
+      for (Request request : requests) counter(request.bucket(), "allowed").increment();
+      return ALLOWED;
+    }
+    String bucket = requests.get(result.blockedIndex()).bucket();
+    counter(bucket, "limited").increment();
+    return new Decision(false, result.waitMillis(), bucket);
+  }
+
+  /**
+   * Gives back the tokens an allowed {@link #tryAcquireAll} took, for when the write they guarded
+   * failed or turned out to be a no-op. Best effort: a failure only leaves the tokens spent.
+   */
+  public void release(String caller, List<Request> requests) {
+    if (!props.enabled() || requests.isEmpty()) return;
+    List<String> keys = keys(caller, requests);
+    List<Limit> limits = limits(requests);
+    if (shouldTryRedis()) {
+      try {
+        Object[] args = new Object[limits.size() * 2];
+        for (int i = 0; i < limits.size(); i++) {
+          args[2 * i] = scriptKind(limits.get(i));
+          args[2 * i + 1] = String.valueOf(limits.get(i).intervalMillis());
+        }
+        redis.execute(RELEASE, keys, args);
+        return;
+      } catch (Exception e) {
+        log.warn("ratelimit.redis release failed: {}", e.toString());
+      }
+    }
+    local.release(keys, limits, System.currentTimeMillis());
+  }
+
+  private List<String> keys(String caller, List<Request> requests) {
+    return requests.stream().map(request -> KEY_PREFIX + request.bucket() + ":" + caller).toList();
+  }
+
+  private List<Limit> limits(List<Request> requests) {
+    return requests.stream().map(request -> limitFor(request.bucket(), request.defaults())).toList();
+  }
+
+  Limit limitFor(String bucket, Limit defaults) {
+    RateLimitProperties.Bucket configured = props.buckets() == null ? null : props.buckets().get(bucket);
+    if (configured == null) return defaults;
+    return new Limit(
+      configured.capacity() == null ? defaults.capacity() : configured.capacity(),
+      configured.window() == null ? defaults.window() : configured.window(),
+      defaults.kind()
+    );
+  }
+
+  private boolean shouldTryRedis() {
+    return useRedis && System.nanoTime() - redisRetryAtNanos >= 0;
+  }
+
+  private LocalTokenBuckets.Result acquireRemote(List<String> keys, List<Limit> limits) {
+    Object[] args = new Object[limits.size() * 3];
+    for (int i = 0; i < limits.size(); i++) {
+      Limit limit = limits.get(i);
+      args[3 * i] = scriptKind(limit);
+      args[3 * i + 1] = String.valueOf(limit.kind() == Kind.FIXED_WINDOW ? limit.window().toMillis() : limit.intervalMillis());
+      args[3 * i + 2] = String.valueOf(limit.capacity());
+    }
+    try {
+      List<?> out = redis.execute(ACQUIRE, keys, args);
+      if (out != null && out.size() == 2 && out.get(0) instanceof Number wait && out.get(1) instanceof Number blocked) {
+        return wait.longValue() <= 0
+          ? LocalTokenBuckets.Result.ALLOWED
+          : new LocalTokenBuckets.Result(wait.longValue(), blocked.intValue() - 1);
+      }
+      throw new IllegalStateException("unexpected rate limit script result: " + out);
+    } catch (Exception e) {
+      redisRetryAtNanos = System.nanoTime() + props.redisRetry().toNanos();
+      fallbacks.increment();
+      log.warn("ratelimit.redis unavailable; limiting locally for {}s: {}", props.redisRetry().toSeconds(), e.toString());
+      return local.tryAcquireAll(keys, limits, System.currentTimeMillis());
+    }
+  }
+
+  private static String scriptKind(Limit limit) {
+    return limit.kind() == Kind.FIXED_WINDOW ? "window" : "gcra";
+  }
+
+  private Counter counter(String bucket, String result) {
+    return counters.computeIfAbsent(bucket + "|" + result, k ->
+      Counter.builder("ratelimit.requests").tag("bucket", bucket).tag("result", result).register(meters)
+    );
+  }
+}
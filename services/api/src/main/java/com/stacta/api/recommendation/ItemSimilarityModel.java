@@ -0,0 +1,629 @@
+package com.stacta.api.recommendation;
+
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Item-item collaborative filtering over what users keep, want and rate.
+ *
+ * Every user is a sparse vector over fragrances (see {@link #weight}); two fragrances are similar by
+ * the cosine of their columns, i.e. by how much the same people hold both. Training streams all
+ * interactions, splits the users into partitions that a fork-join pool turns into partial pair sums,
+ * merges those, and keeps the best {@code app.recommendations.neighbours} neighbours per fragrance
+ * among pairs shared by at least {@code app.recommendations.min-support} users. Pair sums live in
+ * primitive open-addressed tables, capped at {@code app.recommendations.max-pairs}; pairs first seen
+ * past the cap are dropped and counted in the log.
+ *
+ * Only one instance trains. Every {@code app.recommendations.poll-ms} each instance tries to lease the
+ * single {@code item_similarity_model} row once the stored model is older than
+ * {@code app.recommendations.train-ms}; the winner trains and stores the neighbour lists there, and
+ * the others load them when trained_at moves. The model is immutable and swapped in whole, so scoring
+ * never blocks on training or loading; until the first model arrives {@link #isReady()} is false.
+ *
+ * Community fragrances are only kept while public; one made private after a run can still be
+ * suggested until the next run.
+ */
+@Component
+public class ItemSimilarityModel {
+  private static final Logger log = LoggerFactory.getLogger(ItemSimilarityModel.class);
+
+  // Power users would otherwise add n^2 pairs each and dominate every similarity they touch.
+  static final int MAX_ITEMS_PER_USER = 200;
+  private static final int USERS_PER_TASK = 256;
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String INTERACTIONS = """
+    SELECT c.user_id, c.fragrance_source, c.fragrance_external_id, 'COLLECTION' AS kind, NULL::numeric AS rating,
+           c.fragrance_name, c.fragrance_brand, c.fragrance_image_url
+    FROM user_collection_item c
+    %1$s
+    UNION ALL
+    SELECT c.user_id, c.fragrance_source, c.fragrance_external_id, 'TOP', NULL, NULL, NULL, NULL
+    FROM user_top_fragrance t
+    JOIN user_collection_item c ON c.id = t.user_collection_item_id
+    %1$s
+    UNION ALL
+    SELECT c.user_id, c.fragrance_source, c.fragrance_external_id, 'WISHLIST', NULL,
+           c.fragrance_name, c.fragrance_brand, c.fragrance_image_url
+    FROM user_wishlist_item c
+    %1$s
+    UNION ALL
+    SELECT c.user_id, c.external_source, c.external_id, 'RATING', c.rating, NULL, NULL, NULL
+    FROM fragrance_rating c
+    %1$s
+    """;
+
+  private final JdbcTemplate jdbc;
+  private final int neighbours;
+  private final int minSupport;
+  private final int maxPairs;
+  private final long trainSeconds;
+  private final long leaseSeconds;
+  private final ForkJoinPool pool;
+
+  private volatile Trained model = Trained.EMPTY;
+
+  public ItemSimilarityModel(
+    JdbcTemplate jdbc,
+    @Value("${app.recommendations.neighbours:50}") int neighbours,
+    @Value("${app.recommendations.min-support:2}") int minSupport,
+    @Value("${app.recommendations.max-pairs:5000000}") int maxPairs,
+    @Value("${app.recommendations.parallelism:0}") int parallelism,
+    @Value("${app.recommendations.train-ms:3600000}") long trainMs,
+    @Value("${app.recommendations.lease-seconds:1800}") long leaseSeconds
+  ) {
+    this.jdbc = jdbc;
+    this.neighbours = Math.max(1, neighbours);
+    this.minSupport = Math.max(1, minSupport);
+    this.maxPairs = Math.max(1, maxPairs);
+    this.trainSeconds = Duration.ofMillis(Math.max(60_000, trainMs)).toSeconds();
+    this.leaseSeconds = Math.max(60, leaseSeconds);
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+  }
+
+  /** Source upper-cased as collections store it. */
+  public record ItemKey(String source, String externalId) {
+    public static ItemKey of(String source, String externalId) {
+      return new ItemKey(source == null ? "" : source.trim().toUpperCase(Locale.ROOT), externalId);
+    }
+  }
+
+  /** Display fields copied from the collection or wishlist rows that mention the fragrance. */
+  public record ItemMeta(String name, String brand, String imageUrl) {}
+
+  public boolean isReady() {
+    return model != Trained.EMPTY;
+  }
+
+  /** Changes whenever a new model is swapped in, so per-user results can tell they are outdated. */
+  public Instant trainedAt() {
+    return model.trainedAt();
+  }
+
+  public ItemMeta meta(ItemKey item) {
+    Trained m = model;
+    Integer ordinal = m.ordinals().get(item);
+    return ordinal == null ? null : m.meta()[ordinal];
+  }
+
+  /** One user's interaction weights, read straight from the database. */
+  public Map<ItemKey, Double> profile(UUID userId) {
+    Map<ItemKey, Signals> signals = new LinkedHashMap<>();
+    jdbc.query(
+      INTERACTIONS.formatted("WHERE c.user_id = ?"),
+      rs -> {
+        ItemKey item = ItemKey.of(rs.getString(2), rs.getString(3));
+        signals.computeIfAbsent(item, k -> new Signals()).add(rs.getString(4), rs.getBigDecimal(5));
+      },
+      userId, userId, userId, userId
+    );
+    Map<ItemKey, Double> out = new LinkedHashMap<>();
+    signals.forEach((item, s) -> out.put(item, s.weight()));
+    return out;
+  }
+
+  /**
+   * Collaborative score of every neighbour of the user's positively weighted fragrances: the sum of
+   * weight times similarity. Fragrances already in the profile are left in; callers filter them.
+   */
+  public Map<ItemKey, Double> score(Map<ItemKey, Double> profile) {
+    Trained m = model;
+    Map<ItemKey, Double> out = new HashMap<>();
+    profile.forEach((item, weight) -> {
+      Integer ordinal = m.ordinals().get(item);
+      if (ordinal == null || weight <= 0) return;
+      int[] ids = m.neighbours()[ordinal];
+      float[] sims = m.similarities()[ordinal];
+      for (int i = 0; i < ids.length; i++) {
+        out.merge(m.items().get(ids[i]), weight * sims[i], Double::sum);
+      }
+    });
+    return out;
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.recommendations.initial-delay-ms:0}",
+    fixedDelayString = "${app.recommendations.poll-ms:300000}"
+  )
+  public void sync() {
+    try {
+      if (claimTraining()) {
+        train();
+      } else {
+        load();
+      }
+    } catch (Exception e) {
+      log.warn("recommendations.sync failed; keeping current model (ready={})", isReady(), e);
+    }
+  }
+
+  /** Leases the model row when it is due for training and nobody else holds it. */
+  private boolean claimTraining() {
+    return !jdbc.queryForList(
+      """
+      UPDATE item_similarity_model
+      SET lease_until = now() + make_interval(secs => ?)
+      WHERE id = 1
+        AND trained_at < now() - make_interval(secs => ?)
+        AND (lease_until IS NULL OR lease_until < now())
+      RETURNING 1
+      """,
+      Integer.class,
+      leaseSeconds,
+      trainSeconds
+    ).isEmpty();
+  }
+
+  /** Swaps in the stored model when another instance trained a newer one. */
+  private void load() {
+    Timestamp stored = jdbc.query(
+      "SELECT trained_at FROM item_similarity_model WHERE id = 1 AND model IS NOT NULL",
+      rs -> rs.next() ? rs.getTimestamp(1) : null
+    );
+    if (stored == null || stored.toInstant().equals(model.trainedAt())) return;
+    long started = System.nanoTime();
+    Trained loaded = jdbc.query(
+      "SELECT trained_at, model FROM item_similarity_model WHERE id = 1",
+      rs -> rs.next() ? decode(rs.getBytes(2), rs.getTimestamp(1).toInstant()) : null
+    );
+    if (loaded == null) return;
+    model = loaded;
+    log.info(
+      "recommendations.load fragrances={} trainedAt={} tookMs={}",
+      loaded.items().size(),
+      loaded.trainedAt(),
+      (System.nanoTime() - started) / 1_000_000L
+    );
+  }
+
+  private void train() {
+    long started = System.nanoTime();
+    Set<String> publicCommunity = new HashSet<>();
+    Map<ItemKey, Integer> ordinals = new HashMap<>();
+    List<ItemKey> items = new ArrayList<>();
+    List<ItemMeta> meta = new ArrayList<>();
+    List<UserVector> users = new ArrayList<>();
+    Trained trained;
+    byte[] encoded;
+    try {
+      jdbc.query(
+        """
+        SELECT external_id
+        FROM fragrance
+        WHERE UPPER(external_source) = 'COMMUNITY'
+          AND visibility = 'PUBLIC'
+        """,
+        rs -> {
+          publicCommunity.add(rs.getString(1));
+        }
+      );
+
+      UUID[] currentUser = new UUID[1];
+      Map<ItemKey, Signals> current = new HashMap<>();
+      jdbc.query(
+        "SELECT * FROM (" + INTERACTIONS.formatted("") + ") i ORDER BY 1",
+        rs -> {
+          UUID userId = rs.getObject(1, UUID.class);
+          if (!userId.equals(currentUser[0])) {
+            if (currentUser[0] != null) users.add(vector(current, ordinals));
+            currentUser[0] = userId;
+            current.clear();
+          }
+          ItemKey item = ItemKey.of(rs.getString(2), rs.getString(3));
+          if ("COMMUNITY".equals(item.source()) && !publicCommunity.contains(item.externalId())) return;
+          if (!ordinals.containsKey(item)) {
+            ordinals.put(item, items.size());
+            items.add(item);
+            meta.add(null);
+          }
+          int ordinal = ordinals.get(item);
+          if (meta.get(ordinal) == null && rs.getString(6) != null) {
+            meta.set(ordinal, new ItemMeta(rs.getString(6), rs.getString(7), rs.getString(8)));
+          }
+          current.computeIfAbsent(item, k -> new Signals()).add(rs.getString(4), rs.getBigDecimal(5));
+        }
+      );
+      if (currentUser[0] != null) users.add(vector(current, ordinals));
+
+      Neighbours found = neighbours(users, items.size(), neighbours, minSupport, maxPairs, pool);
+      // Postgres keeps microseconds; truncate so the stored trained_at compares equal on reload.
+      trained = new Trained(
+        Instant.now().truncatedTo(ChronoUnit.MICROS),
+        Map.copyOf(ordinals),
+        List.copyOf(items),
+        meta.toArray(ItemMeta[]::new),
+        found.ids(),
+        found.similarities()
+      );
+      encoded = encode(trained);
+      jdbc.update(
+        "UPDATE item_similarity_model SET model = ?, trained_at = ?, lease_until = NULL WHERE id = 1",
+        encoded,
+        Timestamp.from(trained.trainedAt())
+      );
+    } catch (Exception e) {
+      log.warn("recommendations.train failed; keeping previous model (ready={})", isReady(), e);
+      jdbc.update("UPDATE item_similarity_model SET lease_until = NULL WHERE id = 1");
+      return;
+    }
+
+    model = trained;
+    log.info(
+      "recommendations.train users={} fragrances={} bytes={} tookMs={}",
+      users.size(),
+      items.size(),
+      encoded.length,
+      (System.nanoTime() - started) / 1_000_000L
+    );
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Implicit weight of one user's signals about one fragrance: owning it counts 3 (5 when it is one
+   * of their top picks), wanting it 2, and a rating moves that by {@code rating - 3}, so a 1-star
+   * rating of an owned bottle leaves little and a lone low rating goes negative.
+   */
+  static double weight(boolean collection, boolean top, boolean wishlist, Double rating) {
+    double w = collection ? 3 : wishlist ? 2 : 0;
+    if (top) w += 2;
+    if (rating != null) w += rating - 3;
+    return w;
+  }
+
+  /** A user as parallel arrays of item ordinals and positive weights, heaviest first, capped. */
+  record UserVector(int[] items, float[] weights) {}
+
+  /** Per item: neighbour ordinals and their cosine similarity, best first. */
+  record Neighbours(int[][] ids, float[][] similarities) {}
+
+  static Neighbours neighbours(List<UserVector> users, int itemCount, int keep, int minSupport, int maxPairs, ForkJoinPool pool) {
+    double[] norms = new double[itemCount];
+    for (UserVector u : users) {
+      for (int i = 0; i < u.items().length; i++) norms[u.items()[i]] += (double) u.weights()[i] * u.weights()[i];
+    }
+    PairSums pairs = pool.invoke(new PairTask(users, 0, users.size(), maxPairs));
+    if (pairs.dropped() > 0) {
+      log.warn("recommendations.train pair cap reached pairs={} dropped={}", pairs.size(), pairs.dropped());
+    }
+
+    List<PriorityQueue<long[]>> best = new ArrayList<>(itemCount);
+    for (int i = 0; i < itemCount; i++) best.add(null);
+    for (int slot = 0; slot < pairs.keys.length; slot++) {
+      long key = pairs.keys[slot];
+      if (key == 0 || pairs.supports[slot] < minSupport) continue;
+      int a = (int) (key >>> 32);
+      int b = (int) key;
+      double cosine = pairs.dots[slot] / Math.sqrt(norms[a] * norms[b]);
+      long bits = Double.doubleToLongBits(cosine);
+      offer(best, a, b, bits, keep);
+      offer(best, b, a, bits, keep);
+    }
+
+    int[][] ids = new int[itemCount][];
+    float[][] similarities = new float[itemCount][];
+    for (int i = 0; i < itemCount; i++) {
+      PriorityQueue<long[]> heap = best.get(i);
+      long[][] sorted = heap == null ? new long[0][] : heap.toArray(long[][]::new);
+      Arrays.sort(sorted, ItemSimilarityModel::compareBestFirst);
+      ids[i] = new int[sorted.length];
+      similarities[i] = new float[sorted.length];
+      for (int j = 0; j < sorted.length; j++) {
+        ids[i][j] = (int) sorted[j][0];
+        similarities[i][j] = (float) Double.longBitsToDouble(sorted[j][1]);
+      }
+    }
+    return new Neighbours(ids, similarities);
+  }
+
+  // Entries are {neighbour, cosine bits}; cosines are non-negative, so their bits order like the values.
+  private static int compareBestFirst(long[] x, long[] y) {
+    int bySimilarity = Long.compare(y[1], x[1]);
+    return bySimilarity != 0 ? bySimilarity : Long.compare(x[0], y[0]);
+  }
+
+  private static void offer(List<PriorityQueue<long[]>> best, int item, int neighbour, long cosineBits, int keep) {
+    PriorityQueue<long[]> heap = best.get(item);
+    if (heap == null) {
+      heap = new PriorityQueue<>((x, y) -> compareBestFirst(y, x));
+      best.set(item, heap);
+    }
+    heap.offer(new long[] { neighbour, cosineBits });
+    if (heap.size() > keep) heap.poll();
+  }
+
+  private static UserVector vector(Map<ItemKey, Signals> signals, Map<ItemKey, Integer> ordinals) {
+    List<Map.Entry<ItemKey, Signals>> positive = new ArrayList<>();
+    for (Map.Entry<ItemKey, Signals> e : signals.entrySet()) {
+      if (e.getValue().weight() > 0) positive.add(e);
+    }
+    positive.sort((x, y) -> Double.compare(y.getValue().weight(), x.getValue().weight()));
+    int n = Math.min(positive.size(), MAX_ITEMS_PER_USER);
+    int[] items = new int[n];
+    float[] weights = new float[n];
+    for (int i = 0; i < n; i++) {
+      items[i] = ordinals.get(positive.get(i).getKey());
+      weights[i] = (float) positive.get(i).getValue().weight();
+    }
+    return new UserVector(items, weights);
+  }
+
+  /**
+   * (pair key -> dot, support) in open-addressed primitive arrays. Keys are (min ordinal, max ordinal)
+   * packed into a long and never 0, since the two ordinals differ; 0 marks an empty slot. Once
+   * {@code maxPairs} keys are held, sums for new keys are dropped and counted.
+   */
+  static final class PairSums {
+    private final int maxPairs;
+    private long[] keys;
+    private double[] dots;
+    private int[] supports;
+    private int size;
+    private long dropped;
+
+    PairSums(int maxPairs) {
+      this.maxPairs = maxPairs;
+      this.keys = new long[1024];
+      this.dots = new double[1024];
+      this.supports = new int[1024];
+    }
+
+    void add(long key, double dot, int support) {
+      int mask = keys.length - 1;
+      int slot = slot(key, mask);
+      while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+      if (keys[slot] == 0) {
+        if (size >= maxPairs) {
+          dropped++;
+          return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+          grow();
+          add(key, dot, support);
+          return;
+        }
+        keys[slot] = key;
+        size++;
+      }
+      dots[slot] += dot;
+      supports[slot] += support;
+    }
+
+    void addAll(PairSums other) {
+      dropped += other.dropped;
+      for (int slot = 0; slot < other.keys.length; slot++) {
+        if (other.keys[slot] != 0) add(other.keys[slot], other.dots[slot], other.supports[slot]);
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    long dropped() {
+      return dropped;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      double[] oldDots = dots;
+      int[] oldSupports = supports;
+      keys = new long[oldKeys.length * 2];
+      dots = new double[oldKeys.length * 2];
+      supports = new int[oldKeys.length * 2];
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] == 0) continue;
+        int slot = slot(oldKeys[i], mask);
+        while (keys[slot] != 0) slot = (slot + 1) & mask;
+        keys[slot] = oldKeys[i];
+        dots[slot] = oldDots[i];
+        supports[slot] = oldSupports[i];
+      }
+    }
+
+    private static int slot(long key, int mask) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+  }
+
+  /** Partial sums of w(u,a) * w(u,b) over a range of users, keyed by (min ordinal, max ordinal). */
+  private static final class PairTask extends RecursiveTask<PairSums> {
+    private final List<UserVector> users;
+    private final int from;
+    private final int to;
+    private final int maxPairs;
+
+    PairTask(List<UserVector> users, int from, int to, int maxPairs) {
+      this.users = users;
+      this.from = from;
+      this.to = to;
+      this.maxPairs = maxPairs;
+    }
+
+    @Override
+    protected PairSums compute() {
+      if (to - from <= USERS_PER_TASK) {
+        PairSums sums = new PairSums(maxPairs);
+        for (int u = from; u < to; u++) {
+          UserVector user = users.get(u);
+          int[] items = user.items();
+          float[] weights = user.weights();
+          for (int i = 0; i < items.length; i++) {
+            for (int j = i + 1; j < items.length; j++) {
+              int a = Math.min(items[i], items[j]);
+              int b = Math.max(items[i], items[j]);
+              sums.add(((long) a << 32) | b, (double) weights[i] * weights[j], 1);
+            }
+          }
+        }
+        return sums;
+      }
+      int mid = (from + to) >>> 1;
+      PairTask left = new PairTask(users, from, mid, maxPairs);
+      left.fork();
+      PairSums right = new PairTask(users, mid, to, maxPairs).compute();
+      PairSums leftSums = left.join();
+      PairSums into = leftSums.size >= right.size ? leftSums : right;
+      into.addAll(into == leftSums ? right : leftSums);
+      return into;
+    }
+  }
+
+  /** Everything one user said about one fragrance, across the four tables. */
+  private static final class Signals {
+    private boolean collection;
+    private boolean top;
+    private boolean wishlist;
+    private Double rating;
+
+    void add(String kind, BigDecimal value) {
+      switch (kind) {
+        case "COLLECTION" -> collection = true;
+        case "TOP" -> top = true;
+        case "WISHLIST" -> wishlist = true;
+        case "RATING" -> rating = value == null ? null : value.doubleValue();
+        default -> {}
+      }
+    }
+
+    double weight() {
+      return ItemSimilarityModel.weight(collection, top, wishlist, rating);
+    }
+  }
+
+  static byte[] encode(Trained model) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(model.items().size());
+      for (int i = 0; i < model.items().size(); i++) {
+        ItemKey item = model.items().get(i);
+        ItemMeta meta = model.meta()[i];
+        out.writeUTF(item.source());
+        writeNullable(out, item.externalId());
+        out.writeBoolean(meta != null);
+        if (meta != null) {
+          writeNullable(out, meta.name());
+          writeNullable(out, meta.brand());
+          writeNullable(out, meta.imageUrl());
+        }
+        int[] ids = model.neighbours()[i];
+        float[] sims = model.similarities()[i];
+        out.writeInt(ids.length);
+        for (int j = 0; j < ids.length; j++) {
+          out.writeInt(ids[j]);
+          out.writeFloat(sims[j]);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static Trained decode(byte[] encoded, Instant trainedAt) {
+    try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(encoded)))) {
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) throw new IOException("unknown model format " + version);
+      int n = in.readInt();
+      Map<ItemKey, Integer> ordinals = new HashMap<>(n * 2);
+      List<ItemKey> items = new ArrayList<>(n);
+      ItemMeta[] meta = new ItemMeta[n];
+      int[][] ids = new int[n][];
+      float[][] sims = new float[n][];
+      for (int i = 0; i < n; i++) {
+        ItemKey item = new ItemKey(in.readUTF(), readNullable(in));
+        items.add(item);
+        ordinals.put(item, i);
+        if (in.readBoolean()) meta[i] = new ItemMeta(readNullable(in), readNullable(in), readNullable(in));
+        int k = in.readInt();
+        ids[i] = new int[k];
+        sims[i] = new float[k];
+        for (int j = 0; j < k; j++) {
+          ids[i][j] = in.readInt();
+          sims[i][j] = in.readFloat();
+        }
+      }
+      return new Trained(trainedAt, Map.copyOf(ordinals), List.copyOf(items), meta, ids, sims);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) out.writeUTF(value);
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  record Trained(
+    Instant trainedAt,
+    Map<ItemKey, Integer> ordinals,
+    List<ItemKey> items,
+    ItemMeta[] meta,
+    int[][] neighbours,
+    float[][] similarities
+  ) {
+    static final Trained EMPTY = new Trained(Instant.EPOCH, Map.of(), List.of(), new ItemMeta[0], new int[0][], new float[0][]);
+  }
+}
@@ -0,0 +1,31 @@
+package com.stacta.api.recommendation;
+
+import com.stacta.api.recommendation.dto.RecommendedFragranceDto;
+import io.swagger.v3.oas.annotations.Operation;
+import java.util.List;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/me")
+public class RecommendationController {
+
+  private final RecommendationService recommendations;
+
+  public RecommendationController(RecommendationService recommendations) {
+    this.recommendations = recommendations;
+  }
+
+  @Operation(summary = "Fragrances picked for the viewer from their collection, wishlist and ratings.")
+  @GetMapping("/recommendations")
+  public List<RecommendedFragranceDto> recommendations(
+    @RequestParam(name = "limit", defaultValue = "20") int limit,
+    @AuthenticationPrincipal Jwt jwt
+  ) {
+    return recommendations.recommend(jwt.getSubject(), limit);
+  }
+}
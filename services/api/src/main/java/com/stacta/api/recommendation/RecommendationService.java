@@ -0,0 +1,240 @@
+package com.stacta.api.recommendation;
+
+import com.stacta.api.fragrance.FragranceImageResolver;
+import com.stacta.api.fragrance.FragranceImageResolver.FragranceRef;
+import com.stacta.api.fragrance.SimilarFragranceIndex;
+import com.stacta.api.recommendation.ItemSimilarityModel.ItemKey;
+import com.stacta.api.recommendation.ItemSimilarityModel.ItemMeta;
+import com.stacta.api.recommendation.dto.RecommendedFragranceDto;
+import com.stacta.api.social.TrendingFragrances;
+import com.stacta.api.user.ViewerIdentity;
+import com.stacta.api.user.ViewerIdentityResolver;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Fragrances a user does not have yet, from two signals: {@link ItemSimilarityModel} (people who keep
+ * what you keep also keep...) and {@link SimilarFragranceIndex} around the user's heaviest picks.
+ * Each signal is scaled to its best candidate and the two are mixed by
+ * {@code app.recommendations.cf-weight}; a user with nothing the model knows gets content matches only.
+ *
+ * Only ranked entries are cached (LRU, one per recently active user). An entry goes stale after a TTL,
+ * when the user's collection, wishlist, top picks or ratings change, or when a new model is trained;
+ * stale entries are served while a refresh runs in the background. A change that lands while the
+ * user's refresh is computing is not in its result, so that result is stored stale and the refresh
+ * runs again. Nothing is computed on the request thread: a user with no entry yet gets this week's
+ * trending fragrances while theirs are computed.
+ */
+@Service
+public class RecommendationService {
+  private static final Logger log = LoggerFactory.getLogger(RecommendationService.class);
+
+  private static final int CACHED_PER_USER = 60;
+  private static final int CONTENT_SEEDS = 10;
+  private static final int CONTENT_PER_SEED = 20;
+
+  private final ViewerIdentityResolver identities;
+  private final ItemSimilarityModel model;
+  private final SimilarFragranceIndex similar;
+  private final TrendingFragrances trending;
+  private final FragranceImageResolver fragranceImages;
+  private final Executor executor;
+  private final Duration ttl;
+  private final double cfWeight;
+  private final Map<UUID, CachedRecommendations> cache;
+  private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+  // Users whose taste changed since their current refresh started; only cached or refreshing users.
+  private final Set<UUID> changedSinceRefresh = ConcurrentHashMap.newKeySet();
+
+  public RecommendationService(
+    ViewerIdentityResolver identities,
+    ItemSimilarityModel model,
+    SimilarFragranceIndex similar,
+    TrendingFragrances trending,
+    FragranceImageResolver fragranceImages,
+    @Qualifier("recommendationExecutor") Executor executor,
+    @Value("${app.recommendations.ttl-minutes:60}") long ttlMinutes,
+    @Value("${app.recommendations.max-cached-users:10000}") int maxCachedUsers,
+    @Value("${app.recommendations.cf-weight:0.7}") double cfWeight
+  ) {
+    this.identities = identities;
+    this.model = model;
+    this.similar = similar;
+    this.trending = trending;
+    this.fragranceImages = fragranceImages;
+    this.executor = executor;
+    this.ttl = Duration.ofMinutes(Math.max(1, ttlMinutes));
+    this.cfWeight = Math.max(0, Math.min(1, cfWeight));
+    int capacity = Math.max(1, maxCachedUsers);
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<UUID, CachedRecommendations> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+  public List<RecommendedFragranceDto> recommend(String viewerSub, int limit) {
+    ViewerIdentity me = identities.require(viewerSub);
+    int safeLimit = Math.max(1, Math.min(limit, 50));
+    if (!model.isReady() && !similar.isReady()) return List.of();
+
+    CachedRecommendations cached = cache.get(me.userId());
+    if (cached == null) {
+      scheduleRefresh(me.userId());
+      return trendingFallback(safeLimit);
+    }
+    if (
+      cached.stale()
+        || !cached.modelTrainedAt().equals(model.trainedAt())
+        || cached.computedAt().plus(ttl).isBefore(Instant.now())
+    ) {
+      scheduleRefresh(me.userId());
+    }
+    return hydrate(cached.entries(), safeLimit);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onTasteChanged(UserTasteChangedEvent event) {
+    if (event == null || event.userId() == null) return;
+    UUID userId = event.userId();
+    if (!cache.containsKey(userId) && !refreshing.contains(userId)) return;
+    changedSinceRefresh.add(userId);
+    cache.computeIfPresent(userId, (id, cached) -> cached.markStale());
+    scheduleRefresh(userId);
+  }
+
+  private void scheduleRefresh(UUID userId) {
+    if (!refreshing.add(userId)) return;
+    try {
+      executor.execute(() -> refresh(userId));
+    } catch (RuntimeException rejected) {
+      // Executor saturated; the next read retries.
+      refreshing.remove(userId);
+    }
+  }
+
+  private void refresh(UUID userId) {
+    try {
+      changedSinceRefresh.remove(userId);
+      CachedRecommendations fresh = compute(userId);
+      cache.put(userId, changedSinceRefresh.contains(userId) ? fresh.markStale() : fresh);
+    } catch (Exception e) {
+      log.warn("recommendations.refresh failed userId={}", userId, e);
+    } finally {
+      refreshing.remove(userId);
+    }
+    // Checked after releasing the slot: a change that arrived while this ran could not schedule its own.
+    if (changedSinceRefresh.contains(userId)) scheduleRefresh(userId);
+  }
+
+  /** Trending this week, scaled to the top entry, until the user's own recommendations are cached. */
+  private List<RecommendedFragranceDto> trendingFallback(int limit) {
+    List<TrendingFragrances.Ranked> top = trending.top(TrendingFragrances.Window.WEEK, limit);
+    if (top.isEmpty()) return List.of();
+    double best = top.get(0).score();
+    return top.stream()
+      .map(r -> new RecommendedFragranceDto(
+        r.source(),
+        r.externalId(),
+        r.name(),
+        null,
+        r.imageUrl(),
+        best > 0 ? Math.round(r.score() / best * 1000) / 1000.0 : 0
+      ))
+      .toList();
+  }
+
+  private CachedRecommendations compute(UUID userId) {
+    Instant trainedAt = model.trainedAt();
+    Map<ItemKey, Double> profile = model.profile(userId);
+    if (profile.isEmpty()) return new CachedRecommendations(List.of(), Instant.now(), trainedAt, false);
+
+    Map<ItemKey, Double> collaborative = model.score(profile);
+    Map<ItemKey, Double> content = new HashMap<>();
+    Map<ItemKey, ItemMeta> contentMeta = new HashMap<>();
+    profile.entrySet().stream()
+      .filter(e -> e.getValue() > 0)
+      .sorted(Map.Entry.<ItemKey, Double>comparingByValue().reversed())
+      .limit(CONTENT_SEEDS)
+      .forEach(seed -> {
+        List<SimilarFragranceIndex.Match> matches = similar.similarTo(seed.getKey().source(), seed.getKey().externalId(), CONTENT_PER_SEED);
+        if (matches == null) return;
+        for (SimilarFragranceIndex.Match match : matches) {
+          ItemKey item = ItemKey.of(match.source(), match.externalId());
+          content.merge(item, seed.getValue() * match.score(), Double::sum);
+          contentMeta.putIfAbsent(item, new ItemMeta(match.name(), match.brand(), match.imageUrl()));
+        }
+      });
+
+    double cfMax = max(collaborative);
+    double contentMax = max(content);
+    double cfShare = cfMax == 0 ? 0 : contentMax == 0 ? 1 : cfWeight;
+    Map<ItemKey, Double> blended = new HashMap<>();
+    if (cfShare > 0) collaborative.forEach((item, s) -> blended.merge(item, cfShare * s / cfMax, Double::sum));
+    if (cfShare < 1) content.forEach((item, s) -> blended.merge(item, (1 - cfShare) * s / contentMax, Double::sum));
+
+    List<ScoredItem> ranked = new ArrayList<>();
+    blended.forEach((item, score) -> {
+      if (profile.containsKey(item)) return;
+      ItemMeta meta = model.meta(item);
+      if (meta == null) meta = contentMeta.get(item);
+      if (meta == null || meta.name() == null) return;
+      ranked.add(new ScoredItem(item, meta, score));
+    });
+    ranked.sort(Comparator.comparingDouble(ScoredItem::score).reversed());
+    List<ScoredItem> kept = List.copyOf(ranked.subList(0, Math.min(ranked.size(), CACHED_PER_USER)));
+    return new CachedRecommendations(kept, Instant.now(), trainedAt, false);
+  }
+
+  private List<RecommendedFragranceDto> hydrate(List<ScoredItem> entries, int limit) {
+    if (entries.isEmpty()) return List.of();
+    List<ScoredItem> page = entries.subList(0, Math.min(entries.size(), limit));
+    Map<FragranceRef, String> images = fragranceImages.resolve(page.stream()
+      .map(e -> new FragranceRef(e.item().source(), e.item().externalId()))
+      .toList());
+    return page.stream().map(e -> {
+      FragranceRef ref = new FragranceRef(e.item().source(), e.item().externalId());
+      return new RecommendedFragranceDto(
+        e.item().source(),
+        e.item().externalId(),
+        e.meta().name(),
+        e.meta().brand(),
+        images.containsKey(ref) ? images.get(ref) : e.meta().imageUrl(),
+        Math.round(e.score() * 1000) / 1000.0
+      );
+    }).toList();
+  }
+
+  private static double max(Map<ItemKey, Double> scores) {
+    double max = 0;
+    for (double s : scores.values()) max = Math.max(max, s);
+    return max;
+  }
+
+  private record ScoredItem(ItemKey item, ItemMeta meta, double score) {}
+
+  private record CachedRecommendations(List<ScoredItem> entries, Instant computedAt, Instant modelTrainedAt, boolean stale) {
+    CachedRecommendations markStale() {
+      return new CachedRecommendations(entries, computedAt, modelTrainedAt, true);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.stacta.api.recommendation;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction when a user's collection, wishlist, top picks or ratings
+ * change; {@link RecommendationService} recomputes that user's cached recommendations after commit.
+ */
+public record UserTasteChangedEvent(UUID userId) {}
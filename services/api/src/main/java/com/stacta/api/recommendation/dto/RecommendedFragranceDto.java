@@ -0,0 +1,10 @@
+package com.stacta.api.recommendation.dto;
+
+public record RecommendedFragranceDto(
+  String source,
+  String externalId,
+  String name,
+  String brand,
+  String imageUrl,
+  double score
+) {}
@@ -3,11 +3,16 @@ package com.stacta.api.social;
 import com.stacta.api.config.ApiException;
 import com.stacta.api.social.dto.FeedItem;
 import com.stacta.api.social.dto.FeedResponse;
+import com.stacta.api.text.Canonical;
+import com.stacta.api.upload.ImageVariant;
 import com.stacta.api.upload.UploadImageUrlResolver;
 import com.stacta.api.user.User;
 import com.stacta.api.user.UserRepository;
+import com.stacta.api.user.ViewerIdentity;
+import com.stacta.api.user.ViewerIdentityResolver;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
@@ -23,24 +28,27 @@ public class FeedService {
 
   private final ActivityEventRepository activities;
   private final UserRepository users;
+  private final ViewerIdentityResolver identities;
   private final FollowService follows;
   private final UploadImageUrlResolver imageUrlResolver;
 
   public FeedService(
     ActivityEventRepository activities,
     UserRepository users,
+    ViewerIdentityResolver identities,
     FollowService follows,
     UploadImageUrlResolver imageUrlResolver
   ) {
     this.activities = activities;
     this.users = users;
+    this.identities = identities;
     this.follows = follows;
     this.imageUrlResolver = imageUrlResolver;
   }
 
   @Transactional(readOnly = true)
   public FeedResponse list(String viewerSub, String tab, String filter, int limit, String cursor) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
 
     String normalizedTab = normalizeTab(tab);
     String normalizedType = normalizeType(filter);
@@ -49,7 +57,7 @@ public class FeedService {
     if (TAB_POPULAR.equals(normalizedTab)) {
       var token = parsePopularCursor(cursor);
       var rows = activities.listPopularFeed(
-        me.getId(),
+        me.userId(),
         normalizedType,
         token == null ? null : token.score(),
         token == null ? null : token.createdAt(),
@@ -59,7 +67,7 @@ public class FeedService {
 
       boolean hasMore = rows.size() > safeLimit;
       var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
-      var items = pageRows.stream().map(this::mapView).toList();
+      var items = toItems(pageRows);
 
       String nextCursor = null;
       if (hasMore && !pageRows.isEmpty()) {
@@ -71,7 +79,7 @@ public class FeedService {
 
     var token = parseFollowingCursor(cursor);
     var rows = activities.listFollowingFeed(
-      me.getId(),
+      me.userId(),
       normalizedType,
       token == null ? null : token.createdAt(),
       token == null ? null : token.id(),
@@ -80,7 +88,7 @@ public class FeedService {
 
     boolean hasMore = rows.size() > safeLimit;
     var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
-    var items = pageRows.stream().map(this::mapView).toList();
+    var items = toItems(pageRows);
 
     String nextCursor = null;
     if (hasMore && !pageRows.isEmpty()) {
@@ -92,12 +100,12 @@ public class FeedService {
 
   @Transactional(readOnly = true)
   public FeedResponse listMineReviews(String viewerSub, int limit, String cursor) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     int safeLimit = Math.max(1, Math.min(limit, 50));
     var token = parseFollowingCursor(cursor);
     var rows = activities.listMyReviewFeed(
-      me.getId(),
-      me.getId(),
+      me.userId(),
+      me.userId(),
       token == null ? null : token.createdAt(),
       token == null ? null : token.id(),
       PageRequest.of(0, safeLimit + 1)
@@ -105,7 +113,7 @@ public class FeedService {
 
     boolean hasMore = rows.size() > safeLimit;
     var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
-    var items = pageRows.stream().map(this::mapView).toList();
+    var items = toItems(pageRows);
 
     String nextCursor = null;
     if (hasMore && !pageRows.isEmpty()) {
@@ -117,13 +125,13 @@ public class FeedService {
 
   @Transactional(readOnly = true)
   public FeedResponse listUserReviews(String viewerSub, String username, int limit, String cursor) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     String normalizedUsername = normalizeUsername(username);
     User target = users.findByUsernameIgnoreCase(normalizedUsername)
       .orElseThrow(() -> new ApiException("USER_NOT_FOUND"));
 
-    boolean isOwner = me.getId().equals(target.getId());
-    boolean isFollowing = follows.isFollowing(me.getId(), target.getId());
+    boolean isOwner = me.userId().equals(target.getId());
+    boolean isFollowing = follows.isFollowing(me.userId(), target.getId());
     boolean isVisible = !target.isPrivate() || isOwner || isFollowing;
     if (!isVisible) {
       return new FeedResponse(List.of(), null);
@@ -133,7 +141,7 @@ public class FeedService {
     var token = parseFollowingCursor(cursor);
     var rows = activities.listMyReviewFeed(
       target.getId(),
-      me.getId(),
+      me.userId(),
       token == null ? null : token.createdAt(),
       token == null ? null : token.id(),
       PageRequest.of(0, safeLimit + 1)
@@ -141,7 +149,7 @@ public class FeedService {
 
     boolean hasMore = rows.size() > safeLimit;
     var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
-    var items = pageRows.stream().map(this::mapView).toList();
+    var items = toItems(pageRows);
 
     String nextCursor = null;
     if (hasMore && !pageRows.isEmpty()) {
@@ -153,12 +161,12 @@ public class FeedService {
 
   @Transactional(readOnly = true)
   public FeedResponse listMinePosts(String viewerSub, int limit, String cursor) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     int safeLimit = Math.max(1, Math.min(limit, 50));
     var token = parseFollowingCursor(cursor);
     var rows = activities.listMyScentPosts(
-      me.getId(),
-      me.getId(),
+      me.userId(),
+      me.userId(),
       token == null ? null : token.createdAt(),
       token == null ? null : token.id(),
       PageRequest.of(0, safeLimit + 1)
@@ -166,7 +174,7 @@ public class FeedService {
 
     boolean hasMore = rows.size() > safeLimit;
     var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
-    var items = pageRows.stream().map(this::mapView).toList();
+    var items = toItems(pageRows);
 
     String nextCursor = null;
     if (hasMore && !pageRows.isEmpty()) {
@@ -178,13 +186,13 @@ public class FeedService {
 
   @Transactional(readOnly = true)
   public FeedResponse listUserPosts(String viewerSub, String username, int limit, String cursor) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     String normalizedUsername = normalizeUsername(username);
     User target = users.findByUsernameIgnoreCase(normalizedUsername)
       .orElseThrow(() -> new ApiException("USER_NOT_FOUND"));
 
-    boolean isOwner = me.getId().equals(target.getId());
-    boolean isFollowing = follows.isFollowing(me.getId(), target.getId());
+    boolean isOwner = me.userId().equals(target.getId());
+    boolean isFollowing = follows.isFollowing(me.userId(), target.getId());
     boolean isVisible = !target.isPrivate() || isOwner || isFollowing;
     if (!isVisible) {
       return new FeedResponse(List.of(), null);
@@ -194,7 +202,7 @@ public class FeedService {
     var token = parseFollowingCursor(cursor);
     var rows = activities.listMyScentPosts(
       target.getId(),
-      me.getId(),
+      me.userId(),
       token == null ? null : token.createdAt(),
       token == null ? null : token.id(),
       PageRequest.of(0, safeLimit + 1)
@@ -202,7 +210,7 @@ public class FeedService {
 
     boolean hasMore = rows.size() > safeLimit;
     var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
-    var items = pageRows.stream().map(this::mapView).toList();
+    var items = toItems(pageRows);
 
     String nextCursor = null;
     if (hasMore && !pageRows.isEmpty()) {
@@ -212,17 +220,30 @@ public class FeedService {
     return new FeedResponse(items, nextCursor);
   }
 
-  private FeedItem mapView(ActivityEventRepository.ActivityFeedView row) {
+  private List<FeedItem> toItems(List<? extends ActivityEventRepository.ActivityFeedView> rows) {
+    List<String> avatarKeys = new ArrayList<>(rows.size() * 2);
+    for (var row : rows) {
+      avatarKeys.add(row.getActorAvatarObjectKey());
+      avatarKeys.add(row.getRepostActorAvatarObjectKey());
+    }
+    var avatars = imageUrlResolver.resolveAll(avatarKeys, ImageVariant.THUMB);
+    return rows.stream().map(row -> mapView(row, avatars)).toList();
+  }
+
+  private FeedItem mapView(
+    ActivityEventRepository.ActivityFeedView row,
+    UploadImageUrlResolver.ResolvedImageUrls avatars
+  ) {
     return new FeedItem(
       row.getId(),
       row.getSourceReviewId(),
       row.getType(),
       row.getActorUsername(),
       row.getActorDisplayName(),
-      imageUrlResolver.resolveWithFallback(row.getActorAvatarObjectKey(), row.getActorAvatarUrl()),
+      avatars.withFallback(row.getActorAvatarObjectKey(), row.getActorAvatarUrl()),
       row.getRepostActorUsername(),
       row.getRepostActorDisplayName(),
-      imageUrlResolver.resolveWithFallback(row.getRepostActorAvatarObjectKey(), row.getRepostActorAvatarUrl()),
+      avatars.withFallback(row.getRepostActorAvatarObjectKey(), row.getRepostActorAvatarUrl()),
       row.getTargetUsername(),
       row.getTargetDisplayName(),
       row.getFragranceName(),
@@ -261,12 +282,7 @@ public class FeedService {
   }
 
   private String normalizeUsername(String raw) {
-    String cleaned = raw == null ? "" : raw
-      .trim()
-      .toLowerCase()
-      .replaceAll("^@+", "")
-      .replaceAll("[^a-z0-9_]", "");
-    return cleaned.length() > 20 ? cleaned.substring(0, 20) : cleaned;
+    return Canonical.username(raw);
   }
 
   private record FollowingCursor(Instant createdAt, UUID id) {}
@@ -1,5 +1,6 @@
 package com.stacta.api.social;
 
+import com.stacta.api.ratelimit.RateLimited;
 import com.stacta.api.social.dto.FollowActionResponse;
 import com.stacta.api.social.dto.FollowConnectionsResponse;
 import com.stacta.api.social.dto.PendingFollowRequestsResponse;
@@ -26,6 +27,7 @@ public class FollowController {
     this.followService = followService;
   }
 
+  @RateLimited(value = "follows", capacity = 60)
   @PostMapping("/{username}")
   public FollowActionResponse follow(
     @AuthenticationPrincipal Jwt jwt,
@@ -34,6 +36,7 @@ public class FollowController {
     return followService.followByUsername(jwt.getSubject(), username);
   }
 
+  @RateLimited(value = "follows", capacity = 60)
   @DeleteMapping("/{username}")
   public ResponseEntity<?> unfollow(
     @AuthenticationPrincipal Jwt jwt,
@@ -0,0 +1,199 @@
+package com.stacta.api.social;
+
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Follower/following counters that stay cheap for accounts with many concurrent followers.
+ *
+ * Each change lands in one of {@code slots} rows per (user, kind), picked by hashing the other side
+ * of the edge, instead of updating the users row. Reads add the pending slot deltas to
+ * users.followers_count/following_count, a compaction job drains the slots into the users row, and a
+ * reconciliation job corrects any drift against user_follow.
+ */
+@Service
+public class FollowCounterService {
+  private static final Logger log = LoggerFactory.getLogger(FollowCounterService.class);
+
+  static final String FOLLOWERS = "FOLLOWERS";
+  static final String FOLLOWING = "FOLLOWING";
+  // Serializes compaction and reconciliation across instances; both rewrite users.*_count.
+  private static final long MAINTENANCE_LOCK_KEY = 0x5f0110c0L;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final int slots;
+  private final int compactBatchSize;
+
+  public FollowCounterService(
+    JdbcTemplate jdbc,
+    PlatformTransactionManager transactionManager,
+    @Value("${app.social.follow-counters.slots:16}") int slots,
+    @Value("${app.social.follow-counters.compact-batch-size:500}") int compactBatchSize
+  ) {
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.slots = Math.max(1, slots);
+    this.compactBatchSize = Math.max(1, compactBatchSize);
+  }
+
+  public record FollowCounts(long followers, long following) {}
+
+  /** Records an ACCEPTED edge appearing (+1) or disappearing (-1) for both sides. */
+  public void applyEdge(UUID followerUserId, UUID followingUserId, long delta) {
+    add(followerUserId, FOLLOWING, slotFor(followingUserId), delta);
+    add(followingUserId, FOLLOWERS, slotFor(followerUserId), delta);
+  }
+
+  /** Current counts: the compacted values on users plus whatever is still pending in the slots. */
+  public FollowCounts counts(UUID userId, long compactedFollowers, long compactedFollowing) {
+    long[] pending = new long[2];
+    jdbc.query(
+      """
+      SELECT kind, COALESCE(SUM(delta), 0)
+      FROM user_follow_counter_shard
+      WHERE user_id = ?
+      GROUP BY kind
+      """,
+      rs -> {
+        if (FOLLOWERS.equals(rs.getString(1))) pending[0] = rs.getLong(2);
+        else pending[1] = rs.getLong(2);
+      },
+      userId
+    );
+    return new FollowCounts(
+      Math.max(0, compactedFollowers + pending[0]),
+      Math.max(0, compactedFollowing + pending[1])
+    );
+  }
+
+  /**
+   * Drains pending slots into users, a batch of users at a time. The DELETE ... RETURNING and the
+   * UPDATE run as one statement, so a delta is either still in its slot or already on the users row.
+   * Each batch commits on its own, so slot and users row locks are held for one batch, not the pass.
+   */
+  @Scheduled(
+    initialDelayString = "${app.social.follow-counters.compact-ms:30000}",
+    fixedDelayString = "${app.social.follow-counters.compact-ms:30000}"
+  )
+  public void compact() {
+    int compacted;
+    int total = 0;
+    do {
+      Integer batch = tx.execute(status -> compactBatch());
+      compacted = batch == null ? 0 : batch;
+      total += compacted;
+    } while (compacted >= compactBatchSize);
+    if (total > 0) {
+      log.info("follow.counters.compact users={}", total);
+    }
+  }
+
+  private int compactBatch() {
+    lockMaintenance();
+    return jdbc.update(
+      """
+      WITH picked AS (
+        SELECT DISTINCT user_id
+        FROM user_follow_counter_shard
+        ORDER BY user_id
+        LIMIT ?
+      ),
+      drained AS (
+        DELETE FROM user_follow_counter_shard s
+        USING picked p
+        WHERE s.user_id = p.user_id
+        RETURNING s.user_id, s.kind, s.delta
+      ),
+      summed AS (
+        SELECT
+          user_id,
+          COALESCE(SUM(delta) FILTER (WHERE kind = 'FOLLOWERS'), 0) AS followers_delta,
+          COALESCE(SUM(delta) FILTER (WHERE kind = 'FOLLOWING'), 0) AS following_delta
+        FROM drained
+        GROUP BY user_id
+      )
+      UPDATE users u
+      SET
+        followers_count = GREATEST(0, u.followers_count + summed.followers_delta),
+        following_count = GREATEST(0, u.following_count + summed.following_delta)
+      FROM summed
+      WHERE u.id = summed.user_id
+      """,
+      compactBatchSize
+    );
+  }
+
+  /**
+   * Recomputes counters from user_follow. Each statement reads one snapshot, so an edge committed
+   * concurrently is either in both the ACCEPTED count and its slot delta, or in neither.
+   */
+  @Scheduled(cron = "${app.social.follow-counters.reconcile-cron:0 30 4 * * *}", scheduler = "rebuildScheduler")
+  @Transactional
+  public void reconcile() {
+    lockMaintenance();
+    int drifted = jdbc.update(
+      """
+      WITH actual AS (
+        SELECT
+          u.id AS user_id,
+          (SELECT COUNT(*) FROM user_follow f WHERE f.following_user_id = u.id AND f.status = 'ACCEPTED') AS followers,
+          (SELECT COUNT(*) FROM user_follow f WHERE f.follower_user_id = u.id AND f.status = 'ACCEPTED') AS following,
+          COALESCE((
+            SELECT SUM(s.delta) FROM user_follow_counter_shard s WHERE s.user_id = u.id AND s.kind = 'FOLLOWERS'
+          ), 0) AS pending_followers,
+          COALESCE((
+            SELECT SUM(s.delta) FROM user_follow_counter_shard s WHERE s.user_id = u.id AND s.kind = 'FOLLOWING'
+          ), 0) AS pending_following
+        FROM users u
+      )
+      UPDATE users u
+      SET
+        followers_count = GREATEST(0, a.followers - a.pending_followers),
+        following_count = GREATEST(0, a.following - a.pending_following)
+      FROM actual a
+      WHERE u.id = a.user_id
+        AND (
+          u.followers_count + a.pending_followers <> a.followers
+          OR u.following_count + a.pending_following <> a.following
+        )
+      """
+    );
+    if (drifted > 0) {
+      log.warn("follow.counters.reconcile corrected={}", drifted);
+    }
+  }
+
+  private void lockMaintenance() {
+    jdbc.query("SELECT pg_advisory_xact_lock(?)", rs -> {}, MAINTENANCE_LOCK_KEY);
+  }
+
+  private void add(UUID userId, String kind, int slot, long delta) {
+    jdbc.update(
+      """
+      INSERT INTO user_follow_counter_shard (user_id, kind, slot, delta, updated_at)
+      VALUES (?, ?, ?, ?, now())
+      ON CONFLICT (user_id, kind, slot)
+      DO UPDATE SET
+        delta = user_follow_counter_shard.delta + EXCLUDED.delta,
+        updated_at = now()
+      """,
+      userId,
+      kind,
+      slot,
+      delta
+    );
+  }
+
+  private int slotFor(UUID otherUserId) {
+    return otherUserId == null ? 0 : Math.floorMod(otherUserId.hashCode(), slots);
+  }
+}
@@ -0,0 +1,13 @@
+package com.stacta.api.social;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link FollowService} whenever an ACCEPTED edge appears (follow of a public user,
+ * accepted request) or disappears (unfollow). Pending requests never produce events.
+ */
+public record FollowEdgeChangedEvent(
+  UUID followerUserId,
+  UUID followingUserId,
+  boolean accepted
+) {}
@@ -0,0 +1,292 @@
+package com.stacta.api.social;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Process-local copy of the ACCEPTED edges in user_follow.
+ *
+ * Users are mapped to dense int ordinals and each user's outgoing/incoming edges are kept in
+ * compressed bitmaps, so page-wide "follows you" flags and suggestions never hit Postgres.
+ * The graph is rebuilt from user_follow on startup and on a fixed delay (which also picks up writes
+ * made by other instances) and is patched incrementally from {@link FollowEdgeChangedEvent}s in between.
+ * Because another instance's unfollow only lands here at the next rebuild, visibility checks do not
+ * use it; see {@link FollowService#isFollowing}.
+ * Until the first rebuild finishes {@link #isReady()} is false and callers fall back to the database.
+ */
+@Component
+public class FollowGraph {
+  private static final Logger log = LoggerFactory.getLogger(FollowGraph.class);
+
+  private final JdbcTemplate jdbc;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Adjacency adjacency = new Adjacency();
+  private volatile boolean ready = false;
+
+  // Edge changes observed while a rebuild is streaming user_follow; replayed onto the fresh graph.
+  private List<FollowEdgeChangedEvent> pendingDuringRebuild = null;
+
+  public FollowGraph(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  public boolean isFollowing(UUID followerUserId, UUID followingUserId) {
+    if (followerUserId == null || followingUserId == null) return false;
+    lock.readLock().lock();
+    try {
+      Integer follower = adjacency.ordinals.get(followerUserId);
+      Integer following = adjacency.ordinals.get(followingUserId);
+      if (follower == null || following == null) return false;
+      RoaringBitmap out = adjacency.following.get(follower);
+      return out != null && out.contains(following);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Which of the candidates the given user follows. */
+  public Set<UUID> followingAmong(UUID followerUserId, Collection<UUID> candidates) {
+    lock.readLock().lock();
+    try {
+      Integer follower = followerUserId == null ? null : adjacency.ordinals.get(followerUserId);
+      return filterByBitmap(follower == null ? null : adjacency.following.get(follower), candidates);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Which of the candidates follow the given user. */
+  public Set<UUID> followersAmong(UUID followingUserId, Collection<UUID> candidates) {
+    lock.readLock().lock();
+    try {
+      Integer following = followingUserId == null ? null : adjacency.ordinals.get(followingUserId);
+      return filterByBitmap(following == null ? null : adjacency.followers.get(following), candidates);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Friends-of-friends of the given user, ranked by how many of the user's followings follow them.
+   *
+   * Work and memory are bounded regardless of account size: at most {@code maxFollowingScanned}
+   * followings are visited (evenly sampled when the user follows more), at most
+   * {@code maxNeighborScanned} edges are sampled the same way per visited following, and at most
+   * {@code maxCandidates} distinct candidates are tallied.
+   */
+  public List<Candidate> friendsOfFriends(
+    UUID userId,
+    int maxFollowingScanned,
+    int maxNeighborScanned,
+    int maxCandidates,
+    int limit
+  ) {
+    if (userId == null || limit <= 0) return List.of();
+    lock.readLock().lock();
+    try {
+      Integer self = adjacency.ordinals.get(userId);
+      RoaringBitmap mine = self == null ? null : adjacency.following.get(self);
+      if (mine == null || mine.isEmpty()) return List.of();
+
+      int followingCount = mine.getCardinality();
+      int scanned = Math.min(followingCount, Math.max(1, maxFollowingScanned));
+      Map<Integer, Integer> mutuals = new HashMap<>();
+      for (int i = 0; i < scanned; i++) {
+        int via = mine.select((int) ((long) i * followingCount / scanned));
+        RoaringBitmap theirs = adjacency.following.get(via);
+        if (theirs == null) continue;
+        int theirCount = theirs.getCardinality();
+        int reads = Math.min(theirCount, Math.max(1, maxNeighborScanned));
+        // Ordinals are handed out in scan order and then as new users show up, so a prefix of the
+        // bitmap is mostly old accounts; sample evenly across the whole list from a random start.
+        int start = reads == theirCount ? 0 : ThreadLocalRandom.current().nextInt(theirCount);
+        for (int read = 0; read < reads; read++) {
+          int candidate = theirs.select((int) ((start + (long) read * theirCount / reads) % theirCount));
+          if (candidate == self || mine.contains(candidate)) continue;
+          Integer count = mutuals.get(candidate);
+          if (count != null) {
+            mutuals.put(candidate, count + 1);
+          } else if (mutuals.size() < maxCandidates) {
+            mutuals.put(candidate, 1);
+          }
+        }
+      }
+
+      PriorityQueue<Map.Entry<Integer, Integer>> top = new PriorityQueue<>(
+        (a, b) -> a.getValue().equals(b.getValue())
+          ? Integer.compare(b.getKey(), a.getKey())
+          : Integer.compare(a.getValue(), b.getValue())
+      );
+      for (Map.Entry<Integer, Integer> entry : mutuals.entrySet()) {
+        top.offer(entry);
+        if (top.size() > limit) top.poll();
+      }
+      List<Candidate> out = new ArrayList<>(top.size());
+      while (!top.isEmpty()) {
+        Map.Entry<Integer, Integer> entry = top.poll();
+        out.add(new Candidate(adjacency.users.get(entry.getKey()), entry.getValue()));
+      }
+      return out.reversed();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onEdgeChanged(FollowEdgeChangedEvent event) {
+    if (event == null || event.followerUserId() == null || event.followingUserId() == null) return;
+    lock.writeLock().lock();
+    try {
+      if (pendingDuringRebuild != null) {
+        pendingDuringRebuild.add(event);
+      }
+      adjacency.apply(event);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.social.follow-graph.initial-delay-ms:0}",
+    fixedDelayString = "${app.social.follow-graph.refresh-ms:900000}"
+  )
+  public void rebuild() {
+    lock.writeLock().lock();
+    try {
+      pendingDuringRebuild = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    Adjacency fresh = new Adjacency();
+    long started = System.nanoTime();
+    try {
+      jdbc.query(
+        """
+        SELECT follower_user_id, following_user_id
+        FROM user_follow
+        WHERE status = 'ACCEPTED'
+        """,
+        rs -> {
+          fresh.add(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class));
+        }
+      );
+    } catch (Exception e) {
+      log.warn("follow.graph.rebuild failed; keeping previous graph (ready={})", ready, e);
+      lock.writeLock().lock();
+      try {
+        pendingDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      return;
+    }
+    fresh.optimize();
+
+    lock.writeLock().lock();
+    try {
+      for (FollowEdgeChangedEvent event : pendingDuringRebuild) {
+        fresh.apply(event);
+      }
+      pendingDuringRebuild = null;
+      adjacency = fresh;
+      ready = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info(
+      "follow.graph.rebuild users={} edges={} tookMs={}",
+      fresh.ordinals.size(),
+      fresh.edgeCount(),
+      (System.nanoTime() - started) / 1_000_000L
+    );
+  }
+
+  private Set<UUID> filterByBitmap(RoaringBitmap bitmap, Collection<UUID> candidates) {
+    if (bitmap == null || bitmap.isEmpty() || candidates == null || candidates.isEmpty()) return Set.of();
+    Set<UUID> out = new HashSet<>();
+    for (UUID candidate : candidates) {
+      if (candidate == null) continue;
+      Integer ordinal = adjacency.ordinals.get(candidate);
+      if (ordinal != null && bitmap.contains(ordinal)) out.add(candidate);
+    }
+    return out;
+  }
+
+  public record Candidate(UUID userId, int mutualCount) {}
+
+  private static final class Adjacency {
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<UUID> users = new ArrayList<>();
+    private final Map<Integer, RoaringBitmap> following = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> followers = new HashMap<>();
+
+    void apply(FollowEdgeChangedEvent event) {
+      if (event.accepted()) {
+        add(event.followerUserId(), event.followingUserId());
+      } else {
+        remove(event.followerUserId(), event.followingUserId());
+      }
+    }
+
+    void add(UUID followerUserId, UUID followingUserId) {
+      int follower = ordinal(followerUserId);
+      int target = ordinal(followingUserId);
+      following.computeIfAbsent(follower, k -> new RoaringBitmap()).add(target);
+      followers.computeIfAbsent(target, k -> new RoaringBitmap()).add(follower);
+    }
+
+    void remove(UUID followerUserId, UUID followingUserId) {
+      Integer follower = ordinals.get(followerUserId);
+      Integer target = ordinals.get(followingUserId);
+      if (follower == null || target == null) return;
+      RoaringBitmap out = following.get(follower);
+      if (out != null) out.remove(target);
+      RoaringBitmap in = followers.get(target);
+      if (in != null) in.remove(follower);
+    }
+
+    void optimize() {
+      following.values().forEach(RoaringBitmap::runOptimize);
+      followers.values().forEach(RoaringBitmap::runOptimize);
+    }
+
+    long edgeCount() {
+      long total = 0;
+      for (RoaringBitmap bitmap : following.values()) total += bitmap.getLongCardinality();
+      return total;
+    }
+
+    private int ordinal(UUID userId) {
+      Integer existing = ordinals.get(userId);
+      if (existing != null) return existing;
+      int next = users.size();
+      users.add(userId);
+      ordinals.put(userId, next);
+      return next;
+    }
+  }
+}
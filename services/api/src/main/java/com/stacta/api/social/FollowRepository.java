@@ -51,16 +51,9 @@ public interface FollowRepository extends JpaRepository<FollowRelationship, UUID
       u.display_name AS displayName,
       u.avatar_object_key AS avatarObjectKey,
       u.avatar_url AS avatarUrl,
+      u.id AS userId,
       u.is_private AS isPrivate,
-      EXISTS (
-        SELECT 1
-        FROM user_follow reverse_fr
-        WHERE reverse_fr.follower_user_id = :viewerUserId
-          AND reverse_fr.following_user_id = fr.follower_user_id
-          AND reverse_fr.status = 'ACCEPTED'
-      ) AS isFollowing,
-      COALESCE(fr.responded_at, fr.created_at) AS followedAt,
-      TRUE AS followsYou
+      COALESCE(fr.responded_at, fr.created_at) AS followedAt
     FROM user_follow fr
     JOIN users u ON u.id = fr.follower_user_id
     WHERE fr.following_user_id = :viewerUserId
@@ -89,16 +82,9 @@ public interface FollowRepository extends JpaRepository<FollowRelationship, UUID
       u.display_name AS displayName,
       u.avatar_object_key AS avatarObjectKey,
       u.avatar_url AS avatarUrl,
+      u.id AS userId,
       u.is_private AS isPrivate,
-      TRUE AS isFollowing,
-      COALESCE(fr.responded_at, fr.created_at) AS followedAt,
-      EXISTS (
-        SELECT 1
-        FROM user_follow reverse_fr
-        WHERE reverse_fr.follower_user_id = fr.following_user_id
-          AND reverse_fr.following_user_id = :viewerUserId
-          AND reverse_fr.status = 'ACCEPTED'
-      ) AS followsYou
+      COALESCE(fr.responded_at, fr.created_at) AS followedAt
     FROM user_follow fr
     JOIN users u ON u.id = fr.following_user_id
     WHERE fr.follower_user_id = :viewerUserId
@@ -120,6 +106,30 @@ public interface FollowRepository extends JpaRepository<FollowRelationship, UUID
     Pageable pageable
   );
 
+  @Query(value = """
+    SELECT following_user_id
+    FROM user_follow
+    WHERE follower_user_id = :followerUserId
+      AND following_user_id IN (:candidateIds)
+      AND status = 'ACCEPTED'
+    """, nativeQuery = true)
+  List<UUID> findAcceptedFollowingIdsAmong(
+    @Param("followerUserId") UUID followerUserId,
+    @Param("candidateIds") List<UUID> candidateIds
+  );
+
+  @Query(value = """
+    SELECT follower_user_id
+    FROM user_follow
+    WHERE following_user_id = :followingUserId
+      AND follower_user_id IN (:candidateIds)
+      AND status = 'ACCEPTED'
+    """, nativeQuery = true)
+  List<UUID> findAcceptedFollowerIdsAmong(
+    @Param("followingUserId") UUID followingUserId,
+    @Param("candidateIds") List<UUID> candidateIds
+  );
+
   interface PendingFollowRequestView {
     UUID getId();
     String getUsername();
@@ -131,13 +141,12 @@ public interface FollowRepository extends JpaRepository<FollowRelationship, UUID
 
   interface FollowConnectionView {
     UUID getId();
+    UUID getUserId();
     String getUsername();
     String getDisplayName();
     String getAvatarObjectKey();
     String getAvatarUrl();
     Boolean getIsPrivate();
-    Boolean getIsFollowing();
     Instant getFollowedAt();
-    Boolean getFollowsYou();
   }
 }
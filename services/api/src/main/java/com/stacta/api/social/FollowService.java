@@ -9,6 +9,7 @@ import com.stacta.api.social.dto.NotificationsResponse;
 import com.stacta.api.social.dto.PendingFollowRequestItem;
 import com.stacta.api.social.dto.PendingFollowRequestsResponse;
 import com.stacta.api.social.dto.UnreadNotificationsResponse;
+import com.stacta.api.text.Canonical;
 import com.stacta.api.upload.UploadImageUrlResolver;
 import com.stacta.api.user.User;
 import com.stacta.api.user.UserRepository;
@@ -16,8 +17,10 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.Base64;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -39,19 +42,28 @@ public class FollowService {
   private final ActivityEventRepository activities;
   private final UserRepository users;
   private final UploadImageUrlResolver imageUrlResolver;
+  private final FollowGraph graph;
+  private final FollowCounterService counters;
+  private final ApplicationEventPublisher events;
 
   public FollowService(
     FollowRepository follows,
     NotificationEventRepository notifications,
     ActivityEventRepository activities,
     UserRepository users,
-    UploadImageUrlResolver imageUrlResolver
+    UploadImageUrlResolver imageUrlResolver,
+    FollowGraph graph,
+    FollowCounterService counters,
+    ApplicationEventPublisher events
   ) {
     this.follows = follows;
     this.notifications = notifications;
     this.activities = activities;
     this.users = users;
     this.imageUrlResolver = imageUrlResolver;
+    this.graph = graph;
+    this.counters = counters;
+    this.events = events;
   }
 
   @Transactional
@@ -78,10 +90,10 @@ public class FollowService {
     }
     follows.save(fr);
     if (ACCEPTED.equals(fr.getStatus())) {
-      users.bumpFollowingCount(me.getId(), 1);
-      users.bumpFollowersCount(target.getId(), 1);
+      counters.applyEdge(me.getId(), target.getId(), 1);
       appendFollowNotification(fr);
       appendFollowActivity(fr);
+      events.publishEvent(new FollowEdgeChangedEvent(me.getId(), target.getId(), true));
     }
     return new FollowActionResponse(fr.getStatus());
   }
@@ -97,8 +109,8 @@ public class FollowService {
         if (ACCEPTED.equals(rel.getStatus())) {
           activities.deleteBySourceFollowId(rel.getId());
           follows.delete(rel);
-          users.bumpFollowingCount(me.getId(), -1);
-          users.bumpFollowersCount(target.getId(), -1);
+          counters.applyEdge(me.getId(), target.getId(), -1);
+          events.publishEvent(new FollowEdgeChangedEvent(me.getId(), target.getId(), false));
         } else {
           follows.delete(rel);
         }
@@ -153,14 +165,15 @@ public class FollowService {
 
     boolean hasMore = rows.size() > safeLimit;
     var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
+    Set<UUID> followedBack = followingAmong(me.getId(), pageRows.stream().map(FollowRepository.FollowConnectionView::getUserId).toList());
     var items = pageRows.stream()
       .map(v -> new FollowConnectionItem(
         v.getUsername(),
         v.getDisplayName(),
         imageUrlResolver.resolveWithFallback(v.getAvatarObjectKey(), v.getAvatarUrl()),
         Boolean.TRUE.equals(v.getIsPrivate()),
-        Boolean.TRUE.equals(v.getIsFollowing()),
-        Boolean.TRUE.equals(v.getFollowsYou()),
+        followedBack.contains(v.getUserId()),
+        true,
         v.getFollowedAt()
       ))
       .toList();
@@ -188,14 +201,15 @@ public class FollowService {
 
     boolean hasMore = rows.size() > safeLimit;
     var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
+    Set<UUID> followsMe = followersAmong(me.getId(), pageRows.stream().map(FollowRepository.FollowConnectionView::getUserId).toList());
     var items = pageRows.stream()
       .map(v -> new FollowConnectionItem(
         v.getUsername(),
         v.getDisplayName(),
         imageUrlResolver.resolveWithFallback(v.getAvatarObjectKey(), v.getAvatarUrl()),
         Boolean.TRUE.equals(v.getIsPrivate()),
-        Boolean.TRUE.equals(v.getIsFollowing()),
-        Boolean.TRUE.equals(v.getFollowsYou()),
+        true,
+        followsMe.contains(v.getUserId()),
         v.getFollowedAt()
       ))
       .toList();
@@ -221,10 +235,10 @@ public class FollowService {
     request.setStatus(ACCEPTED);
     request.setRespondedAt(Instant.now());
     follows.save(request);
-    users.bumpFollowingCount(request.getFollowerUserId(), 1);
-    users.bumpFollowersCount(request.getFollowingUserId(), 1);
+    counters.applyEdge(request.getFollowerUserId(), request.getFollowingUserId(), 1);
     appendFollowNotification(request);
     appendFollowActivity(request);
+    events.publishEvent(new FollowEdgeChangedEvent(request.getFollowerUserId(), request.getFollowingUserId(), true));
   }
 
   @Transactional
@@ -310,6 +324,10 @@ public class FollowService {
     return notifications.softDeleteAllReadForRecipient(me.getId(), me.getNotificationsSeenAt(), Instant.now());
   }
 
+  /**
+   * Gates private profiles, feeds and threads, so it always reads user_follow: the graph only hears
+   * about unfollows made on other instances at its next rebuild. Display flags use the graph.
+   */
   @Transactional(readOnly = true)
   public boolean isFollowing(UUID followerUserId, UUID followingUserId) {
     return follows.existsByFollowerUserIdAndFollowingUserIdAndStatus(followerUserId, followingUserId, ACCEPTED);
@@ -320,6 +338,18 @@ public class FollowService {
     return follows.existsByFollowerUserIdAndFollowingUserIdAndStatus(followerUserId, followingUserId, PENDING);
   }
 
+  private Set<UUID> followingAmong(UUID followerUserId, List<UUID> candidates) {
+    if (candidates.isEmpty()) return Set.of();
+    if (graph.isReady()) return graph.followingAmong(followerUserId, candidates);
+    return Set.copyOf(follows.findAcceptedFollowingIdsAmong(followerUserId, candidates));
+  }
+
+  private Set<UUID> followersAmong(UUID followingUserId, List<UUID> candidates) {
+    if (candidates.isEmpty()) return Set.of();
+    if (graph.isReady()) return graph.followersAmong(followingUserId, candidates);
+    return Set.copyOf(follows.findAcceptedFollowerIdsAmong(followingUserId, candidates));
+  }
+
   private User getViewer(String viewerSub) {
     return users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
   }
@@ -339,12 +369,7 @@ public class FollowService {
   }
 
   private String normalizeUsername(String raw) {
-    String cleaned = raw == null ? "" : raw
-      .trim()
-      .toLowerCase()
-      .replaceAll("^@+", "")
-      .replaceAll("[^a-z0-9_]", "");
-    return cleaned.length() > 20 ? cleaned.substring(0, 20) : cleaned;
+    return Canonical.username(raw);
   }
 
   private record CursorToken(Instant at, UUID id) {}
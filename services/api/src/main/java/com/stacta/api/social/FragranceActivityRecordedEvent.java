@@ -0,0 +1,30 @@
+package com.stacta.api.social;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction when an activity_event row about a fragrance (review,
+ * collection add, wishlist add) is saved; {@link TrendingFragrances} counts it after commit.
+ */
+public record FragranceActivityRecordedEvent(
+  UUID activityId,
+  String type,
+  String fragranceSource,
+  String fragranceExternalId,
+  String fragranceName,
+  String fragranceImageUrl,
+  Instant createdAt
+) {
+  public static FragranceActivityRecordedEvent of(ActivityEvent saved) {
+    return new FragranceActivityRecordedEvent(
+      saved.getId(),
+      saved.getType(),
+      saved.getFragranceSource(),
+      saved.getFragranceExternalId(),
+      saved.getFragranceName(),
+      saved.getFragranceImageUrl(),
+      saved.getCreatedAt()
+    );
+  }
+}
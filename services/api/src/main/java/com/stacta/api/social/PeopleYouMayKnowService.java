@@ -0,0 +1,231 @@
+package com.stacta.api.social;
+
+import com.stacta.api.social.dto.UserSuggestionItem;
+import com.stacta.api.upload.UploadImageUrlResolver;
+import com.stacta.api.user.ViewerIdentity;
+import com.stacta.api.user.ViewerIdentityResolver;
+import java.sql.Array;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * "People you may know": friends-of-friends from {@link FollowGraph}, scored by mutual follows and
+ * by how many fragrances the candidate shares with the viewer's collection.
+ *
+ * Only ranked ids and scores are cached (LRU, one entry per recently active user). Entries go stale
+ * after a TTL or when the user's own followings change, and stale entries are served while a
+ * refresh runs in the background.
+ */
+@Service
+public class PeopleYouMayKnowService {
+  private static final Logger log = LoggerFactory.getLogger(PeopleYouMayKnowService.class);
+
+  private static final int MAX_FOLLOWING_SCANNED = 500;
+  private static final int MAX_NEIGHBOR_SCANNED = 1_000;
+  private static final int MAX_CANDIDATES = 20_000;
+  private static final int SCORED_CANDIDATES = 200;
+  private static final int CACHED_PER_USER = 50;
+  private static final double MUTUAL_WEIGHT = 2.0;
+  private static final int SHARED_FRAGRANCE_CAP = 20;
+
+  private final ViewerIdentityResolver identities;
+  private final FollowGraph graph;
+  private final JdbcTemplate jdbc;
+  private final UploadImageUrlResolver imageUrlResolver;
+  private final Executor executor;
+  private final Duration ttl;
+  private final Map<UUID, CachedSuggestions> cache;
+  private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+
+  public PeopleYouMayKnowService(
+    ViewerIdentityResolver identities,
+    FollowGraph graph,
+    JdbcTemplate jdbc,
+    UploadImageUrlResolver imageUrlResolver,
+    @Qualifier("socialExecutor") Executor executor,
+    @Value("${app.social.suggestions.ttl-minutes:30}") long ttlMinutes,
+    @Value("${app.social.suggestions.max-cached-users:10000}") int maxCachedUsers
+  ) {
+    this.identities = identities;
+    this.graph = graph;
+    this.jdbc = jdbc;
+    this.imageUrlResolver = imageUrlResolver;
+    this.executor = executor;
+    this.ttl = Duration.ofMinutes(Math.max(1, ttlMinutes));
+    int capacity = Math.max(1, maxCachedUsers);
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<UUID, CachedSuggestions> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+  public List<UserSuggestionItem> suggestions(String viewerSub, int limit) {
+    ViewerIdentity me = identities.require(viewerSub);
+    int safeLimit = Math.max(1, Math.min(limit, 20));
+    if (!graph.isReady()) return List.of();
+
+    CachedSuggestions cached = cache.get(me.userId());
+    if (cached == null) {
+      cached = compute(me.userId());
+      cache.put(me.userId(), cached);
+    } else if (cached.stale() || cached.computedAt().plus(ttl).isBefore(Instant.now())) {
+      scheduleRefresh(me.userId());
+    }
+    return hydrate(me.userId(), cached.entries(), safeLimit);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onEdgeChanged(FollowEdgeChangedEvent event) {
+    if (event == null || event.followerUserId() == null) return;
+    CachedSuggestions cached = cache.get(event.followerUserId());
+    if (cached == null) return;
+    cache.put(event.followerUserId(), cached.markStale());
+    scheduleRefresh(event.followerUserId());
+  }
+
+  private void scheduleRefresh(UUID userId) {
+    if (!refreshing.add(userId)) return;
+    try {
+      executor.execute(() -> {
+        try {
+          cache.put(userId, compute(userId));
+        } catch (Exception e) {
+          log.warn("suggestions.refresh failed userId={}", userId, e);
+        } finally {
+          refreshing.remove(userId);
+        }
+      });
+    } catch (RuntimeException rejected) {
+      // Executor saturated; the next read retries.
+      refreshing.remove(userId);
+    }
+  }
+
+  private CachedSuggestions compute(UUID userId) {
+    List<FollowGraph.Candidate> candidates = graph.friendsOfFriends(
+      userId,
+      MAX_FOLLOWING_SCANNED,
+      MAX_NEIGHBOR_SCANNED,
+      MAX_CANDIDATES,
+      SCORED_CANDIDATES
+    );
+    if (candidates.isEmpty()) return new CachedSuggestions(List.of(), Instant.now(), false);
+
+    Map<UUID, Integer> shared = sharedFragranceCounts(
+      userId,
+      candidates.stream().map(FollowGraph.Candidate::userId).toList()
+    );
+    List<ScoredCandidate> scored = new ArrayList<>(candidates.size());
+    for (FollowGraph.Candidate candidate : candidates) {
+      int sharedCount = shared.getOrDefault(candidate.userId(), 0);
+      double score = candidate.mutualCount() * MUTUAL_WEIGHT + Math.min(sharedCount, SHARED_FRAGRANCE_CAP);
+      scored.add(new ScoredCandidate(candidate.userId(), candidate.mutualCount(), sharedCount, score));
+    }
+    scored.sort(Comparator.comparingDouble(ScoredCandidate::score).reversed());
+    List<ScoredCandidate> kept = List.copyOf(scored.subList(0, Math.min(scored.size(), CACHED_PER_USER)));
+    return new CachedSuggestions(kept, Instant.now(), false);
+  }
+
+  private Map<UUID, Integer> sharedFragranceCounts(UUID userId, List<UUID> candidateIds) {
+    Map<UUID, Integer> out = new HashMap<>();
+    jdbc.query(
+      """
+      SELECT theirs.user_id, COUNT(*)::int AS shared
+      FROM user_collection_item mine
+      JOIN user_collection_item theirs
+        ON theirs.fragrance_source = mine.fragrance_source
+       AND theirs.fragrance_external_id = mine.fragrance_external_id
+      WHERE mine.user_id = ?
+        AND theirs.user_id = ANY(?)
+      GROUP BY theirs.user_id
+      """,
+      ps -> {
+        ps.setObject(1, userId);
+        Array ids = ps.getConnection().createArrayOf("uuid", candidateIds.toArray());
+        ps.setArray(2, ids);
+      },
+      rs -> {
+        out.put(rs.getObject(1, UUID.class), rs.getInt(2));
+      }
+    );
+    return out;
+  }
+
+  private List<UserSuggestionItem> hydrate(UUID viewerUserId, List<ScoredCandidate> entries, int limit) {
+    if (entries.isEmpty()) return List.of();
+    // Drop anyone followed since the entry was computed; over-fetch a little to keep the page full.
+    List<UUID> window = entries.stream()
+      .limit(Math.min(entries.size(), limit * 2L))
+      .map(ScoredCandidate::userId)
+      .toList();
+    Set<UUID> alreadyFollowing = graph.followingAmong(viewerUserId, window);
+
+    Map<UUID, UserSuggestionItem> byId = new HashMap<>();
+    jdbc.query(
+      """
+      SELECT id, username, display_name, avatar_object_key, avatar_url, is_private
+      FROM users
+      WHERE id = ANY(?)
+        AND username IS NOT NULL
+      """,
+      ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", window.toArray())),
+      rs -> {
+        UUID id = rs.getObject("id", UUID.class);
+        byId.put(id, new UserSuggestionItem(
+          rs.getString("username"),
+          rs.getString("display_name"),
+          imageUrlResolver.resolveWithFallback(rs.getString("avatar_object_key"), rs.getString("avatar_url")),
+          rs.getBoolean("is_private"),
+          0,
+          0
+        ));
+      }
+    );
+
+    List<UserSuggestionItem> out = new ArrayList<>(limit);
+    for (ScoredCandidate entry : entries) {
+      if (out.size() >= limit) break;
+      if (alreadyFollowing.contains(entry.userId())) continue;
+      UserSuggestionItem user = byId.get(entry.userId());
+      if (user == null) continue;
+      out.add(new UserSuggestionItem(
+        user.username(),
+        user.displayName(),
+        user.avatarUrl(),
+        user.isPrivate(),
+        entry.mutualCount(),
+        entry.sharedFragranceCount()
+      ));
+    }
+    return out;
+  }
+
+  private record ScoredCandidate(UUID userId, int mutualCount, int sharedFragranceCount, double score) {}
+
+  private record CachedSuggestions(List<ScoredCandidate> entries, Instant computedAt, boolean stale) {
+    CachedSuggestions markStale() {
+      return new CachedSuggestions(entries, computedAt, true);
+    }
+  }
+}
@@ -2,11 +2,20 @@ package com.stacta.api.social;
 
 import com.stacta.api.config.ApiException;
 import com.stacta.api.social.dto.ReviewCommentItem;
+import com.stacta.api.social.dto.ReviewCommentsResponse;
 import com.stacta.api.social.dto.ReviewThreadResponse;
 import com.stacta.api.upload.UploadImageUrlResolver;
 import com.stacta.api.user.User;
 import com.stacta.api.user.UserRepository;
+import com.stacta.api.user.ViewerIdentity;
+import com.stacta.api.user.ViewerIdentityResolver;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -21,6 +30,7 @@ public class ReviewCommentService {
   private static final Set<String> REPORT_REASONS = Set.of("SPAM", "INAPPROPRIATE", "HARASSMENT", "OTHER");
 
   private final UserRepository users;
+  private final ViewerIdentityResolver identities;
   private final ActivityEventRepository activities;
   private final FollowService follows;
   private final JdbcTemplate jdbc;
@@ -28,12 +38,14 @@ public class ReviewCommentService {
 
   public ReviewCommentService(
     UserRepository users,
+    ViewerIdentityResolver identities,
     ActivityEventRepository activities,
     FollowService follows,
     JdbcTemplate jdbc,
     UploadImageUrlResolver imageUrlResolver
   ) {
     this.users = users;
+    this.identities = identities;
     this.activities = activities;
     this.follows = follows;
     this.jdbc = jdbc;
@@ -41,24 +53,47 @@ public class ReviewCommentService {
   }
 
   @Transactional(readOnly = true)
-  public ReviewThreadResponse thread(String viewerSub, UUID reviewId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+  public ReviewThreadResponse thread(String viewerSub, UUID reviewId, int commentsLimit) {
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = requireVisibleReview(me, reviewId);
-    var row = activities.findReviewFeedItem(review.getId(), me.getId());
+    var row = activities.findReviewFeedItem(review.getId(), me.userId());
     if (row == null) throw new ApiException("REVIEW_NOT_FOUND");
-    return new ReviewThreadResponse(mapFeed(row), listCommentsInternal(review.getId(), me.getId()));
+    ReviewCommentsResponse comments = listCommentPage(review.getId(), null, me.userId(), commentsLimit, null);
+    return new ReviewThreadResponse(mapFeed(row), comments.items(), comments.nextCursor());
   }
 
   @Transactional(readOnly = true)
-  public List<ReviewCommentItem> listComments(String viewerSub, UUID reviewId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+  public ReviewCommentsResponse listComments(String viewerSub, UUID reviewId, int limit, String cursor) {
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = requireVisibleReview(me, reviewId);
-    return listCommentsInternal(review.getId(), me.getId());
+    return listCommentPage(review.getId(), null, me.userId(), limit, cursor);
+  }
+
+  @Transactional(readOnly = true)
+  public ReviewCommentsResponse listReplies(String viewerSub, UUID reviewId, UUID commentId, int limit, String cursor) {
+    ViewerIdentity me = identities.require(viewerSub);
+    ActivityEvent review = requireVisibleReview(me, reviewId);
+
+    Integer parentExists = jdbc.query(
+      """
+      SELECT 1
+      FROM review_comment
+      WHERE id = ?
+        AND review_id = ?
+      """,
+      rs -> rs.next() ? rs.getInt(1) : null,
+      commentId,
+      review.getId()
+    );
+    if (parentExists == null) {
+      throw new ApiException("COMMENT_NOT_FOUND");
+    }
+    return listCommentPage(review.getId(), commentId, me.userId(), limit, cursor);
   }
 
   @Transactional
   public ReviewCommentItem createComment(String viewerSub, UUID reviewId, String bodyRaw, UUID parentCommentId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = requireVisibleReview(me, reviewId);
 
     String body = safeTrim(bodyRaw);
@@ -68,7 +103,7 @@ public class ReviewCommentService {
 
     UUID parentAuthorUserId = null;
     if (parentCommentId != null) {
-      ParentRow parent = jdbc.query(
+      CommentRow parent = jdbc.query(
         """
         SELECT author_user_id, parent_comment_id
         FROM review_comment
@@ -76,7 +111,7 @@ public class ReviewCommentService {
           AND review_id = ?
         """,
         rs -> rs.next()
-          ? new ParentRow(
+          ? new CommentRow(
             rs.getObject("author_user_id", UUID.class),
             rs.getObject("parent_comment_id", UUID.class)
           )
@@ -107,38 +142,46 @@ public class ReviewCommentService {
         : null,
       review.getId(),
       parentCommentId,
-      me.getId(),
+      me.userId(),
       body
     );
     if (created == null) {
       throw new ApiException("INVALID_COMMENT");
     }
 
+    if (parentCommentId != null) {
+      jdbc.update("UPDATE review_comment SET reply_count = reply_count + 1 WHERE id = ?", parentCommentId);
+    }
     activities.bumpCommentsCount(review.getId(), 1);
-    appendCommentNotifications(me.getId(), review, created.id(), parentCommentId, parentAuthorUserId);
-    return fetchCommentItem(created.id(), me.getId());
+    appendCommentNotifications(me.userId(), review, created.id(), parentCommentId, parentAuthorUserId);
+    return fetchCommentItem(created.id(), me.userId());
   }
 
   @Transactional
   public void deleteComment(String viewerSub, UUID reviewId, UUID commentId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = requireVisibleReview(me, reviewId);
 
-    UUID authorId = jdbc.query(
+    CommentRow target = jdbc.query(
       """
-      SELECT author_user_id
+      SELECT author_user_id, parent_comment_id
       FROM review_comment
       WHERE id = ?
         AND review_id = ?
       """,
-      rs -> rs.next() ? rs.getObject("author_user_id", UUID.class) : null,
+      rs -> rs.next()
+        ? new CommentRow(
+          rs.getObject("author_user_id", UUID.class),
+          rs.getObject("parent_comment_id", UUID.class)
+        )
+        : null,
       commentId,
       review.getId()
     );
-    if (authorId == null) {
+    if (target == null) {
       throw new ApiException("COMMENT_NOT_FOUND");
     }
-    if (!me.getId().equals(authorId)) {
+    if (!me.userId().equals(target.authorUserId())) {
       throw new ApiException("COMMENT_FORBIDDEN");
     }
 
@@ -198,12 +241,18 @@ public class ReviewCommentService {
       throw new ApiException("COMMENT_NOT_FOUND");
     }
 
+    if (target.parentCommentId() != null) {
+      jdbc.update(
+        "UPDATE review_comment SET reply_count = GREATEST(0, reply_count - 1) WHERE id = ?",
+        target.parentCommentId()
+      );
+    }
     activities.bumpCommentsCount(review.getId(), -safeRemoved);
   }
 
   @Transactional
   public void reportComment(String viewerSub, UUID reviewId, UUID commentId, String reasonRaw, String detailsRaw) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     requireVisibleReview(me, reviewId);
     String reason = normalizeReason(reasonRaw);
     String details = nullIfBlank(detailsRaw);
@@ -221,7 +270,7 @@ public class ReviewCommentService {
       """,
       Integer.class,
       commentId,
-      me.getId()
+      me.userId()
     );
     if ((openCount == null ? 0 : openCount) > 0) {
       throw new ApiException("COMMENT_REPORT_ALREADY_EXISTS");
@@ -235,7 +284,7 @@ public class ReviewCommentService {
       WHERE c.id = ?
         AND c.review_id = ?
       """,
-      me.getId(),
+      me.userId(),
       reason,
       details,
       commentId,
@@ -246,23 +295,52 @@ public class ReviewCommentService {
     }
   }
 
-  private ActivityEvent requireVisibleReview(User viewer, UUID reviewId) {
+  private ActivityEvent requireVisibleReview(ViewerIdentity viewer, UUID reviewId) {
     ActivityEvent review = activities.findById(reviewId).orElseThrow(() -> new ApiException("REVIEW_NOT_FOUND"));
     String type = String.valueOf(review.getType());
     if (!"REVIEW_POSTED".equalsIgnoreCase(type) && !"SCENT_POSTED".equalsIgnoreCase(type)) {
       throw new ApiException("REVIEW_NOT_FOUND");
     }
     User actor = users.findById(review.getActorUserId()).orElseThrow(() -> new ApiException("REVIEW_NOT_FOUND"));
-    boolean isOwner = actor.getId().equals(viewer.getId());
-    boolean visible = !actor.isPrivate() || isOwner || follows.isFollowing(viewer.getId(), actor.getId());
+    boolean isOwner = actor.getId().equals(viewer.userId());
+    boolean visible = !actor.isPrivate() || isOwner || follows.isFollowing(viewer.userId(), actor.getId());
     if (!visible) {
       throw new ApiException("REVIEW_NOT_FOUND");
     }
     return review;
   }
 
-  private List<ReviewCommentItem> listCommentsInternal(UUID reviewId, UUID viewerUserId) {
-    return jdbc.query(
+  /**
+   * One keyset page of a single thread level: top-level comments when parentCommentId is null,
+   * otherwise the direct replies of that comment. Served by idx_review_comment_review_parent_created.
+   */
+  private ReviewCommentsResponse listCommentPage(
+    UUID reviewId,
+    UUID parentCommentId,
+    UUID viewerUserId,
+    int limit,
+    String cursor
+  ) {
+    int safeLimit = Math.max(1, Math.min(limit, 50));
+    CommentCursor token = parseCursor(cursor);
+
+    List<Object> args = new ArrayList<>();
+    args.add(viewerUserId);
+    args.add(reviewId);
+    String parentClause = "c.parent_comment_id IS NULL";
+    if (parentCommentId != null) {
+      parentClause = "c.parent_comment_id = ?";
+      args.add(parentCommentId);
+    }
+    String cursorClause = "";
+    if (token != null) {
+      cursorClause = "AND (c.created_at, c.id) > (?, ?)";
+      args.add(Timestamp.from(token.createdAt()));
+      args.add(token.id());
+    }
+    args.add(safeLimit + 1);
+
+    List<ReviewCommentItem> rows = jdbc.query(
       """
       SELECT
         c.id,
@@ -270,6 +348,7 @@ public class ReviewCommentService {
         c.parent_comment_id,
         c.body,
         c.created_at,
+        c.reply_count,
         u.username,
         u.display_name,
         u.avatar_object_key,
@@ -278,22 +357,24 @@ public class ReviewCommentService {
       FROM review_comment c
       JOIN users u ON u.id = c.author_user_id
       WHERE c.review_id = ?
+        AND %s
+        %s
       ORDER BY c.created_at ASC, c.id ASC
-      """,
-      (rs, rowNum) -> new ReviewCommentItem(
-        rs.getObject("id", UUID.class),
-        rs.getObject("review_id", UUID.class),
-        rs.getObject("parent_comment_id", UUID.class),
-        rs.getString("username"),
-        rs.getString("display_name"),
-        imageUrlResolver.resolveWithFallback(rs.getString("avatar_object_key"), rs.getString("avatar_url")),
-        rs.getString("body"),
-        rs.getTimestamp("created_at").toInstant(),
-        rs.getBoolean("viewer_can_delete")
-      ),
-      viewerUserId,
-      reviewId
+      LIMIT ?
+      """.formatted(parentClause, cursorClause),
+      this::mapComment,
+      args.toArray()
     );
+
+    boolean hasMore = rows.size() > safeLimit;
+    var pageRows = hasMore ? rows.subList(0, safeLimit) : rows;
+
+    String nextCursor = null;
+    if (hasMore && !pageRows.isEmpty()) {
+      var last = pageRows.get(pageRows.size() - 1);
+      nextCursor = encodeCursor(last.createdAt(), last.id());
+    }
+    return new ReviewCommentsResponse(List.copyOf(pageRows), nextCursor);
   }
 
   private ReviewCommentItem fetchCommentItem(UUID commentId, UUID viewerUserId) {
@@ -305,6 +386,7 @@ public class ReviewCommentService {
         c.parent_comment_id,
         c.body,
         c.created_at,
+        c.reply_count,
         u.username,
         u.display_name,
         u.avatar_object_key,
@@ -314,24 +396,27 @@ public class ReviewCommentService {
       JOIN users u ON u.id = c.author_user_id
       WHERE c.id = ?
       """,
-      rs -> rs.next()
-        ? new ReviewCommentItem(
-          rs.getObject("id", UUID.class),
-          rs.getObject("review_id", UUID.class),
-          rs.getObject("parent_comment_id", UUID.class),
-          rs.getString("username"),
-          rs.getString("display_name"),
-          imageUrlResolver.resolveWithFallback(rs.getString("avatar_object_key"), rs.getString("avatar_url")),
-          rs.getString("body"),
-          rs.getTimestamp("created_at").toInstant(),
-          rs.getBoolean("viewer_can_delete")
-        )
-        : null,
+      rs -> rs.next() ? mapComment(rs, 0) : null,
       viewerUserId,
       commentId
     );
   }
 
+  private ReviewCommentItem mapComment(ResultSet rs, int rowNum) throws SQLException {
+    return new ReviewCommentItem(
+      rs.getObject("id", UUID.class),
+      rs.getObject("review_id", UUID.class),
+      rs.getObject("parent_comment_id", UUID.class),
+      rs.getString("username"),
+      rs.getString("display_name"),
+      imageUrlResolver.resolveWithFallback(rs.getString("avatar_object_key"), rs.getString("avatar_url")),
+      rs.getString("body"),
+      rs.getTimestamp("created_at").toInstant(),
+      rs.getInt("reply_count"),
+      rs.getBoolean("viewer_can_delete")
+    );
+  }
+
   private void appendCommentNotifications(
     UUID actorUserId,
     ActivityEvent review,
@@ -435,7 +520,26 @@ public class ReviewCommentService {
     return trimmed.isEmpty() ? null : trimmed;
   }
 
-  private record ParentRow(UUID authorUserId, UUID parentCommentId) {}
+  private record CommentCursor(Instant createdAt, UUID id) {}
+
+  private CommentCursor parseCursor(String cursor) {
+    if (cursor == null || cursor.isBlank()) return null;
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = decoded.split("\\|", 2);
+      if (parts.length != 2) throw new IllegalArgumentException("invalid cursor");
+      return new CommentCursor(Instant.parse(parts[0]), UUID.fromString(parts[1]));
+    } catch (Exception e) {
+      throw new ApiException("INVALID_CURSOR");
+    }
+  }
+
+  private String encodeCursor(Instant createdAt, UUID id) {
+    String raw = createdAt + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private record CommentRow(UUID authorUserId, UUID parentCommentId) {}
 
   private record CreatedComment(UUID id, Instant createdAt) {}
 }
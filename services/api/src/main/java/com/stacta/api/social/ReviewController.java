@@ -1,16 +1,17 @@
 package com.stacta.api.social;
 
+import com.stacta.api.ratelimit.RateLimited;
 import com.stacta.api.social.dto.CreateReviewRequest;
 import com.stacta.api.social.dto.CreateScentPostRequest;
 import com.stacta.api.social.dto.CreateReviewCommentRequest;
 import com.stacta.api.social.dto.ReportReviewCommentRequest;
 import com.stacta.api.social.dto.ReportReviewRequest;
 import com.stacta.api.social.dto.ReviewCommentItem;
+import com.stacta.api.social.dto.ReviewCommentsResponse;
 import com.stacta.api.social.dto.ReviewLikeResponse;
 import com.stacta.api.social.dto.ReviewRepostResponse;
 import com.stacta.api.social.dto.ReviewThreadResponse;
 import jakarta.validation.Valid;
-import java.util.List;
 import java.util.UUID;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +22,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -35,6 +37,7 @@ public class ReviewController {
     this.reviewComments = reviewComments;
   }
 
+  @RateLimited(value = "reviews.post", capacity = 20, windowSeconds = 3600)
   @PostMapping
   public void submit(
     @AuthenticationPrincipal Jwt jwt,
@@ -43,6 +46,7 @@ public class ReviewController {
     reviewService.submit(jwt.getSubject(), request);
   }
 
+  @RateLimited(value = "reviews.post", capacity = 20, windowSeconds = 3600)
   @PostMapping("/scent-of-day")
   public void submitScentPost(
     @AuthenticationPrincipal Jwt jwt,
@@ -59,6 +63,7 @@ public class ReviewController {
     reviewService.delete(jwt.getSubject(), reviewId);
   }
 
+  @RateLimited(value = "reactions", capacity = 120)
   @PutMapping("/{reviewId}/like")
   public ReviewLikeResponse like(
     @AuthenticationPrincipal Jwt jwt,
@@ -67,6 +72,7 @@ public class ReviewController {
     return reviewService.like(jwt.getSubject(), reviewId);
   }
 
+  @RateLimited(value = "reactions", capacity = 120)
   @DeleteMapping("/{reviewId}/like")
   public ReviewLikeResponse unlike(
     @AuthenticationPrincipal Jwt jwt,
@@ -75,6 +81,7 @@ public class ReviewController {
     return reviewService.unlike(jwt.getSubject(), reviewId);
   }
 
+  @RateLimited(value = "reactions", capacity = 120)
   @PutMapping("/{reviewId}/repost")
   public ReviewRepostResponse repost(
     @AuthenticationPrincipal Jwt jwt,
@@ -83,6 +90,7 @@ public class ReviewController {
     return reviewService.repost(jwt.getSubject(), reviewId);
   }
 
+  @RateLimited(value = "reactions", capacity = 120)
   @DeleteMapping("/{reviewId}/repost")
   public ReviewRepostResponse unrepost(
     @AuthenticationPrincipal Jwt jwt,
@@ -94,11 +102,13 @@ public class ReviewController {
   @GetMapping("/{reviewId}")
   public ReviewThreadResponse thread(
     @AuthenticationPrincipal Jwt jwt,
-    @PathVariable("reviewId") UUID reviewId
+    @PathVariable("reviewId") UUID reviewId,
+    @RequestParam(name = "commentsLimit", defaultValue = "20") int commentsLimit
   ) {
-    return reviewComments.thread(jwt.getSubject(), reviewId);
+    return reviewComments.thread(jwt.getSubject(), reviewId, commentsLimit);
   }
 
+  @RateLimited(value = "reports", capacity = 10, windowSeconds = 3600)
   @PostMapping("/{reviewId}/report")
   public void report(
     @AuthenticationPrincipal Jwt jwt,
@@ -109,13 +119,27 @@ public class ReviewController {
   }
 
   @GetMapping("/{reviewId}/comments")
-  public List<ReviewCommentItem> comments(
+  public ReviewCommentsResponse comments(
     @AuthenticationPrincipal Jwt jwt,
-    @PathVariable("reviewId") UUID reviewId
+    @PathVariable("reviewId") UUID reviewId,
+    @RequestParam(name = "limit", defaultValue = "20") int limit,
+    @RequestParam(name = "cursor", required = false) String cursor
+  ) {
+    return reviewComments.listComments(jwt.getSubject(), reviewId, limit, cursor);
+  }
+
+  @GetMapping("/{reviewId}/comments/{commentId}/replies")
+  public ReviewCommentsResponse replies(
+    @AuthenticationPrincipal Jwt jwt,
+    @PathVariable("reviewId") UUID reviewId,
+    @PathVariable("commentId") UUID commentId,
+    @RequestParam(name = "limit", defaultValue = "20") int limit,
+    @RequestParam(name = "cursor", required = false) String cursor
   ) {
-    return reviewComments.listComments(jwt.getSubject(), reviewId);
+    return reviewComments.listReplies(jwt.getSubject(), reviewId, commentId, limit, cursor);
   }
 
+  @RateLimited(value = "comments.post", capacity = 30)
   @PostMapping("/{reviewId}/comments")
   public ReviewCommentItem createComment(
     @AuthenticationPrincipal Jwt jwt,
@@ -134,6 +158,7 @@ public class ReviewController {
     reviewComments.deleteComment(jwt.getSubject(), reviewId, commentId);
   }
 
+  @RateLimited(value = "reports", capacity = 10, windowSeconds = 3600)
   @PostMapping("/{reviewId}/comments/{commentId}/report")
   public void reportComment(
     @AuthenticationPrincipal Jwt jwt,
@@ -10,13 +10,15 @@ import com.stacta.api.social.dto.CreateReviewRequest;
 import com.stacta.api.social.dto.CreateScentPostRequest;
 import com.stacta.api.social.dto.ReviewLikeResponse;
 import com.stacta.api.social.dto.ReviewRepostResponse;
-import com.stacta.api.user.User;
-import com.stacta.api.user.UserRepository;
+import com.stacta.api.user.ProfileStatsService;
+import com.stacta.api.user.ViewerIdentity;
+import com.stacta.api.user.ViewerIdentityResolver;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,31 +28,37 @@ public class ReviewService {
   private static final java.util.Set<String> REPORT_REASONS = java.util.Set.of("SPAM", "INAPPROPRIATE", "HARASSMENT", "OTHER");
 
   private final ActivityEventRepository activities;
-  private final UserRepository users;
+  private final ViewerIdentityResolver identities;
   private final ObjectMapper objectMapper;
   private final JdbcTemplate jdbc;
   private final FragranceRepository fragrances;
   private final UserCollectionItemRepository collectionItems;
+  private final ProfileStatsService profileStats;
+  private final ApplicationEventPublisher events;
 
   public ReviewService(
     ActivityEventRepository activities,
-    UserRepository users,
+    ViewerIdentityResolver identities,
     ObjectMapper objectMapper,
     JdbcTemplate jdbc,
     FragranceRepository fragrances,
-    UserCollectionItemRepository collectionItems
+    UserCollectionItemRepository collectionItems,
+    ProfileStatsService profileStats,
+    ApplicationEventPublisher events
   ) {
     this.activities = activities;
-    this.users = users;
+    this.identities = identities;
     this.objectMapper = objectMapper;
     this.jdbc = jdbc;
     this.fragrances = fragrances;
     this.collectionItems = collectionItems;
+    this.profileStats = profileStats;
+    this.events = events;
   }
 
   @Transactional
   public void submit(String viewerSub, CreateReviewRequest req) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
 
     String source = normalizeSource(req.source());
     String externalId = safeTrim(req.externalId());
@@ -66,7 +74,7 @@ public class ReviewService {
     Map<String, Integer> occasion = normalizeRatingMap(req.occasion(), 24);
 
     ActivityEvent event = new ActivityEvent();
-    event.setActorUserId(me.getId());
+    event.setActorUserId(me.userId());
     event.setType("REVIEW_POSTED");
     event.setFragranceName(fragranceName);
     event.setFragranceSource(source);
@@ -77,12 +85,13 @@ public class ReviewService {
     event.setReviewPerformance(toJsonOrNull(performance));
     event.setReviewSeason(toJsonOrNull(season));
     event.setReviewOccasion(toJsonOrNull(occasion));
-    activities.save(event);
+    events.publishEvent(FragranceActivityRecordedEvent.of(activities.save(event)));
+    profileStats.bump(me.userId(), ProfileStatsService.Counter.REVIEWS, 1);
   }
 
   @Transactional
   public void submitScentPost(String viewerSub, CreateScentPostRequest req) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     if (req.scents() == null || req.scents().isEmpty() || req.scents().size() > 3) {
       throw new ApiException("INVALID_REVIEW");
     }
@@ -93,7 +102,7 @@ public class ReviewService {
         String externalId = safeTrim(selection.externalId()).toLowerCase(Locale.ROOT);
         if (externalId.isEmpty()) throw new ApiException("INVALID_REVIEW");
 
-        var owned = collectionItems.findByUserIdAndFragranceSourceAndFragranceExternalId(me.getId(), source, externalId)
+        var owned = collectionItems.findByUserIdAndFragranceSourceAndFragranceExternalId(me.userId(), source, externalId)
           .orElseThrow(() -> new ApiException("INVALID_REVIEW"));
         Map<String, String> item = new LinkedHashMap<>();
         item.put("source", source);
@@ -119,7 +128,7 @@ public class ReviewService {
       .orElse("Scent of the day");
 
     ActivityEvent event = new ActivityEvent();
-    event.setActorUserId(me.getId());
+    event.setActorUserId(me.userId());
     event.setType("SCENT_POSTED");
     event.setFragranceName(joinedNames);
     event.setReviewExcerpt(excerpt);
@@ -129,22 +138,25 @@ public class ReviewService {
 
   @Transactional
   public void delete(String viewerSub, UUID reviewId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent event = activities.findById(reviewId).orElseThrow(() -> new ApiException("REVIEW_NOT_FOUND"));
     if (!isEngageablePostType(event.getType())) {
       throw new ApiException("REVIEW_NOT_FOUND");
     }
-    if (!me.getId().equals(event.getActorUserId())) {
+    if (!me.userId().equals(event.getActorUserId())) {
       throw new ApiException("REVIEW_FORBIDDEN");
     }
     activities.delete(event);
+    if ("REVIEW_POSTED".equals(event.getType())) {
+      profileStats.bump(me.userId(), ProfileStatsService.Counter.REVIEWS, -1);
+    }
   }
 
   @Transactional
   public ReviewLikeResponse like(String viewerSub, UUID reviewId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = getEngageablePostOrThrow(reviewId);
-    if (me.getId().equals(review.getActorUserId())) {
+    if (me.userId().equals(review.getActorUserId())) {
       throw new ApiException("REVIEW_FORBIDDEN");
     }
 
@@ -155,7 +167,7 @@ public class ReviewService {
       ON CONFLICT DO NOTHING
       """,
       reviewId,
-      me.getId()
+      me.userId()
     );
     if (inserted > 0) {
       activities.bumpLikesCount(reviewId, 1);
@@ -168,9 +180,9 @@ public class ReviewService {
 
   @Transactional
   public ReviewLikeResponse unlike(String viewerSub, UUID reviewId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = getEngageablePostOrThrow(reviewId);
-    if (me.getId().equals(review.getActorUserId())) {
+    if (me.userId().equals(review.getActorUserId())) {
       throw new ApiException("REVIEW_FORBIDDEN");
     }
 
@@ -181,7 +193,7 @@ public class ReviewService {
         AND user_id = ?
       """,
       reviewId,
-      me.getId()
+      me.userId()
     );
     if (deleted > 0) {
       activities.bumpLikesCount(reviewId, -1);
@@ -194,9 +206,9 @@ public class ReviewService {
 
   @Transactional
   public ReviewRepostResponse repost(String viewerSub, UUID reviewId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = getEngageablePostOrThrow(reviewId);
-    if (me.getId().equals(review.getActorUserId())) {
+    if (me.userId().equals(review.getActorUserId())) {
       throw new ApiException("REVIEW_FORBIDDEN");
     }
 
@@ -207,11 +219,11 @@ public class ReviewService {
       ON CONFLICT DO NOTHING
       """,
       reviewId,
-      me.getId()
+      me.userId()
     );
     if (inserted > 0) {
       activities.bumpRepostsCount(reviewId, 1);
-      upsertRepostActivity(me.getId(), review);
+      upsertRepostActivity(me.userId(), review);
     }
 
     return new ReviewRepostResponse(getRepostsCount(reviewId), true);
@@ -219,9 +231,9 @@ public class ReviewService {
 
   @Transactional
   public ReviewRepostResponse unrepost(String viewerSub, UUID reviewId) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = getEngageablePostOrThrow(reviewId);
-    if (me.getId().equals(review.getActorUserId())) {
+    if (me.userId().equals(review.getActorUserId())) {
       throw new ApiException("REVIEW_FORBIDDEN");
     }
 
@@ -232,7 +244,7 @@ public class ReviewService {
         AND user_id = ?
       """,
       reviewId,
-      me.getId()
+      me.userId()
     );
     if (deleted > 0) {
       activities.bumpRepostsCount(reviewId, -1);
@@ -243,7 +255,7 @@ public class ReviewService {
           AND type = 'REVIEW_REPOSTED'
           AND source_review_id = ?
         """,
-        me.getId(),
+        me.userId(),
         reviewId
       );
     }
@@ -253,9 +265,9 @@ public class ReviewService {
 
   @Transactional
   public void report(String viewerSub, UUID reviewId, String reasonRaw, String detailsRaw) {
-    User me = users.findByCognitoSub(viewerSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+    ViewerIdentity me = identities.require(viewerSub);
     ActivityEvent review = getEngageablePostOrThrow(reviewId);
-    if (me.getId().equals(review.getActorUserId())) {
+    if (me.userId().equals(review.getActorUserId())) {
       throw new ApiException("REVIEW_FORBIDDEN");
     }
 
@@ -275,7 +287,7 @@ public class ReviewService {
       """,
       Integer.class,
       reviewId,
-      me.getId()
+      me.userId()
     );
     if ((openCount == null ? 0 : openCount) > 0) {
       throw new ApiException("REVIEW_REPORT_ALREADY_EXISTS");
@@ -287,7 +299,7 @@ public class ReviewService {
       VALUES (?, ?, ?, ?)
       """,
       reviewId,
-      me.getId(),
+      me.userId(),
       reason,
       details
     );
@@ -458,7 +470,7 @@ public class ReviewService {
     return trimmed.isEmpty() ? null : trimmed;
   }
 
-  private void validateCanReviewCommunityFragrance(User viewer, String source, String externalId) {
+  private void validateCanReviewCommunityFragrance(ViewerIdentity viewer, String source, String externalId) {
     if (!"COMMUNITY".equalsIgnoreCase(source)) return;
     Fragrance fragrance = fragrances.findByExternalSourceAndExternalId("COMMUNITY", externalId)
       .orElseThrow(() -> new ApiException("INVALID_REVIEW"));
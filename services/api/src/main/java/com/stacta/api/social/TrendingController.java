@@ -0,0 +1,35 @@
+package com.stacta.api.social;
+
+import com.stacta.api.social.dto.TrendingFragranceItem;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/v1/trending")
+public class TrendingController {
+
+  private final TrendingFragrances trending;
+
+  public TrendingController(TrendingFragrances trending) {
+    this.trending = trending;
+  }
+
+  @GetMapping("/fragrances")
+  public List<TrendingFragranceItem> fragrances(
+    @RequestParam(name = "window", defaultValue = "24h") String window,
+    @RequestParam(name = "limit", defaultValue = "20") int limit
+  ) {
+    TrendingFragrances.Window parsed = TrendingFragrances.Window.parse(window);
+    if (parsed == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "window must be one of 1h, 24h, 7d");
+    }
+    return trending.top(parsed, Math.max(1, Math.min(limit, 50))).stream()
+      .map(r -> new TrendingFragranceItem(r.source(), r.externalId(), r.name(), r.imageUrl(), r.score()))
+      .toList();
+  }
+}
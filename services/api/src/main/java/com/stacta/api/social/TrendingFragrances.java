@@ -0,0 +1,411 @@
+package com.stacta.api.social;
+
+import com.stacta.api.fragrance.FragranceImageResolver;
+import com.stacta.api.fragrance.FragranceImageResolver.FragranceRef;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Trending fragrances over the last hour, day and week, counted from fragrance activity (reviews 3,
+ * collection adds 2, wishlist adds 1) without querying activity_event on the read path.
+ *
+ * Each fragrance with activity in the last 7 days has two rings of buckets: 60 one-minute buckets for
+ * the hourly window and 168 one-hour buckets for the daily and weekly ones. A window's score sums its
+ * buckets with exponential decay by age (half-lives of 15 minutes, 6 hours and 2 days), so something
+ * picking up now outranks something that peaked at the start of the window. Rankings are recomputed
+ * on every refresh and served from that snapshot.
+ *
+ * Activity written here arrives through {@link FragranceActivityRecordedEvent} after commit; activity
+ * written by other instances is picked up by tailing activity_event past a created_at watermark, and
+ * activity ids seen recently are remembered so nothing is counted twice. On startup (and every
+ * {@code app.trending.rebuild-ms}) the rings are rebuilt from the last 7 days of history. Deleted
+ * reviews keep counting until they age out of the window.
+ */
+@Component
+public class TrendingFragrances {
+  private static final Logger log = LoggerFactory.getLogger(TrendingFragrances.class);
+
+  private static final int MINUTE_SLOTS = 60;
+  private static final int HOUR_SLOTS = 168;
+  private static final int RANKED_PER_WINDOW = 100;
+  // Re-read a little behind the watermark so rows committed out of created_at order are not missed.
+  private static final long OVERLAP_SECONDS = 120;
+  private static final Map<String, Float> WEIGHTS = Map.of(
+    "REVIEW_POSTED", 3f,
+    "COLLECTION_ITEM_ADDED", 2f,
+    "WISHLIST_ITEM_ADDED", 1f
+  );
+
+  public enum Window {
+    HOUR("1h", 15),
+    DAY("24h", 6 * 60),
+    WEEK("7d", 48 * 60);
+
+    private final String label;
+    private final double halfLifeMinutes;
+
+    Window(String label, double halfLifeMinutes) {
+      this.label = label;
+      this.halfLifeMinutes = halfLifeMinutes;
+    }
+
+    public static Window parse(String raw) {
+      String s = raw == null ? "" : raw.trim().toLowerCase(Locale.ROOT);
+      for (Window w : values()) {
+        if (w.label.equals(s)) return w;
+      }
+      return null;
+    }
+  }
+
+  // Decay by bucket age: minutes for HOUR, hours for DAY and WEEK.
+  private static final double[] DECAY_HOUR = decay(MINUTE_SLOTS, 1, Window.HOUR);
+  private static final double[] DECAY_DAY = decay(24, 60, Window.DAY);
+  private static final double[] DECAY_WEEK = decay(HOUR_SLOTS, 60, Window.WEEK);
+
+  private final JdbcTemplate jdbc;
+  private final FragranceImageResolver fragranceImages;
+  private final long rebuildNanos;
+
+  private volatile State state = new State();
+  private volatile Map<Window, List<Ranked>> rankings = Map.of();
+  private volatile boolean ready = false;
+  private volatile Instant watermark = null;
+  private long lastRebuildNanos;
+
+  // Local events committed while a rebuild is reading history; replayed onto the fresh rings.
+  private List<FragranceActivityRecordedEvent> pendingDuringRebuild = null;
+
+  public TrendingFragrances(
+    JdbcTemplate jdbc,
+    FragranceImageResolver fragranceImages,
+    @Value("${app.trending.rebuild-ms:21600000}") long rebuildMs
+  ) {
+    this.jdbc = jdbc;
+    this.fragranceImages = fragranceImages;
+    this.rebuildNanos = Duration.ofMillis(Math.max(60_000, rebuildMs)).toNanos();
+  }
+
+  /** A ranked fragrance; {@code source} is as the activity stored it. */
+  public record Ranked(String source, String externalId, String name, String imageUrl, double score) {}
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** Best first, from the last refresh; image URLs resolved against the fragrance row when there is one. */
+  public List<Ranked> top(Window window, int limit) {
+    List<Ranked> ranked = rankings.getOrDefault(window, List.of());
+    List<Ranked> page = ranked.subList(0, Math.min(ranked.size(), Math.max(0, limit)));
+    if (page.isEmpty() || fragranceImages == null) return page;
+    Map<FragranceRef, String> images = fragranceImages.resolve(page.stream()
+      .map(r -> new FragranceRef(r.source(), r.externalId()))
+      .toList());
+    return page.stream().map(r -> {
+      FragranceRef ref = new FragranceRef(r.source(), r.externalId());
+      return images.containsKey(ref) ? new Ranked(r.source(), r.externalId(), r.name(), images.get(ref), r.score()) : r;
+    }).toList();
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onActivity(FragranceActivityRecordedEvent event) {
+    if (event == null || event.activityId() == null) return;
+    synchronized (this) {
+      if (pendingDuringRebuild != null) pendingDuringRebuild.add(event);
+    }
+    record(state, event);
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.trending.initial-delay-ms:0}",
+    fixedDelayString = "${app.trending.refresh-ms:15000}"
+  )
+  public void refresh() {
+    if (!ready || System.nanoTime() - lastRebuildNanos > rebuildNanos) {
+      rebuild();
+    } else {
+      tail();
+    }
+    forgetCountedBefore(watermark);
+    rank(Instant.now());
+  }
+
+  private void tail() {
+    Instant since = watermark;
+    Instant[] newest = {since};
+    try {
+      jdbc.query(
+        """
+        SELECT id, type, fragrance_source, fragrance_external_id, fragrance_name, fragrance_image_url, created_at
+        FROM activity_event
+        WHERE type IN ('REVIEW_POSTED', 'COLLECTION_ITEM_ADDED', 'WISHLIST_ITEM_ADDED')
+          AND created_at >= ?
+        """,
+        rs -> {
+          FragranceActivityRecordedEvent event = event(rs);
+          record(state, event);
+          if (event.createdAt().isAfter(newest[0])) newest[0] = event.createdAt();
+        },
+        Timestamp.from(since.minusSeconds(OVERLAP_SECONDS))
+      );
+    } catch (Exception e) {
+      log.warn("trending.tail failed; keeping current counters", e);
+      return;
+    }
+    watermark = newest[0];
+  }
+
+  private void rebuild() {
+    synchronized (this) {
+      pendingDuringRebuild = new ArrayList<>();
+    }
+    State fresh = new State();
+    Instant started = Instant.now();
+    Instant since = started.minus(Duration.ofHours(HOUR_SLOTS));
+    Instant[] newest = {since};
+    int[] rows = {0};
+    try {
+      jdbc.query(
+        """
+        SELECT id, type, fragrance_source, fragrance_external_id, fragrance_name, fragrance_image_url, created_at
+        FROM activity_event
+        WHERE type IN ('REVIEW_POSTED', 'COLLECTION_ITEM_ADDED', 'WISHLIST_ITEM_ADDED')
+          AND created_at >= ?
+        ORDER BY created_at
+        """,
+        rs -> {
+          FragranceActivityRecordedEvent event = event(rs);
+          record(fresh, event);
+          if (event.createdAt().isAfter(newest[0])) newest[0] = event.createdAt();
+          rows[0]++;
+        },
+        Timestamp.from(since)
+      );
+    } catch (Exception e) {
+      log.warn("trending.rebuild failed; keeping previous counters (ready={})", ready, e);
+      synchronized (this) {
+        pendingDuringRebuild = null;
+      }
+      return;
+    }
+
+    synchronized (this) {
+      for (FragranceActivityRecordedEvent event : pendingDuringRebuild) {
+        record(fresh, event);
+      }
+      pendingDuringRebuild = null;
+      state = fresh;
+    }
+    watermark = newest[0];
+    lastRebuildNanos = System.nanoTime();
+    ready = true;
+    log.info(
+      "trending.rebuild events={} fragrances={} tookMs={}",
+      rows[0],
+      fresh.counters.size(),
+      Duration.between(started, Instant.now()).toMillis()
+    );
+  }
+
+  /** Counts one activity unless its id was already counted; ignores types that are not about a fragrance. */
+  static void record(State state, FragranceActivityRecordedEvent event) {
+    Float weight = WEIGHTS.get(event.type());
+    if (weight == null || event.fragranceExternalId() == null || event.createdAt() == null) return;
+    long minute = event.createdAt().getEpochSecond() / 60;
+    if (state.recentIds.putIfAbsent(event.activityId(), minute) != null) return;
+    Key key = Key.of(event.fragranceSource(), event.fragranceExternalId());
+    Counter counter = state.counters.computeIfAbsent(key, k -> new Counter(event.fragranceSource(), event.fragranceExternalId()));
+    counter.add(minute, weight, event.fragranceName(), event.fragranceImageUrl());
+  }
+
+  /** The tail never re-reads rows older than the watermark minus the overlap, so their ids can go. */
+  private void forgetCountedBefore(Instant watermark) {
+    if (watermark == null) return;
+    long floor = watermark.minusSeconds(OVERLAP_SECONDS).getEpochSecond() / 60 - 1;
+    state.recentIds.values().removeIf(minute -> minute < floor);
+  }
+
+  /** Recomputes every window's ranking as of {@code now}, dropping fragrances whose week has passed. */
+  void rank(Instant now) {
+    long nowMinute = now.getEpochSecond() / 60;
+
+    Map<Window, PriorityQueue<Scored>> best = new EnumMap<>(Window.class);
+    for (Window w : Window.values()) best.put(w, new PriorityQueue<>((x, y) -> Double.compare(x.score(), y.score())));
+    double[] scores = new double[3];
+    state.counters.entrySet().removeIf(entry -> {
+      Counter counter = entry.getValue();
+      if (!counter.scores(nowMinute, scores)) return true;
+      for (Window w : Window.values()) {
+        double score = scores[w.ordinal()];
+        if (score <= 0) continue;
+        PriorityQueue<Scored> heap = best.get(w);
+        // Over-keep so dropping non-public community fragrances below still fills the list.
+        if (heap.size() < RANKED_PER_WINDOW * 2) {
+          heap.offer(new Scored(counter, score));
+        } else if (score > heap.peek().score()) {
+          heap.poll();
+          heap.offer(new Scored(counter, score));
+        }
+      }
+      return false;
+    });
+
+    Set<String> hiddenCommunity = hiddenCommunity(best);
+    Map<Window, List<Ranked>> out = new EnumMap<>(Window.class);
+    for (Window w : Window.values()) {
+      Scored[] sorted = best.get(w).toArray(Scored[]::new);
+      Arrays.sort(sorted, (x, y) -> Double.compare(y.score(), x.score()));
+      List<Ranked> ranked = new ArrayList<>();
+      for (Scored s : sorted) {
+        if (ranked.size() >= RANKED_PER_WINDOW) break;
+        Counter c = s.counter();
+        if ("COMMUNITY".equalsIgnoreCase(c.source) && hiddenCommunity.contains(c.externalId)) continue;
+        ranked.add(new Ranked(c.source, c.externalId, c.name, c.imageUrl, Math.round(s.score() * 100) / 100.0));
+      }
+      out.put(w, List.copyOf(ranked));
+    }
+    rankings = out;
+  }
+
+  /** Ranked community fragrances that are no longer public (or no longer exist). */
+  private Set<String> hiddenCommunity(Map<Window, PriorityQueue<Scored>> best) {
+    Set<String> community = new HashSet<>();
+    for (PriorityQueue<Scored> heap : best.values()) {
+      for (Scored s : heap) {
+        if ("COMMUNITY".equalsIgnoreCase(s.counter().source)) community.add(s.counter().externalId);
+      }
+    }
+    if (community.isEmpty() || jdbc == null) return Set.of();
+    Set<String> visible = new HashSet<>();
+    jdbc.query(
+      """
+      SELECT external_id
+      FROM fragrance
+      WHERE UPPER(external_source) = 'COMMUNITY'
+        AND visibility = 'PUBLIC'
+        AND external_id = ANY(?)
+      """,
+      ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", community.toArray())),
+      rs -> {
+        visible.add(rs.getString(1));
+      }
+    );
+    community.removeAll(visible);
+    return community;
+  }
+
+  private static FragranceActivityRecordedEvent event(ResultSet rs) throws SQLException {
+    return new FragranceActivityRecordedEvent(
+      rs.getObject(1, UUID.class),
+      rs.getString(2),
+      rs.getString(3),
+      rs.getString(4),
+      rs.getString(5),
+      rs.getString(6),
+      rs.getTimestamp(7).toInstant()
+    );
+  }
+
+  private static double[] decay(int slots, int minutesPerSlot, Window window) {
+    double[] out = new double[slots];
+    for (int age = 0; age < slots; age++) {
+      out[age] = Math.pow(0.5, age * minutesPerSlot / window.halfLifeMinutes);
+    }
+    return out;
+  }
+
+  record Key(String source, String externalId) {
+    static Key of(String source, String externalId) {
+      return new Key(source == null ? "" : source.trim().toUpperCase(Locale.ROOT), externalId);
+    }
+  }
+
+  private record Scored(Counter counter, double score) {}
+
+  /** Counters plus the activity ids already counted into them, swapped together on rebuild. */
+  static final class State {
+    private final ConcurrentHashMap<Key, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Long> recentIds = new ConcurrentHashMap<>();
+  }
+
+  /** Minute and hour rings for one fragrance; {@code minute}/{@code hour} are the newest slots written. */
+  static final class Counter {
+    private final String source;
+    private final String externalId;
+    private String name;
+    private String imageUrl;
+    private final float[] minutes = new float[MINUTE_SLOTS];
+    private final float[] hours = new float[HOUR_SLOTS];
+    private long minute = Long.MIN_VALUE;
+    private long hour = Long.MIN_VALUE;
+
+    Counter(String source, String externalId) {
+      this.source = source;
+      this.externalId = externalId;
+    }
+
+    synchronized void add(long eventMinute, float weight, String name, String imageUrl) {
+      if (name != null && eventMinute >= minute) this.name = name;
+      if (imageUrl != null && eventMinute >= minute) this.imageUrl = imageUrl;
+      minute = advance(minutes, minute, eventMinute);
+      if (eventMinute > minute - MINUTE_SLOTS) minutes[(int) Math.floorMod(eventMinute, MINUTE_SLOTS)] += weight;
+      long eventHour = Math.floorDiv(eventMinute, 60);
+      hour = advance(hours, hour, eventHour);
+      if (eventHour > hour - HOUR_SLOTS) hours[(int) Math.floorMod(eventHour, HOUR_SLOTS)] += weight;
+    }
+
+    /** Fills HOUR, DAY, WEEK scores as of {@code nowMinute}; false once nothing is left in the week. */
+    synchronized boolean scores(long nowMinute, double[] out) {
+      Arrays.fill(out, 0);
+      long nowHour = Math.floorDiv(nowMinute, 60);
+      if (hour == Long.MIN_VALUE || hour <= nowHour - HOUR_SLOTS) return false;
+      for (int age = 0; age < MINUTE_SLOTS; age++) {
+        long m = nowMinute - age;
+        if (m > minute || m <= minute - MINUTE_SLOTS) continue;
+        out[Window.HOUR.ordinal()] += minutes[(int) Math.floorMod(m, MINUTE_SLOTS)] * DECAY_HOUR[age];
+      }
+      for (int age = 0; age < HOUR_SLOTS; age++) {
+        long h = nowHour - age;
+        if (h > hour || h <= hour - HOUR_SLOTS) continue;
+        float v = hours[(int) Math.floorMod(h, HOUR_SLOTS)];
+        if (age < DECAY_DAY.length) out[Window.DAY.ordinal()] += v * DECAY_DAY[age];
+        out[Window.WEEK.ordinal()] += v * DECAY_WEEK[age];
+      }
+      return true;
+    }
+
+    /** Moves a ring's newest slot forward to {@code to}, clearing the slots it passes. */
+    private static long advance(float[] ring, long newest, long to) {
+      if (to <= newest) return newest;
+      if (newest == Long.MIN_VALUE || to - newest >= ring.length) {
+        Arrays.fill(ring, 0);
+      } else {
+        for (long s = newest + 1; s <= to; s++) ring[(int) Math.floorMod(s, ring.length)] = 0;
+      }
+      return to;
+    }
+  }
+}
@@ -12,5 +12,6 @@ public record ReviewCommentItem(
   String authorAvatarUrl,
   String body,
   Instant createdAt,
+  int replyCount,
   boolean viewerCanDelete
 ) {}
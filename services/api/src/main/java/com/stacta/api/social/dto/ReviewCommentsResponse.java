@@ -0,0 +1,8 @@
+package com.stacta.api.social.dto;
+
+import java.util.List;
+
+public record ReviewCommentsResponse(
+  List<ReviewCommentItem> items,
+  String nextCursor
+) {}
@@ -4,5 +4,6 @@ import java.util.List;
 
 public record ReviewThreadResponse(
   FeedItem review,
-  List<ReviewCommentItem> comments
+  List<ReviewCommentItem> comments,
+  String commentsNextCursor
 ) {}
@@ -0,0 +1,9 @@
+package com.stacta.api.social.dto;
+
+public record TrendingFragranceItem(
+  String source,
+  String externalId,
+  String name,
+  String imageUrl,
+  double score
+) {}
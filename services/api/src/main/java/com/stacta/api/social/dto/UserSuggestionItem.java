@@ -0,0 +1,10 @@
+package com.stacta.api.social.dto;
+
+public record UserSuggestionItem(
+  String username,
+  String displayName,
+  String avatarUrl,
+  boolean isPrivate,
+  int mutualCount,
+  int sharedFragranceCount
+) {}
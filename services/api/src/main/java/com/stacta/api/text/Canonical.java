@@ -0,0 +1,208 @@
+package com.stacta.api.text;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Canonical forms for identifiers that arrive on nearly every request: fragrance external ids,
+ * usernames, note names and free-text rating values.
+ *
+ * Each normalizer is a single hand-written pass that returns exactly what the regex pipeline it
+ * replaced returned (see CanonicalTest, which checks them against those pipelines on random input).
+ * "Whitespace" is the regex {@code \s} class, i.e. ASCII space, tab, LF, VT, FF and CR; trimming
+ * follows {@link String#trim()}. Pure-ASCII input, the common case, never goes through the JDK's
+ * case mapping or Unicode normalization, and input that is already canonical is returned as is.
+ */
+public final class Canonical {
+  public static final int USERNAME_MAX_LENGTH = 20;
+
+  private Canonical() {}
+
+  /**
+   * {@code trim().toLowerCase(ROOT).replaceAll("\\s+", " ")}; "" for null.
+   */
+  public static String externalId(String raw) {
+    if (raw == null) return "";
+    String s = raw;
+    int start = 0;
+    int end = s.length();
+    while (start < end && s.charAt(start) <= ' ') start++;
+    while (end > start && s.charAt(end - 1) <= ' ') end--;
+    for (int i = start; i < end; i++) {
+      if (s.charAt(i) >= 0x80) {
+        // Full case mapping is context sensitive (final sigma) and may change the length, so it runs
+        // on the trimmed text exactly like the old pipeline did.
+        s = s.substring(start, end).toLowerCase(Locale.ROOT);
+        start = 0;
+        end = s.length();
+        break;
+      }
+    }
+
+    if (isCanonicalExternalId(s, start, end)) {
+      return start == 0 && end == s.length() ? s : s.substring(start, end);
+    }
+
+    StringBuilder out = new StringBuilder(end - start);
+    boolean pendingSpace = false;
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (isRegexSpace(c)) {
+        pendingSpace = true;
+        continue;
+      }
+      if (pendingSpace) {
+        out.append(' ');
+        pendingSpace = false;
+      }
+      out.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+    }
+    return out.toString();
+  }
+
+  private static boolean isCanonicalExternalId(String s, int start, int end) {
+    boolean previousSpace = false;
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (c >= 'A' && c <= 'Z') return false;
+      if (isRegexSpace(c)) {
+        if (c != ' ' || previousSpace) return false;
+        previousSpace = true;
+      } else {
+        previousSpace = false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Username lookup key: lowercased, reduced to {@code [a-z0-9_]} (which also drops a leading
+   * {@code @}) and cut to {@value #USERNAME_MAX_LENGTH} characters; "" for null.
+   */
+  public static String username(String raw) {
+    if (raw == null) return "";
+    int n = raw.length();
+    boolean canonical = n <= USERNAME_MAX_LENGTH;
+    for (int i = 0; i < n && canonical; i++) {
+      canonical = isUsernameChar(raw.charAt(i));
+    }
+    if (canonical) return raw;
+
+    StringBuilder out = new StringBuilder(Math.min(n, USERNAME_MAX_LENGTH));
+    for (int i = 0; i < n && out.length() < USERNAME_MAX_LENGTH; i++) {
+      char c = raw.charAt(i);
+      if (c < 0x80) {
+        if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+        if (isUsernameChar(c)) out.append(c);
+        continue;
+      }
+      // A few non-ASCII letters lowercase to ASCII (KELVIN SIGN to k, dotted capital I to i + U+0307).
+      int cp = raw.codePointAt(i);
+      if (Character.isSupplementaryCodePoint(cp)) i++;
+      String lowered = new String(Character.toChars(cp)).toLowerCase(Locale.ROOT);
+      for (int j = 0; j < lowered.length() && out.length() < USERNAME_MAX_LENGTH; j++) {
+        char l = lowered.charAt(j);
+        if (isUsernameChar(l)) out.append(l);
+      }
+    }
+    return out.toString();
+  }
+
+  private static boolean isUsernameChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+  }
+
+  /**
+   * Note dictionary key: lowercased, accents stripped via NFKD, every run of characters outside
+   * {@code [a-z0-9-]} collapsed to one space, trimmed; "" for null.
+   */
+  public static String noteName(String raw) {
+    if (raw == null) return "";
+    String s = raw;
+    boolean ascii = true;
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) >= 0x80) {
+        // Decomposition may yield ASCII capitals (U+210C to H); those are not lowered again.
+        s = Normalizer.normalize(s.toLowerCase(Locale.ROOT), Normalizer.Form.NFKD);
+        ascii = false;
+        break;
+      }
+    }
+    int n = s.length();
+    if (isCanonicalNoteName(s)) return s;
+
+    StringBuilder out = new StringBuilder(n);
+    boolean pendingSpace = false;
+    for (int i = 0; i < n; ) {
+      int cp = s.codePointAt(i);
+      i += Character.charCount(cp);
+      if (cp >= 0x80 && isMark(cp)) continue;
+      if (ascii && cp >= 'A' && cp <= 'Z') cp += 'a' - 'A';
+      if ((cp >= 'a' && cp <= 'z') || (cp >= '0' && cp <= '9') || cp == '-') {
+        if (pendingSpace && out.length() > 0) out.append(' ');
+        pendingSpace = false;
+        out.append((char) cp);
+      } else {
+        pendingSpace = true;
+      }
+    }
+    return out.toString();
+  }
+
+  private static boolean isCanonicalNoteName(String s) {
+    int n = s.length();
+    if (n == 0) return true;
+    if (s.charAt(0) == ' ' || s.charAt(n - 1) == ' ') return false;
+    boolean previousSpace = false;
+    for (int i = 0; i < n; i++) {
+      char c = s.charAt(i);
+      if (c == ' ') {
+        if (previousSpace) return false;
+        previousSpace = true;
+      } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') {
+        previousSpace = false;
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isMark(int cp) {
+    int type = Character.getType(cp);
+    return type == Character.NON_SPACING_MARK
+      || type == Character.ENCLOSING_MARK
+      || type == Character.COMBINING_SPACING_MARK;
+  }
+
+  /**
+   * First decimal number in free text such as "4.3/5" or "Rating: 4,3" (comma accepted as the
+   * decimal separator); null when there is none or it overflows.
+   */
+  public static Double firstDecimal(String raw) {
+    if (raw == null) return null;
+    int n = raw.length();
+    int start = 0;
+    while (start < n && !isDigit(raw.charAt(start))) start++;
+    if (start == n) return null;
+    int end = start;
+    while (end < n && isDigit(raw.charAt(end))) end++;
+    boolean comma = false;
+    if (end + 1 < n && (raw.charAt(end) == '.' || raw.charAt(end) == ',') && isDigit(raw.charAt(end + 1))) {
+      comma = raw.charAt(end) == ',';
+      end += 2;
+      while (end < n && isDigit(raw.charAt(end))) end++;
+    }
+    String number = raw.substring(start, end);
+    double value = Double.parseDouble(comma ? number.replace(',', '.') : number);
+    return Double.isFinite(value) ? value : null;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isRegexSpace(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
+  }
+}
@@ -0,0 +1,289 @@
+package com.stacta.api.upload;
+
+import com.stacta.api.config.aws.AwsProperties;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * Produces the {@link ImageVariant}s for uploaded images in the background.
+ *
+ * Callers {@link #enqueue} an object key once it is attached to something (server-side upload, avatar
+ * change, community fragrance image). A poller claims due rows from image_derivative_job with
+ * FOR UPDATE SKIP LOCKED, so several instances can share the queue, and hands them to the bounded
+ * {@code imageExecutor}; it never claims more than the pool can take. A claim is a lease: if the
+ * instance dies mid-job the row becomes due again after {@code lease-seconds}.
+ */
+@Service
+public class ImageDerivativeService {
+  private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+  private static final float JPEG_QUALITY = 0.82f;
+  private static final String VARIANT_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+  private final JdbcTemplate jdbc;
+  private final S3Client s3;
+  private final AwsProperties aws;
+  private final ImageVariantIndex index;
+  private final Executor imageExecutor;
+  private final int maxInFlight;
+  private final int maxAttempts;
+  private final long leaseSeconds;
+  private final long maxSourcePixels;
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  public ImageDerivativeService(
+    JdbcTemplate jdbc,
+    S3Client s3,
+    AwsProperties aws,
+    ImageVariantIndex index,
+    @Qualifier("imageExecutor") Executor imageExecutor,
+    @Value("${app.images.derivatives.max-in-flight:4}") int maxInFlight,
+    @Value("${app.images.derivatives.max-attempts:5}") int maxAttempts,
+    @Value("${app.images.derivatives.lease-seconds:300}") long leaseSeconds,
+    @Value("${app.images.derivatives.max-source-pixels:40000000}") long maxSourcePixels
+  ) {
+    this.jdbc = jdbc;
+    this.s3 = s3;
+    this.aws = aws;
+    this.index = index;
+    this.imageExecutor = imageExecutor;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.leaseSeconds = Math.max(30, leaseSeconds);
+    this.maxSourcePixels = Math.max(1, maxSourcePixels);
+  }
+
+  /**
+   * Idempotent; safe to call inside the transaction that attaches the key. A key whose objects were
+   * garbage-collected (GONE) and uploaded again is queued afresh.
+   */
+  public void enqueue(String objectKey) {
+    String key = objectKey == null ? null : objectKey.trim();
+    if (key == null || key.isEmpty() || key.startsWith("variants/")) return;
+    jdbc.update(
+      """
+      INSERT INTO image_derivative_job (object_key) VALUES (?)
+      ON CONFLICT (object_key) DO UPDATE
+      SET status = 'PENDING', attempts = 0, last_error = NULL, next_attempt_at = now(), updated_at = now()
+      WHERE image_derivative_job.status = 'GONE'
+      """,
+      key
+    );
+  }
+
+  @Scheduled(
+    initialDelayString = "${app.images.derivatives.poll-ms:5000}",
+    fixedDelayString = "${app.images.derivatives.poll-ms:5000}"
+  )
+  public void poll() {
+    int free = maxInFlight - inFlight.get();
+    if (free <= 0) return;
+    List<Claimed> claimed = jdbc.query(
+      """
+      UPDATE image_derivative_job j
+      SET
+        status = 'RUNNING',
+        attempts = j.attempts + 1,
+        next_attempt_at = now() + make_interval(secs => ?),
+        updated_at = now()
+      WHERE j.object_key IN (
+        SELECT object_key
+        FROM image_derivative_job
+        WHERE status IN ('PENDING', 'RUNNING')
+          AND next_attempt_at <= now()
+        ORDER BY next_attempt_at
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+      )
+      RETURNING j.object_key, j.attempts
+      """,
+      (rs, rowNum) -> new Claimed(rs.getString(1), rs.getInt(2)),
+      leaseSeconds,
+      free
+    );
+    for (Claimed job : claimed) {
+      inFlight.incrementAndGet();
+      try {
+        imageExecutor.execute(() -> {
+          try {
+            process(job);
+          } finally {
+            inFlight.decrementAndGet();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // Lease expiry hands the job back to the queue.
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  private void process(Claimed job) {
+    long started = System.nanoTime();
+    try {
+      int written = render(job.objectKey());
+      String status = written > 0 ? "DONE" : "SKIPPED";
+      finish(job.objectKey(), status, null);
+      if (written > 0) index.markReady(job.objectKey());
+      log.info(
+        "image.variants.{} key={} variants={} tookMs={}",
+        status.toLowerCase(),
+        job.objectKey(),
+        written,
+        (System.nanoTime() - started) / 1_000_000L
+      );
+    } catch (NoSuchKeyException e) {
+      finish(job.objectKey(), "SKIPPED", "object not found");
+    } catch (Exception e) {
+      if (job.attempts() >= maxAttempts) {
+        finish(job.objectKey(), "FAILED", String.valueOf(e.getMessage()));
+        log.warn("image.variants.failed key={} attempts={}", job.objectKey(), job.attempts(), e);
+      } else {
+        jdbc.update(
+          """
+          UPDATE image_derivative_job
+          SET status = 'PENDING', last_error = ?, next_attempt_at = now() + make_interval(mins => ?), updated_at = now()
+          WHERE object_key = ?
+          """,
+          String.valueOf(e.getMessage()),
+          job.attempts() * job.attempts(),
+          job.objectKey()
+        );
+      }
+    }
+  }
+
+  private void finish(String objectKey, String status, String error) {
+    jdbc.update(
+      "UPDATE image_derivative_job SET status = ?, last_error = ?, updated_at = now() WHERE object_key = ?",
+      status,
+      error,
+      objectKey
+    );
+  }
+
+  /** Number of variants written; 0 when the source cannot be decoded here (e.g. HEIC) or is too large. */
+  int render(String objectKey) throws IOException {
+    String bucket = aws.s3().bucket();
+    BufferedImage source;
+    try (
+      InputStream in = s3.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).build());
+      ImageInputStream images = ImageIO.createImageInputStream(in)
+    ) {
+      source = decode(images);
+    }
+    if (source == null) return 0;
+
+    int written = 0;
+    for (ImageVariant variant : ImageVariant.values()) {
+      byte[] jpeg = encodeJpeg(scaleToFit(source, variant.maxEdge()));
+      s3.putObject(
+        PutObjectRequest.builder()
+          .bucket(bucket)
+          .key(variant.objectKeyFor(objectKey))
+          .contentType("image/jpeg")
+          .cacheControl(VARIANT_CACHE_CONTROL)
+          .build(),
+        RequestBody.fromBytes(jpeg)
+      );
+      written++;
+    }
+    return written;
+  }
+
+  // Checks dimensions from the header before allocating the raster.
+  private BufferedImage decode(ImageInputStream images) throws IOException {
+    if (images == null) return null;
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(images);
+    if (!readers.hasNext()) return null;
+    ImageReader reader = readers.next();
+    try {
+      reader.setInput(images, true, true);
+      long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+      if (pixels <= 0 || pixels > maxSourcePixels) return null;
+      return reader.read(0);
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  static BufferedImage scaleToFit(BufferedImage source, int maxEdge) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+    int targetWidth = Math.max(1, (int) Math.round(width * scale));
+    int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+    // Halve in steps first; a single bilinear pass from far above the target aliases badly.
+    BufferedImage current = source;
+    int w = width;
+    int h = height;
+    while (w / 2 >= targetWidth && h / 2 >= targetHeight) {
+      w /= 2;
+      h /= 2;
+      current = draw(current, w, h);
+    }
+    return draw(current, targetWidth, targetHeight);
+  }
+
+  // Always redraws onto an opaque RGB canvas: JPEG has no alpha, so transparency becomes white.
+  private static BufferedImage draw(BufferedImage source, int width, int height) {
+    BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = out.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, width, height);
+      g.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      g.dispose();
+    }
+    return out;
+  }
+
+  static byte[] encodeJpeg(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+      writer.setOutput(out);
+      ImageWriteParam params = writer.getDefaultWriteParam();
+      params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      params.setCompressionQuality(JPEG_QUALITY);
+      writer.write(null, new IIOImage(image, null, null), params);
+    } finally {
+      writer.dispose();
+    }
+    return bytes.toByteArray();
+  }
+
+  private record Claimed(String objectKey, int attempts) {}
+}
@@ -0,0 +1,118 @@
+package com.stacta.api.upload;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Upload body wrapper that enforces the size cap while bytes flow to S3, plus magic-byte sniffing and
+ * content hashing for the image formats we accept. Nothing here buffers more than one read buffer.
+ */
+final class ImageUploadStream extends FilterInputStream {
+  static final int HEAD_BYTES = 16;
+
+  private static final Set<String> HEIF_BRANDS = Set.of("heic", "heix", "hevc", "hevx", "heim", "heis", "mif1", "msf1");
+
+  private final long maxBytes;
+  private long consumed;
+
+  ImageUploadStream(InputStream in, long maxBytes) {
+    super(in);
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b >= 0) count(1);
+    return b;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    int n = super.read(buffer, offset, length);
+    if (n > 0) count(n);
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+    if (skipped > 0) count(skipped);
+    return skipped;
+  }
+
+  // The SDK may mark/reset for retries; a reset must not double-count.
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void count(long n) throws IOException {
+    consumed += n;
+    if (consumed > maxBytes) {
+      throw new TooLargeException();
+    }
+  }
+
+  record Inspection(String contentType, String sha256) {}
+
+  /**
+   * One capped pass over the upload: the content type from its leading bytes and the SHA-256 of the
+   * whole body. Stops after the header (both fields null) when the signature is not an accepted image.
+   */
+  static Inspection inspect(InputStream in, long maxBytes) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    String contentType;
+    try (InputStream capped = new ImageUploadStream(in, maxBytes)) {
+      byte[] buffer = new byte[8 * 1024];
+      int n = capped.readNBytes(buffer, 0, HEAD_BYTES);
+      contentType = detectContentType(Arrays.copyOf(buffer, n));
+      if (contentType == null) return new Inspection(null, null);
+      digest.update(buffer, 0, n);
+      while ((n = capped.read(buffer)) > 0) {
+        digest.update(buffer, 0, n);
+      }
+    }
+    return new Inspection(contentType, HexFormat.of().formatHex(digest.digest()));
+  }
+
+  static String detectContentType(byte[] head) {
+    if (head == null) return null;
+    if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+    if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return "image/png";
+    if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) return "image/webp";
+    if (startsWith(head, 4, 'f', 't', 'y', 'p') && head.length >= 12) {
+      String brand = new String(head, 8, 4, StandardCharsets.US_ASCII);
+      if (HEIF_BRANDS.contains(brand)) {
+        return brand.startsWith("he") ? "image/heic" : "image/heif";
+      }
+    }
+    return null;
+  }
+
+  private static boolean startsWith(byte[] head, int offset, int... expected) {
+    if (head.length < offset + expected.length) return false;
+    for (int i = 0; i < expected.length; i++) {
+      if ((head[offset + i] & 0xFF) != expected[i]) return false;
+    }
+    return true;
+  }
+
+  static final class TooLargeException extends IOException {
+    TooLargeException() {
+      super("upload exceeds size cap");
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.stacta.api.upload;
+
+import java.util.Locale;
+
+/** Resized copies produced for every uploaded image; keys are derived from the original's key. */
+public enum ImageVariant {
+  THUMB(128),
+  CARD(480),
+  LARGE(1080);
+
+  private final int maxEdge;
+
+  ImageVariant(int maxEdge) {
+    this.maxEdge = maxEdge;
+  }
+
+  public int maxEdge() {
+    return maxEdge;
+  }
+
+  public String objectKeyFor(String originalKey) {
+    return "variants/" + name().toLowerCase(Locale.ROOT) + "/" + originalKey + ".jpg";
+  }
+}
@@ -0,0 +1,152 @@
+package com.stacta.api.upload;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which original object keys already have variants in the bucket.
+ *
+ * A bounded LRU ({@code app.images.derivatives.index-max-entries}) in front of image_derivative_job:
+ * a key it does not hold is looked up once and the answer, yes or no, is kept. The most recently
+ * finished keys are loaded on startup. A tail on updated_at, on a fixed delay, marks keys other
+ * instances finished and forgets keys whose job left DONE (collected with their media object, or
+ * queued again), so a deletion anywhere is seen within a minute; local completions and deletions are
+ * applied directly. Until a key is known here the resolver keeps serving the original.
+ */
+@Component
+public class ImageVariantIndex {
+  private static final Logger log = LoggerFactory.getLogger(ImageVariantIndex.class);
+  // Re-read a little behind the watermark so rows committed out of updated_at order are not missed.
+  private static final long OVERLAP_SECONDS = 60;
+
+  private final JdbcTemplate jdbc;
+  private final int maxEntries;
+  private final Map<String, Boolean> known;
+  private volatile Instant watermark = null;
+
+  public ImageVariantIndex(
+    JdbcTemplate jdbc,
+    @Value("${app.images.derivatives.index-max-entries:50000}") int maxEntries
+  ) {
+    this.jdbc = jdbc;
+    this.maxEntries = Math.max(1, maxEntries);
+    this.known = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > ImageVariantIndex.this.maxEntries;
+      }
+    });
+  }
+
+  public boolean hasVariants(String objectKey) {
+    if (objectKey == null) return false;
+    Boolean cached = known.get(objectKey);
+    if (cached != null) return cached;
+    boolean done;
+    try {
+      done = Boolean.TRUE.equals(jdbc.queryForObject(
+        "SELECT EXISTS (SELECT 1 FROM image_derivative_job WHERE object_key = ? AND status = 'DONE')",
+        Boolean.class,
+        objectKey
+      ));
+    } catch (Exception e) {
+      // Serve the original this time and ask again on the next request.
+      log.debug("image.variants.index lookup failed key={}", objectKey, e);
+      return false;
+    }
+    known.put(objectKey, done);
+    return done;
+  }
+
+  void markReady(String objectKey) {
+    if (objectKey != null) known.put(objectKey, true);
+  }
+
+  /** The key's variants were deleted; other instances follow through the tail. */
+  void markGone(String objectKey) {
+    if (objectKey != null) known.put(objectKey, false);
+  }
+
+  int size() {
+    return known.size();
+  }
+
+  @Scheduled(
+    scheduler = "rebuildScheduler",
+    initialDelayString = "${app.images.derivatives.index-initial-delay-ms:0}",
+    fixedDelayString = "${app.images.derivatives.index-refresh-ms:60000}"
+  )
+  public void refresh() {
+    if (watermark == null) {
+      load();
+      return;
+    }
+    Instant since = watermark;
+    Instant[] newest = {since};
+    int[] changed = {0};
+    try {
+      jdbc.query(
+        """
+        SELECT object_key, status = 'DONE', updated_at
+        FROM image_derivative_job
+        WHERE updated_at >= ?
+        """,
+        rs -> {
+          String key = rs.getString(1);
+          if (rs.getBoolean(2)) {
+            known.put(key, true);
+          } else {
+            known.remove(key);
+          }
+          Instant updatedAt = rs.getTimestamp(3).toInstant();
+          if (updatedAt.isAfter(newest[0])) newest[0] = updatedAt;
+          changed[0]++;
+        },
+        Timestamp.from(since.minusSeconds(OVERLAP_SECONDS))
+      );
+    } catch (Exception e) {
+      log.warn("image.variants.index refresh failed; keeping {} known keys", known.size(), e);
+      return;
+    }
+    watermark = newest[0];
+    log.debug("image.variants.index refresh rows={}", changed[0]);
+  }
+
+  private void load() {
+    int[] loaded = {0};
+    Instant since;
+    try {
+      // Read the watermark first so jobs finishing during the load are picked up by the tail.
+      Timestamp latest = jdbc.queryForObject("SELECT MAX(updated_at) FROM image_derivative_job", Timestamp.class);
+      since = latest == null ? Instant.EPOCH : latest.toInstant();
+      jdbc.query(
+        """
+        SELECT object_key
+        FROM image_derivative_job
+        WHERE status = 'DONE'
+        ORDER BY updated_at DESC
+        LIMIT ?
+        """,
+        rs -> {
+          known.putIfAbsent(rs.getString(1), true);
+          loaded[0]++;
+        },
+        maxEntries
+      );
+    } catch (Exception e) {
+      log.warn("image.variants.index load failed; looking keys up on demand", e);
+      return;
+    }
+    watermark = since;
+    log.info("image.variants.index loaded keys={}", loaded[0]);
+  }
+}
@@ -0,0 +1,259 @@
+package com.stacta.api.upload;
+
+import com.stacta.api.config.aws.AwsProperties;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+
+/**
+ * Content-addressed registry (media_object) for images uploaded through the API.
+ *
+ * Uploads look their SHA-256 up here and reuse the stored object instead of writing a new one.
+ * Owners {@link #retain} a key when they attach it and {@link #release} it when they stop using it;
+ * keys that are not in the registry (presigned uploads, legacy objects) are ignored by both. Objects
+ * whose count stays at zero past the grace period are deleted together with their variants. A
+ * dedupe hit refreshes the grace period, so a just-returned key is never collected before it can be
+ * attached.
+ */
+@Service
+public class MediaObjectService {
+  private static final Logger log = LoggerFactory.getLogger(MediaObjectService.class);
+  // Long enough for every instance's variant index to tail the GONE mark.
+  private static final int GONE_RETENTION_DAYS = 7;
+  // First key of the two-key advisory locks taken per content hash (second key: hashtext(sha256)).
+  private static final int CONTENT_LOCK_SPACE = 0x6d0b7ec7;
+
+  private final JdbcTemplate jdbc;
+  private final S3Client s3;
+  private final AwsProperties aws;
+  private final ImageVariantIndex variants;
+  private final TransactionTemplate tx;
+  private final long graceHours;
+  private final int gcBatchSize;
+  private final long gcBudgetNanos;
+
+  public MediaObjectService(
+    JdbcTemplate jdbc,
+    S3Client s3,
+    AwsProperties aws,
+    ImageVariantIndex variants,
+    PlatformTransactionManager transactionManager,
+    @Value("${app.media.gc-grace-hours:24}") long graceHours,
+    @Value("${app.media.gc-batch-size:200}") int gcBatchSize,
+    @Value("${app.media.gc-budget-ms:600000}") long gcBudgetMs
+  ) {
+    this.jdbc = jdbc;
+    this.s3 = s3;
+    this.aws = aws;
+    this.variants = variants;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.graceHours = Math.max(1, graceHours);
+    this.gcBatchSize = Math.max(1, gcBatchSize);
+    this.gcBudgetNanos = Duration.ofMillis(Math.max(1, gcBudgetMs)).toNanos();
+  }
+
+  /** The stored key for this content, if any; also pushes back its garbage-collection deadline. */
+  public Optional<String> findByHash(String sha256) {
+    if (sha256 == null) return Optional.empty();
+    return Optional.ofNullable(jdbc.query(
+      "UPDATE media_object SET last_referenced_at = now() WHERE sha256 = ? RETURNING object_key",
+      rs -> rs.next() ? rs.getString(1) : null,
+      sha256
+    ));
+  }
+
+  /**
+   * Records a freshly written object. When a concurrent upload of the same content registered first,
+   * returns that row's key; with deterministic content keys both writers produced the same object.
+   */
+  public String register(String sha256, String objectKey, String contentType, long sizeBytes) {
+    return jdbc.query(
+      """
+      INSERT INTO media_object (sha256, object_key, content_type, size_bytes)
+      VALUES (?, ?, ?, ?)
+      ON CONFLICT (sha256) DO UPDATE SET last_referenced_at = now()
+      RETURNING object_key
+      """,
+      rs -> rs.next() ? rs.getString(1) : objectKey,
+      sha256,
+      objectKey,
+      contentType,
+      sizeBytes
+    );
+  }
+
+  public void retain(String objectKey) {
+    adjust(objectKey, 1);
+  }
+
+  public void release(String objectKey) {
+    adjust(objectKey, -1);
+  }
+
+  /** Moves a reference from one key to another; no-op when they are the same. */
+  public void replace(String previousKey, String nextKey) {
+    String previous = normalize(previousKey);
+    String next = normalize(nextKey);
+    if (Objects.equals(previous, next)) return;
+    release(previous);
+    retain(next);
+  }
+
+  private void adjust(String objectKey, int delta) {
+    String key = normalize(objectKey);
+    if (key == null) return;
+    jdbc.update(
+      """
+      UPDATE media_object
+      SET ref_count = GREATEST(0, ref_count + ?), last_referenced_at = now()
+      WHERE object_key = ?
+      """,
+      delta,
+      key
+    );
+  }
+
+  /**
+   * Runs {@code work} (look the content up, write it, register it) holding the per-content lock that
+   * garbage collection takes before deleting that content's objects, so a collection cannot delete an
+   * object an upload of the same bytes is writing or has just registered.
+   */
+  public <T> T withContentLock(String sha256, Supplier<T> work) {
+    return tx.execute(status -> {
+      lockContent(sha256);
+      return work.get();
+    });
+  }
+
+  /**
+   * Collects expired objects batch by batch until none are left or {@code app.media.gc-budget-ms} is
+   * spent; a started batch is always finished. A batch's rows are removed in one short transaction.
+   * Each object is then deleted in its own transaction holding the content lock uploads take, after
+   * checking that no upload registered it again, so the S3 calls hold that one lock and no row locks.
+   */
+  @Scheduled(cron = "${app.media.gc-cron:0 15 5 * * *}", scheduler = "rebuildScheduler")
+  public void collectGarbage() {
+    pruneGoneJobs();
+    long started = System.nanoTime();
+    int collected = 0;
+    int skipped = 0;
+    int failed = 0;
+    boolean drained = false;
+    while (System.nanoTime() - started < gcBudgetNanos) {
+      List<Expired> batch = tx.execute(status -> deleteExpiredBatch());
+      if (batch == null || batch.isEmpty()) {
+        drained = true;
+        break;
+      }
+      for (Expired expired : batch) {
+        Collected outcome = tx.execute(status -> collect(expired));
+        if (outcome == Collected.RE_REGISTERED) {
+          skipped++;
+          continue;
+        }
+        variants.markGone(expired.objectKey());
+        collected++;
+        if (outcome == Collected.S3_FAILED) failed++;
+      }
+    }
+    log.info(
+      "media.gc collected={} reRegistered={} s3Failures={} drained={} tookMs={}",
+      collected,
+      skipped,
+      failed,
+      drained,
+      (System.nanoTime() - started) / 1_000_000L
+    );
+  }
+
+  private List<Expired> deleteExpiredBatch() {
+    return jdbc.query(
+      """
+      DELETE FROM media_object
+      WHERE sha256 IN (
+        SELECT sha256
+        FROM media_object
+        WHERE ref_count = 0
+          AND last_referenced_at < now() - make_interval(hours => ?)
+        ORDER BY last_referenced_at
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+      )
+      RETURNING sha256, object_key
+      """,
+      (rs, rowNum) -> new Expired(rs.getString(1), rs.getString(2)),
+      (int) graceHours,
+      gcBatchSize
+    );
+  }
+
+  private Collected collect(Expired expired) {
+    lockContent(expired.sha256());
+    String key = expired.objectKey();
+    if (isRegistered(key)) return Collected.RE_REGISTERED;
+
+    Collected outcome = Collected.DELETED;
+    String bucket = aws.s3().bucket();
+    try {
+      s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+      for (ImageVariant variant : ImageVariant.values()) {
+        s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(variant.objectKeyFor(key)).build());
+      }
+    } catch (Exception e) {
+      // The row is gone; a leftover object costs storage only and is never served again.
+      outcome = Collected.S3_FAILED;
+      log.warn("media.gc delete failed key={}", key, e);
+    }
+    // GONE rather than deleted, so the variant index on every instance drops the key.
+    jdbc.update(
+      "UPDATE image_derivative_job SET status = 'GONE', updated_at = now() WHERE object_key = ?",
+      key
+    );
+    return outcome;
+  }
+
+  private void lockContent(String sha256) {
+    jdbc.query("SELECT pg_advisory_xact_lock(?, hashtext(?))", rs -> {}, CONTENT_LOCK_SPACE, sha256);
+  }
+
+  private void pruneGoneJobs() {
+    try {
+      jdbc.update(
+        "DELETE FROM image_derivative_job WHERE status = 'GONE' AND updated_at < now() - make_interval(days => ?)",
+        GONE_RETENTION_DAYS
+      );
+    } catch (Exception e) {
+      log.warn("media.gc prune of collected derivative jobs failed", e);
+    }
+  }
+
+  private boolean isRegistered(String objectKey) {
+    return Boolean.TRUE.equals(jdbc.queryForObject(
+      "SELECT EXISTS (SELECT 1 FROM media_object WHERE object_key = ?)",
+      Boolean.class,
+      objectKey
+    ));
+  }
+
+  private enum Collected { DELETED, S3_FAILED, RE_REGISTERED }
+
+  private record Expired(String sha256, String objectKey) {}
+
+  private static String normalize(String value) {
+    if (value == null) return null;
+    String cleaned = value.trim();
+    return cleaned.isEmpty() ? null : cleaned;
+  }
+}
@@ -8,12 +8,14 @@ import com.stacta.api.upload.dto.UploadedImageResponse;
 import com.stacta.api.user.User;
 import com.stacta.api.user.UserRepository;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
@@ -41,19 +43,25 @@ public class PresignedUploadService {
   private final AwsProperties aws;
   private final UserRepository users;
   private final UploadImageUrlResolver imageUrlResolver;
+  private final ImageDerivativeService imageDerivatives;
+  private final MediaObjectService media;
 
   public PresignedUploadService(
     S3Presigner presigner,
     S3Client s3,
     AwsProperties aws,
     UserRepository users,
-    UploadImageUrlResolver imageUrlResolver
+    UploadImageUrlResolver imageUrlResolver,
+    ImageDerivativeService imageDerivatives,
+    MediaObjectService media
   ) {
     this.presigner = presigner;
     this.s3 = s3;
     this.aws = aws;
     this.users = users;
     this.imageUrlResolver = imageUrlResolver;
+    this.imageDerivatives = imageDerivatives;
+    this.media = media;
   }
 
   public PresignUploadResponse createFragranceUploadUrl(String viewerSub, PresignUploadRequest req) {
@@ -98,26 +106,78 @@ public class PresignedUploadService {
       throw new ApiException("UPLOAD_FILE_TOO_LARGE");
     }
 
-    String contentType = normalizeContentType(file.getContentType(), file.getOriginalFilename());
-    String ext = CONTENT_TYPE_TO_EXT.get(contentType);
-    if (ext == null) {
+    String declaredType = normalizeContentType(file.getContentType(), file.getOriginalFilename());
+    if (!CONTENT_TYPE_TO_EXT.containsKey(declaredType)) {
       throw new ApiException("UPLOAD_UNSUPPORTED_CONTENT_TYPE");
     }
+    // Trust the bytes, not the header: the stored content type comes from the file signature.
+    ImageUploadStream.Inspection inspected = inspect(file);
+
+    // Held until the object is registered and queued, so garbage collection of an expired copy of
+    // these bytes either finishes before the lookup or sees the new registration and keeps the object.
+    String objectKey = media.withContentLock(inspected.sha256(), () -> store(file, inspected, uploadKindRaw));
+    String publicUrl = imageUrlResolver.resolveFromObjectKey(objectKey);
+    return new UploadedImageResponse(objectKey, publicUrl);
+  }
+
+  private String store(MultipartFile file, ImageUploadStream.Inspection inspected, String uploadKindRaw) {
+    String contentType = inspected.contentType();
+    String ext = CONTENT_TYPE_TO_EXT.get(contentType);
+    long contentLength = file.getSize();
 
-    String objectKey = buildObjectKey(me.getId(), ext, uploadKindRaw);
+    // Same bytes uploaded before (by anyone): hand back the stored object, skip the PUT and derivatives.
+    String existingKey = media.findByHash(inspected.sha256()).orElse(null);
+    if (existingKey != null) return existingKey;
+
+    String objectKey = buildContentObjectKey(inspected.sha256(), ext, uploadKindRaw);
     PutObjectRequest putObject = PutObjectRequest.builder()
       .bucket(aws.s3().bucket())
       .key(objectKey)
       .contentType(contentType)
+      .contentLength(contentLength)
       .build();
+    // The part is re-opened per attempt (it is backed by the container's temp file), so retries need
+    // no in-memory copy and the cap is enforced on the bytes actually sent.
+    ContentStreamProvider body = () -> {
+      try {
+        return new ImageUploadStream(file.getInputStream(), MAX_UPLOAD_BYTES);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
     try {
-      s3.putObject(putObject, RequestBody.fromBytes(file.getBytes()));
+      s3.putObject(putObject, RequestBody.fromContentProvider(body, contentLength, contentType));
+    } catch (RuntimeException e) {
+      if (hasCause(e, ImageUploadStream.TooLargeException.class)) {
+        throw new ApiException("UPLOAD_FILE_TOO_LARGE");
+      }
+      throw new ApiException("UPLOAD_FAILED");
+    }
+    objectKey = media.register(inspected.sha256(), objectKey, contentType, contentLength);
+    imageDerivatives.enqueue(objectKey);
+    return objectKey;
+  }
+
+  private ImageUploadStream.Inspection inspect(MultipartFile file) {
+    ImageUploadStream.Inspection inspected;
+    try {
+      inspected = ImageUploadStream.inspect(file.getInputStream(), MAX_UPLOAD_BYTES);
+    } catch (ImageUploadStream.TooLargeException e) {
+      throw new ApiException("UPLOAD_FILE_TOO_LARGE");
     } catch (IOException e) {
       throw new ApiException("UPLOAD_FAILED");
     }
+    if (inspected.contentType() == null) {
+      throw new ApiException("UPLOAD_UNSUPPORTED_CONTENT_TYPE");
+    }
+    return inspected;
+  }
 
-    String publicUrl = imageUrlResolver.resolveFromObjectKey(objectKey);
-    return new UploadedImageResponse(objectKey, publicUrl);
+  private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+    for (Throwable t = error; t != null; t = t.getCause()) {
+      if (type.isInstance(t)) return true;
+    }
+    return false;
   }
 
   private String normalizeContentType(String raw) {
@@ -138,12 +198,20 @@ public class PresignedUploadService {
   }
 
   private String buildObjectKey(UUID userId, String ext, String uploadKindRaw) {
+    return "users/" + userId + "/" + folderFor(uploadKindRaw) + "/" + UUID.randomUUID() + "." + ext;
+  }
+
+  // Deterministic per content, so concurrent uploads of the same bytes write the same object.
+  private String buildContentObjectKey(String sha256, String ext, String uploadKindRaw) {
+    return "media/" + folderFor(uploadKindRaw) + "/" + sha256 + "." + ext;
+  }
+
+  private String folderFor(String uploadKindRaw) {
     String uploadKind = uploadKindRaw == null ? "FRAGRANCE" : uploadKindRaw.trim().toUpperCase(Locale.ROOT);
-    String folder = switch (uploadKind) {
+    return switch (uploadKind) {
       case "PROFILE" -> "profile";
       default -> "fragrances";
     };
-    return "users/" + userId + "/" + folder + "/" + UUID.randomUUID() + "." + ext;
   }
 
 }
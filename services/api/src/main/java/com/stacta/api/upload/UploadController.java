@@ -1,5 +1,6 @@
 package com.stacta.api.upload;
 
+import com.stacta.api.ratelimit.RateLimited;
 import com.stacta.api.upload.dto.PresignUploadRequest;
 import com.stacta.api.upload.dto.PresignUploadResponse;
 import com.stacta.api.upload.dto.UploadedImageResponse;
@@ -22,6 +23,7 @@ public class UploadController {
     this.uploads = uploads;
   }
 
+  @RateLimited(value = "uploads", capacity = 30)
   @PostMapping("/presign")
   public PresignUploadResponse presign(
     @AuthenticationPrincipal Jwt jwt,
@@ -30,6 +32,7 @@ public class UploadController {
     return uploads.createFragranceUploadUrl(jwt.getSubject(), req);
   }
 
+  @RateLimited(value = "uploads", capacity = 30)
   @PostMapping(value = "/image")
   public UploadedImageResponse uploadImage(
     @AuthenticationPrincipal Jwt jwt,
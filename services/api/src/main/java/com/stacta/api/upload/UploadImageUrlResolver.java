@@ -1,30 +1,74 @@
 package com.stacta.api.upload;
 
 import com.stacta.api.config.aws.AwsProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
+/**
+ * Turns stored object keys into readable URLs: a CDN URL when a base URL is configured, otherwise a
+ * presigned S3 GET. Presigned URLs are shared process-wide (by object key) and reused until
+ * {@code reuse-margin} before they expire, so lists that mention the same image many times sign it once.
+ * Lookups are counted as {@code image.url.presign.cache{result=hit|miss}}.
+ *
+ * Callers that render an image small can ask for an {@link ImageVariant}; the resized copy is served
+ * once {@link ImageVariantIndex} knows it exists, the original until then.
+ */
 @Component
 public class UploadImageUrlResolver {
-  private static final Duration READ_URL_TTL = Duration.ofHours(12);
+  static final Duration READ_URL_TTL = Duration.ofHours(12);
 
   private final AwsProperties aws;
   private final S3Presigner presigner;
+  private final ImageVariantIndex variants;
+  private final long reuseNanos;
+  private final Map<String, SignedUrl> signedUrls;
+  private final Counter hits;
+  private final Counter misses;
 
-  public UploadImageUrlResolver(AwsProperties aws, S3Presigner presigner) {
+  public UploadImageUrlResolver(
+    AwsProperties aws,
+    S3Presigner presigner,
+    ImageVariantIndex variants,
+    MeterRegistry meters,
+    @Value("${app.image-urls.reuse-margin-minutes:120}") long reuseMarginMinutes,
+    @Value("${app.image-urls.max-entries:50000}") int maxEntries
+  ) {
     this.aws = aws;
     this.presigner = presigner;
+    this.variants = variants;
+    // Handed-out URLs must stay valid for a while after we return them (cached pages, slow clients).
+    Duration margin = Duration.ofMinutes(Math.min(Math.max(0, reuseMarginMinutes), READ_URL_TTL.toMinutes()));
+    this.reuseNanos = READ_URL_TTL.minus(margin).toNanos();
+    int capacity = Math.max(1, maxEntries);
+    this.signedUrls = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, SignedUrl> eldest) {
+        return size() > capacity;
+      }
+    });
+    this.hits = Counter.builder("image.url.presign.cache").tag("result", "hit").register(meters);
+    this.misses = Counter.builder("image.url.presign.cache").tag("result", "miss").register(meters);
+    Gauge.builder("image.url.presign.cache.size", signedUrls, Map::size).register(meters);
   }
 
   public String resolveFromObjectKey(String objectKey) {
     String key = normalize(objectKey);
     if (key == null) return null;
-    String base = aws.cdn() == null ? null : normalizeBase(aws.cdn().baseUrl());
+    String base = cdnBase();
     if (base != null) return base + "/" + key;
-    return resolvePresignedReadUrl(key);
+    return resolvePresignedReadUrl(key, System.nanoTime());
   }
 
   public String resolveWithFallback(String objectKey, String fallbackUrl) {
@@ -36,7 +80,59 @@ public class UploadImageUrlResolver {
     return normalize(fallbackUrl);
   }
 
-  private String normalize(String value) {
+  /** Like {@link #resolveWithFallback}, but serves the variant once it has been produced. */
+  public String resolveVariantWithFallback(String objectKey, String fallbackUrl, ImageVariant variant) {
+    String key = normalize(objectKey);
+    if (key == null) return normalize(fallbackUrl);
+    return resolveFromObjectKey(variantKey(key, variant));
+  }
+
+  /**
+   * Resolves every distinct key of a page once; read the result with
+   * {@link ResolvedImageUrls#withFallback} exactly as {@link #resolveWithFallback} would answer.
+   */
+  public ResolvedImageUrls resolveAll(Collection<String> objectKeys) {
+    return resolveAll(objectKeys, null);
+  }
+
+  /** Bulk form of {@link #resolveVariantWithFallback}; a null variant means the original. */
+  public ResolvedImageUrls resolveAll(Collection<String> objectKeys, ImageVariant variant) {
+    if (objectKeys == null || objectKeys.isEmpty()) return new ResolvedImageUrls(Map.of());
+    String base = cdnBase();
+    long now = System.nanoTime();
+    Map<String, String> byKey = new HashMap<>();
+    for (String objectKey : objectKeys) {
+      String key = normalize(objectKey);
+      if (key == null || byKey.containsKey(key)) continue;
+      String served = variantKey(key, variant);
+      byKey.put(key, base != null ? base + "/" + served : resolvePresignedReadUrl(served, now));
+    }
+    return new ResolvedImageUrls(byKey);
+  }
+
+  public static final class ResolvedImageUrls {
+    private final Map<String, String> byKey;
+
+    private ResolvedImageUrls(Map<String, String> byKey) {
+      this.byKey = byKey;
+    }
+
+    public String withFallback(String objectKey, String fallbackUrl) {
+      String key = normalize(objectKey);
+      if (key != null) return byKey.get(key);
+      return normalize(fallbackUrl);
+    }
+  }
+
+  private String variantKey(String key, ImageVariant variant) {
+    return variant != null && variants.hasVariants(key) ? variant.objectKeyFor(key) : key;
+  }
+
+  private String cdnBase() {
+    return aws.cdn() == null ? null : normalizeBase(aws.cdn().baseUrl());
+  }
+
+  private static String normalize(String value) {
     if (value == null) return null;
     String cleaned = value.trim();
     return cleaned.isBlank() ? null : cleaned;
@@ -48,9 +144,23 @@ public class UploadImageUrlResolver {
     return cleaned.endsWith("/") ? cleaned.substring(0, cleaned.length() - 1) : cleaned;
   }
 
-  private String resolvePresignedReadUrl(String key) {
+  private String resolvePresignedReadUrl(String key, long now) {
     String bucket = aws.s3() == null ? null : normalize(aws.s3().bucket());
     if (bucket == null) return null;
+    SignedUrl cached = signedUrls.get(key);
+    if (cached != null && now < cached.reuseUntilNanos()) {
+      hits.increment();
+      return cached.url();
+    }
+    misses.increment();
+    String url = presign(bucket, key);
+    if (url != null) {
+      signedUrls.put(key, new SignedUrl(url, now + reuseNanos));
+    }
+    return url;
+  }
+
+  private String presign(String bucket, String key) {
     try {
       GetObjectRequest getObject = GetObjectRequest.builder()
         .bucket(bucket)
@@ -66,4 +176,5 @@ public class UploadImageUrlResolver {
     }
   }
 
+  private record SignedUrl(String url, long reuseUntilNanos) {}
 }
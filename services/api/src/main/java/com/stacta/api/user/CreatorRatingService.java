@@ -14,32 +14,61 @@ import java.util.UUID;
 public class CreatorRatingService {
   private final JdbcTemplate jdbc;
   private final UserRepository users;
+  private final ViewerIdentityResolver identities;
+  private final ProfileStatsService profileStats;
 
-  public CreatorRatingService(JdbcTemplate jdbc, UserRepository users) {
+  public CreatorRatingService(
+    JdbcTemplate jdbc,
+    UserRepository users,
+    ViewerIdentityResolver identities,
+    ProfileStatsService profileStats
+  ) {
     this.jdbc = jdbc;
     this.users = users;
+    this.identities = identities;
+    this.profileStats = profileStats;
   }
 
   @Transactional
   public CreatorRatingSummary upsertRating(String raterSub, String creatorUsername, int rating) {
-    var rater = users.findByCognitoSub(raterSub)
+    var rater = identities.find(raterSub)
       .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not onboarded"));
     var creator = users.findByUsernameIgnoreCase(normalizeUsername(creatorUsername))
       .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Creator not found"));
 
-    if (rater.getId().equals(creator.getId())) {
+    if (rater.userId().equals(creator.getId())) {
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You cannot rate yourself");
     }
 
-    jdbc.update(
+    // Claim the first rating with DO NOTHING so that, of two concurrent first ratings, exactly one
+    // sees its insert succeed; the other waits on the conflict and then takes the locked update path.
+    boolean inserted = !jdbc.queryForList(
       """
       INSERT INTO creator_reputation_rating (rater_user_id, creator_user_id, rating, created_at, updated_at)
       VALUES (?, ?, ?, now(), now())
-      ON CONFLICT (rater_user_id, creator_user_id)
-      DO UPDATE SET rating = EXCLUDED.rating, updated_at = now()
+      ON CONFLICT (rater_user_id, creator_user_id) DO NOTHING
+      RETURNING 1
       """,
-      rater.getId(), creator.getId(), rating
-    );
+      Integer.class,
+      rater.userId(), creator.getId(), rating
+    ).isEmpty();
+
+    Integer previous = null;
+    if (!inserted) {
+      previous = jdbc.query(
+        "SELECT rating FROM creator_reputation_rating WHERE rater_user_id = ? AND creator_user_id = ? FOR UPDATE",
+        rs -> rs.next() ? rs.getInt(1) : null,
+        rater.userId(), creator.getId()
+      );
+      jdbc.update(
+        "UPDATE creator_reputation_rating SET rating = ?, updated_at = now() WHERE rater_user_id = ? AND creator_user_id = ?",
+        rating, rater.userId(), creator.getId()
+      );
+    }
+    profileStats.bump(creator.getId(), ProfileStatsService.Counter.CREATOR_RATING_SUM, rating - (previous == null ? 0 : previous));
+    if (inserted) {
+      profileStats.bump(creator.getId(), ProfileStatsService.Counter.CREATOR_RATING_COUNT, 1);
+    }
 
     return getSummaryByCreatorId(raterSub, creator.getId());
   }
@@ -53,31 +82,22 @@ public class CreatorRatingService {
 
   @Transactional(readOnly = true)
   public CreatorRatingSummary getSummaryByCreatorId(String viewerSub, UUID creatorUserId) {
-    Double avg = jdbc.queryForObject(
-      "SELECT AVG(rating)::float8 FROM creator_reputation_rating WHERE creator_user_id = ?",
-      Double.class,
-      creatorUserId
-    );
-    Long count = jdbc.queryForObject(
-      "SELECT COUNT(*) FROM creator_reputation_rating WHERE creator_user_id = ?",
-      Long.class,
-      creatorUserId
-    );
+    var stats = profileStats.get(creatorUserId);
 
     Integer userRating = null;
     if (viewerSub != null && !viewerSub.isBlank()) {
-      var viewer = users.findByCognitoSub(viewerSub).orElse(null);
+      var viewer = identities.find(viewerSub).orElse(null);
       if (viewer != null) {
         userRating = jdbc.query(
           "SELECT rating FROM creator_reputation_rating WHERE rater_user_id = ? AND creator_user_id = ?",
           rs -> rs.next() ? rs.getInt(1) : null,
-          viewer.getId(),
+          viewer.userId(),
           creatorUserId
         );
       }
     }
 
-    return new CreatorRatingSummary(avg == null ? 0.0 : avg, count == null ? 0L : count, userRating);
+    return new CreatorRatingSummary(stats.creatorRatingAverage(), stats.creatorRatingCount(), userRating);
   }
 
   private String normalizeUsername(String raw) {
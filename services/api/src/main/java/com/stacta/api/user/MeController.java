@@ -4,6 +4,8 @@ import java.util.Map;
 
 import jakarta.validation.Valid;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -24,10 +26,15 @@ public class MeController {
   }
 
   @GetMapping("/me")
-  public ResponseEntity<?> me(@AuthenticationPrincipal Jwt jwt) {
+  public ResponseEntity<?> me(
+    @AuthenticationPrincipal Jwt jwt,
+    @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch
+  ) {
     String sub = jwt.getSubject();
-    return userService.getMe(sub)
-      .<ResponseEntity<?>>map(ResponseEntity::ok)
+    return userService.getMeVersioned(sub, ifNoneMatch)
+      .<ResponseEntity<?>>map(me -> me.body() == null
+        ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(me.etag()).cacheControl(CacheControl.noCache()).build()
+        : ResponseEntity.ok().eTag(me.etag()).cacheControl(CacheControl.noCache()).body(me.body()))
       .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "NOT_ONBOARDED")));
   }
 
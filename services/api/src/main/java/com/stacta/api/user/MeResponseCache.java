@@ -0,0 +1,90 @@
+package com.stacta.api.user;
+
+import com.stacta.api.user.dto.MeResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Process-local cache of assembled /me payloads, keyed by user and validated by ETag.
+ *
+ * The ETag is derived from {@link ProfileStatsService.MeVersion} plus the current presigned-URL epoch,
+ * so an entry is only served while nothing it was built from has changed and its image URLs are still
+ * comfortably inside their signature lifetime. The TTL bounds staleness for changes that bypass the
+ * version (direct database edits, fragrance metadata refreshed by ingestion).
+ */
+@Component
+public class MeResponseCache {
+  private final long ttlNanos;
+  private final long urlEpochMillis;
+  private final Map<UUID, Entry> cache;
+
+  public MeResponseCache(
+    @Value("${app.me-cache.ttl-seconds:600}") long ttlSeconds,
+    @Value("${app.me-cache.max-entries:20000}") int maxEntries,
+    @Value("${app.me-cache.url-epoch-minutes:60}") long urlEpochMinutes
+  ) {
+    this.ttlNanos = Duration.ofSeconds(Math.max(1, ttlSeconds)).toNanos();
+    this.urlEpochMillis = Duration.ofMinutes(Math.max(1, urlEpochMinutes)).toMillis();
+    int capacity = Math.max(1, maxEntries);
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+  /** Weak validator: the payload is semantically, not byte-for-byte, equal across instances. */
+  public String etagFor(ProfileStatsService.MeVersion version) {
+    long urlEpoch = System.currentTimeMillis() / urlEpochMillis;
+    return "W/\"me-%s-%d-%d-%d-%d-%d\"".formatted(
+      version.userId(),
+      version.statsVersion(),
+      version.userUpdatedAtMillis(),
+      version.followersCount(),
+      version.followingCount(),
+      urlEpoch
+    );
+  }
+
+  public MeResponse get(UUID userId, String etag) {
+    Entry entry = cache.get(userId);
+    if (entry == null) return null;
+    if (!entry.etag().equals(etag) || System.nanoTime() - entry.cachedAtNanos() >= ttlNanos) {
+      cache.remove(userId, entry);
+      return null;
+    }
+    return entry.body();
+  }
+
+  public void put(UUID userId, String etag, MeResponse body) {
+    if (userId == null || etag == null || body == null) return;
+    cache.put(userId, new Entry(etag, body, System.nanoTime()));
+  }
+
+  public void evict(UUID userId) {
+    if (userId != null) cache.remove(userId);
+  }
+
+  /** RFC 9110 weak comparison against an If-None-Match header value. */
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank() || etag == null) return false;
+    String opaque = stripWeak(etag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if (trimmed.equals("*") || stripWeak(trimmed).equals(opaque)) return true;
+    }
+    return false;
+  }
+
+  private static String stripWeak(String tag) {
+    return tag.startsWith("W/") ? tag.substring(2) : tag;
+  }
+
+  private record Entry(String etag, MeResponse body, long cachedAtNanos) {}
+}
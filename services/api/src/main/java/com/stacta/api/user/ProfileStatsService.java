@@ -0,0 +1,252 @@
+package com.stacta.api.user;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Denormalized per-user profile counters (user_profile_stats).
+ *
+ * Owning services call {@link #bump} inside the transaction that changes the underlying rows, so
+ * profile and /me reads are a single primary-key lookup instead of a COUNT per list. A nightly
+ * reconciliation recomputes every counter from the source tables to repair any missed path.
+ *
+ * Every bump also increments {@code version}; owners call {@link #touch} for changes that alter their
+ * /me payload without moving a counter, so the version can serve as the /me cache validator.
+ */
+@Service
+public class ProfileStatsService {
+  private static final Logger log = LoggerFactory.getLogger(ProfileStatsService.class);
+
+  public enum Counter {
+    COLLECTION("collection_count"),
+    WISHLIST("wishlist_count"),
+    REVIEWS("review_count"),
+    COMMUNITY_FRAGRANCES("community_fragrance_count"),
+    PUBLIC_COMMUNITY_FRAGRANCES("public_community_fragrance_count"),
+    CREATOR_RATING_SUM("creator_rating_sum"),
+    CREATOR_RATING_COUNT("creator_rating_count");
+
+    private final String column;
+
+    Counter(String column) {
+      this.column = column;
+    }
+  }
+
+  public record ProfileStats(
+    long collectionCount,
+    long wishlistCount,
+    long reviewCount,
+    long communityFragranceCount,
+    long publicCommunityFragranceCount,
+    long creatorRatingSum,
+    long creatorRatingCount,
+    long version
+  ) {
+    static final ProfileStats EMPTY = new ProfileStats(0, 0, 0, 0, 0, 0, 0, 0);
+
+    public double creatorRatingAverage() {
+      return creatorRatingCount == 0 ? 0.0 : (double) creatorRatingSum / creatorRatingCount;
+    }
+  }
+
+  /** What the /me ETag is derived from; see {@link #meVersion}. */
+  public record MeVersion(
+    UUID userId,
+    long statsVersion,
+    long userUpdatedAtMillis,
+    long followersCount,
+    long followingCount
+  ) {}
+
+  private final JdbcTemplate jdbc;
+
+  public ProfileStatsService(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  public void bump(UUID userId, Counter counter, long delta) {
+    if (userId == null || delta == 0) return;
+    jdbc.update(
+      """
+      INSERT INTO user_profile_stats (user_id, %1$s, version, updated_at)
+      VALUES (?, GREATEST(0, ?), 1, now())
+      ON CONFLICT (user_id)
+      DO UPDATE SET
+        %1$s = GREATEST(0, user_profile_stats.%1$s + ?),
+        version = user_profile_stats.version + 1,
+        updated_at = now()
+      """.formatted(counter.column),
+      userId,
+      delta,
+      delta
+    );
+  }
+
+  /** Invalidates cached /me payloads for a change that does not move any counter. */
+  public void touch(UUID userId) {
+    if (userId == null) return;
+    jdbc.update(
+      """
+      INSERT INTO user_profile_stats (user_id, version, updated_at)
+      VALUES (?, 1, now())
+      ON CONFLICT (user_id)
+      DO UPDATE SET version = user_profile_stats.version + 1, updated_at = now()
+      """,
+      userId
+    );
+  }
+
+  public ProfileStats get(UUID userId) {
+    ProfileStats stats = jdbc.query(
+      """
+      SELECT
+        collection_count,
+        wishlist_count,
+        review_count,
+        community_fragrance_count,
+        public_community_fragrance_count,
+        creator_rating_sum,
+        creator_rating_count,
+        version
+      FROM user_profile_stats
+      WHERE user_id = ?
+      """,
+      rs -> rs.next()
+        ? new ProfileStats(
+            rs.getLong(1),
+            rs.getLong(2),
+            rs.getLong(3),
+            rs.getLong(4),
+            rs.getLong(5),
+            rs.getLong(6),
+            rs.getLong(7),
+            rs.getLong(8)
+          )
+        : null,
+      userId
+    );
+    return stats == null ? ProfileStats.EMPTY : stats;
+  }
+
+  /**
+   * Everything the owner's /me payload depends on, in one indexed read: the stats version, the users
+   * row's updated_at (profile edits) and the live follow counts (compacted value plus pending shards).
+   */
+  public Optional<MeVersion> meVersion(String cognitoSub) {
+    if (cognitoSub == null || cognitoSub.isBlank()) return Optional.empty();
+    MeVersion version = jdbc.query(
+      """
+      SELECT
+        u.id,
+        COALESCE(s.version, 0),
+        u.updated_at,
+        u.followers_count + COALESCE((
+          SELECT SUM(delta) FROM user_follow_counter_shard c WHERE c.user_id = u.id AND c.kind = 'FOLLOWERS'
+        ), 0),
+        u.following_count + COALESCE((
+          SELECT SUM(delta) FROM user_follow_counter_shard c WHERE c.user_id = u.id AND c.kind = 'FOLLOWING'
+        ), 0)
+      FROM users u
+      LEFT JOIN user_profile_stats s ON s.user_id = u.id
+      WHERE u.cognito_sub = ?
+      """,
+      rs -> {
+        if (!rs.next()) return null;
+        Timestamp updatedAt = rs.getTimestamp(3);
+        return new MeVersion(
+          rs.getObject(1, UUID.class),
+          rs.getLong(2),
+          updatedAt == null ? 0L : updatedAt.getTime(),
+          Math.max(0, rs.getLong(4)),
+          Math.max(0, rs.getLong(5))
+        );
+      },
+      cognitoSub
+    );
+    return Optional.ofNullable(version);
+  }
+
+  /** Off-peak repair; a bump racing this statement may stay off by one until the next run. */
+  @Scheduled(cron = "${app.profile-stats.reconcile-cron:0 45 4 * * *}", scheduler = "rebuildScheduler")
+  @Transactional
+  public void reconcile() {
+    int corrected = jdbc.update(
+      """
+      WITH actual AS (
+        SELECT
+          u.id AS user_id,
+          (SELECT COUNT(*) FROM user_collection_item c WHERE c.user_id = u.id) AS collection_count,
+          (SELECT COUNT(*) FROM user_wishlist_item w WHERE w.user_id = u.id) AS wishlist_count,
+          (SELECT COUNT(*) FROM activity_event a WHERE a.actor_user_id = u.id AND a.type = 'REVIEW_POSTED') AS review_count,
+          (
+            SELECT COUNT(*) FROM fragrance f
+            WHERE f.external_source = 'COMMUNITY' AND f.created_by_user_id = u.id
+          ) AS community_fragrance_count,
+          (
+            SELECT COUNT(*) FROM fragrance f
+            WHERE f.external_source = 'COMMUNITY' AND f.created_by_user_id = u.id AND f.visibility = 'PUBLIC'
+          ) AS public_community_fragrance_count,
+          (
+            SELECT COALESCE(SUM(r.rating), 0) FROM creator_reputation_rating r WHERE r.creator_user_id = u.id
+          ) AS creator_rating_sum,
+          (
+            SELECT COUNT(*) FROM creator_reputation_rating r WHERE r.creator_user_id = u.id
+          ) AS creator_rating_count
+        FROM users u
+      )
+      INSERT INTO user_profile_stats AS s (
+        user_id,
+        collection_count,
+        wishlist_count,
+        review_count,
+        community_fragrance_count,
+        public_community_fragrance_count,
+        creator_rating_sum,
+        creator_rating_count,
+        version,
+        updated_at
+      )
+      SELECT
+        user_id,
+        collection_count,
+        wishlist_count,
+        review_count,
+        community_fragrance_count,
+        public_community_fragrance_count,
+        creator_rating_sum,
+        creator_rating_count,
+        1,
+        now()
+      FROM actual
+      ON CONFLICT (user_id)
+      DO UPDATE SET
+        collection_count = EXCLUDED.collection_count,
+        wishlist_count = EXCLUDED.wishlist_count,
+        review_count = EXCLUDED.review_count,
+        community_fragrance_count = EXCLUDED.community_fragrance_count,
+        public_community_fragrance_count = EXCLUDED.public_community_fragrance_count,
+        creator_rating_sum = EXCLUDED.creator_rating_sum,
+        creator_rating_count = EXCLUDED.creator_rating_count,
+        version = s.version + 1,
+        updated_at = now()
+      WHERE (s.collection_count, s.wishlist_count, s.review_count, s.community_fragrance_count,
+             s.public_community_fragrance_count, s.creator_rating_sum, s.creator_rating_count)
+        IS DISTINCT FROM
+        (EXCLUDED.collection_count, EXCLUDED.wishlist_count, EXCLUDED.review_count,
+         EXCLUDED.community_fragrance_count, EXCLUDED.public_community_fragrance_count,
+         EXCLUDED.creator_rating_sum, EXCLUDED.creator_rating_count)
+      """
+    );
+    if (corrected > 0) {
+      log.warn("profile.stats.reconcile corrected={}", corrected);
+    }
+  }
+}
@@ -15,6 +15,10 @@ import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.stacta.api.collection.dto.CollectionPageResponse;
+import com.stacta.api.ratelimit.RateLimited;
+import com.stacta.api.social.PeopleYouMayKnowService;
+import com.stacta.api.social.dto.UserSuggestionItem;
 import com.stacta.api.user.dto.CreatorRatingSummary;
 import com.stacta.api.user.dto.RateCreatorRequest;
 import com.stacta.api.user.dto.UserProfileResponse;
@@ -26,10 +30,16 @@ public class UserDiscoveryController {
 
   private final UserService userService;
   private final CreatorRatingService creatorRatingService;
+  private final PeopleYouMayKnowService peopleYouMayKnow;
 
-  public UserDiscoveryController(UserService userService, CreatorRatingService creatorRatingService) {
+  public UserDiscoveryController(
+    UserService userService,
+    CreatorRatingService creatorRatingService,
+    PeopleYouMayKnowService peopleYouMayKnow
+  ) {
     this.userService = userService;
     this.creatorRatingService = creatorRatingService;
+    this.peopleYouMayKnow = peopleYouMayKnow;
   }
 
   @GetMapping("/search")
@@ -41,6 +51,14 @@ public class UserDiscoveryController {
     return userService.searchUsers(q, jwt.getSubject(), limit);
   }
 
+  @GetMapping("/suggestions")
+  public List<UserSuggestionItem> suggestions(
+    @RequestParam(name = "limit", defaultValue = "10") int limit,
+    @AuthenticationPrincipal Jwt jwt
+  ) {
+    return peopleYouMayKnow.suggestions(jwt.getSubject(), limit);
+  }
+
   @GetMapping("/{username}")
   public UserProfileResponse profile(
     @PathVariable String username,
@@ -49,6 +67,36 @@ public class UserDiscoveryController {
     return userService.getProfile(jwt.getSubject(), username);
   }
 
+  @GetMapping("/{username}/collection")
+  public CollectionPageResponse collection(
+    @PathVariable String username,
+    @RequestParam(name = "limit", defaultValue = "24") int limit,
+    @RequestParam(name = "cursor", required = false) String cursor,
+    @AuthenticationPrincipal Jwt jwt
+  ) {
+    return userService.listProfileCollection(jwt.getSubject(), username, limit, cursor);
+  }
+
+  @GetMapping("/{username}/wishlist")
+  public CollectionPageResponse wishlist(
+    @PathVariable String username,
+    @RequestParam(name = "limit", defaultValue = "24") int limit,
+    @RequestParam(name = "cursor", required = false) String cursor,
+    @AuthenticationPrincipal Jwt jwt
+  ) {
+    return userService.listProfileWishlist(jwt.getSubject(), username, limit, cursor);
+  }
+
+  @GetMapping("/{username}/community-fragrances")
+  public CollectionPageResponse communityFragrances(
+    @PathVariable String username,
+    @RequestParam(name = "limit", defaultValue = "24") int limit,
+    @RequestParam(name = "cursor", required = false) String cursor,
+    @AuthenticationPrincipal Jwt jwt
+  ) {
+    return userService.listProfileCommunityFragrances(jwt.getSubject(), username, limit, cursor);
+  }
+
   @GetMapping("/{username}/creator-rating")
   public CreatorRatingSummary creatorRating(
     @PathVariable String username,
@@ -58,6 +106,7 @@ public class UserDiscoveryController {
     return creatorRatingService.getSummary(viewerSub, username);
   }
 
+  @RateLimited(value = "ratings", capacity = 60)
   @PostMapping("/{username}/creator-rating")
   public CreatorRatingSummary rateCreator(
     @PathVariable String username,
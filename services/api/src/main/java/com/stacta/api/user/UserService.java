@@ -2,6 +2,16 @@ package com.stacta.api.user;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -9,10 +19,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.stacta.api.collection.UserCollectionService;
 import com.stacta.api.collection.dto.CollectionItemDto;
+import com.stacta.api.collection.dto.CollectionPageResponse;
 import com.stacta.api.config.ApiException;
 import com.stacta.api.fragrance.FragranceRepository;
-import com.stacta.api.social.ActivityEventRepository;
+import com.stacta.api.social.FollowCounterService;
 import com.stacta.api.social.FollowService;
+import com.stacta.api.text.Canonical;
+import com.stacta.api.upload.ImageDerivativeService;
+import com.stacta.api.upload.MediaObjectService;
 import com.stacta.api.upload.UploadImageUrlResolver;
 import com.stacta.api.user.dto.MeResponse;
 import com.stacta.api.user.dto.OnboardingRequest;
@@ -23,31 +37,54 @@ import com.stacta.api.user.dto.CreatorRatingSummary;
 
 @Service
 public class UserService {
+  private static final int PROFILE_PREVIEW_LIMIT = 12;
+  private static final CollectionPageResponse EMPTY_PAGE = new CollectionPageResponse(List.of(), null);
 
   private final UserRepository repo;
   private final FollowService followService;
   private final UserCollectionService collectionService;
-  private final ActivityEventRepository activityEvents;
   private final FragranceRepository fragrances;
   private final CreatorRatingService creatorRatings;
   private final UploadImageUrlResolver imageUrlResolver;
+  private final FollowCounterService followCounters;
+  private final ViewerIdentityResolver identities;
+  private final ProfileStatsService profileStats;
+  private final MeResponseCache meCache;
+  private final ImageDerivativeService imageDerivatives;
+  private final MediaObjectService media;
+  private final AsyncTaskExecutor profileExecutor;
+  private final long profileBudgetMs;
 
   public UserService(
     UserRepository repo,
     FollowService followService,
     UserCollectionService collectionService,
-    ActivityEventRepository activityEvents,
     FragranceRepository fragrances,
     CreatorRatingService creatorRatings,
-    UploadImageUrlResolver imageUrlResolver
+    UploadImageUrlResolver imageUrlResolver,
+    FollowCounterService followCounters,
+    ViewerIdentityResolver identities,
+    ProfileStatsService profileStats,
+    MeResponseCache meCache,
+    ImageDerivativeService imageDerivatives,
+    MediaObjectService media,
+    @Qualifier("profileExecutor") AsyncTaskExecutor profileExecutor,
+    @Value("${app.profile.latency-budget-ms:400}") long profileBudgetMs
   ) {
     this.repo = repo;
     this.followService = followService;
     this.collectionService = collectionService;
-    this.activityEvents = activityEvents;
     this.fragrances = fragrances;
     this.creatorRatings = creatorRatings;
     this.imageUrlResolver = imageUrlResolver;
+    this.followCounters = followCounters;
+    this.identities = identities;
+    this.profileStats = profileStats;
+    this.meCache = meCache;
+    this.imageDerivatives = imageDerivatives;
+    this.media = media;
+    this.profileExecutor = profileExecutor;
+    this.profileBudgetMs = Math.max(1, profileBudgetMs);
   }
 
   @Transactional(readOnly = true)
@@ -55,6 +92,32 @@ public class UserService {
     return repo.findByCognitoSub(sub).map(this::toMe);
   }
 
+  /** A /me payload with its validator; {@code body} is null when the caller's copy is current. */
+  public record VersionedMe(String etag, MeResponse body) {}
+
+  /**
+   * /me for conditional requests. One indexed read decides the ETag; a matching If-None-Match or a
+   * cached payload for that ETag is answered without assembling the lists again.
+   */
+  @Transactional(readOnly = true)
+  public Optional<VersionedMe> getMeVersioned(String sub, String ifNoneMatch) {
+    var version = profileStats.meVersion(sub).orElse(null);
+    if (version == null) return Optional.empty();
+    String etag = meCache.etagFor(version);
+    if (MeResponseCache.matches(ifNoneMatch, etag)) {
+      return Optional.of(new VersionedMe(etag, null));
+    }
+    MeResponse cached = meCache.get(version.userId(), etag);
+    if (cached != null) {
+      return Optional.of(new VersionedMe(etag, cached));
+    }
+    return repo.findByCognitoSub(sub).map(user -> {
+      MeResponse body = toMe(user);
+      meCache.put(user.getId(), etag, body);
+      return new VersionedMe(etag, body);
+    });
+  }
+
   @Transactional
   public MeResponse upsertOnboarding(String sub, OnboardingRequest req) {
     User u = repo.findByCognitoSub(sub).orElseGet(User::new);
@@ -81,6 +144,8 @@ public class UserService {
     }
 
     User saved = repo.save(u);
+    identities.invalidate(sub);
+    meCache.evict(saved.getId());
     return toMe(saved);
   }
 
@@ -101,19 +166,24 @@ public class UserService {
     user.setDisplayName(displayName);
     user.setBio(bio);
     if (req.avatarObjectKey() != null) {
+      String previousAvatarObjectKey = user.getAvatarObjectKey();
       String avatarObjectKey = req.avatarObjectKey().trim();
       if (avatarObjectKey.isEmpty()) {
         user.setAvatarObjectKey(null);
       } else {
         user.setAvatarObjectKey(avatarObjectKey);
+        imageDerivatives.enqueue(avatarObjectKey);
       }
       user.setAvatarUrl(imageUrlResolver.resolveFromObjectKey(user.getAvatarObjectKey()));
+      media.replace(previousAvatarObjectKey, user.getAvatarObjectKey());
     }
     if (req.isPrivate() != null) {
       user.setPrivate(req.isPrivate());
     }
 
     User saved = repo.save(user);
+    identities.invalidate(sub);
+    meCache.evict(saved.getId());
     return toMe(saved);
   }
 
@@ -134,41 +204,46 @@ public class UserService {
       .toList();
   }
 
-  @Transactional(readOnly = true)
+  /**
+   * Profile header plus short previews of each list. Counts come from user_profile_stats and the full
+   * lists are served by the paginated endpoints; each preview carries the cursor for its next page.
+   * Creator rating and previews load concurrently and are best-effort: a part that misses the latency
+   * budget is cancelled and left empty, and the response is flagged partial so clients can retry.
+   */
   public UserProfileResponse getProfile(String viewerSub, String username) {
-    String normalized = normalizeUsername(username);
-    if (normalized.isEmpty()) {
-      throw new ApiException("USER_NOT_FOUND");
-    }
+    ProfileAccess access = resolveAccess(viewerSub, username);
+    User target = access.target();
+    ViewerIdentity viewer = access.viewer();
+    boolean isOwner = access.isOwner();
+    boolean isVisible = access.isVisible();
+    UUID targetId = target.getId();
 
-    User target = repo.findByUsernameIgnoreCase(normalized)
-      .orElseThrow(() -> new ApiException("USER_NOT_FOUND"));
+    Budget budget = new Budget(profileBudgetMs);
+    Future<CreatorRatingSummary> creatorSummaryF = submit(() -> creatorRatings.getSummaryByCreatorId(viewerSub, targetId));
+    Future<CollectionPageResponse> collectionF = isVisible
+      ? submit(() -> collectionService.listCollectionPage(targetId, PROFILE_PREVIEW_LIMIT, null))
+      : null;
+    Future<CollectionPageResponse> wishlistF = isVisible
+      ? submit(() -> collectionService.listWishlistPage(targetId, PROFILE_PREVIEW_LIMIT, null))
+      : null;
+    Future<List<CollectionItemDto>> topF = isVisible
+      ? submit(() -> collectionService.listTopForUser(targetId))
+      : null;
+    Future<CollectionPageResponse> communityF = isVisible
+      ? submit(() -> collectionService.listCommunityFragrancePage(targetId, isOwner, PROFILE_PREVIEW_LIMIT, null))
+      : null;
 
-    User viewer = viewerSub == null ? null : repo.findByCognitoSub(viewerSub).orElse(null);
-    boolean isOwner = viewer != null && viewer.getId().equals(target.getId());
-    boolean isFollowing = viewer != null && followService.isFollowing(viewer.getId(), target.getId());
-    boolean followsYou = viewer != null && followService.isFollowing(target.getId(), viewer.getId());
-    boolean followRequested = viewer != null && followService.hasPendingRequest(viewer.getId(), target.getId());
-    boolean isVisible = !target.isPrivate() || isOwner || isFollowing;
-    long followersCount = target.getFollowersCount();
-    long followingCount = target.getFollowingCount();
-    CreatorRatingSummary creatorSummary = creatorRatings.getSummaryByCreatorId(viewerSub, target.getId());
-    long collectionCount = isVisible ? collectionService.countForUser(target.getId()) : 0;
-    long wishlistCount = isVisible ? collectionService.countWishlistForUser(target.getId()) : 0;
-    long reviewCount = isVisible ? activityEvents.countByActorUserIdAndType(target.getId(), "REVIEW_POSTED") : 0;
-    List<CollectionItemDto> communityFragrances = isVisible
-      ? listCommunityFragrances(target.getId(), isOwner)
-      : List.of();
-    long communityFragranceCount = communityFragrances.size();
-    List<CollectionItemDto> collectionItems = isVisible
-      ? collectionService.listForUser(target.getId())
-      : List.of();
-    List<CollectionItemDto> wishlistItems = isVisible
-      ? collectionService.listWishlistForUser(target.getId())
-      : List.of();
-    List<CollectionItemDto> topFragrances = isVisible
-      ? collectionService.listTopForUser(target.getId())
-      : List.of();
+    // Single-row reads stay on the request thread while the previews load.
+    boolean followRequested = viewer != null && !access.isFollowing()
+      && followService.hasPendingRequest(viewer.userId(), targetId);
+    var followCounts = followCounters.counts(targetId, target.getFollowersCount(), target.getFollowingCount());
+    var stats = isVisible ? profileStats.get(targetId) : ProfileStatsService.ProfileStats.EMPTY;
+
+    CreatorRatingSummary creatorSummary = budget.await(creatorSummaryF, new CreatorRatingSummary(0.0, 0L, null));
+    CollectionPageResponse collection = budget.await(collectionF, EMPTY_PAGE);
+    CollectionPageResponse wishlist = budget.await(wishlistF, EMPTY_PAGE);
+    List<CollectionItemDto> top = budget.await(topF, List.of());
+    CollectionPageResponse community = budget.await(communityF, EMPTY_PAGE);
 
     return new UserProfileResponse(
       target.getUsername(),
@@ -180,37 +255,120 @@ public class UserService {
       target.isPrivate(),
       isOwner,
       isVisible,
-      followersCount,
-      followingCount,
+      followCounts.followers(),
+      followCounts.following(),
       creatorSummary.average(),
       creatorSummary.count(),
       creatorSummary.userRating(),
-      collectionCount,
-      wishlistCount,
-      reviewCount,
-      communityFragranceCount,
-      collectionItems,
-      wishlistItems,
-      topFragrances,
-      communityFragrances,
-      followsYou,
-      isFollowing,
-      followRequested
+      stats.collectionCount(),
+      stats.wishlistCount(),
+      stats.reviewCount(),
+      isOwner ? stats.communityFragranceCount() : stats.publicCommunityFragranceCount(),
+      collection.items(),
+      wishlist.items(),
+      top,
+      community.items(),
+      collection.nextCursor(),
+      wishlist.nextCursor(),
+      community.nextCursor(),
+      access.followsYou(),
+      access.isFollowing(),
+      followRequested,
+      budget.missed()
     );
   }
 
-  private String normalizeUsername(String raw) {
-    String cleaned = raw
-      .trim()
-      .toLowerCase()
-      .replaceAll("^@+", "")
-      .replaceAll("[^a-z0-9_]", "");
+  public CollectionPageResponse listProfileCollection(String viewerSub, String username, int limit, String cursor) {
+    ProfileAccess access = resolveAccess(viewerSub, username);
+    if (!access.isVisible()) return new CollectionPageResponse(List.of(), null);
+    return collectionService.listCollectionPage(access.target().getId(), limit, cursor);
+  }
+
+  public CollectionPageResponse listProfileWishlist(String viewerSub, String username, int limit, String cursor) {
+    ProfileAccess access = resolveAccess(viewerSub, username);
+    if (!access.isVisible()) return new CollectionPageResponse(List.of(), null);
+    return collectionService.listWishlistPage(access.target().getId(), limit, cursor);
+  }
+
+  public CollectionPageResponse listProfileCommunityFragrances(String viewerSub, String username, int limit, String cursor) {
+    ProfileAccess access = resolveAccess(viewerSub, username);
+    if (!access.isVisible()) return new CollectionPageResponse(List.of(), null);
+    return collectionService.listCommunityFragrancePage(access.target().getId(), access.isOwner(), limit, cursor);
+  }
+
+  private ProfileAccess resolveAccess(String viewerSub, String username) {
+    String normalized = normalizeUsername(username);
+    if (normalized.isEmpty()) {
+      throw new ApiException("USER_NOT_FOUND");
+    }
+
+    User target = repo.findByUsernameIgnoreCase(normalized)
+      .orElseThrow(() -> new ApiException("USER_NOT_FOUND"));
+
+    ViewerIdentity viewer = identities.find(viewerSub).orElse(null);
+    boolean isOwner = viewer != null && viewer.userId().equals(target.getId());
+    boolean isFollowing = viewer != null && followService.isFollowing(viewer.userId(), target.getId());
+    boolean followsYou = viewer != null && followService.isFollowing(target.getId(), viewer.userId());
+    boolean isVisible = !target.isPrivate() || isOwner || isFollowing;
+    return new ProfileAccess(target, viewer, isOwner, isFollowing, followsYou, isVisible);
+  }
+
+  private record ProfileAccess(
+    User target,
+    ViewerIdentity viewer,
+    boolean isOwner,
+    boolean isFollowing,
+    boolean followsYou,
+    boolean isVisible
+  ) {}
+
+  private <T> Future<T> submit(Callable<T> task) {
+    return profileExecutor.submit(task);
+  }
 
-    return cleaned.length() > 20 ? cleaned.substring(0, 20) : cleaned;
+  /**
+   * One deadline shared by every best-effort part of a request. A part that misses it is cancelled,
+   * which drops it from the executor queue if it has not started and interrupts it if it has.
+   */
+  static final class Budget {
+    private final long deadlineNanos;
+    private boolean missed;
+
+    Budget(long budgetMs) {
+      this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+    }
+
+    <T> T await(Future<T> future, T fallback) {
+      if (future == null) return fallback;
+      try {
+        return future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        missed = true;
+        return fallback;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        future.cancel(true);
+        missed = true;
+        return fallback;
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+
+    boolean missed() {
+      return missed;
+    }
+  }
+
+  private String normalizeUsername(String raw) {
+    return Canonical.username(raw);
   }
 
   private MeResponse toMe(User u) {
-    CreatorRatingSummary creatorSummary = creatorRatings.getSummaryByCreatorId(u.getCognitoSub(), u.getId());
+    var stats = profileStats.get(u.getId());
+    var followCounts = followCounters.counts(u.getId(), u.getFollowersCount(), u.getFollowingCount());
     return new MeResponse(
       u.getId(),
       u.getCognitoSub(),
@@ -222,14 +380,14 @@ public class UserService {
       u.isVerified(),
       u.isAdmin(),
       u.isPrivate(),
-      u.getFollowersCount(),
-      u.getFollowingCount(),
-      creatorSummary.average(),
-      creatorSummary.count(),
-      collectionService.countForUser(u.getId()),
-      collectionService.countWishlistForUser(u.getId()),
-      activityEvents.countByActorUserIdAndType(u.getId(), "REVIEW_POSTED"),
-      fragrances.countByExternalSourceAndCreatedByUserId("COMMUNITY", u.getId()),
+      followCounts.followers(),
+      followCounts.following(),
+      stats.creatorRatingAverage(),
+      stats.creatorRatingCount(),
+      stats.collectionCount(),
+      stats.wishlistCount(),
+      stats.reviewCount(),
+      stats.communityFragranceCount(),
       collectionService.listForUser(u.getId()),
       collectionService.listWishlistForUser(u.getId()),
       collectionService.listTopForUser(u.getId()),
@@ -239,7 +397,7 @@ public class UserService {
     );
   }
 
-  private List<CollectionItemDto> listCommunityFragrances(java.util.UUID userId, boolean includePrivate) {
+  private List<CollectionItemDto> listCommunityFragrances(UUID userId, boolean includePrivate) {
     return fragrances.listCommunityByCreator(userId, includePrivate, PageRequest.of(0, 100))
       .stream()
       .map(f -> new CollectionItemDto(
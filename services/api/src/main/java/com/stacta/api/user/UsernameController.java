@@ -2,6 +2,7 @@ package com.stacta.api.user;
 
 import java.util.Map;
 
+import com.stacta.api.text.Canonical;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -48,13 +49,6 @@ public class UsernameController {
   }
 
   private String normalizeUsername(String raw) {
-    if (raw == null) return "";
-    String cleaned = raw
-      .trim()
-      .toLowerCase()
-      .replaceAll("^@+", "")
-      .replaceAll("[^a-z0-9_]", "");
-
-    return cleaned.length() > 20 ? cleaned.substring(0, 20) : cleaned;
+    return Canonical.username(raw);
   }
 }
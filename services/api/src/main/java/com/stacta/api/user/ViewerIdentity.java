@@ -0,0 +1,18 @@
+package com.stacta.api.user;
+
+import java.util.UUID;
+
+/**
+ * The parts of a {@link User} that request handling needs about the caller. Deliberately carries no
+ * roles: it is cached, and admin checks load the users row so a revoked admin loses access at once.
+ */
+public record ViewerIdentity(
+  UUID userId,
+  String cognitoSub,
+  String username,
+  boolean isPrivate
+) {
+  static ViewerIdentity of(User user) {
+    return new ViewerIdentity(user.getId(), user.getCognitoSub(), user.getUsername(), user.isPrivate());
+  }
+}
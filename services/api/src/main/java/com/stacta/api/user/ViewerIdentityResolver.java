@@ -0,0 +1,105 @@
+package com.stacta.api.user;
+
+import com.stacta.api.config.ApiException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Resolves a JWT subject to the caller's {@link ViewerIdentity}.
+ *
+ * Lookups are memoized per request (request attribute) and per process (bounded LRU with a TTL), so
+ * services can resolve the viewer freely without a users query each time. Profile writes must call
+ * {@link #invalidate(String)}; the TTL bounds staleness for changes made by other instances.
+ * Authorization must not be decided from it: admin checks read the users row on every call.
+ */
+@Component
+public class ViewerIdentityResolver {
+  private static final String REQUEST_ATTRIBUTE = ViewerIdentityResolver.class.getName() + ".";
+
+  private final UserRepository users;
+  private final long ttlNanos;
+  private final Map<String, CachedIdentity> cache;
+
+  public ViewerIdentityResolver(
+    UserRepository users,
+    @Value("${app.identity-cache.ttl-seconds:300}") long ttlSeconds,
+    @Value("${app.identity-cache.max-entries:50000}") int maxEntries
+  ) {
+    this.users = users;
+    this.ttlNanos = Duration.ofSeconds(Math.max(1, ttlSeconds)).toNanos();
+    int capacity = Math.max(1, maxEntries);
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedIdentity> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+  /** The onboarded caller, or {@code ApiException("NOT_ONBOARDED")}. */
+  public ViewerIdentity require(String cognitoSub) {
+    return find(cognitoSub).orElseThrow(() -> new ApiException("NOT_ONBOARDED"));
+  }
+
+  public Optional<ViewerIdentity> find(String cognitoSub) {
+    if (cognitoSub == null || cognitoSub.isBlank()) return Optional.empty();
+
+    RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    if (request != null) {
+      Object memo = request.getAttribute(REQUEST_ATTRIBUTE + cognitoSub, RequestAttributes.SCOPE_REQUEST);
+      if (memo instanceof ViewerIdentity identity) return Optional.of(identity);
+    }
+
+    ViewerIdentity identity = null;
+    CachedIdentity cached = cache.get(cognitoSub);
+    if (cached != null && System.nanoTime() - cached.loadedAtNanos() < ttlNanos) {
+      identity = cached.identity();
+    } else {
+      // Not-yet-onboarded callers are not cached; they are expected to onboard shortly.
+      identity = users.findByCognitoSub(cognitoSub).map(ViewerIdentity::of).orElse(null);
+      if (identity == null) {
+        cache.remove(cognitoSub);
+        return Optional.empty();
+      }
+      cache.put(cognitoSub, new CachedIdentity(identity, System.nanoTime()));
+    }
+
+    if (request != null) {
+      request.setAttribute(REQUEST_ATTRIBUTE + cognitoSub, identity, RequestAttributes.SCOPE_REQUEST);
+    }
+    return Optional.of(identity);
+  }
+
+  /** Drops the cached identity now and again after the surrounding transaction commits. */
+  public void invalidate(String cognitoSub) {
+    if (cognitoSub == null) return;
+    evict(cognitoSub);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          evict(cognitoSub);
+        }
+      });
+    }
+  }
+
+  private void evict(String cognitoSub) {
+    cache.remove(cognitoSub);
+    RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    if (request != null) {
+      request.removeAttribute(REQUEST_ATTRIBUTE + cognitoSub, RequestAttributes.SCOPE_REQUEST);
+    }
+  }
+
+  private record CachedIdentity(ViewerIdentity identity, long loadedAtNanos) {}
+}
@@ -26,7 +26,11 @@ public record UserProfileResponse(
   List<CollectionItemDto> wishlistItems,
   List<CollectionItemDto> topFragrances,
   List<CollectionItemDto> communityFragrances,
+  String collectionNextCursor,
+  String wishlistNextCursor,
+  String communityFragrancesNextCursor,
   boolean followsYou,
   boolean isFollowing,
-  boolean followRequested
+  boolean followRequested,
+  boolean partial
 ) {}
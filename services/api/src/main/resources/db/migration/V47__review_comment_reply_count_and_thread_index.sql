@@ -0,0 +1,19 @@
+ALTER TABLE review_comment
+  ADD COLUMN IF NOT EXISTS reply_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE review_comment c
+SET reply_count = COALESCE((
+  SELECT COUNT(*)::INTEGER
+  FROM review_comment r
+  WHERE r.parent_comment_id = c.id
+), 0);
+
+ALTER TABLE review_comment
+  DROP CONSTRAINT IF EXISTS review_comment_reply_count_check;
+
+ALTER TABLE review_comment
+  ADD CONSTRAINT review_comment_reply_count_check
+  CHECK (reply_count >= 0);
+
+CREATE INDEX IF NOT EXISTS idx_review_comment_review_parent_created
+  ON review_comment(review_id, parent_comment_id, created_at ASC, id ASC);
@@ -0,0 +1,15 @@
+-- Pending follower/following deltas, spread over N slots per user so concurrent follows of the
+-- same account do not queue on one users row. Periodically drained into users.*_count.
+CREATE TABLE IF NOT EXISTS user_follow_counter_shard (
+  user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  kind TEXT NOT NULL,
+  slot SMALLINT NOT NULL,
+  delta BIGINT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  PRIMARY KEY (user_id, kind, slot),
+  CHECK (kind IN ('FOLLOWERS', 'FOLLOWING')),
+  CHECK (slot >= 0)
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_follow_counter_shard_updated
+  ON user_follow_counter_shard(updated_at ASC);
@@ -0,0 +1,50 @@
+-- Denormalized per-user profile counters, maintained by the owning services and reconciled nightly.
+CREATE TABLE IF NOT EXISTS user_profile_stats (
+  user_id UUID PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+  collection_count BIGINT NOT NULL DEFAULT 0,
+  wishlist_count BIGINT NOT NULL DEFAULT 0,
+  review_count BIGINT NOT NULL DEFAULT 0,
+  community_fragrance_count BIGINT NOT NULL DEFAULT 0,
+  public_community_fragrance_count BIGINT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  CHECK (collection_count >= 0),
+  CHECK (wishlist_count >= 0),
+  CHECK (review_count >= 0),
+  CHECK (community_fragrance_count >= 0),
+  CHECK (public_community_fragrance_count >= 0)
+);
+
+INSERT INTO user_profile_stats (
+  user_id,
+  collection_count,
+  wishlist_count,
+  review_count,
+  community_fragrance_count,
+  public_community_fragrance_count
+)
+SELECT
+  u.id,
+  (SELECT COUNT(*) FROM user_collection_item c WHERE c.user_id = u.id),
+  (SELECT COUNT(*) FROM user_wishlist_item w WHERE w.user_id = u.id),
+  (SELECT COUNT(*) FROM activity_event a WHERE a.actor_user_id = u.id AND a.type = 'REVIEW_POSTED'),
+  (SELECT COUNT(*) FROM fragrance f WHERE f.external_source = 'COMMUNITY' AND f.created_by_user_id = u.id),
+  (
+    SELECT COUNT(*)
+    FROM fragrance f
+    WHERE f.external_source = 'COMMUNITY'
+      AND f.created_by_user_id = u.id
+      AND f.visibility = 'PUBLIC'
+  )
+FROM users u
+ON CONFLICT (user_id) DO NOTHING;
+
+-- Keyset pagination for the per-profile item lists.
+CREATE INDEX IF NOT EXISTS idx_user_collection_item_user_added_id
+  ON user_collection_item(user_id, added_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_user_wishlist_item_user_added_id
+  ON user_wishlist_item(user_id, added_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_fragrance_community_creator_created
+  ON fragrance(created_by_user_id, created_at DESC, id DESC)
+  WHERE external_source = 'COMMUNITY';
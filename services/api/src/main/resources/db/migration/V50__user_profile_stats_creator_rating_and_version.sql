@@ -0,0 +1,26 @@
+ALTER TABLE user_profile_stats
+  ADD COLUMN IF NOT EXISTS creator_rating_sum BIGINT NOT NULL DEFAULT 0,
+  ADD COLUMN IF NOT EXISTS creator_rating_count BIGINT NOT NULL DEFAULT 0,
+  -- Bumped on every change that affects the owner's /me payload; part of the /me ETag.
+  ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+INSERT INTO user_profile_stats (user_id)
+SELECT u.id
+FROM users u
+ON CONFLICT (user_id) DO NOTHING;
+
+UPDATE user_profile_stats s
+SET
+  creator_rating_sum = r.rating_sum,
+  creator_rating_count = r.rating_count
+FROM (
+  SELECT creator_user_id, SUM(rating)::BIGINT AS rating_sum, COUNT(*)::BIGINT AS rating_count
+  FROM creator_reputation_rating
+  GROUP BY creator_user_id
+) r
+WHERE s.user_id = r.creator_user_id;
+
+ALTER TABLE user_profile_stats DROP CONSTRAINT IF EXISTS user_profile_stats_creator_rating_check;
+ALTER TABLE user_profile_stats
+  ADD CONSTRAINT user_profile_stats_creator_rating_check
+  CHECK (creator_rating_sum >= 0 AND creator_rating_count >= 0);
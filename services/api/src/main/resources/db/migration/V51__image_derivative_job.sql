@@ -0,0 +1,28 @@
+-- Durable queue for resized image variants. One row per uploaded object key; workers claim rows with
+-- FOR UPDATE SKIP LOCKED and re-claim RUNNING rows whose lease has lapsed. GONE marks a key whose
+-- objects were garbage-collected, so other instances' variant indexes drop it; enqueueing it revives it.
+CREATE TABLE IF NOT EXISTS image_derivative_job (
+  object_key TEXT PRIMARY KEY,
+  status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+  attempts INT NOT NULL DEFAULT 0,
+  last_error TEXT,
+  next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  CONSTRAINT image_derivative_job_status_check
+    CHECK (status IN ('PENDING', 'RUNNING', 'DONE', 'FAILED', 'SKIPPED', 'GONE'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_image_derivative_job_claim
+  ON image_derivative_job(next_attempt_at)
+  WHERE status IN ('PENDING', 'RUNNING');
+
+CREATE INDEX IF NOT EXISTS idx_image_derivative_job_updated_at
+  ON image_derivative_job(updated_at);
+
+-- Existing uploads get variants too.
+INSERT INTO image_derivative_job (object_key)
+SELECT DISTINCT avatar_object_key FROM users WHERE avatar_object_key IS NOT NULL AND btrim(avatar_object_key) <> ''
+UNION
+SELECT DISTINCT image_object_key FROM fragrance WHERE image_object_key IS NOT NULL AND btrim(image_object_key) <> ''
+ON CONFLICT (object_key) DO NOTHING;
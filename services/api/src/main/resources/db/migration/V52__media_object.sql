@@ -0,0 +1,16 @@
+-- Content-addressed registry for server-side uploads. ref_count tracks attachments (avatars, community
+-- fragrance images); rows at zero past the grace period are garbage-collected with their S3 objects.
+CREATE TABLE IF NOT EXISTS media_object (
+  sha256 CHAR(64) PRIMARY KEY,
+  object_key TEXT NOT NULL UNIQUE,
+  content_type VARCHAR(64) NOT NULL,
+  size_bytes BIGINT NOT NULL,
+  ref_count INT NOT NULL DEFAULT 0,
+  created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  last_referenced_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  CONSTRAINT media_object_ref_count_check CHECK (ref_count >= 0)
+);
+
+CREATE INDEX IF NOT EXISTS idx_media_object_unreferenced
+  ON media_object(last_referenced_at)
+  WHERE ref_count = 0;
@@ -0,0 +1,11 @@
+-- FragranceChangeFeed re-reads fragrance rows changed since its watermark every minute.
+CREATE INDEX IF NOT EXISTS idx_fragrance_updated_at ON fragrance(updated_at);
+
+-- Deleted fragrance ids, so indexes on other instances drop them on their next tail instead of at
+-- the next full rebuild. Rows older than a few rebuilds are pruned by the feed.
+CREATE TABLE IF NOT EXISTS fragrance_tombstone (
+  fragrance_id UUID PRIMARY KEY,
+  deleted_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_fragrance_tombstone_deleted_at ON fragrance_tombstone(deleted_at);
@@ -0,0 +1,18 @@
+-- Likely duplicate pairs found by the duplicate scan: a community fragrance and the mirrored or older
+-- fragrance it seems to copy. Moderators dismiss or merge them; a rescan refreshes OPEN rows only.
+CREATE TABLE IF NOT EXISTS fragrance_duplicate_candidate (
+  id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+  fragrance_id UUID NOT NULL REFERENCES fragrance(id) ON DELETE CASCADE,
+  duplicate_of_fragrance_id UUID NOT NULL REFERENCES fragrance(id) ON DELETE CASCADE,
+  score DOUBLE PRECISION NOT NULL,
+  status TEXT NOT NULL DEFAULT 'OPEN',
+  resolved_by_user_id UUID NULL REFERENCES users(id) ON DELETE SET NULL,
+  resolved_at TIMESTAMPTZ,
+  detected_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  CONSTRAINT uq_fragrance_duplicate_candidate_pair UNIQUE (fragrance_id, duplicate_of_fragrance_id),
+  CONSTRAINT chk_fragrance_duplicate_candidate_status
+    CHECK (status IN ('OPEN', 'DISMISSED', 'MERGED'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_fragrance_duplicate_candidate_status_score
+  ON fragrance_duplicate_candidate (status, score DESC);
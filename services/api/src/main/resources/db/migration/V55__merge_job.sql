@@ -0,0 +1,60 @@
+-- Bulk merges of duplicate notes or fragrances. A job is a set of source -> target mappings rewritten
+-- in small committed chunks by a background worker; stage records how far it got, so a job picked up
+-- again after a crash or a lapsed lease carries on from its last committed chunk.
+CREATE TABLE IF NOT EXISTS merge_job (
+  id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+  kind VARCHAR(16) NOT NULL,
+  status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+  stage VARCHAR(32) NOT NULL,
+  rows_done BIGINT NOT NULL DEFAULT 0,
+  rows_estimated BIGINT NOT NULL DEFAULT 0,
+  attempts INT NOT NULL DEFAULT 0,
+  last_error TEXT,
+  requested_by_user_id UUID NULL REFERENCES users(id) ON DELETE SET NULL,
+  next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  finished_at TIMESTAMPTZ,
+  CONSTRAINT merge_job_kind_check CHECK (kind IN ('NOTE', 'FRAGRANCE')),
+  CONSTRAINT merge_job_status_check CHECK (status IN ('PENDING', 'RUNNING', 'DONE', 'FAILED'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_merge_job_claim
+  ON merge_job(next_attempt_at)
+  WHERE status IN ('PENDING', 'RUNNING');
+
+CREATE INDEX IF NOT EXISTS idx_merge_job_created
+  ON merge_job(created_at DESC);
+
+-- No foreign keys on source/target: sources are deleted when the job finishes, and the mapping
+-- stays behind as the record of what was merged (source_label keeps the name). A mapping is active
+-- until its job is DONE (FAILED jobs keep theirs until retried to completion).
+CREATE TABLE IF NOT EXISTS merge_job_mapping (
+  job_id UUID NOT NULL REFERENCES merge_job(id) ON DELETE CASCADE,
+  source_id UUID NOT NULL,
+  target_id UUID NOT NULL,
+  source_label TEXT NULL,
+  active BOOLEAN NOT NULL DEFAULT true,
+  PRIMARY KEY (job_id, source_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_merge_job_mapping_source ON merge_job_mapping(source_id);
+-- A source is in at most one unfinished merge, even under concurrent enqueues.
+CREATE UNIQUE INDEX IF NOT EXISTS uq_merge_job_mapping_active_source
+  ON merge_job_mapping(source_id)
+  WHERE active;
+CREATE INDEX IF NOT EXISTS idx_merge_job_mapping_target ON merge_job_mapping(target_id);
+
+-- Lookups by the merged-away note or fragrance; collection rows were only reachable through user_id.
+CREATE INDEX IF NOT EXISTS idx_user_custom_note_creation_event_note
+  ON user_custom_note_creation_event(note_id);
+
+CREATE INDEX IF NOT EXISTS idx_user_collection_item_fragrance
+  ON user_collection_item(fragrance_external_id);
+
+CREATE INDEX IF NOT EXISTS idx_user_wishlist_item_fragrance
+  ON user_wishlist_item(fragrance_external_id);
+
+CREATE INDEX IF NOT EXISTS idx_activity_event_fragrance
+  ON activity_event(fragrance_external_id)
+  WHERE fragrance_external_id IS NOT NULL;
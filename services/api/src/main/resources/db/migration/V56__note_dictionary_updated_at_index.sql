@@ -0,0 +1,2 @@
+-- NoteDictionaryIndex re-reads rows changed since its watermark every few seconds.
+CREATE INDEX IF NOT EXISTS idx_note_dictionary_updated_at ON note_dictionary(updated_at);
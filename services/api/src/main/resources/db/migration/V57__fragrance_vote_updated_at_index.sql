@@ -0,0 +1,3 @@
+-- FragranceFacetIndex re-reads votes changed since its watermark every minute.
+CREATE INDEX IF NOT EXISTS idx_fragella_fragrance_vote_updated_at ON fragella_fragrance_vote(updated_at);
+CREATE INDEX IF NOT EXISTS idx_community_fragrance_vote_updated_at ON community_fragrance_vote(updated_at);
@@ -0,0 +1,9 @@
+-- ItemSimilarityModel is trained by whichever instance leases this row and loaded from it by the rest.
+CREATE TABLE IF NOT EXISTS item_similarity_model (
+  id SMALLINT PRIMARY KEY CHECK (id = 1),
+  trained_at TIMESTAMPTZ NOT NULL DEFAULT 'epoch',
+  lease_until TIMESTAMPTZ,
+  model BYTEA
+);
+
+INSERT INTO item_similarity_model (id) VALUES (1) ON CONFLICT (id) DO NOTHING;
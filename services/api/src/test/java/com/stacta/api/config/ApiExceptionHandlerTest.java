@@ -0,0 +1,33 @@
+package com.stacta.api.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.stacta.api.fragrance.LikelyDuplicateException;
+import com.stacta.api.fragrance.dto.DuplicateCandidateDto;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class ApiExceptionHandlerTest {
+  private final ApiExceptionHandler handler = new ApiExceptionHandler();
+
+  @Test
+  void likelyDuplicateIsAConflictCarryingTheCandidates() {
+    DuplicateCandidateDto sauvage = new DuplicateCandidateDto("fragella", "sauvage-edp", "Sauvage", "Dior", "2018", null, 0.95);
+
+    ResponseEntity<?> response = handler.handleLikelyDuplicate(new LikelyDuplicateException(List.of(sauvage)));
+
+    assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    Map<?, ?> body = (Map<?, ?>) response.getBody();
+    assertEquals("LIKELY_DUPLICATE", body.get("error"));
+    assertEquals(List.of(sauvage), body.get("candidates"));
+  }
+
+  @Test
+  void otherCodesKeepTheirStatus() {
+    assertEquals(HttpStatus.CONFLICT, handler.handleApi(new ApiException("USERNAME_TAKEN")).getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, handler.handleApi(new ApiException("SOMETHING_ELSE")).getStatusCode());
+  }
+}
@@ -0,0 +1,102 @@
+package com.stacta.api.fragrance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.stacta.api.fragrance.DuplicateFragranceDetector.Candidate;
+import com.stacta.api.fragrance.DuplicateFragranceDetector.DuplicatePair;
+import com.stacta.api.fragrance.DuplicateFragranceDetector.Submission;
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.fragrance.dto.NotesDto;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class DuplicateFragranceDetectorTest {
+
+  @Test
+  void findsTheMirroredFragranceDespiteBrandAndConcentrationWording() {
+    DuplicateFragranceDetector detector = detector();
+    UUID edp = UUID.randomUUID();
+    UUID edt = UUID.randomUUID();
+    detector.upsert(edp, "fragella", "sauvage-edp", Instant.EPOCH, fragrance("Sauvage Eau de Parfum", "Dior", "2018", null, List.of("Bergamot", "Ambroxan", "Vanilla")));
+    detector.upsert(edt, "fragella", "sauvage-edt", Instant.EPOCH, fragrance("Sauvage Eau de Toilette", "Dior", "2015", null, List.of("Bergamot", "Ambroxan", "Pepper")));
+    detector.upsert(UUID.randomUUID(), "fragella", "aventus", Instant.EPOCH, fragrance("Aventus", "Creed", "2010", null, List.of("Pineapple", "Birch")));
+
+    List<Candidate> found = detector.find(new Submission("Dior", "Dior Sauvage EDP", "2018", null, List.of("bergamot", "ambroxan", "vanilla")), 5, 0.5);
+    assertEquals(List.of("sauvage-edp", "sauvage-edt"), found.stream().map(Candidate::externalId).toList());
+    assertEquals(1.0, found.get(0).score(), 1e-9);
+    assertTrue(found.get(1).score() < 0.75);
+
+    // A typo still lands in a shared bucket through the name trigrams.
+    assertEquals("sauvage-edp", detector.find(new Submission("Dior", "Sauvge", null, "EDP", List.of()), 1, 0.5).get(0).externalId());
+    assertEquals(List.of(), detector.find(new Submission("Chanel", "Bleu de Chanel", null, null, List.of()), 5, 0.3));
+
+    detector.remove(edp);
+    assertNull(detector.find(new Submission("Dior", "Sauvage", "2018", "Eau de Parfum", List.of()), 1, 0.9).stream().findFirst().orElse(null));
+  }
+
+  @Test
+  void scanPointsCommunityCopiesAtTheMirrorOrTheOlderCopy() {
+    DuplicateFragranceDetector detector = detector();
+    UUID mirror = UUID.randomUUID();
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    detector.upsert(mirror, "fragella", "aventus", Instant.EPOCH, fragrance("Aventus", "Creed", "2010", null, List.of()));
+    detector.upsert(second, "COMMUNITY", "c2", Instant.parse("2026-02-01T00:00:00Z"), fragrance("Aventus", "Creed", null, "EDP", List.of()));
+    detector.upsert(first, "COMMUNITY", "c1", Instant.parse("2026-01-01T00:00:00Z"), fragrance("Creed Aventus", "Creed", null, "EDP", List.of()));
+    detector.upsert(UUID.randomUUID(), "COMMUNITY", "c3", Instant.EPOCH, fragrance("Green Irish Tweed", "Creed", null, null, List.of()));
+
+    List<DuplicatePair> pairs = detector.scan(0.9, 5);
+    assertEquals(3, pairs.size());
+    assertTrue(pairs.contains(new DuplicatePair(first, mirror, 1.0)));
+    assertTrue(pairs.contains(new DuplicatePair(second, mirror, 1.0)));
+    assertTrue(pairs.contains(new DuplicatePair(second, first, 1.0)));
+  }
+
+  @Test
+  void lshFindsMostNearMatchesAmongManyFragrances() {
+    Random random = new Random(11);
+    DuplicateFragranceDetector detector = detector();
+    String[] names = new String[5_000];
+    for (int i = 0; i < names.length; i++) {
+      StringBuilder name = new StringBuilder();
+      for (int w = 0; w < 2 + random.nextInt(2); w++) {
+        if (w > 0) name.append(' ');
+        for (int c = 0; c < 4 + random.nextInt(5); c++) name.append((char) ('a' + random.nextInt(26)));
+      }
+      names[i] = name.toString();
+      detector.upsert(UUID.randomUUID(), "fragella", "f" + i, Instant.EPOCH, fragrance(names[i], "House " + (i % 50), null, null, List.of()));
+    }
+
+    int hits = 0;
+    for (int i = 0; i < 500; i++) {
+      // Drop one letter: the kind of slip a community submission makes.
+      String name = names[i];
+      int cut = 1 + random.nextInt(name.length() - 2);
+      String typo = name.substring(0, cut) + name.substring(cut + 1);
+      List<Candidate> found = detector.find(new Submission("House " + (i % 50), typo, null, null, List.of()), 1, 0.3);
+      if (!found.isEmpty() && found.get(0).externalId().equals("f" + i)) hits++;
+    }
+    assertTrue(hits >= 450, "hits=" + hits);
+  }
+
+  private static DuplicateFragranceDetector detector() {
+    return new DuplicateFragranceDetector(1_000, 0.6, 0.9);
+  }
+
+  private static FragranceSearchResult fragrance(String name, String brand, String year, String concentration, List<String> notes) {
+    return new FragranceSearchResult(
+      "fragella", null, name, brand, year, null, null, null,
+      null, null, null,
+      null, null, null, null, null,
+      null, List.of(), List.of(),
+      List.of(), List.of(), new NotesDto(notes.stream().map(n -> new NoteDto(null, n, null)).toList(), List.of(), List.of()), null,
+      concentration, null, null, null, null, null, null, null
+    );
+  }
+}
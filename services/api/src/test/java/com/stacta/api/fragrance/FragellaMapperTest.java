@@ -0,0 +1,74 @@
+package com.stacta.api.fragrance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.integrations.fragella.FragellaDtos;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class FragellaMapperTest {
+  private final FragellaMapper mapper = new FragellaMapper();
+
+  private static FragellaDtos.Fragrance fragrance(String brand, String name, String year) {
+    var notes = new FragellaDtos.Notes(
+      List.of(new FragellaDtos.Note("Bergamot", null), new FragellaDtos.Note("Pink Pepper", null)),
+      List.of(new FragellaDtos.Note("Rose", null)),
+      List.of(new FragellaDtos.Note("Amber", null), new FragellaDtos.Note("Musk", null))
+    );
+    return new FragellaDtos.Fragrance(
+      name, brand, year, "4.2", "https://img/x.jpg", "unisex", "$$", "120", "EDP",
+      "Long Lasting", "Moderate", "0.9", "High",
+      List.of("woody", "amber"), List.of("Rose"), Map.of("woody", "Dominant"),
+      List.of(new FragellaDtos.Ranking("fall", 0.8)), List.of(new FragellaDtos.Ranking("night", 0.7)),
+      notes, null, List.of()
+    );
+  }
+
+  @Test
+  void derivesCanonicalExternalId() {
+    var mapped = mapper.mapRaw(List.of(
+      fragrance("  Maison  Francis Kurkdjian ", "Baccarat\tRouge 540", "2015"),
+      fragrance("Dior", "Sauvage", " "),
+      fragrance(" ", null, null)
+    ));
+
+    assertEquals("maison francis kurkdjian|baccarat rouge 540|2015", mapped.get(0).externalId());
+    assertEquals("dior|sauvage|0", mapped.get(1).externalId());
+    assertNull(mapped.get(2).externalId());
+    assertEquals("fragella", mapped.get(0).source());
+    assertEquals(2, mapped.get(0).notes().top().size());
+  }
+
+  @Test
+  void sharedIdHelpersMatchIngestRules() {
+    assertEquals("a b|c|0", FragranceExternalIds.normalize("  A \n B|C|0 "));
+    assertEquals("", FragranceExternalIds.normalize(null));
+    assertEquals("dior|sauvage|0", FragranceExternalIds.zeroYearAlias("Dior|Sauvage|2015"));
+    assertEquals("dior|sauvage|0", FragranceExternalIds.zeroYearAlias("dior|sauvage"));
+    assertEquals("", FragranceExternalIds.zeroYearAlias("sauvage"));
+    assertEquals("", FragranceExternalIds.fragella(null, " ", ""));
+  }
+
+  @Test
+  void mapsFiftyItemPage() {
+    List<FragellaDtos.Fragrance> page = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      page.add(fragrance("Brand " + (i % 7), "Name  " + i, i % 5 == 0 ? "" : "20" + (10 + i % 10)));
+    }
+
+    List<FragranceSearchResult> out = mapper.mapRaw(page);
+
+    assertEquals(50, out.size());
+    assertEquals("brand 0|name 0|0", out.get(0).externalId());
+    assertEquals("brand 1|name 1|2011", out.get(1).externalId());
+    assertEquals("brand 0|name 49|2019", out.get(49).externalId());
+    for (FragranceSearchResult item : out) {
+      assertEquals("fragella", item.source());
+      assertEquals(2, item.notes().top().size());
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.stacta.api.fragrance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.stacta.api.fragrance.FragranceFacetIndex.Facet;
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.fragrance.dto.NotesDto;
+import com.stacta.api.fragrance.dto.RankingDto;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class FragranceFacetIndexTest {
+
+  @Test
+  void intersectsFacetsAndFollowsFragranceAndVoteChanges() {
+    FragranceFacetIndex index = new FragranceFacetIndex(null);
+    UUID a = UUID.randomUUID();
+    UUID b = UUID.randomUUID();
+    UUID c = UUID.randomUUID();
+    List<RankingDto> winter = List.of(new RankingDto("winter", 100.0), new RankingDto("fall", 80.0), new RankingDto("summer", 10.0));
+    index.upsert(FragranceFacetIndex.entry(a, "fragella", "a", fragrance("a", List.of("Woody", "Amber"), List.of("Oud", "Vanilla"), winter), List.of()));
+    index.upsert(FragranceFacetIndex.entry(b, "fragella", "b", fragrance("b", List.of("woody", "citrus"), List.of("Bergamot"), List.of(new RankingDto("summer", 1.0))), List.of()));
+    // Community notes arrive through fragrance_note; community rankings are not a prior.
+    index.upsert(FragranceFacetIndex.entry(c, "COMMUNITY", "c", fragrance("c", List.of("woody", "amber"), List.of(), winter), List.of("Oud")));
+
+    FragranceFacetIndex.Page page = browse(index, Map.of(Facet.ACCORD, List.of("woody", " AMBER ")));
+    assertEquals(2, page.total());
+    assertEquals(List.of("a", "c"), ids(page));
+    assertEquals(List.of(new FragranceFacetIndex.FacetCount("oud", "Oud", 2), new FragranceFacetIndex.FacetCount("vanilla", "Vanilla", 1)), page.facets().get(Facet.NOTE));
+    assertEquals(List.of("FALL", "WINTER"), values(page, Facet.SEASON));
+
+    assertEquals(List.of("a"), ids(browse(index, Map.of(Facet.SEASON, List.of("winter"), Facet.NOTE, List.of("oud")))));
+    assertEquals(0, browse(index, Map.of(Facet.NOTE, List.of("oud", "unknown"))).total());
+
+    index.communityVotes(c, votes(Map.of(3, 2)));
+    assertEquals(List.of("a", "c"), ids(browse(index, Map.of(Facet.SEASON, List.of("Winter")))));
+    // Enough summer votes outweigh the Fragella prior.
+    index.fragellaVotes("a", votes(Map.of(1, 400)));
+    assertEquals(List.of("c"), ids(browse(index, Map.of(Facet.SEASON, List.of("winter")))));
+    assertEquals(List.of("a", "b"), ids(browse(index, Map.of(Facet.SEASON, List.of("summer")))));
+    index.fragellaVotes("a", null);
+    assertEquals(List.of("a", "c"), ids(browse(index, Map.of(Facet.SEASON, List.of("winter")))));
+
+    index.upsert(FragranceFacetIndex.entry(b, "fragella", "b", fragrance("b", List.of("amber"), List.of("Oud"), List.of()), List.of()));
+    // A re-filed fragrance keeps its place, so paging across a refresh neither repeats nor skips it.
+    assertEquals(List.of("a", "b", "c"), ids(browse(index, Map.of(Facet.NOTE, List.of("oud")))));
+    index.remove(a);
+    FragranceFacetIndex.Page afterRemove = browse(index, Map.of(Facet.ACCORD, List.of("amber")));
+    assertEquals(List.of("b", "c"), ids(afterRemove));
+    assertEquals(List.of("amber", "woody"), values(afterRemove, Facet.ACCORD));
+    assertEquals(List.of("oud"), values(afterRemove, Facet.NOTE));
+  }
+
+  @Test
+  void countsAndPagesMatchBruteForce() {
+    Random random = new Random(3);
+    FragranceFacetIndex index = new FragranceFacetIndex(null);
+    List<Set<String>> accordsByDoc = new ArrayList<>();
+    List<Set<String>> notesByDoc = new ArrayList<>();
+    for (int i = 0; i < 4_000; i++) {
+      Set<String> accords = new HashSet<>();
+      Set<String> notes = new HashSet<>();
+      for (int k = 0; k < 1 + random.nextInt(5); k++) accords.add("a" + (int) (20 * Math.pow(random.nextDouble(), 2)));
+      for (int k = 0; k < random.nextInt(8); k++) notes.add("n" + (int) (200 * Math.pow(random.nextDouble(), 2)));
+      accordsByDoc.add(accords);
+      notesByDoc.add(notes);
+      index.upsert(FragranceFacetIndex.entry(UUID.randomUUID(), "fragella", "f" + i, fragrance("f" + i, List.copyOf(accords), List.copyOf(notes), List.of()), List.of()));
+    }
+
+    for (int q = 0; q < 200; q++) {
+      List<String> accords = new ArrayList<>();
+      List<String> notes = new ArrayList<>();
+      for (int k = 0; k < random.nextInt(3); k++) accords.add("a" + random.nextInt(8));
+      for (int k = 0; k < random.nextInt(2); k++) notes.add("n" + random.nextInt(30));
+      Map<Facet, List<String>> selected = new EnumMap<>(Facet.class);
+      selected.put(Facet.ACCORD, accords);
+      selected.put(Facet.NOTE, notes);
+
+      List<String> expected = new ArrayList<>();
+      Map<String, Integer> accordCounts = new HashMap<>();
+      Map<String, Integer> noteCounts = new HashMap<>();
+      for (int i = 0; i < accordsByDoc.size(); i++) {
+        if (!accordsByDoc.get(i).containsAll(accords) || !notesByDoc.get(i).containsAll(notes)) continue;
+        expected.add("f" + i);
+        for (String accord : accordsByDoc.get(i)) accordCounts.merge(accord, 1, Integer::sum);
+        for (String note : notesByDoc.get(i)) noteCounts.merge(note, 1, Integer::sum);
+      }
+
+      int offset = expected.isEmpty() ? 0 : random.nextInt(expected.size());
+      FragranceFacetIndex.Page page = index.browse(selected, offset, 10, 1_000);
+      assertEquals(expected.size(), page.total());
+      assertEquals(expected.subList(offset, Math.min(expected.size(), offset + 10)), ids(page));
+      assertEquals(accordCounts, counts(page, Facet.ACCORD));
+      assertEquals(noteCounts, counts(page, Facet.NOTE));
+    }
+  }
+
+  private static FragranceFacetIndex.Page browse(FragranceFacetIndex index, Map<Facet, List<String>> selected) {
+    return index.browse(selected, 0, 50, 20);
+  }
+
+  private static List<String> ids(FragranceFacetIndex.Page page) {
+    return page.hits().stream().map(FragranceFacetIndex.Hit::externalId).toList();
+  }
+
+  private static List<String> values(FragranceFacetIndex.Page page, Facet facet) {
+    return page.facets().get(facet).stream().map(FragranceFacetIndex.FacetCount::value).sorted().toList();
+  }
+
+  private static Map<String, Integer> counts(FragranceFacetIndex.Page page, Facet facet) {
+    Map<String, Integer> out = new HashMap<>();
+    for (FragranceFacetIndex.FacetCount count : page.facets().get(facet)) out.put(count.value(), count.count());
+    return out;
+  }
+
+  /** Season slots first (spring, summer, fall, winter), then occasions. */
+  private static int[] votes(Map<Integer, Integer> slots) {
+    int[] out = new int[FragranceVoteService.SEASON_KEYS.size() + FragranceVoteService.OCCASION_KEYS.size()];
+    slots.forEach((slot, count) -> out[slot] = count);
+    return out;
+  }
+
+  private static FragranceSearchResult fragrance(String externalId, List<String> accords, List<String> notes, List<RankingDto> seasons) {
+    return new FragranceSearchResult(
+      "fragella", externalId, "Name " + externalId, "Brand", "2020", null, null, null,
+      null, null, null,
+      null, null, null, null, null,
+      Map.of(), seasons, List.of(),
+      accords, List.of(), new NotesDto(notes.stream().map(n -> new NoteDto(null, n, null)).toList(), List.of(), List.of()), null,
+      null, null, null, null, null, null, null, null
+    );
+  }
+}
@@ -0,0 +1,57 @@
+package com.stacta.api.fragrance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class FragranceSnapshotsTest {
+  private final FragranceSnapshots snapshots = new FragranceSnapshots(
+    new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false),
+    new FragellaMapper(),
+    null,
+    200
+  );
+
+  @Test
+  void readsLegacyFragellaPayloadAndCanonicalFormat() throws Exception {
+    String legacy = """
+      {"Name":"Sauvage","Brand":"Dior","Year":"2015","Notes":{"Top":[{"name":"Bergamot"}]}}
+      """;
+
+    FragranceSearchResult fromLegacy = snapshots.read(legacy);
+    assertEquals("fragella", fromLegacy.source());
+    assertEquals("dior|sauvage|2015", fromLegacy.externalId());
+    assertEquals("Bergamot", fromLegacy.notes().top().get(0).name());
+
+    FragranceSearchResult roundTrip = snapshots.read(snapshots.write(fromLegacy));
+    assertEquals(fromLegacy.name(), roundTrip.name());
+    assertEquals(fromLegacy.externalId(), roundTrip.externalId());
+    assertEquals("Bergamot", roundTrip.notes().top().get(0).name());
+
+    assertNull(snapshots.read("{}").name());
+  }
+
+  @Test
+  void cacheHitsOnlyForTheStoredVersion() throws Exception {
+    FragranceSnapshotCache cache = new FragranceSnapshotCache(new SimpleMeterRegistry(), 10);
+    FragranceSearchResult parsed = snapshots.read("{\"source\":\"community\",\"name\":\"X\"}");
+    // As written by the entity (nanoseconds) and as read back from Postgres (microseconds).
+    OffsetDateTime written = OffsetDateTime.of(2026, 1, 2, 3, 4, 5, 123_456_789, ZoneOffset.UTC);
+    OffsetDateTime stored = OffsetDateTime.of(2026, 1, 2, 3, 4, 5, 123_457_000, ZoneOffset.UTC);
+
+    cache.put("COMMUNITY", "a|b|0", written, parsed);
+
+    assertSame(parsed, cache.get("COMMUNITY", "a|b|0", stored));
+    assertNull(cache.get("COMMUNITY", "a|b|0", stored.plusSeconds(1)));
+    cache.evict("COMMUNITY", "a|b|0");
+    assertNull(cache.get("COMMUNITY", "a|b|0", stored));
+  }
+}
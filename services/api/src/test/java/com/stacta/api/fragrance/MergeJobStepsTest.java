@@ -0,0 +1,152 @@
+package com.stacta.api.fragrance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stacta.api.fragrance.dto.NoteDto;
+import java.sql.ResultSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+class MergeJobStepsTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final UUID BERGAMOT = UUID.fromString("00000000-0000-0000-0000-000000000001");
+  private static final UUID BERGAMOTTE = UUID.fromString("00000000-0000-0000-0000-000000000002");
+  private static final UUID VANILLA = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+  @Test
+  void rewritesMergedNotesAndDropsTheCopyThatBecomesADuplicate() throws Exception {
+    JsonNode snapshot = MAPPER.readTree("""
+      {"name": "Sauvage", "notes": {
+        "top": [
+          {"id": "%s", "name": "Bergamote", "imageUrl": null},
+          {"id": "%s", "name": "Bergamot", "imageUrl": "b.png"}
+        ],
+        "middle": [{"id": "%s", "name": "Bergamote", "imageUrl": null}],
+        "base": [{"id": "%s", "name": "Vanilla", "imageUrl": "v.png"}]
+      }}
+      """.formatted(BERGAMOTTE, BERGAMOT, BERGAMOTTE, VANILLA));
+
+    assertTrue(MergeJobSteps.mergeNotes(snapshot, Map.of(BERGAMOTTE, new NoteDto(BERGAMOT, "Bergamot", "b.png"))));
+
+    JsonNode notes = snapshot.get("notes");
+    assertEquals(1, notes.get("top").size());
+    assertEquals(BERGAMOT.toString(), notes.get("top").get(0).get("id").asText());
+    assertEquals("Bergamot", notes.get("middle").get(0).get("name").asText());
+    assertEquals("b.png", notes.get("middle").get(0).get("imageUrl").asText());
+    assertEquals(MAPPER.readTree("[{\"id\": \"%s\", \"name\": \"Vanilla\", \"imageUrl\": \"v.png\"}]".formatted(VANILLA)), notes.get("base"));
+  }
+
+  @Test
+  void leavesSnapshotsWithoutMergedNotesAlone() throws Exception {
+    JsonNode snapshot = MAPPER.readTree("""
+      {"notes": {"top": [{"id": "%s", "name": "Vanilla"}, {"name": "Name only"}], "middle": [], "base": null}}
+      """.formatted(VANILLA));
+    JsonNode before = snapshot.deepCopy();
+
+    assertFalse(MergeJobSteps.mergeNotes(snapshot, Map.of(BERGAMOTTE, new NoteDto(BERGAMOT, "Bergamot", null))));
+    assertFalse(MergeJobSteps.mergeNotes(MAPPER.readTree("{\"name\": \"No notes\"}"), Map.of()));
+    assertEquals(before, snapshot);
+  }
+
+  @Test
+  void jobPickedUpAfterALapsedLeaseContinuesFromItsLastCommittedChunk() {
+    // The first stage (NOTE_FRAGRANCES) finished earlier; the creation-event stage has two chunks left.
+    JobRow row = new JobRow("NOTE_CREATION_EVENTS", 2, 1);
+    JdbcTemplate jdbc = mock(JdbcTemplate.class, row::handle);
+
+    MergeJobSteps crashed = steps(jdbc);
+    assertTrue(crashed.runChunk(row.id, 2, 120));
+    assertEquals("NOTE_CREATION_EVENTS", row.stage);
+    assertEquals(2, row.rowsDone);
+    assertEquals(1, row.leaseRenewals);
+    // That instance dies here; its lease lapses and another one claims the RUNNING job.
+
+    MergeJobSteps resumed = steps(jdbc);
+    assertTrue(resumed.runChunk(row.id, 2, 120));
+    assertEquals("NOTE_REPORTS", row.stage);
+    assertEquals(3, row.rowsDone);
+    assertTrue(resumed.runChunk(row.id, 2, 120));
+    assertEquals("NOTE_CLEANUP", row.stage);
+    assertFalse(resumed.runChunk(row.id, 2, 120));
+
+    assertEquals("DONE", row.status);
+    assertEquals(3, row.rowsDone);
+    assertFalse(row.mappingsActive);
+    // Finished jobs are not run again, and the completed fragrance stage never re-ran.
+    assertFalse(resumed.runChunk(row.id, 2, 120));
+    assertTrue(row.unexpected.isEmpty(), () -> "unexpected statements: " + row.unexpected);
+  }
+
+  private static MergeJobSteps steps(JdbcTemplate jdbc) {
+    return new MergeJobSteps(jdbc, MAPPER, null, null, null, null, null, mock(ApplicationEventPublisher.class));
+  }
+
+  /** One merge_job row (and its mappings) behind a mocked JdbcTemplate. */
+  private static final class JobRow {
+    final UUID id = UUID.randomUUID();
+    final Deque<Integer> creationEventChunks = new ArrayDeque<>();
+    final List<String> unexpected = new ArrayList<>();
+    String status = "RUNNING";
+    String stage;
+    long rowsDone;
+    int leaseRenewals;
+    boolean mappingsActive = true;
+
+    JobRow(String stage, Integer... creationEventChunks) {
+      this.stage = stage;
+      this.creationEventChunks.addAll(List.of(creationEventChunks));
+    }
+
+    Object handle(InvocationOnMock call) throws Exception {
+      String method = call.getMethod().getName();
+      String sql = call.getArguments().length > 0 && call.getArgument(0) instanceof String text ? text : "";
+      if (method.equals("query") && sql.contains("FROM merge_job WHERE id = ? AND status = 'RUNNING' FOR UPDATE")) {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(status.equals("RUNNING"));
+        when(rs.getString(1)).thenReturn(stage);
+        return call.<ResultSetExtractor<?>>getArgument(1).extractData(rs);
+      }
+      if (method.equals("update") && sql.contains("UPDATE user_custom_note_creation_event")) {
+        Integer chunk = creationEventChunks.poll();
+        return chunk == null ? 0 : chunk;
+      }
+      if (method.equals("update") && sql.contains("UPDATE note_report")) return 0;
+      if (method.equals("query") && sql.contains("DELETE FROM note_dictionary")) return List.of();
+      if (method.equals("update") && sql.contains("SET status = 'DONE'")) {
+        status = "DONE";
+        stage = "DONE";
+        rowsDone += call.<Integer>getArgument(1);
+        return 1;
+      }
+      if (method.equals("update") && sql.contains("SET stage = ?")) {
+        stage = call.getArgument(1);
+        rowsDone += call.<Integer>getArgument(2);
+        leaseRenewals++;
+        return 1;
+      }
+      if (method.equals("update") && sql.contains("UPDATE merge_job_mapping SET active = false")) {
+        mappingsActive = false;
+        return 1;
+      }
+      unexpected.add(method + ": " + sql.strip());
+      return null;
+    }
+  }
+}
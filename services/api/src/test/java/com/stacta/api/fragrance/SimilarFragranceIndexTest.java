@@ -0,0 +1,164 @@
+package com.stacta.api.fragrance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.stacta.api.fragrance.dto.FragranceSearchResult;
+import com.stacta.api.fragrance.dto.NoteDto;
+import com.stacta.api.fragrance.dto.NotesDto;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class SimilarFragranceIndexTest {
+  private static final String[] STRENGTHS = {"Dominant", "Prominent", "Moderate", "Low"};
+
+  @Test
+  void ranksByAccordAndNoteOverlapAndHandlesUpdates() {
+    SimilarFragranceIndex index = new SimilarFragranceIndex();
+    UUID a = UUID.randomUUID();
+    UUID b = UUID.randomUUID();
+    UUID c = UUID.randomUUID();
+    index.upsert(a, "fragella", "a", fragrance("a", List.of("woody", "amber"), List.of("bergamot"), List.of("cedar"), List.of("vanilla")));
+    index.upsert(b, "fragella", "b", fragrance("b", List.of("woody", "amber"), List.of("lemon"), List.of("cedar"), List.of("vanilla")));
+    index.upsert(c, "COMMUNITY", "c", fragrance("c", List.of("citrus", "fresh"), List.of("bergamot"), List.of("neroli"), List.of("musk")));
+
+    List<SimilarFragranceIndex.Match> matches = index.similarTo("FRAGELLA", "a", 5);
+    assertEquals(List.of("b", "c"), matches.stream().map(SimilarFragranceIndex.Match::externalId).toList());
+    assertTrue(matches.get(0).score() > matches.get(1).score());
+    assertNull(index.similarTo("FRAGELLA", "missing", 5));
+
+    // A snapshot is embedded on the fly and never matches the fragrance it describes.
+    FragranceSearchResult probe = fragrance("a", List.of("citrus"), List.of("bergamot"), List.of(), List.of());
+    assertEquals(List.of("c"), index.similarTo(probe, 5).stream().map(SimilarFragranceIndex.Match::externalId).toList());
+
+    index.upsert(b, "fragella", "b", fragrance("b", List.of("citrus", "fresh"), List.of("bergamot"), List.of("neroli"), List.of("musk")));
+    assertEquals("b", index.similarTo("COMMUNITY", "c", 1).get(0).externalId());
+    index.remove(b);
+    assertEquals(List.of("c"), index.similarTo("fragella", "a", 5).stream().map(SimilarFragranceIndex.Match::externalId).toList());
+  }
+
+  @Test
+  void topKMatchesBruteForceOverQuantizedVectors() {
+    Random random = new Random(11);
+    SimilarFragranceIndex index = new SimilarFragranceIndex();
+    List<FragranceSearchResult> all = new ArrayList<>();
+    for (int i = 0; i < 3_000; i++) {
+      FragranceSearchResult f = randomFragrance(random, "f" + i, 40, 300);
+      all.add(f);
+      index.upsert(UUID.randomUUID(), "fragella", f.externalId(), f);
+    }
+
+    for (int q = 0; q < 50; q++) {
+      FragranceSearchResult query = all.get(random.nextInt(all.size()));
+      Map<String, Integer> qv = quantized(query);
+      List<Integer> expected = new ArrayList<>();
+      for (FragranceSearchResult f : all) {
+        if (f == query) continue;
+        int dot = 0;
+        for (Map.Entry<String, Integer> e : quantized(f).entrySet()) {
+          dot += qv.getOrDefault(e.getKey(), 0) * e.getValue();
+        }
+        if (dot > 0) expected.add(dot);
+      }
+      expected.sort((x, y) -> Integer.compare(y, x));
+      List<Integer> actual = index.similarTo("fragella", query.externalId(), 10).stream()
+        .map(m -> (int) Math.round(m.score() * 127 * 127))
+        .toList();
+      assertEquals(expected.subList(0, 10), actual, query.externalId());
+    }
+  }
+
+  @Test
+  void changesMadeDuringALoadReachTheFreshIndex() {
+    SimilarFragranceIndex index = new SimilarFragranceIndex();
+    UUID kept = UUID.randomUUID();
+    UUID removed = UUID.randomUUID();
+    UUID added = UUID.randomUUID();
+    index.upsert(kept, "fragella", "kept", fragrance("kept", List.of("woody"), List.of(), List.of(), List.of()));
+
+    index.startLoad();
+    index.load(change(kept, "kept"));
+    index.load(change(removed, "removed"));
+    assertEquals(List.of(), index.similarTo("fragella", "kept", 5));
+    index.upsert(change(added, "added"));
+    index.remove(removed);
+    index.finishLoad(true);
+
+    assertTrue(index.isReady());
+    assertEquals(List.of("added"), index.similarTo("fragella", "kept", 5).stream().map(SimilarFragranceIndex.Match::externalId).toList());
+
+    // A failed load keeps serving the previous store.
+    index.startLoad();
+    index.finishLoad(false);
+    assertEquals(List.of("added"), index.similarTo("fragella", "kept", 5).stream().map(SimilarFragranceIndex.Match::externalId).toList());
+  }
+
+  private static FragranceChangeFeed.Change change(UUID id, String externalId) {
+    return new FragranceChangeFeed.Change(id, "fragella", externalId, null, fragrance(externalId, List.of("woody"), List.of(), List.of(), List.of()), List.of());
+  }
+
+  private static Map<String, Integer> quantized(FragranceSearchResult f) {
+    Map<String, Integer> out = new LinkedHashMap<>();
+    FragranceVectors.embed(f).forEach((k, w) -> out.put(k, Math.max(1, Math.min(127, Math.round(w * 127)))));
+    return out;
+  }
+
+  // Popularity is skewed like the real catalogue: a few accords and notes appear almost everywhere.
+  private static FragranceSearchResult randomFragrance(Random random, String externalId, int accordCount, int noteCount) {
+    List<String> accords = new ArrayList<>();
+    Map<String, String> strengths = new LinkedHashMap<>();
+    int wanted = 4 + random.nextInt(7);
+    while (accords.size() < wanted) {
+      String accord = "accord" + skewed(random, accordCount);
+      if (accords.contains(accord)) continue;
+      accords.add(accord);
+      strengths.put(accord, STRENGTHS[Math.min(3, accords.size() / 3 + random.nextInt(2))]);
+    }
+    List<List<String>> levels = new ArrayList<>();
+    for (int level = 0; level < 3; level++) {
+      List<String> notes = new ArrayList<>();
+      int n = 2 + random.nextInt(5);
+      for (int i = 0; i < n; i++) notes.add("note" + skewed(random, noteCount));
+      levels.add(notes);
+    }
+    FragranceSearchResult base = fragrance(externalId, accords, levels.get(0), levels.get(1), levels.get(2));
+    return withAccordStrengths(base, strengths);
+  }
+
+  private static int skewed(Random random, int n) {
+    double u = random.nextDouble();
+    return (int) Math.floor(n * u * u);
+  }
+
+  private static FragranceSearchResult fragrance(String externalId, List<String> accords, List<String> top, List<String> middle, List<String> base) {
+    return new FragranceSearchResult(
+      "fragella", externalId, "Name " + externalId, "Brand", "2020", null, null, null,
+      null, null, null,
+      null, null, null, null, null,
+      Map.of(), List.of(), List.of(),
+      accords, List.of(), new NotesDto(notes(top), notes(middle), notes(base)), null,
+      null, null, null, null, null, null, null, null
+    );
+  }
+
+  private static FragranceSearchResult withAccordStrengths(FragranceSearchResult f, Map<String, String> strengths) {
+    return new FragranceSearchResult(
+      f.source(), f.externalId(), f.name(), f.brand(), f.year(), null, null, null,
+      null, null, null,
+      null, null, null, null, null,
+      strengths, List.of(), List.of(),
+      f.mainAccords(), List.of(), f.notes(), null,
+      null, null, null, null, null, null, null, null
+    );
+  }
+
+  private static List<NoteDto> notes(List<String> names) {
+    return names.stream().map(name -> new NoteDto(null, name, null)).toList();
+  }
+}
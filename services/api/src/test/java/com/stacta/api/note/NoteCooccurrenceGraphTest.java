@@ -0,0 +1,96 @@
+package com.stacta.api.note;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class NoteCooccurrenceGraphTest {
+  private static final int TOP = 0;
+  private static final int MIDDLE = 1;
+  private static final int BASE = 2;
+
+  @Test
+  void ranksPartnersByPmiAboveMinimumSupport() {
+    NoteCooccurrenceGraph graph = new NoteCooccurrenceGraph(null, 2);
+    UUID bergamot = UUID.randomUUID();
+    UUID lavender = UUID.randomUUID();
+    UUID vanilla = UUID.randomUUID();
+    UUID musk = UUID.randomUUID();
+    UUID oud = UUID.randomUUID();
+
+    // Lavender always comes with bergamot; musk is everywhere; oud pairs with bergamot only once.
+    fragrance(graph, List.of(bergamot), List.of(lavender), List.of(musk));
+    fragrance(graph, List.of(bergamot), List.of(lavender), List.of(musk));
+    fragrance(graph, List.of(bergamot), List.of(), List.of(musk, oud));
+    fragrance(graph, List.of(), List.of(vanilla), List.of(musk));
+    fragrance(graph, List.of(), List.of(vanilla), List.of(musk));
+
+    // Musk appears with bergamot only as often as chance predicts (PMI 0), so it is not suggested.
+    List<NoteCooccurrenceGraph.Pairing> pairs = graph.pairsWith(bergamot, null, 10);
+    assertEquals(List.of(lavender), pairs.stream().map(NoteCooccurrenceGraph.Pairing::noteId).toList());
+    assertEquals(2, pairs.get(0).together());
+    assertTrue(pairs.get(0).score() > 0);
+
+    assertEquals(List.of(lavender), graph.pairsWith(bergamot, MIDDLE, 10).stream().map(NoteCooccurrenceGraph.Pairing::noteId).toList());
+    assertTrue(graph.pairsWith(bergamot, BASE, 10).isEmpty());
+
+    List<List<NoteCooccurrenceGraph.Pairing>> pyramid = graph.completePyramid(List.of(Set.of(bergamot), Set.of(), Set.of()), 5);
+    assertEquals(List.of(lavender), pyramid.get(MIDDLE).stream().map(NoteCooccurrenceGraph.Pairing::noteId).toList());
+    assertTrue(pyramid.get(TOP).isEmpty());
+  }
+
+  @Test
+  void incrementalReplaceMatchesFreshBuild() {
+    Random random = new Random(11);
+    List<UUID> notes = new ArrayList<>();
+    for (int i = 0; i < 40; i++) notes.add(UUID.randomUUID());
+    List<UUID> fragrances = new ArrayList<>();
+    for (int i = 0; i < 300; i++) fragrances.add(UUID.randomUUID());
+
+    NoteCooccurrenceGraph incremental = new NoteCooccurrenceGraph(null, 1);
+    Map<UUID, List<NoteCooccurrenceGraph.NoteAtLevel>> current = new HashMap<>();
+    for (int step = 0; step < 3_000; step++) {
+      UUID fragrance = fragrances.get(random.nextInt(fragrances.size()));
+      List<NoteCooccurrenceGraph.NoteAtLevel> picked = random.nextInt(6) == 0 ? List.of() : randomNotes(random, notes);
+      incremental.replace(fragrance, picked);
+      current.put(fragrance, picked);
+    }
+
+    NoteCooccurrenceGraph fresh = new NoteCooccurrenceGraph(null, 1);
+    current.forEach(fresh::replace);
+
+    for (UUID note : notes) {
+      assertEquals(fresh.pairsWith(note, null, 100), incremental.pairsWith(note, null, 100));
+      for (int level = TOP; level <= BASE; level++) {
+        assertEquals(fresh.pairsWith(note, level, 100), incremental.pairsWith(note, level, 100));
+      }
+    }
+    List<Set<UUID>> seed = List.of(Set.of(notes.get(0)), Set.of(notes.get(1)), Set.of());
+    assertEquals(fresh.completePyramid(seed, 10), incremental.completePyramid(seed, 10));
+  }
+
+  private static void fragrance(NoteCooccurrenceGraph graph, List<UUID> top, List<UUID> middle, List<UUID> base) {
+    List<NoteCooccurrenceGraph.NoteAtLevel> notes = new ArrayList<>();
+    top.forEach(id -> notes.add(new NoteCooccurrenceGraph.NoteAtLevel(id, TOP)));
+    middle.forEach(id -> notes.add(new NoteCooccurrenceGraph.NoteAtLevel(id, MIDDLE)));
+    base.forEach(id -> notes.add(new NoteCooccurrenceGraph.NoteAtLevel(id, BASE)));
+    graph.replace(UUID.randomUUID(), notes);
+  }
+
+  private static List<NoteCooccurrenceGraph.NoteAtLevel> randomNotes(Random random, List<UUID> notes) {
+    List<NoteCooccurrenceGraph.NoteAtLevel> out = new ArrayList<>();
+    int count = 1 + random.nextInt(8);
+    for (int i = 0; i < count; i++) {
+      out.add(new NoteCooccurrenceGraph.NoteAtLevel(notes.get(random.nextInt(notes.size())), random.nextInt(3)));
+    }
+    return out;
+  }
+}
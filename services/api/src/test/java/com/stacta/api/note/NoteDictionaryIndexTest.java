@@ -0,0 +1,138 @@
+package com.stacta.api.note;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class NoteDictionaryIndexTest {
+
+  @Test
+  void autocompleteRanksWordPrefixesByUsageThenInfixMatches() {
+    NoteDictionaryIndex index = new NoteDictionaryIndex(null, 600_000);
+    UUID pinkPepper = note(index, "Pink Pepper", 40);
+    UUID pepper = note(index, "Pepper", 12);
+    UUID blackPepper = note(index, "Black Pepper", 90);
+    UUID pepperwood = note(index, "Pepperwood", 3);
+    UUID redPepperberry = note(index, "Red Pepperberry", 5);
+    note(index, "Vanilla", 500);
+
+    assertEquals(List.of(blackPepper, pinkPepper, pepper, redPepperberry, pepperwood), ids(index.autocomplete("pepper", 10)));
+    assertEquals(List.of(blackPepper, pinkPepper), ids(index.autocomplete("pepper", 2)));
+    // No word starts with "eppe": falls back to substring matches.
+    assertEquals(List.of(blackPepper, pinkPepper, pepper), ids(index.autocomplete("eppe", 3)));
+
+    index.onNoteChanged(NoteDictionaryChangedEvent.usage(pepperwood, 200));
+    index.onNoteChanged(NoteDictionaryChangedEvent.removed(blackPepper));
+    assertEquals(List.of(pepperwood, pinkPepper), ids(index.autocomplete("pepper", 2)));
+
+    index.upsert(new NoteDictionaryIndex.IndexedNote(pinkPepper, "Rose Pepper", "rose pepper", null, 40));
+    assertEquals(List.of(pinkPepper), ids(index.autocomplete("rose", 5)));
+    assertTrue(index.autocomplete("pink", 5).isEmpty());
+  }
+
+  @Test
+  void infixMatchesAgreeWithSubstringScan() {
+    NoteDictionaryIndex index = new NoteDictionaryIndex(null, 600_000);
+    Random random = new Random(11);
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      String name = randomName(random);
+      names.add(name);
+      note(index, name, i);
+    }
+
+    for (int q = 0; q < 200; q++) {
+      String name = NoteService.normalize(names.get(random.nextInt(names.size())));
+      int start = random.nextInt(name.length());
+      String query = name.substring(start, Math.min(name.length(), start + 3 + random.nextInt(4))).strip();
+      if (query.length() < 3) continue;
+      Set<String> expected = new TreeSet<>();
+      for (String candidate : names) {
+        String normalized = NoteService.normalize(candidate);
+        if (normalized.contains(query)) expected.add(normalized);
+      }
+      Set<String> actual = new TreeSet<>();
+      for (var match : index.autocomplete(query, names.size())) {
+        actual.add(match.normalizedName());
+      }
+      assertEquals(expected, actual, query);
+    }
+  }
+
+  @Test
+  void shortQueriesOnlyMatchWordStarts() {
+    NoteDictionaryIndex index = new NoteDictionaryIndex(null, 600_000);
+    UUID pepper = note(index, "Pepper", 10);
+    note(index, "Ambergris", 20);
+
+    assertEquals(List.of(pepper), ids(index.autocomplete("pe", 5)));
+    assertTrue(index.autocomplete("mb", 5).isEmpty());
+  }
+
+  @Test
+  void withinMatchesBruteForceDistances() {
+    NoteDictionaryIndex index = new NoteDictionaryIndex(null, 600_000);
+    Random random = new Random(7);
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 5_000; i++) {
+      String name = randomName(random);
+      names.add(name);
+      note(index, name, random.nextInt(100));
+    }
+
+    for (int q = 0; q < 200; q++) {
+      String query = NoteService.normalize(q % 2 == 0 ? mutate(names.get(random.nextInt(names.size())), random) : randomName(random));
+      int radius = 1 + random.nextInt(3);
+      Set<String> expected = new TreeSet<>();
+      for (String name : names) {
+        String normalized = NoteService.normalize(name);
+        if (NoteDictionaryIndex.levenshtein(query, normalized) <= radius) expected.add(normalized);
+      }
+      Set<String> actual = new TreeSet<>();
+      for (var match : index.within(query, radius)) {
+        assertEquals(NoteDictionaryIndex.levenshtein(query, match.note().normalizedName()), match.distance());
+        actual.add(match.note().normalizedName());
+      }
+      assertEquals(expected, actual, query);
+    }
+  }
+
+  private static UUID note(NoteDictionaryIndex index, String name, int usage) {
+    UUID id = UUID.randomUUID();
+    index.upsert(new NoteDictionaryIndex.IndexedNote(id, name, NoteService.normalize(name), null, usage));
+    return id;
+  }
+
+  private static List<UUID> ids(List<NoteDictionaryIndex.IndexedNote> notes) {
+    return notes.stream().map(NoteDictionaryIndex.IndexedNote::id).toList();
+  }
+
+  private static String randomName(Random random) {
+    StringBuilder sb = new StringBuilder();
+    int words = 1 + random.nextInt(2);
+    for (int w = 0; w < words; w++) {
+      if (w > 0) sb.append(' ');
+      int len = 3 + random.nextInt(7);
+      for (int i = 0; i < len; i++) sb.append((char) ('a' + random.nextInt(8)));
+    }
+    return sb.toString();
+  }
+
+  private static String mutate(String name, Random random) {
+    StringBuilder sb = new StringBuilder(name);
+    int at = random.nextInt(sb.length());
+    switch (random.nextInt(3)) {
+      case 0 -> sb.setCharAt(at, (char) ('a' + random.nextInt(8)));
+      case 1 -> sb.insert(at, (char) ('a' + random.nextInt(8)));
+      default -> sb.deleteCharAt(at);
+    }
+    return sb.toString();
+  }
+}
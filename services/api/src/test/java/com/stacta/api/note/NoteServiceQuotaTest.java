@@ -0,0 +1,81 @@
+package com.stacta.api.note;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.stacta.api.ratelimit.RateLimitProperties;
+import com.stacta.api.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+class NoteServiceQuotaTest {
+  private final UUID userId = UUID.randomUUID();
+
+  private static NoteService service(Map<String, RateLimitProperties.Bucket> buckets) {
+    RateLimiter limiter = new RateLimiter(
+      null,
+      new RateLimitProperties(true, "memory", Duration.ofSeconds(30), 100, buckets),
+      new SimpleMeterRegistry()
+    );
+    return new NoteService(null, null, null, null, limiter, null);
+  }
+
+  @AfterEach
+  void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void dayLimitDoesNotSpendTheMinuteQuota() {
+    NoteService notes = service(Map.of("notes.create.day", new RateLimitProperties.Bucket(1, null)));
+
+    notes.acquireCreateQuota(userId);
+    var rejected = assertThrows(ResponseStatusException.class, () -> notes.acquireCreateQuota(userId));
+
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+    assertEquals("Custom note limit reached for today.", rejected.getReason());
+  }
+
+  @Test
+  void rolledBackCreatesGiveTheirQuotaBack() {
+    NoteService notes = service(Map.of());
+
+    for (int i = 0; i < 3; i++) {
+      TransactionSynchronizationManager.initSynchronization();
+      notes.acquireCreateQuota(userId);
+      for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+        sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+      }
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    // Three rolled-back attempts left the whole minute burst for real creates.
+    for (int i = 0; i < 3; i++) notes.acquireCreateQuota(userId);
+    var rejected = assertThrows(ResponseStatusException.class, () -> notes.acquireCreateQuota(userId));
+    assertEquals("Too many custom notes. Try again in a minute.", rejected.getReason());
+  }
+
+  @Test
+  void refundRunsOnce() {
+    NoteService notes = service(Map.of());
+
+    notes.acquireCreateQuota(userId);
+    notes.acquireCreateQuota(userId);
+    Runnable refund = notes.acquireCreateQuota(userId);
+    refund.run();
+    refund.run();
+
+    notes.acquireCreateQuota(userId);
+    assertThrows(ResponseStatusException.class, () -> notes.acquireCreateQuota(userId));
+  }
+}
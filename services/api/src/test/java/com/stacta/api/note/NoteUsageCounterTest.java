@@ -0,0 +1,55 @@
+package com.stacta.api.note;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+class NoteUsageCounterTest {
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  private final NoteUsageCounter counter = new NoteUsageCounter(jdbc, mock(ApplicationEventPublisher.class), false);
+
+  @Test
+  void locksRowsInIdOrderAndBindsSortedIds() throws Exception {
+    UUID high = UUID.fromString("f0000000-0000-0000-0000-000000000000");
+    UUID low = UUID.fromString("10000000-0000-0000-0000-000000000000");
+    UUID middle = UUID.fromString("80000000-0000-0000-0000-000000000000");
+    Map<UUID, Integer> deltas = new LinkedHashMap<>();
+    deltas.put(high, 1);
+    deltas.put(low, -2);
+    deltas.put(middle, 3);
+
+    counter.add(deltas);
+
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+    verify(jdbc).update(sql.capture(), setter.capture());
+    assertTrue(sql.getValue().contains("ORDER BY n.id\n  FOR UPDATE"), sql.getValue());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    Connection connection = mock(Connection.class);
+    when(ps.getConnection()).thenReturn(connection);
+    setter.getValue().setValues(ps);
+
+    // Java's UUID.compareTo is signed and would put f0... first; Postgres puts it last.
+    ArgumentCaptor<Object[]> ids = ArgumentCaptor.forClass(Object[].class);
+    ArgumentCaptor<Object[]> amounts = ArgumentCaptor.forClass(Object[].class);
+    verify(connection).createArrayOf(eq("uuid"), ids.capture());
+    verify(connection).createArrayOf(eq("integer"), amounts.capture());
+    assertArrayEquals(new Object[] {low, middle, high}, ids.getValue());
+    assertArrayEquals(new Object[] {-2, 3, 1}, amounts.getValue());
+  }
+}
@@ -0,0 +1,78 @@
+package com.stacta.api.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LocalTokenBucketsTest {
+
+  @Test
+  void allowsBurstThenOneTokenPerInterval() {
+    LocalTokenBuckets buckets = new LocalTokenBuckets(100);
+    RateLimiter.Limit threePerMinute = new RateLimiter.Limit(3, Duration.ofMinutes(1));
+    long now = 1_000_000L;
+
+    assertEquals(0, buckets.tryAcquire("a", threePerMinute, now));
+    assertEquals(0, buckets.tryAcquire("a", threePerMinute, now));
+    assertEquals(0, buckets.tryAcquire("a", threePerMinute, now));
+    assertEquals(20_000, buckets.tryAcquire("a", threePerMinute, now));
+    // Rejections do not consume anything.
+    assertEquals(15_000, buckets.tryAcquire("a", threePerMinute, now + 5_000));
+
+    assertEquals(0, buckets.tryAcquire("b", threePerMinute, now));
+    assertEquals(0, buckets.tryAcquire("a", threePerMinute, now + 20_000));
+    assertTrue(buckets.tryAcquire("a", threePerMinute, now + 20_000) > 0);
+
+    // Idle long enough, the whole burst is back.
+    long later = now + 120_000;
+    for (int i = 0; i < 3; i++) assertEquals(0, buckets.tryAcquire("a", threePerMinute, later));
+    assertTrue(buckets.tryAcquire("a", threePerMinute, later) > 0);
+  }
+
+  @Test
+  void sustainedRateMatchesLimit() {
+    LocalTokenBuckets buckets = new LocalTokenBuckets(100);
+    RateLimiter.Limit perDay = new RateLimiter.Limit(25, Duration.ofDays(1));
+    int allowed = 0;
+    // One attempt a minute for two days: the burst plus one token per 1/25 day.
+    for (long minute = 0; minute <= 2 * 24 * 60; minute++) {
+      if (buckets.tryAcquire("u", perDay, minute * 60_000L) == 0) allowed++;
+    }
+    assertEquals(25 + 50, allowed);
+  }
+
+  @Test
+  void fixedWindowNeverAdmitsMoreThanCapacityPerWindow() {
+    LocalTokenBuckets buckets = new LocalTokenBuckets(100);
+    RateLimiter.Limit perDay = RateLimiter.Limit.fixedWindow(25, Duration.ofDays(1));
+    int allowed = 0;
+    // The same two days of one attempt a minute: 25 in each day-long window, where a bucket gives 75.
+    for (long minute = 0; minute < 2 * 24 * 60; minute++) {
+      if (buckets.tryAcquire("u", perDay, minute * 60_000L) == 0) allowed++;
+    }
+    assertEquals(50, allowed);
+  }
+
+  @Test
+  void fixedWindowWaitsForItsEndAndTakesReleasesBack() {
+    LocalTokenBuckets buckets = new LocalTokenBuckets(100);
+    RateLimiter.Limit threePerMinute = RateLimiter.Limit.fixedWindow(3, Duration.ofMinutes(1));
+    List<String> keys = List.of("a");
+    List<RateLimiter.Limit> limits = List.of(threePerMinute);
+    long now = 1_000_000L;
+
+    for (int i = 0; i < 3; i++) assertEquals(0, buckets.tryAcquire("a", threePerMinute, now + i * 1_000L));
+    assertEquals(50_000, buckets.tryAcquire("a", threePerMinute, now + 10_000));
+
+    buckets.release(keys, limits, now + 10_000);
+    assertEquals(0, buckets.tryAcquire("a", threePerMinute, now + 10_000));
+    assertEquals(50_000, buckets.tryAcquire("a", threePerMinute, now + 10_000));
+
+    // A new window starts with the first hit after the old one ended.
+    for (int i = 0; i < 3; i++) assertEquals(0, buckets.tryAcquire("a", threePerMinute, now + 60_000));
+    assertEquals(60_000, buckets.tryAcquire("a", threePerMinute, now + 60_000));
+  }
+}
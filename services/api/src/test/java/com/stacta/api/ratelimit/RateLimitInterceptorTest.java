@@ -0,0 +1,48 @@
+package com.stacta.api.ratelimit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.stacta.api.config.ApiExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+class RateLimitInterceptorTest {
+
+  @RestController
+  static class ReportsController {
+    @PostMapping("/api/v1/reports")
+    @RateLimited(value = "reports", capacity = 2, windowSeconds = 60)
+    String report() {
+      return "ok";
+    }
+  }
+
+  private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new ReportsController())
+    .addInterceptors(new RateLimitInterceptor(new RateLimiter(
+      null,
+      new RateLimitProperties(true, "memory", Duration.ofSeconds(30), 100, Map.of()),
+      new SimpleMeterRegistry()
+    )))
+    .setControllerAdvice(new ApiExceptionHandler())
+    .build();
+
+  @Test
+  void overLimitCallsGet429WithRetryAfter() throws Exception {
+    mvc.perform(post("/api/v1/reports")).andExpect(status().isOk());
+    mvc.perform(post("/api/v1/reports")).andExpect(status().isOk());
+
+    mvc.perform(post("/api/v1/reports"))
+      .andExpect(status().isTooManyRequests())
+      .andExpect(header().string("Retry-After", "30"))
+      .andExpect(jsonPath("$.error").value("RATE_LIMITED"));
+  }
+}
@@ -0,0 +1,164 @@
+package com.stacta.api.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+class RateLimiterTest {
+  private static final RateLimiter.Limit THREE_PER_MINUTE = new RateLimiter.Limit(3, Duration.ofMinutes(1));
+  private static final RateLimiter.Limit TWO_PER_DAY = new RateLimiter.Limit(2, Duration.ofDays(1));
+  private static final List<RateLimiter.Request> BOTH = List.of(
+    new RateLimiter.Request("minute", THREE_PER_MINUTE),
+    new RateLimiter.Request("day", TWO_PER_DAY)
+  );
+
+  private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+  private RateLimiter limiter(String backend) {
+    return new RateLimiter(redis, new RateLimitProperties(true, backend, Duration.ofMinutes(5), 100, Map.of()), meters);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void redisPathSendsEveryBucketToOneScriptCall() {
+    when(redis.execute(eq(RateLimiter.ACQUIRE), anyList(), any(Object[].class)))
+      .thenReturn(List.of(0L, 0L))
+      .thenReturn(List.of(1_500L, 2L));
+    RateLimiter limiter = limiter("redis");
+
+    RateLimiter.Decision first = limiter.tryAcquireAll("user:1", BOTH);
+    RateLimiter.Decision second = limiter.tryAcquireAll("user:1", BOTH);
+
+    assertTrue(first.allowed());
+    assertNull(first.bucket());
+    assertFalse(second.allowed());
+    assertEquals(1_500L, second.retryAfterMillis());
+    assertEquals("day", second.bucket());
+
+    ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+    verify(redis, times(2)).execute(eq(RateLimiter.ACQUIRE), keys.capture(), args.capture());
+    assertEquals(List.of("stacta:rl:minute:user:1", "stacta:rl:day:user:1"), keys.getValue());
+    assertEquals(List.of("gcra", "20000", "3", "gcra", "43200000", "2"), List.of(args.getValue()));
+
+    assertEquals(1.0, meters.counter("ratelimit.requests", "bucket", "minute", "result", "allowed").count());
+    assertEquals(1.0, meters.counter("ratelimit.requests", "bucket", "day", "result", "allowed").count());
+    assertEquals(1.0, meters.counter("ratelimit.requests", "bucket", "day", "result", "limited").count());
+    assertEquals(0.0, meters.counter("ratelimit.requests", "bucket", "minute", "result", "limited").count());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void redisReleaseMovesEveryBucketBackOneInterval() {
+    RateLimiter limiter = limiter("redis");
+
+    limiter.release("user:1", BOTH);
+
+    ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+    verify(redis).execute(eq(RateLimiter.RELEASE), eq(List.of("stacta:rl:minute:user:1", "stacta:rl:day:user:1")), args.capture());
+    assertEquals(List.of("gcra", "20000", "gcra", "43200000"), List.of(args.getValue()));
+  }
+
+  @Test
+  void redisFailureFallsBackLocallyUntilRetry() {
+    when(redis.execute(eq(RateLimiter.ACQUIRE), anyList(), any(Object[].class)))
+      .thenThrow(new RedisConnectionFailureException("down"));
+    RateLimiter limiter = limiter("redis");
+
+    for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire("minute", "user:1", THREE_PER_MINUTE).allowed());
+    RateLimiter.Decision limited = limiter.tryAcquire("minute", "user:1", THREE_PER_MINUTE);
+
+    assertFalse(limited.allowed());
+    assertEquals("minute", limited.bucket());
+    assertTrue(limited.retryAfterMillis() > 0);
+    // Only the first call went to Redis; the rest waited out the retry delay locally.
+    verify(redis, times(1)).execute(eq(RateLimiter.ACQUIRE), anyList(), any(Object[].class));
+    assertEquals(1.0, meters.counter("ratelimit.redis.fallback").count());
+  }
+
+  @Test
+  void emptyBucketConsumesNothingFromTheOthers() {
+    RateLimiter limiter = limiter("memory");
+
+    assertTrue(limiter.tryAcquireAll("user:1", BOTH).allowed());
+    assertTrue(limiter.tryAcquireAll("user:1", BOTH).allowed());
+    RateLimiter.Decision third = limiter.tryAcquireAll("user:1", BOTH);
+    assertFalse(third.allowed());
+    assertEquals("day", third.bucket());
+
+    // The rejected call left the minute bucket's third token in place.
+    assertTrue(limiter.tryAcquire("minute", "user:1", THREE_PER_MINUTE).allowed());
+    assertFalse(limiter.tryAcquire("minute", "user:1", THREE_PER_MINUTE).allowed());
+  }
+
+  @Test
+  void releaseReturnsTokensWithoutExceedingCapacity() {
+    RateLimiter limiter = limiter("memory");
+    List<RateLimiter.Request> day = List.of(new RateLimiter.Request("day", TWO_PER_DAY));
+
+    assertTrue(limiter.tryAcquireAll("user:1", day).allowed());
+    assertTrue(limiter.tryAcquireAll("user:1", day).allowed());
+    assertFalse(limiter.tryAcquireAll("user:1", day).allowed());
+
+    limiter.release("user:1", day);
+    assertTrue(limiter.tryAcquireAll("user:1", day).allowed());
+    assertFalse(limiter.tryAcquireAll("user:1", day).allowed());
+
+    // Extra releases cannot push the bucket past full.
+    for (int i = 0; i < 5; i++) limiter.release("user:1", day);
+    assertTrue(limiter.tryAcquireAll("user:1", day).allowed());
+    assertTrue(limiter.tryAcquireAll("user:1", day).allowed());
+    assertFalse(limiter.tryAcquireAll("user:1", day).allowed());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fixedWindowBucketsSendTheirWindowLength() {
+    when(redis.execute(eq(RateLimiter.ACQUIRE), anyList(), any(Object[].class))).thenReturn(List.of(0L, 0L));
+    RateLimiter limiter = limiter("redis");
+    List<RateLimiter.Request> quota = List.of(
+      new RateLimiter.Request("minute", RateLimiter.Limit.fixedWindow(3, Duration.ofMinutes(1))),
+      new RateLimiter.Request("day", TWO_PER_DAY)
+    );
+
+    limiter.tryAcquireAll("user:1", quota);
+    limiter.release("user:1", quota);
+
+    ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+    verify(redis).execute(eq(RateLimiter.ACQUIRE), anyList(), args.capture());
+    assertEquals(List.of("window", "60000", "3", "gcra", "43200000", "2"), List.of(args.getValue()));
+    verify(redis).execute(eq(RateLimiter.RELEASE), anyList(), args.capture());
+    assertEquals(List.of("window", "20000", "gcra", "43200000"), List.of(args.getValue()));
+  }
+
+  @Test
+  void configuredCapacityKeepsTheBucketKind() {
+    RateLimiter limiter = new RateLimiter(
+      redis,
+      new RateLimitProperties(true, "memory", Duration.ofMinutes(5), 100, Map.of("minute", new RateLimitProperties.Bucket(5, null))),
+      meters
+    );
+
+    RateLimiter.Limit limit = limiter.limitFor("minute", RateLimiter.Limit.fixedWindow(3, Duration.ofMinutes(1)));
+
+    assertEquals(RateLimiter.Limit.fixedWindow(5, Duration.ofMinutes(1)), limit);
+  }
+}
@@ -0,0 +1,117 @@
+package com.stacta.api.recommendation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class ItemSimilarityModelTest {
+
+  @Test
+  void weightsOwnershipAboveWishesAndShiftsByRating() {
+    assertEquals(3.0, ItemSimilarityModel.weight(true, false, false, null));
+    assertEquals(5.0, ItemSimilarityModel.weight(true, true, false, null));
+    assertEquals(2.0, ItemSimilarityModel.weight(false, false, true, null));
+    assertEquals(3.0, ItemSimilarityModel.weight(true, false, true, null));
+    assertEquals(5.0, ItemSimilarityModel.weight(true, false, false, 5.0));
+    assertEquals(1.0, ItemSimilarityModel.weight(true, false, false, 1.0));
+    assertEquals(-1.5, ItemSimilarityModel.weight(false, false, false, 1.5));
+  }
+
+  @Test
+  void parallelTrainingMatchesSequentialCosine() {
+    Random random = new Random(5);
+    int itemCount = 60;
+    List<ItemSimilarityModel.UserVector> users = new ArrayList<>();
+    for (int u = 0; u < 2_000; u++) {
+      int n = 1 + random.nextInt(8);
+      List<Integer> items = new ArrayList<>();
+      while (items.size() < n) {
+        int item = (int) Math.floor(itemCount * Math.pow(random.nextDouble(), 2));
+        if (!items.contains(item)) items.add(item);
+      }
+      int[] ids = items.stream().mapToInt(Integer::intValue).toArray();
+      float[] weights = new float[n];
+      for (int i = 0; i < n; i++) weights[i] = 1 + random.nextInt(5);
+      users.add(new ItemSimilarityModel.UserVector(ids, weights));
+    }
+
+    double[][] dot = new double[itemCount][itemCount];
+    int[][] support = new int[itemCount][itemCount];
+    double[] norms = new double[itemCount];
+    for (ItemSimilarityModel.UserVector user : users) {
+      for (int i = 0; i < user.items().length; i++) {
+        norms[user.items()[i]] += user.weights()[i] * user.weights()[i];
+        for (int j = 0; j < user.items().length; j++) {
+          if (i == j) continue;
+          dot[user.items()[i]][user.items()[j]] += user.weights()[i] * user.weights()[j];
+          support[user.items()[i]][user.items()[j]]++;
+        }
+      }
+    }
+
+    int keep = 5;
+    int minSupport = 3;
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ItemSimilarityModel.Neighbours trained = ItemSimilarityModel.neighbours(users, itemCount, keep, minSupport, 1_000_000, pool);
+      for (int a = 0; a < itemCount; a++) {
+        List<double[]> expected = new ArrayList<>();
+        for (int b = 0; b < itemCount; b++) {
+          if (a == b || support[a][b] < minSupport) continue;
+          expected.add(new double[] { b, dot[a][b] / Math.sqrt(norms[a] * norms[b]) });
+        }
+        expected.sort((x, y) -> x[1] != y[1] ? Double.compare(y[1], x[1]) : Double.compare(x[0], y[0]));
+        int n = Math.min(keep, expected.size());
+        assertEquals(n, trained.ids()[a].length);
+        for (int k = 0; k < n; k++) {
+          assertEquals((float) expected.get(k)[1], trained.similarities()[a][k], 1e-5);
+          assertTrue(trained.similarities()[a][k] <= 1.0f + 1e-6f);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void pairTableStopsAddingKeysAtTheCap() {
+    ItemSimilarityModel.PairSums sums = new ItemSimilarityModel.PairSums(3_000);
+    for (int a = 0; a < 100; a++) {
+      for (int b = a + 1; b < 100; b++) sums.add(((long) a << 32) | b, 1.0, 1);
+    }
+    // Existing keys keep accumulating past the cap.
+    sums.add(1L, 2.0, 1);
+    assertEquals(3_000, sums.size());
+    assertEquals(100 * 99 / 2 - 3_000, sums.dropped());
+  }
+
+  @Test
+  void storedModelRoundTrips() {
+    ItemSimilarityModel.ItemKey a = ItemSimilarityModel.ItemKey.of("fragella", "a");
+    ItemSimilarityModel.ItemKey b = ItemSimilarityModel.ItemKey.of("community", "b");
+    ItemSimilarityModel.Trained trained = new ItemSimilarityModel.Trained(
+      Instant.parse("2026-10-01T00:00:00Z"),
+      Map.of(a, 0, b, 1),
+      List.of(a, b),
+      new ItemSimilarityModel.ItemMeta[] { new ItemSimilarityModel.ItemMeta("A", null, "https://img/a"), null },
+      new int[][] { { 1 }, { 0 } },
+      new float[][] { { 0.5f }, { 0.5f } }
+    );
+
+    ItemSimilarityModel.Trained loaded = ItemSimilarityModel.decode(ItemSimilarityModel.encode(trained), trained.trainedAt());
+
+    assertEquals(trained.ordinals(), loaded.ordinals());
+    assertEquals(trained.items(), loaded.items());
+    assertArrayEquals(trained.meta(), loaded.meta());
+    assertArrayEquals(trained.neighbours(), loaded.neighbours());
+    assertArrayEquals(trained.similarities(), loaded.similarities());
+  }
+}
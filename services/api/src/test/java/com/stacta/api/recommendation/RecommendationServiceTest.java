@@ -0,0 +1,103 @@
+package com.stacta.api.recommendation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.stacta.api.fragrance.FragranceImageResolver;
+import com.stacta.api.fragrance.SimilarFragranceIndex;
+import com.stacta.api.recommendation.ItemSimilarityModel.ItemKey;
+import com.stacta.api.recommendation.ItemSimilarityModel.ItemMeta;
+import com.stacta.api.recommendation.dto.RecommendedFragranceDto;
+import com.stacta.api.social.TrendingFragrances;
+import com.stacta.api.user.ViewerIdentity;
+import com.stacta.api.user.ViewerIdentityResolver;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RecommendationServiceTest {
+  private static final ItemKey OWNED = ItemKey.of("fragella", "owned");
+  private static final ItemKey BEFORE = ItemKey.of("fragella", "before");
+  private static final ItemKey AFTER = ItemKey.of("fragella", "after");
+
+  private final UUID userId = UUID.randomUUID();
+  private final ViewerIdentityResolver identities = mock(ViewerIdentityResolver.class);
+  private final ItemSimilarityModel model = mock(ItemSimilarityModel.class);
+  private final TrendingFragrances trending = mock(TrendingFragrances.class);
+  private final FragranceImageResolver images = mock(FragranceImageResolver.class);
+  private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+  private final RecommendationService service = new RecommendationService(
+    identities,
+    model,
+    mock(SimilarFragranceIndex.class),
+    trending,
+    images,
+    tasks::add,
+    60,
+    100,
+    0.7
+  );
+
+  @BeforeEach
+  void setUp() {
+    when(identities.require("sub")).thenReturn(new ViewerIdentity(userId, "sub", "user", false));
+    when(model.isReady()).thenReturn(true);
+    when(model.trainedAt()).thenReturn(Instant.EPOCH);
+    when(model.meta(any())).thenAnswer(invocation -> new ItemMeta(invocation.<ItemKey>getArgument(0).externalId(), "Brand", null));
+    when(trending.top(any(), anyInt())).thenReturn(List.of());
+    when(images.resolve(any())).thenReturn(Map.of());
+    when(model.profile(userId)).thenReturn(Map.of(OWNED, 3.0));
+  }
+
+  @Test
+  void changeDuringAComputeIsNotOverwrittenAndRunsAgain() {
+    // The user's collection changes while the first compute is reading it.
+    when(model.score(anyMap()))
+      .thenAnswer(invocation -> {
+        service.onTasteChanged(new UserTasteChangedEvent(userId));
+        return Map.of(BEFORE, 1.0);
+      })
+      .thenReturn(Map.of(AFTER, 1.0));
+
+    service.recommend("sub", 10);
+    assertEquals(1, tasks.size());
+    tasks.poll().run();
+
+    // The outdated result is served, but a second refresh was queued for the change.
+    assertEquals(List.of("before"), ids(service.recommend("sub", 10)));
+    assertEquals(1, tasks.size());
+    tasks.poll().run();
+
+    assertEquals(List.of("after"), ids(service.recommend("sub", 10)));
+    assertEquals(0, tasks.size());
+  }
+
+  @Test
+  void changeAfterTheComputeMarksTheEntryStale() {
+    when(model.score(anyMap())).thenReturn(Map.of(BEFORE, 1.0)).thenReturn(Map.of(AFTER, 1.0));
+
+    service.recommend("sub", 10);
+    tasks.poll().run();
+    assertEquals(List.of("before"), ids(service.recommend("sub", 10)));
+    assertEquals(0, tasks.size());
+
+    service.onTasteChanged(new UserTasteChangedEvent(userId));
+    assertEquals(1, tasks.size());
+    tasks.poll().run();
+
+    assertEquals(List.of("after"), ids(service.recommend("sub", 10)));
+    assertEquals(0, tasks.size());
+  }
+
+  private static List<String> ids(List<RecommendedFragranceDto> recommended) {
+    return recommended.stream().map(RecommendedFragranceDto::externalId).toList();
+  }
+}
@@ -0,0 +1,81 @@
+package com.stacta.api.social;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class FollowGraphTest {
+
+  @Test
+  void friendsOfFriendsRanksByMutualsAndSkipsExistingFollows() {
+    FollowGraph graph = new FollowGraph(null);
+    UUID me = UUID.randomUUID();
+    UUID alice = UUID.randomUUID();
+    UUID bob = UUID.randomUUID();
+    UUID carol = UUID.randomUUID();
+    UUID dave = UUID.randomUUID();
+
+    follow(graph, me, alice);
+    follow(graph, me, bob);
+    follow(graph, alice, carol);
+    follow(graph, bob, carol);
+    follow(graph, alice, dave);
+    follow(graph, alice, bob);
+    follow(graph, bob, me);
+
+    List<FollowGraph.Candidate> out = graph.friendsOfFriends(me, 500, 1_000, 20_000, 10);
+
+    assertEquals(List.of(new FollowGraph.Candidate(carol, 2), new FollowGraph.Candidate(dave, 1)), out);
+
+    graph.onEdgeChanged(new FollowEdgeChangedEvent(alice, dave, false));
+    assertEquals(List.of(new FollowGraph.Candidate(carol, 2)), graph.friendsOfFriends(me, 500, 1_000, 20_000, 10));
+  }
+
+  @Test
+  void neighbourSampleSpansTheWholeFollowingListNotTheOldestAccounts() {
+    FollowGraph graph = new FollowGraph(null);
+    UUID me = user(0);
+    UUID hub = user(1);
+    follow(graph, me, hub);
+    // The hub's followings get ordinals in the order they were first seen: 2 is the oldest.
+    for (int i = 2; i < 10_002; i++) follow(graph, hub, user(i));
+
+    List<FollowGraph.Candidate> out = graph.friendsOfFriends(me, 500, 100, 20_000, 1_000);
+
+    assertEquals(100, out.size());
+    long newerHalf = out.stream().filter(c -> c.userId().getLeastSignificantBits() >= 5_002).count();
+    assertTrue(newerHalf >= 40 && newerHalf <= 60, "newerHalf=" + newerHalf);
+  }
+
+  @Test
+  void candidateTallyAndFollowingScanAreBounded() {
+    FollowGraph graph = new FollowGraph(null);
+    UUID me = user(0);
+    for (int f = 1; f <= 300; f++) {
+      follow(graph, me, user(f));
+      for (int c = 0; c < 10; c++) follow(graph, user(f), user(1_000 + f * 10 + c));
+      // Everyone I follow also follows this account.
+      follow(graph, user(f), user(999));
+    }
+
+    List<FollowGraph.Candidate> capped = graph.friendsOfFriends(me, 500, 1_000, 50, 100);
+    assertEquals(50, capped.size());
+
+    List<FollowGraph.Candidate> sampled = graph.friendsOfFriends(me, 30, 1_000, 20_000, 5);
+    assertEquals(new FollowGraph.Candidate(user(999), 30), sampled.get(0));
+    for (FollowGraph.Candidate candidate : sampled) {
+      assertTrue(!candidate.userId().equals(me) && !graph.isFollowing(me, candidate.userId()));
+    }
+  }
+
+  private static UUID user(long n) {
+    return new UUID(0L, n);
+  }
+
+  private static void follow(FollowGraph graph, UUID follower, UUID following) {
+    graph.onEdgeChanged(new FollowEdgeChangedEvent(follower, following, true));
+  }
+}
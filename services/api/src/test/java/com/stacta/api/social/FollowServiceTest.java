@@ -27,6 +27,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 @ExtendWith(MockitoExtension.class)
 class FollowServiceTest {
@@ -35,6 +36,9 @@ class FollowServiceTest {
   @Mock private NotificationEventRepository notifications;
   @Mock private ActivityEventRepository activities;
   @Mock private UserRepository users;
+  @Mock private FollowGraph graph;
+  @Mock private FollowCounterService counters;
+  @Mock private ApplicationEventPublisher events;
 
   @InjectMocks private FollowService service;
 
@@ -68,8 +72,7 @@ class FollowServiceTest {
     ArgumentCaptor<FollowRelationship> rel = ArgumentCaptor.forClass(FollowRelationship.class);
     verify(follows).save(rel.capture());
     assertEquals("ACCEPTED", rel.getValue().getStatus());
-    verify(users).bumpFollowingCount(viewer.getId(), 1);
-    verify(users).bumpFollowersCount(targetPublic.getId(), 1);
+    verify(counters).applyEdge(viewer.getId(), targetPublic.getId(), 1);
     verify(notifications).save(any(NotificationEvent.class));
     verify(activities).save(any(ActivityEvent.class));
   }
@@ -85,8 +88,7 @@ class FollowServiceTest {
     ArgumentCaptor<FollowRelationship> rel = ArgumentCaptor.forClass(FollowRelationship.class);
     verify(follows).save(rel.capture());
     assertEquals("PENDING", rel.getValue().getStatus());
-    verify(users, never()).bumpFollowingCount(any(), anyLong());
-    verify(users, never()).bumpFollowersCount(any(), anyLong());
+    verify(counters, never()).applyEdge(any(), any(), anyLong());
     verify(notifications, never()).save(any(NotificationEvent.class));
     verify(activities, never()).save(any(ActivityEvent.class));
   }
@@ -100,8 +102,7 @@ class FollowServiceTest {
 
     verify(follows).save(rel);
     assertEquals("ACCEPTED", rel.getStatus());
-    verify(users).bumpFollowingCount(targetPrivate.getId(), 1);
-    verify(users).bumpFollowersCount(viewer.getId(), 1);
+    verify(counters).applyEdge(targetPrivate.getId(), viewer.getId(), 1);
     verify(notifications).save(any(NotificationEvent.class));
     verify(activities).save(any(ActivityEvent.class));
   }
@@ -116,8 +117,7 @@ class FollowServiceTest {
 
     verify(activities).deleteBySourceFollowId(rel.getId());
     verify(follows).delete(rel);
-    verify(users).bumpFollowingCount(viewer.getId(), -1);
-    verify(users).bumpFollowersCount(targetPublic.getId(), -1);
+    verify(counters).applyEdge(viewer.getId(), targetPublic.getId(), -1);
   }
 
   @Test
@@ -130,8 +130,7 @@ class FollowServiceTest {
 
     verify(activities, never()).deleteBySourceFollowId(any());
     verify(follows).delete(rel);
-    verify(users, never()).bumpFollowingCount(any(), anyLong());
-    verify(users, never()).bumpFollowersCount(any(), anyLong());
+    verify(counters, never()).applyEdge(any(), any(), anyLong());
   }
 
   @Test
@@ -0,0 +1,75 @@
+package com.stacta.api.social;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class TrendingFragrancesTest {
+  private static final Instant NOW = Instant.parse("2026-03-10T12:30:00Z");
+
+  @Test
+  void windowsFavourRecentActivityAndCountEachActivityOnce() {
+    TrendingFragrances trending = new TrendingFragrances(null, null, 0);
+    // "burst": 3 collection adds in the last 10 minutes.
+    for (int i = 0; i < 3; i++) activity(trending, "burst", "COLLECTION_ITEM_ADDED", Duration.ofMinutes(2 + i * 3));
+    // "steady": 2 reviews a day for the past 5 days, none in the last hour.
+    for (int day = 0; day < 5; day++) {
+      activity(trending, "steady", "REVIEW_POSTED", Duration.ofHours(3 + 24L * day));
+      activity(trending, "steady", "REVIEW_POSTED", Duration.ofHours(9 + 24L * day));
+    }
+    // "stale": busy 8 days ago only.
+    for (int i = 0; i < 20; i++) activity(trending, "stale", "REVIEW_POSTED", Duration.ofDays(8));
+    // Not about a fragrance.
+    activity(trending, "ignored", "USER_FOLLOWED_USER", Duration.ofMinutes(1));
+
+    FragranceActivityRecordedEvent repeated = event("burst", "COLLECTION_ITEM_ADDED", Duration.ofMinutes(1));
+    trending.onActivity(repeated);
+    trending.onActivity(repeated);
+
+    trending.rank(NOW);
+    assertEquals(List.of("burst"), ids(trending.top(TrendingFragrances.Window.HOUR, 10)));
+    assertEquals(List.of("burst", "steady"), ids(trending.top(TrendingFragrances.Window.DAY, 10)));
+    assertEquals(List.of("steady", "burst"), ids(trending.top(TrendingFragrances.Window.WEEK, 10)));
+
+    double burstHour = trending.top(TrendingFragrances.Window.HOUR, 1).get(0).score();
+    // 4 adds worth 2 each, all within 10 minutes: decayed, but by less than one 15-minute half-life.
+    assertTrue(burstHour > 4 && burstHour < 8, "score " + burstHour);
+
+    // Two hours later the burst has left the hourly window.
+    trending.rank(NOW.plus(Duration.ofHours(2)));
+    assertTrue(trending.top(TrendingFragrances.Window.HOUR, 10).isEmpty());
+  }
+
+  @Test
+  void ringsClearSlotsTheyAdvancePast() {
+    TrendingFragrances.Counter counter = new TrendingFragrances.Counter("FRAGELLA", "x");
+    long minute = NOW.getEpochSecond() / 60;
+    counter.add(minute - 90, 1f, "X", null);
+    counter.add(minute, 1f, "X", null);
+    // Older than the minute ring but still inside the hour ring.
+    counter.add(minute - 61, 1f, "X", null);
+    double[] scores = new double[3];
+    assertTrue(counter.scores(minute, scores));
+    assertEquals(1.0, scores[TrendingFragrances.Window.HOUR.ordinal()]);
+    assertEquals(3.0, scores[TrendingFragrances.Window.WEEK.ordinal()], 0.1);
+
+    assertTrue(!counter.scores(minute + 169 * 60, scores));
+  }
+
+  private static void activity(TrendingFragrances trending, String externalId, String type, Duration ago) {
+    trending.onActivity(event(externalId, type, ago));
+  }
+
+  private static FragranceActivityRecordedEvent event(String externalId, String type, Duration ago) {
+    return new FragranceActivityRecordedEvent(UUID.randomUUID(), type, "FRAGELLA", externalId, externalId, null, NOW.minus(ago));
+  }
+
+  private static List<String> ids(List<TrendingFragrances.Ranked> ranked) {
+    return ranked.stream().map(TrendingFragrances.Ranked::externalId).toList();
+  }
+}
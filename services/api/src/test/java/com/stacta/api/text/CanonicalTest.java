@@ -0,0 +1,127 @@
+package com.stacta.api.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Property checks: every normalizer must agree with the regex pipeline it replaced on random input
+ * drawn from an alphabet that covers the interesting cases (case, \s versus other control characters,
+ * accents, compatibility forms, surrogate pairs, separators).
+ */
+class CanonicalTest {
+  private static final String[] ALPHABET = {
+    "a", "Z", "m", "0", "9", "_", "-", "@", "|", ".", ",", "/", "'", "&",
+    " ", "  ", "\t", "\n", "\u000B", "\f", "\r", "\u0001", "\u001F", " ", " ",
+    "é", "É", "é", "ñ", "ß", "İ", "ı", "K", "ℌ",
+    "ﬁ", "①", "Ａ", "Σ", "ΟΣ", "̈", "⃝",
+    "🌹", "𝐀", "\uD800",
+  };
+  private static final int SAMPLES = 20_000;
+
+  // The pipelines as they were written in the services.
+  private static String legacyExternalId(String raw) {
+    return raw == null ? "" : raw.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+  }
+
+  private static String legacyUsername(String raw) {
+    String cleaned = raw == null ? "" : raw
+      .trim()
+      .toLowerCase(Locale.ROOT)
+      .replaceAll("^@+", "")
+      .replaceAll("[^a-z0-9_]", "");
+    return cleaned.length() > 20 ? cleaned.substring(0, 20) : cleaned;
+  }
+
+  private static String legacyNoteName(String s) {
+    if (s == null) return "";
+    String t = s.trim().toLowerCase(Locale.ROOT);
+    t = Normalizer.normalize(t, Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
+    t = t.replaceAll("[^a-z0-9\\s-]", " ");
+    t = t.replaceAll("\\s+", " ").trim();
+    return t;
+  }
+
+  private static Double legacyFirstDecimal(String raw) {
+    if (raw == null) return null;
+    String s = raw.trim().replace(',', '.');
+    if (s.isBlank()) return null;
+    Matcher m = Pattern.compile("([0-9]+(?:\\.[0-9]+)?)").matcher(s);
+    if (!m.find()) return null;
+    double value = Double.parseDouble(m.group(1));
+    return Double.isFinite(value) ? value : null;
+  }
+
+  private static List<String> samples(long seed) {
+    Random random = new Random(seed);
+    List<String> out = new ArrayList<>(SAMPLES + 2);
+    out.add(null);
+    out.add("");
+    for (int i = 0; i < SAMPLES; i++) {
+      int length = random.nextInt(i % 10 == 0 ? 40 : 12);
+      StringBuilder sb = new StringBuilder();
+      for (int j = 0; j < length; j++) {
+        sb.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+      }
+      out.add(sb.toString());
+    }
+    return out;
+  }
+
+  private static <T> void assertAgrees(Function<String, T> legacy, Function<String, T> canonical, long seed) {
+    for (String input : samples(seed)) {
+      assertEquals(legacy.apply(input), canonical.apply(input), () -> "input: " + escape(input));
+    }
+  }
+
+  private static String escape(String s) {
+    if (s == null) return "null";
+    StringBuilder sb = new StringBuilder("\"");
+    s.chars().forEach(c -> sb.append(c >= 0x20 && c < 0x7F ? String.valueOf((char) c) : String.format("\\u%04X", c)));
+    return sb.append('"').toString();
+  }
+
+  @Test
+  void externalIdMatchesRegexPipeline() {
+    assertAgrees(CanonicalTest::legacyExternalId, Canonical::externalId, 1L);
+  }
+
+  @Test
+  void usernameMatchesRegexPipeline() {
+    assertAgrees(CanonicalTest::legacyUsername, Canonical::username, 2L);
+  }
+
+  @Test
+  void noteNameMatchesRegexPipeline() {
+    assertAgrees(CanonicalTest::legacyNoteName, Canonical::noteName, 3L);
+  }
+
+  @Test
+  void firstDecimalMatchesRegexPipeline() {
+    assertAgrees(CanonicalTest::legacyFirstDecimal, Canonical::firstDecimal, 4L);
+    assertEquals(4.35, Canonical.firstDecimal(" Rating: 4,35 / 5"));
+    assertEquals(4.0, Canonical.firstDecimal("4./5"));
+    assertNull(Canonical.firstDecimal("n/a"));
+    assertNull(Canonical.firstDecimal("9".repeat(400)));
+  }
+
+  @Test
+  void canonicalInputIsReturnedAsIs() {
+    String id = "dior|sauvage|2015";
+    String user = "perfume_fan_01";
+    String note = "pink pepper";
+    assertSame(id, Canonical.externalId(id));
+    assertSame(user, Canonical.username(user));
+    assertSame(note, Canonical.noteName(note));
+  }
+}
@@ -0,0 +1,54 @@
+package com.stacta.api.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.junit.jupiter.api.Test;
+
+class ImageUploadStreamTest {
+  private static final long MAX = 5L * 1024L * 1024L;
+
+  @Test
+  void detectsAcceptedSignatures() {
+    assertEquals("image/jpeg", ImageUploadStream.detectContentType(bytes(0xFF, 0xD8, 0xFF, 0xE0)));
+    assertEquals("image/png", ImageUploadStream.detectContentType(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)));
+    assertEquals("image/webp", ImageUploadStream.detectContentType(bytes('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P')));
+    assertEquals("image/heic", ImageUploadStream.detectContentType(bytes(0, 0, 0, 24, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c')));
+    assertEquals("image/heif", ImageUploadStream.detectContentType(bytes(0, 0, 0, 24, 'f', 't', 'y', 'p', 'm', 'i', 'f', '1')));
+    assertNull(ImageUploadStream.detectContentType(bytes('<', 's', 'v', 'g')));
+    assertNull(ImageUploadStream.detectContentType(bytes(0xFF)));
+  }
+
+  @Test
+  void capIsEnforcedWhileStreaming() {
+    InputStream in = new ImageUploadStream(new ByteArrayInputStream(new byte[1025]), 1024);
+    assertThrows(ImageUploadStream.TooLargeException.class, () -> in.transferTo(OutputStream.nullOutputStream()));
+  }
+
+  @Test
+  void inspectHashesWholeBodyAndStopsOnUnknownSignature() throws IOException {
+    byte[] png = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+    var first = ImageUploadStream.inspect(new ByteArrayInputStream(png), MAX);
+    var again = ImageUploadStream.inspect(new ByteArrayInputStream(png.clone()), MAX);
+    png[png.length - 1] = 0;
+    var changed = ImageUploadStream.inspect(new ByteArrayInputStream(png), MAX);
+
+    assertEquals("image/png", first.contentType());
+    assertEquals(64, first.sha256().length());
+    assertEquals(first, again);
+    assertTrue(!first.sha256().equals(changed.sha256()));
+    assertNull(ImageUploadStream.inspect(new ByteArrayInputStream(bytes('G', 'I', 'F', '8')), MAX).contentType());
+  }
+
+  private static byte[] bytes(int... values) {
+    byte[] out = new byte[values.length];
+    for (int i = 0; i < values.length; i++) out[i] = (byte) values[i];
+    return out;
+  }
+}
@@ -0,0 +1,62 @@
+package com.stacta.api.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class ImageVariantIndexTest {
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+  private void done(String key, boolean value) {
+    when(jdbc.queryForObject(anyString(), eq(Boolean.class), eq(key))).thenReturn(value);
+  }
+
+  @Test
+  void looksUnknownKeysUpOnceAndKeepsTheAnswer() {
+    ImageVariantIndex index = new ImageVariantIndex(jdbc, 10);
+    done("media/a.png", true);
+    done("media/b.png", false);
+
+    assertTrue(index.hasVariants("media/a.png"));
+    assertTrue(index.hasVariants("media/a.png"));
+    assertFalse(index.hasVariants("media/b.png"));
+    assertFalse(index.hasVariants("media/b.png"));
+
+    verify(jdbc, times(1)).queryForObject(anyString(), eq(Boolean.class), eq("media/a.png"));
+    verify(jdbc, times(1)).queryForObject(anyString(), eq(Boolean.class), eq("media/b.png"));
+  }
+
+  @Test
+  void staysWithinItsCapacity() {
+    ImageVariantIndex index = new ImageVariantIndex(jdbc, 2);
+    for (int i = 0; i < 5; i++) {
+      done("media/" + i + ".png", true);
+      index.hasVariants("media/" + i + ".png");
+    }
+    index.markReady("media/local.png");
+
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  void collectedKeysStopServingVariantsWithoutALookup() {
+    ImageVariantIndex index = new ImageVariantIndex(jdbc, 10);
+    index.markReady("media/a.png");
+    assertTrue(index.hasVariants("media/a.png"));
+
+    index.markGone("media/a.png");
+
+    assertFalse(index.hasVariants("media/a.png"));
+    verify(jdbc, never()).queryForObject(anyString(), eq(Boolean.class), eq("media/a.png"));
+  }
+}
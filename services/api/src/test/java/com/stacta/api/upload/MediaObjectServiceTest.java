@@ -0,0 +1,142 @@
+package com.stacta.api.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.stacta.api.config.aws.AwsProperties;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+
+class MediaObjectServiceTest {
+  private static final AwsProperties AWS = new AwsProperties(
+    "us-east-1",
+    new AwsProperties.S3("stacta-test"),
+    new AwsProperties.Cdn(null)
+  );
+
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  private final PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+  private final S3Client s3 = mock(S3Client.class);
+  private final ImageVariantIndex variants = new ImageVariantIndex(jdbc, 100);
+  private final MediaObjectService media = new MediaObjectService(jdbc, s3, AWS, variants, transactions, 24, 200, 60_000);
+
+  /** Each call returns one batch of expired keys; later runs of the batch query return nothing. */
+  @SuppressWarnings("unchecked")
+  @SafeVarargs
+  private void expire(List<String>... batches) {
+    when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    var stub = when(jdbc.query(anyString(), any(RowMapper.class), any(), any()));
+    for (List<String> batch : batches) {
+      stub = stub.thenAnswer(invocation -> {
+        List<Object> rows = new ArrayList<>();
+        for (String key : batch) rows.add(rowFor(invocation.getArgument(1), key));
+        return rows;
+      });
+    }
+    stub.thenReturn(List.of());
+  }
+
+  private static Object rowFor(RowMapper<?> mapper, String key) throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(1)).thenReturn("sha-" + key);
+    when(rs.getString(2)).thenReturn(key);
+    return mapper.mapRow(rs, 0);
+  }
+
+  private void registered(String key, boolean value) {
+    when(jdbc.queryForObject(anyString(), eq(Boolean.class), eq(key))).thenReturn(value);
+  }
+
+  @Test
+  void deletesUnderTheContentLockAndMarksVariantsGone() {
+    expire(List.of("uploads/a.png"));
+    registered("uploads/a.png", false);
+    variants.markReady("uploads/a.png");
+
+    media.collectGarbage();
+
+    assertFalse(variants.hasVariants("uploads/a.png"));
+
+    var order = inOrder(jdbc, transactions, s3);
+    order.verify(transactions).commit(any());
+    order.verify(jdbc).query(contains("pg_advisory_xact_lock"), any(RowCallbackHandler.class), any(), eq("sha-uploads/a.png"));
+    order.verify(jdbc).queryForObject(anyString(), eq(Boolean.class), eq("uploads/a.png"));
+    order.verify(s3, times(1 + ImageVariant.values().length))
+      .deleteObject(any(DeleteObjectRequest.class));
+    order.verify(jdbc).update(contains("'GONE'"), eq("uploads/a.png"));
+    order.verify(transactions).commit(any());
+  }
+
+  @Test
+  void keepsObjectsThatWereRegisteredAgain() {
+    expire(List.of("uploads/a.png", "uploads/b.png"));
+    registered("uploads/a.png", true);
+    registered("uploads/b.png", false);
+    variants.markReady("uploads/a.png");
+
+    media.collectGarbage();
+
+    ArgumentCaptor<DeleteObjectRequest> deleted = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+    verify(s3, atLeastOnce()).deleteObject(deleted.capture());
+    List<String> keys = deleted.getAllValues().stream().map(DeleteObjectRequest::key).toList();
+    assertEquals("uploads/b.png", keys.get(0));
+    assertEquals(1 + ImageVariant.values().length, keys.size());
+    assertFalse(keys.stream().anyMatch(key -> key.contains("uploads/a.png")));
+    verify(jdbc, never()).update(contains("'GONE'"), eq("uploads/a.png"));
+    assertTrue(variants.hasVariants("uploads/a.png"));
+  }
+
+  @Test
+  void keepsTakingBatchesUntilNoneAreLeft() {
+    expire(List.of("uploads/a.png"), List.of("uploads/b.png"));
+    registered("uploads/a.png", false);
+    registered("uploads/b.png", false);
+
+    media.collectGarbage();
+
+    verify(jdbc, times(3)).query(anyString(), any(RowMapper.class), any(), any());
+    verify(s3, times(2 * (1 + ImageVariant.values().length))).deleteObject(any(DeleteObjectRequest.class));
+  }
+
+  @Test
+  void emptyBatchTouchesNoStorage() {
+    expire();
+
+    media.collectGarbage();
+
+    verify(s3, never()).deleteObject(any(DeleteObjectRequest.class));
+  }
+
+  @Test
+  void uploadsRunUnderTheSameContentLock() {
+    when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+    assertEquals("stored", media.withContentLock("sha-1", () -> "stored"));
+
+    verify(jdbc).query(contains("pg_advisory_xact_lock"), any(RowCallbackHandler.class), any(), eq("sha-1"));
+    verify(transactions).commit(any());
+  }
+}
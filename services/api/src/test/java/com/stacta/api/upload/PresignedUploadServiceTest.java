@@ -0,0 +1,170 @@
+package com.stacta.api.upload;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.stacta.api.config.ApiException;
+import com.stacta.api.config.aws.AwsProperties;
+import com.stacta.api.user.User;
+import com.stacta.api.user.UserRepository;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+class PresignedUploadServiceTest {
+  private static final AwsProperties AWS = new AwsProperties(
+    "us-east-1",
+    new AwsProperties.S3("stacta-test"),
+    new AwsProperties.Cdn(null)
+  );
+
+  @TempDir
+  Path dir;
+
+  private final S3Client s3 = mock(S3Client.class);
+  private final UserRepository users = mock(UserRepository.class);
+  private final UploadImageUrlResolver urls = mock(UploadImageUrlResolver.class);
+  private final ImageDerivativeService derivatives = mock(ImageDerivativeService.class);
+  private final MediaObjectService media = mock(MediaObjectService.class);
+  private final PresignedUploadService service = new PresignedUploadService(null, s3, AWS, users, urls, derivatives, media);
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    when(users.findByCognitoSub("sub")).thenReturn(Optional.of(mock(User.class)));
+    when(media.withContentLock(anyString(), any(Supplier.class)))
+      .thenAnswer(invocation -> invocation.<Supplier<String>>getArgument(1).get());
+    when(media.findByHash(anyString())).thenReturn(Optional.empty());
+    when(media.register(anyString(), anyString(), anyString(), anyLong()))
+      .thenAnswer(invocation -> invocation.getArgument(1));
+    when(urls.resolveFromObjectKey(anyString())).thenAnswer(invocation -> "https://cdn.test/" + invocation.getArgument(0));
+  }
+
+  @Test
+  void streamsTheStoredPartToS3WithoutBufferingIt() throws IOException {
+    byte[] content = png(1024 * 1024);
+    MultipartFile file = tempFilePart(content, "image/png");
+
+    var uploaded = service.uploadImage("sub", file, "PROFILE");
+
+    ArgumentCaptor<PutObjectRequest> put = ArgumentCaptor.forClass(PutObjectRequest.class);
+    ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+    verify(s3).putObject(put.capture(), body.capture());
+
+    assertEquals("stacta-test", put.getValue().bucket());
+    assertEquals(uploaded.objectKey(), put.getValue().key());
+    assertEquals("image/png", put.getValue().contentType());
+    assertEquals(content.length, put.getValue().contentLength());
+    assertEquals(content.length, body.getValue().optionalContentLength().orElseThrow());
+    // Every attempt re-opens the temp file through the size-capping wrapper.
+    for (int attempt = 0; attempt < 2; attempt++) {
+      try (InputStream in = body.getValue().contentStreamProvider().newStream()) {
+        assertInstanceOf(ImageUploadStream.class, in);
+        assertArrayEquals(content, in.readAllBytes());
+      }
+    }
+    verify(media).register(anyString(), eq(uploaded.objectKey()), eq("image/png"), eq((long) content.length));
+    verify(derivatives).enqueue(uploaded.objectKey());
+  }
+
+  @Test
+  void knownContentSkipsThePut() throws IOException {
+    when(media.findByHash(anyString())).thenReturn(Optional.of("media/fragrances/known.png"));
+
+    var uploaded = service.uploadImage("sub", tempFilePart(png(4096), "image/png"), null);
+
+    assertEquals("media/fragrances/known.png", uploaded.objectKey());
+    verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    verify(derivatives, never()).enqueue(anyString());
+  }
+
+  @Test
+  void rejectsBytesThatAreNotAnImageBeforeTouchingStorage() throws IOException {
+    byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes();
+
+    ApiException error = assertThrows(
+      ApiException.class,
+      () -> service.uploadImage("sub", tempFilePart(svg, "image/png"), null)
+    );
+
+    assertEquals("UPLOAD_UNSUPPORTED_CONTENT_TYPE", error.getCode());
+    verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+  }
+
+  private static byte[] png(int length) {
+    byte[] out = new byte[length];
+    byte[] header = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+    System.arraycopy(header, 0, out, 0, header.length);
+    for (int i = header.length; i < length; i++) out[i] = (byte) (i * 31);
+    return out;
+  }
+
+  /** A part spooled to disk the way the servlet container stores large uploads; it refuses getBytes(). */
+  private MultipartFile tempFilePart(byte[] content, String contentType) throws IOException {
+    Path stored = Files.createTempFile(dir, "upload", ".part");
+    Files.write(stored, content);
+    return new MultipartFile() {
+      @Override
+      public String getName() {
+        return "file";
+      }
+
+      @Override
+      public String getOriginalFilename() {
+        return "image.png";
+      }
+
+      @Override
+      public String getContentType() {
+        return contentType;
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return content.length == 0;
+      }
+
+      @Override
+      public long getSize() {
+        return content.length;
+      }
+
+      @Override
+      public byte[] getBytes() {
+        throw new AssertionError("upload buffered the whole part");
+      }
+
+      @Override
+      public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(stored);
+      }
+
+      @Override
+      public void transferTo(File dest) throws IOException {
+        Files.copy(stored, dest.toPath());
+      }
+    };
+  }
+}
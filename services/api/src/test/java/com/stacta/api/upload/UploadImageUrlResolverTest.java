@@ -0,0 +1,103 @@
+package com.stacta.api.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.stacta.api.config.aws.AwsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+class UploadImageUrlResolverTest {
+  private static final AwsProperties AWS = new AwsProperties(
+    "us-east-1",
+    new AwsProperties.S3("stacta-test"),
+    new AwsProperties.Cdn(null)
+  );
+
+  // Signs offline with static credentials; the mock only counts calls.
+  private final S3Presigner real = S3Presigner.builder()
+    .region(Region.US_EAST_1)
+    .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+    .build();
+
+  private S3Presigner countingPresigner() {
+    S3Presigner presigner = mock(S3Presigner.class);
+    when(presigner.presignGetObject(any(GetObjectPresignRequest.class)))
+      .thenAnswer(invocation -> real.presignGetObject(invocation.<GetObjectPresignRequest>getArgument(0)));
+    return presigner;
+  }
+
+  private static UploadImageUrlResolver resolver(S3Presigner presigner, SimpleMeterRegistry meters, int marginMinutes) {
+    return new UploadImageUrlResolver(AWS, presigner, new ImageVariantIndex(null, 1_000), meters, marginMinutes, 1_000);
+  }
+
+  @Test
+  void reusesSignedUrlPerObjectKey() {
+    S3Presigner presigner = countingPresigner();
+    SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    UploadImageUrlResolver resolver = resolver(presigner, meters, 120);
+
+    String first = resolver.resolveFromObjectKey("avatars/a.png");
+    String second = resolver.resolveFromObjectKey(" avatars/a.png ");
+
+    assertNotNull(first);
+    assertEquals(first, second);
+    verify(presigner, times(1)).presignGetObject(any(GetObjectPresignRequest.class));
+    assertEquals(1.0, meters.counter("image.url.presign.cache", "result", "hit").count());
+    assertEquals(1.0, meters.counter("image.url.presign.cache", "result", "miss").count());
+  }
+
+  @Test
+  void fullMarginDisablesReuse() {
+    S3Presigner presigner = countingPresigner();
+    UploadImageUrlResolver resolver = resolver(presigner, new SimpleMeterRegistry(), 12 * 60);
+
+    resolver.resolveFromObjectKey("avatars/a.png");
+    resolver.resolveFromObjectKey("avatars/a.png");
+
+    verify(presigner, times(2)).presignGetObject(any(GetObjectPresignRequest.class));
+  }
+
+  @Test
+  void bulkResolveMatchesSingleResolveSemantics() {
+    UploadImageUrlResolver resolver = resolver(countingPresigner(), new SimpleMeterRegistry(), 120);
+    var urls = resolver.resolveAll(List.of("avatars/a.png", "avatars/a.png"));
+
+    assertEquals(resolver.resolveFromObjectKey("avatars/a.png"), urls.withFallback("avatars/a.png", "https://x/fallback.png"));
+    assertEquals("https://x/fallback.png", urls.withFallback(null, " https://x/fallback.png "));
+    assertNull(urls.withFallback(" ", null));
+  }
+
+  @Test
+  void feedPageSignsEachDistinctAvatarOnce() {
+    List<String> page = new ArrayList<>();
+    for (int row = 0; row < 50; row++) {
+      page.add("avatars/user-" + (row % 15) + ".png");
+      page.add(row % 3 == 0 ? null : "avatars/user-" + ((row + 7) % 15) + ".png");
+    }
+
+    S3Presigner presigner = countingPresigner();
+    UploadImageUrlResolver resolver = resolver(presigner, new SimpleMeterRegistry(), 120);
+    for (int i = 0; i < 3; i++) {
+      var urls = resolver.resolveAll(page);
+      for (String key : page) {
+        assertEquals(key == null ? null : resolver.resolveFromObjectKey(key), urls.withFallback(key, null));
+      }
+    }
+
+    verify(presigner, times(15)).presignGetObject(any(GetObjectPresignRequest.class));
+  }
+}
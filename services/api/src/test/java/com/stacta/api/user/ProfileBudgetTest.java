@@ -0,0 +1,44 @@
+package com.stacta.api.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ProfileBudgetTest {
+
+  @Test
+  void slowPartIsCancelledAndFlagsTheResponsePartial() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      CountDownLatch interrupted = new CountDownLatch(1);
+      Future<List<String>> fast = executor.submit(() -> List.of("a"));
+      Future<List<String>> slow = executor.submit(() -> {
+        try {
+          Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+        return List.of("late");
+      });
+
+      UserService.Budget budget = new UserService.Budget(100);
+      assertEquals(List.of("a"), budget.await(fast, List.of()));
+      assertFalse(budget.missed());
+      assertEquals(List.of(), budget.await(slow, List.of()));
+      assertTrue(budget.missed());
+      assertTrue(slow.isCancelled());
+      assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+      assertEquals("x", budget.await(null, "x"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.stacta.api.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ViewerIdentityResolverTest {
+
+  private final UserRepository users = mock(UserRepository.class);
+
+  @Test
+  void cachesBySubjectUntilInvalidated() {
+    User user = user("sub-1", "before");
+    when(users.findByCognitoSub("sub-1")).thenReturn(Optional.of(user));
+    ViewerIdentityResolver resolver = new ViewerIdentityResolver(users, 300, 100);
+
+    assertEquals("before", resolver.require("sub-1").username());
+    user.setUsername("after");
+    assertEquals("before", resolver.require("sub-1").username());
+    verify(users, times(1)).findByCognitoSub("sub-1");
+
+    resolver.invalidate("sub-1");
+    assertEquals("after", resolver.require("sub-1").username());
+    verify(users, times(2)).findByCognitoSub("sub-1");
+  }
+
+  @Test
+  void invalidateInsideATransactionEvictsAgainAfterCommit() {
+    User user = user("sub-1", "before");
+    when(users.findByCognitoSub("sub-1")).thenReturn(Optional.of(user));
+    ViewerIdentityResolver resolver = new ViewerIdentityResolver(users, 300, 100);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      resolver.invalidate("sub-1");
+      // A read inside the writing transaction re-caches the row as it was before commit.
+      resolver.require("sub-1");
+      user.setUsername("after");
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertEquals("after", resolver.require("sub-1").username());
+  }
+
+  @Test
+  void doesNotCacheCallersWhoHaveNotOnboardedAndStaysBounded() {
+    when(users.findByCognitoSub("new")).thenReturn(Optional.empty());
+    ViewerIdentityResolver resolver = new ViewerIdentityResolver(users, 300, 2);
+
+    assertTrue(resolver.find("new").isEmpty());
+    assertTrue(resolver.find("new").isEmpty());
+    verify(users, times(2)).findByCognitoSub("new");
+
+    for (String sub : new String[] { "a", "b", "c" }) {
+      when(users.findByCognitoSub(sub)).thenReturn(Optional.of(user(sub, sub)));
+      resolver.require(sub);
+    }
+    resolver.require("a");
+    verify(users, times(2)).findByCognitoSub("a");
+    resolver.require("c");
+    verify(users, times(1)).findByCognitoSub("c");
+  }
+
+  private static User user(String sub, String username) {
+    User u = new User();
+    ReflectionTestUtils.setField(u, "id", UUID.randomUUID());
+    u.setCognitoSub(sub);
+    u.setUsername(username);
+    return u;
+  }
+}